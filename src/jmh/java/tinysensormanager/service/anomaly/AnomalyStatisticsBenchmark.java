@@ -0,0 +1,79 @@
+package tinysensormanager.service.anomaly;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of scoring one reading with {@link AnomalyStatistics}.
+ *
+ * <p>Readings are spread over the devices in a random order, so with a million devices nearly every reading
+ * touches state that is not in the CPU caches, as on a busy ingestion path. The same-device variant shows the
+ * cost when the state of the device is cached.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnomalyStatisticsBenchmark {
+    private static final int READINGS = 1 << 20;
+
+    @Param({"1000", "1000000"})
+    public int devices;
+
+    private AnomalyStatistics statistics;
+    private int[] slots;
+    private double[] values;
+    private int next;
+    private long clock;
+
+    /**
+     * Creates the statistics and warms every device up, so the readings are scored.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        statistics = new AnomalyStatistics(devices, 0.02, 0.1, 24, 4, 30);
+        Random random = new Random(42);
+        for (int round = 0; round < 40; round++) {
+            for (int slot = 0; slot < devices; slot++) statistics.observe(slot, clock, 20 + random.nextGaussian());
+            clock += 1000;
+        }
+        slots = new int[READINGS];
+        values = new double[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            slots[i] = random.nextInt(devices);
+            values[i] = 20 + random.nextGaussian();
+        }
+    }
+
+    /**
+     * Scores a reading of a random device.
+     * @return the score, consumed by JMH
+     */
+    @Benchmark
+    public double randomDevice() {
+        int i = next++ & (READINGS - 1);
+        return statistics.observe(slots[i], clock += 10, values[i]);
+    }
+
+    /**
+     * Scores a reading of the same device as the previous one.
+     * @return the score, consumed by JMH
+     */
+    @Benchmark
+    public double sameDevice() {
+        int i = next++ & (READINGS - 1);
+        return statistics.observe(0, clock += 10, values[i]);
+    }
+}
@@ -0,0 +1,176 @@
+package tinysensormanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small client of the REST API on top of the JDK {@link HttpClient}. Requests carry the bearer token of
+ * the load test user, which is renewed before it expires.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class ApiClient {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final String username;
+    private final String password;
+    private volatile String token;
+    private volatile long renewAt;
+
+    /**
+     * Creates the client.
+     * @param baseUrl the URL of the node, without a trailing slash
+     * @param username the name of the database user the requests are sent as
+     * @param password the password of the database user
+     */
+    ApiClient(String baseUrl, String username, String password) {
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.baseUrl = baseUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * A response: its status code and body.
+     */
+    static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Requests a token with the credentials of a database user.
+     * @param username the name of the user
+     * @param password the password of the user
+     * @return the response, whose body holds the token if the status is 200
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    Response login(String username, String password) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/token"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(Map.of("username", username, "password", password))))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        return new Response(response.statusCode(), response.body());
+    }
+
+    /**
+     * Sends a request as the load test user.
+     * @param method the HTTP method
+     * @param path the path and query, starting with a slash
+     * @param contentType the type of the body, or null if there is none
+     * @param body the body, or null if there is none
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    Response send(String method, String path, String contentType, String body)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request(method, path, contentType, body),
+                HttpResponse.BodyHandlers.ofString());
+        return new Response(response.statusCode(), response.body());
+    }
+
+    /**
+     * Sends a request as the load test user without waiting for the response.
+     * @param method the HTTP method
+     * @param path the path and query, starting with a slash
+     * @param contentType the type of the body, or null if there is none
+     * @param body the body, or null if there is none
+     * @return the status code of the response
+     */
+    CompletableFuture<Integer> sendAsync(String method, String path, String contentType, String body) {
+        HttpRequest request;
+        try {
+            request = request(method, path, contentType, body);
+        } catch (IOException | InterruptedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+    }
+
+    /**
+     * Sends a request as the load test user and reads its JSON response.
+     * @param path the path and query, starting with a slash
+     * @return the parsed body
+     * @throws IOException if the request fails or is not answered with 200
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    JsonNode getJson(String path) throws IOException, InterruptedException {
+        Response response = send("GET", path, null, null);
+        if (response.status != 200) throw new IOException("GET " + path + " returned " + response.status);
+        return mapper.readTree(response.body);
+    }
+
+    /**
+     * Serializes a value as JSON.
+     * @param value the value
+     * @return the JSON text
+     */
+    String json(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses JSON text.
+     * @param text the JSON text
+     * @return the parsed value
+     * @throws IOException if the text is not JSON
+     */
+    JsonNode parse(String text) throws IOException {
+        return mapper.readTree(text);
+    }
+
+    private HttpRequest request(String method, String path, String contentType, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token())
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (contentType != null) builder.header("Content-Type", contentType);
+        return builder.build();
+    }
+
+    private String token() throws IOException, InterruptedException {
+        if (System.currentTimeMillis() < renewAt) return token;
+        synchronized (this) {
+            if (System.currentTimeMillis() < renewAt) return token;
+            Response response = login(username, password);
+            if (response.status != 200) {
+                throw new IOException("The load test user could not log in: " + response.status);
+            }
+            JsonNode issued = mapper.readTree(response.body);
+            token = issued.path("token").asText();
+            // Renewed at half of its lifetime, so no request is sent with an expired token
+            renewAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(issued.path("expiresIn").asLong(60)) / 2;
+            return token;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package tinysensormanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The simulated users of the REST API: a fixed number of clients, each sending one request at a time, picked
+ * at random according to the weights of the mix, with an optional think time between requests.
+ *
+ * <p>The clients form a closed system, so the request rate adapts to the latency of the node; the latencies
+ * recorded are those of the individual requests.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class ApiTraffic {
+    private static final String JSON = "application/json";
+
+    private final ApiClient client;
+    private final Fleet fleet;
+    private final Map<Operation, OperationStats> stats;
+    private final LoadTestConfig config;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final ExecutorService executor;
+    private volatile boolean running;
+
+    /**
+     * Creates the clients.
+     * @param client the client of the API
+     * @param fleet the entities the requests refer to
+     * @param stats the statistics the requests are recorded in
+     * @param config the settings of the run
+     */
+    ApiTraffic(ApiClient client, Fleet fleet, Map<Operation, OperationStats> stats, LoadTestConfig config) {
+        this.client = client;
+        this.fleet = fleet;
+        this.stats = stats;
+        this.config = config;
+        this.operations = config.mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.executor = Executors.newFixedThreadPool(config.clients, task -> {
+            Thread thread = new Thread(task, "loadtest-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the clients.
+     */
+    void start() {
+        running = true;
+        for (int i = 0; i < config.clients; i++) executor.execute(this::run);
+    }
+
+    /**
+     * Stops the clients after their current request.
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void run() {
+        while (running) {
+            Operation operation = pick();
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = execute(operation);
+            } catch (IOException e) {
+                status = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // An operation without an entity to act on sent no request
+            if (status >= 0) stats.get(operation).record(status, System.nanoTime() - start);
+            if (config.thinkMillis > 0) {
+                try {
+                    Thread.sleep(config.thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Operation pick() {
+        int r = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * Sends one request of an operation.
+     * @return the status code of the response, or -1 if there was nothing to send
+     */
+    private int execute(Operation operation) throws IOException, InterruptedException {
+        Long id;
+        ApiClient.Response response;
+        switch (operation) {
+            case LOGIN:
+                String[] credentials = fleet.randomCredentials();
+                return client.login(credentials[0], credentials[1]).status;
+            case DASHBOARD:
+                return get("/api/dashboard?lastname=" + encode(Fleet.lastnamePrefix()));
+            case DEVICE_GET:
+                id = fleet.seededDevices.pick();
+                return get("/api/devices/" + id);
+            case DEVICE_SEARCH:
+                return get("/api/devices?model=" + encode(Fleet.modelPrefix()));
+            case DEVICE_LIST:
+                return get("/api/devices/all");
+            case DEVICE_CREATE:
+                response = client.send("POST", "/api/devices", JSON, client.json(fleet.newDevice()));
+                if (response.status == 201) fleet.createdDevices.add(idOf(response));
+                return response.status;
+            case DEVICE_UPDATE:
+                id = fleet.seededDevices.pick();
+                Map<String, Object> device = fleet.newDevice();
+                device.put("id", id);
+                return client.send("PUT", "/api/devices/" + id, JSON, client.json(device)).status;
+            case DEVICE_DELETE:
+                id = fleet.createdDevices.take();
+                return id == null ? -1 : client.send("DELETE", "/api/devices/" + id, null, null).status;
+            case USER_GET:
+                id = fleet.seededUsers.pick();
+                return get("/api/users/" + id);
+            case USER_SEARCH:
+                return get("/api/users?lastname=" + encode(Fleet.lastnamePrefix()));
+            case USER_LIST:
+                return get("/api/users/all");
+            case USER_CREATE:
+                response = client.send("POST", "/api/users", JSON, client.json(fleet.newUser()));
+                if (response.status == 201) fleet.createdUsers.add(idOf(response));
+                return response.status;
+            case USER_UPDATE:
+                id = fleet.seededUsers.pick();
+                Map<String, Object> user = fleet.newUser();
+                user.put("id", id);
+                return client.send("PUT", "/api/users/" + id, JSON, client.json(user)).status;
+            case USER_DELETE:
+                id = fleet.createdUsers.take();
+                return id == null ? -1 : client.send("DELETE", "/api/users/" + id, null, null).status;
+            case DBUSER_GET:
+                id = fleet.dbUsers.pick();
+                return get("/api/dbusers/" + id);
+            case DBUSER_LIST:
+                return get("/api/dbusers/all");
+            case DBUSER_CREATE:
+                response = client.send("POST", "/api/dbusers", JSON, client.json(fleet.newDbUser()));
+                if (response.status == 201) fleet.dbUsers.add(idOf(response));
+                return response.status;
+            case READINGS_LATEST:
+                id = fleet.seededDevices.pick();
+                return get("/api/devices/" + id + "/readings/latest?n=100");
+            default:
+                throw new IllegalStateException(operation + " is not an API operation");
+        }
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        return client.send("GET", path, null, null).status;
+    }
+
+    private long idOf(ApiClient.Response response) throws IOException {
+        JsonNode created = client.parse(response.body);
+        return created.path("id").asLong();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,177 @@
+package tinysensormanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The entities of a load test run: generates users, devices and database users, seeds them through the bulk
+ * import endpoints and keeps the ids the simulated clients and sensors pick from.
+ *
+ * <p>Every generated entity carries the tag of the run in its serial number, email address or username, so
+ * the test only touches its own entities when it runs against a node with other data. Entities are never
+ * deleted unless they were created during the run, so the seeded ones stay available to reads and sensors.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class Fleet {
+    private static final String[] MODELS = {"TS-100", "TS-200", "TS-300", "TH-10", "TH-20", "AQ-5", "PM-25",
+            "CO2-1", "LUX-3", "WL-7"};
+    private static final String[] FIRSTNAMES = {"Anna", "Ben", "Chloe", "Dimitris", "Elena", "Felix", "Giorgos",
+            "Hanna", "Ioannis", "Julia", "Kostas", "Lena", "Maria", "Nikos", "Olga", "Petros"};
+    private static final String[] LASTNAMES = {"Papadopoulos", "Papadakis", "Georgiou", "Nikolaou", "Dimitriou",
+            "Konstantinou", "Ioannou", "Vasileiou", "Christodoulou", "Karagiannis", "Smith", "Schmidt", "Miller",
+            "Muller", "Martin", "Bernard", "Rossi", "Russo", "Garcia", "Fernandez", "Novak", "Kowalski", "Jansen",
+            "Peeters", "Nielsen", "Larsen", "Virtanen", "Horvat", "Popescu", "Ivanov"};
+
+    private final String tag;
+    private final AtomicLong sequence = new AtomicLong();
+
+    final IdPool seededDevices = new IdPool();
+    final IdPool createdDevices = new IdPool();
+    final IdPool seededUsers = new IdPool();
+    final IdPool createdUsers = new IdPool();
+    final IdPool dbUsers = new IdPool();
+    final List<String[]> credentials = new ArrayList<>();
+
+    /**
+     * Creates the fleet of a run with a random tag.
+     */
+    Fleet() {
+        this.tag = String.format("%04x", ThreadLocalRandom.current().nextInt(1 << 16));
+    }
+
+    /**
+     * Imports the users and devices and registers the database users, then collects their ids.
+     * @param client the client of the API
+     * @param config the settings of the run
+     * @throws IOException if seeding fails
+     * @throws InterruptedException if interrupted while seeding
+     */
+    void seed(ApiClient client, LoadTestConfig config) throws IOException, InterruptedException {
+        importAll(client, "/api/users/import?format=ndjson", config.users, this::newUser);
+        importAll(client, "/api/devices/import?format=ndjson", config.devices, this::newDevice);
+        for (int i = 0; i < config.dbUsers; i++) {
+            Map<String, Object> dbUser = newDbUser();
+            ApiClient.Response response = client.send("POST", "/api/dbusers", "application/json", client.json(dbUser));
+            if (response.status != 201 && response.status != 200) {
+                throw new IOException("A database user could not be registered: " + response.status);
+            }
+            credentials.add(new String[] {(String) dbUser.get("username"), (String) dbUser.get("password")});
+        }
+
+        String userDomain = "@" + tag + ".loadtest.example";
+        for (JsonNode user : client.getJson("/api/users/all")) {
+            if (user.path("email").asText().endsWith(userDomain)) seededUsers.add(user.path("id").asLong());
+        }
+        String serialPrefix = "LT-" + tag + "-";
+        for (JsonNode device : client.getJson("/api/devices/all")) {
+            if (device.path("serialnumber").asText().startsWith(serialPrefix)) seededDevices.add(device.path("id").asLong());
+        }
+        String usernamePrefix = "lt" + tag + "-";
+        for (JsonNode dbUser : client.getJson("/api/dbusers/all")) {
+            if (dbUser.path("username").asText().startsWith(usernamePrefix)) dbUsers.add(dbUser.path("id").asLong());
+        }
+        if (seededUsers.size() < config.users || seededDevices.size() < config.devices) {
+            throw new IOException("Seeded " + seededUsers.size() + " of " + config.users + " users and "
+                    + seededDevices.size() + " of " + config.devices + " devices");
+        }
+    }
+
+    /**
+     * Generates a device with a unique MAC address.
+     * @return the fields of a device
+     */
+    Map<String, Object> newDevice() {
+        long n = sequence.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int tagBits = Integer.parseInt(tag, 16);
+        Map<String, Object> device = new LinkedHashMap<>();
+        device.put("model", MODELS[random.nextInt(MODELS.length)]);
+        device.put("serialnumber", "LT-" + tag + "-" + n);
+        device.put("mac", String.format(Locale.ROOT, "02:%02x:%02x:%02x:%02x:%02x", tagBits >>> 8, tagBits & 0xFF,
+                (n >>> 16) & 0xFF, (n >>> 8) & 0xFF, n & 0xFF));
+        device.put("ip", "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254)));
+        device.put("imageUrl", null);
+        return device;
+    }
+
+    /**
+     * Generates a user with a unique email address.
+     * @return the fields of a user
+     */
+    Map<String, Object> newUser() {
+        long n = sequence.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("firstname", FIRSTNAMES[random.nextInt(FIRSTNAMES.length)]);
+        user.put("lastname", LASTNAMES[random.nextInt(LASTNAMES.length)]);
+        user.put("email", "user" + n + "@" + tag + ".loadtest.example");
+        user.put("address", random.nextInt(1, 200) + " Sensor Street");
+        user.put("imageUrl", null);
+        return user;
+    }
+
+    /**
+     * Generates a database user with a unique username.
+     * @return the fields of a database user
+     */
+    Map<String, Object> newDbUser() {
+        long n = sequence.incrementAndGet();
+        Map<String, Object> dbUser = new LinkedHashMap<>();
+        dbUser.put("username", "lt" + tag + "-" + n);
+        dbUser.put("password", "pw-" + n);
+        return dbUser;
+    }
+
+    /**
+     * Returns the start of a model name, as typed into a search box.
+     * @return the prefix
+     */
+    static String modelPrefix() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String model = MODELS[random.nextInt(MODELS.length)];
+        return model.substring(0, random.nextInt(2, model.length() + 1));
+    }
+
+    /**
+     * Returns the start of a last name, as typed into a search box.
+     * @return the prefix
+     */
+    static String lastnamePrefix() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String lastname = LASTNAMES[random.nextInt(LASTNAMES.length)];
+        return lastname.substring(0, random.nextInt(3, lastname.length() + 1));
+    }
+
+    /**
+     * Returns a random seeded database user.
+     * @return the username and password
+     */
+    String[] randomCredentials() {
+        return credentials.get(ThreadLocalRandom.current().nextInt(credentials.size()));
+    }
+
+    private static void importAll(ApiClient client, String path, int count,
+                                  Supplier<Map<String, Object>> generator)
+            throws IOException, InterruptedException {
+        StringBuilder ndjson = new StringBuilder(count * 160);
+        for (int i = 0; i < count; i++) ndjson.append(client.json(generator.get())).append('\n');
+        ApiClient.Response response = client.send("POST", path, "application/x-ndjson", ndjson.toString());
+        if (response.status != 200) throw new IOException("POST " + path + " returned " + response.status);
+        JsonNode report = client.parse(response.body);
+        if (report.path("imported").asLong() < count) {
+            throw new IOException("POST " + path + " imported " + report.path("imported").asLong() + " of " + count
+                    + ": " + report.path("errors"));
+        }
+    }
+}
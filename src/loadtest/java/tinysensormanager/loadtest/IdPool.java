@@ -0,0 +1,69 @@
+package tinysensormanager.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A set of entity ids the simulated clients pick from at random. Safe for concurrent use.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class IdPool {
+    private final List<Long> ids = new ArrayList<>();
+
+    /**
+     * Adds ids.
+     * @param added the ids
+     */
+    synchronized void addAll(Collection<Long> added) {
+        ids.addAll(added);
+    }
+
+    /**
+     * Adds an id.
+     * @param id the id
+     */
+    synchronized void add(long id) {
+        ids.add(id);
+    }
+
+    /**
+     * Returns a random id.
+     * @return the id, or null if the pool is empty
+     */
+    synchronized Long pick() {
+        return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * Removes and returns a random id.
+     * @return the id, or null if the pool is empty
+     */
+    synchronized Long take() {
+        if (ids.isEmpty()) return null;
+        int i = ThreadLocalRandom.current().nextInt(ids.size());
+        Long id = ids.get(i);
+        ids.set(i, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    /**
+     * Returns the ids.
+     * @return a copy of the ids
+     */
+    synchronized List<Long> snapshot() {
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Returns the number of ids.
+     * @return the size of the pool
+     */
+    synchronized int size() {
+        return ids.size();
+    }
+}
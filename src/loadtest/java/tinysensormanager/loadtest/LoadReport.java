@@ -0,0 +1,176 @@
+package tinysensormanager.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a measured run, written as JSON so runs can be compared by scripts, and summarized as a
+ * table on the console.
+ *
+ * <p>For every operation the report gives the number of responses per status code, the throughput, the
+ * error rate and the latency percentiles in milliseconds, the latency distribution as percentile steps, and
+ * the full HdrHistogram in its compressed, base64 encoded form, so histograms of several runs can be merged
+ * and compared exactly.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class LoadReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Object> root = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> operations = new LinkedHashMap<>();
+    private long requests;
+    private long errors;
+
+    /**
+     * Takes the outcome of the measured run from the statistics of its operations.
+     * @param config the settings of the run
+     * @param fleet the entities the run worked on
+     * @param sensors the number of simulated sensors
+     * @param stats the statistics of the operations, taken and left empty
+     * @param elapsedNanos the duration of the measured run
+     */
+    LoadReport(LoadTestConfig config, Fleet fleet, int sensors, Map<Operation, OperationStats> stats,
+               long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            Map<Integer, Long> statuses = entry.getValue().statuses();
+            Histogram latencies = entry.getValue().takeLatencies();
+            long total = latencies.getTotalCount();
+            if (total == 0) continue;
+            long failed = statuses.entrySet().stream()
+                    .filter(status -> OperationStats.isError(status.getKey()))
+                    .mapToLong(Map.Entry::getValue).sum();
+            requests += total;
+            errors += failed;
+
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("requests", total);
+            operation.put("errors", failed);
+            operation.put("errorRate", (double) failed / total);
+            operation.put("throughputPerSecond", total / seconds);
+            operation.put("statuses", statuses);
+            operation.put("latencyMillis", latencyMillis(latencies));
+            operation.put("distribution", distribution(latencies));
+            operation.put("hdrHistogram", encode(latencies));
+            operations.put(entry.getKey().name(), operation);
+        }
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("target", config.isEmbedded() ? "embedded" : config.target);
+        settings.put("clients", config.clients);
+        settings.put("thinkMillis", config.thinkMillis);
+        settings.put("sensors", sensors);
+        settings.put("sensorIntervalMillis", config.sensorIntervalMillis);
+        settings.put("sensorJitter", config.sensorJitter);
+        settings.put("readingsPerPost", config.readingsPerPost);
+        settings.put("heartbeatShare", config.heartbeatShare);
+        settings.put("retransmitShare", config.retransmitShare);
+        settings.put("warmupSeconds", config.warmupSeconds);
+        settings.put("durationSeconds", config.durationSeconds);
+        settings.put("mix", config.mix);
+
+        Map<String, Object> seeded = new LinkedHashMap<>();
+        seeded.put("users", fleet.seededUsers.size());
+        seeded.put("devices", fleet.seededDevices.size());
+        seeded.put("dbUsers", fleet.dbUsers.size());
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("errors", errors);
+        totals.put("errorRate", errorRate());
+        totals.put("throughputPerSecond", requests / seconds);
+
+        root.put("settings", settings);
+        root.put("seeded", seeded);
+        root.put("measuredSeconds", seconds);
+        root.put("totals", totals);
+        root.put("operations", operations);
+    }
+
+    /**
+     * Returns the share of requests of the measured run that failed.
+     * @return the error rate, 0 if no request was sent
+     */
+    double errorRate() {
+        return requests == 0 ? 0 : (double) errors / requests;
+    }
+
+    /**
+     * Writes the report as JSON, creating the parent directories of the file.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), root);
+    }
+
+    /**
+     * Prints one line per operation and the totals.
+     * @param out the stream to print to
+     */
+    @SuppressWarnings("unchecked")
+    void print(PrintStream out) {
+        out.printf("%-16s %10s %9s %8s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        operations.forEach((name, operation) -> {
+            Map<String, Object> latency = (Map<String, Object>) operation.get("latencyMillis");
+            out.printf("%-16s %10d %9.1f %8d %9.2f %9.2f %9.2f %9.2f%n", name, operation.get("requests"),
+                    operation.get("throughputPerSecond"), operation.get("errors"), latency.get("p50"),
+                    latency.get("p99"), latency.get("p99.9"), latency.get("max"));
+        });
+        Map<String, Object> totals = (Map<String, Object>) root.get("totals");
+        out.printf("%-16s %10d %9.1f %8d (%.3f%% errors)%n", "total", totals.get("requests"),
+                totals.get("throughputPerSecond"), totals.get("errors"), errorRate() * 100);
+    }
+
+    private static Map<String, Object> latencyMillis(Histogram latencies) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("mean", latencies.getMean() / 1000);
+        for (double percentile : PERCENTILES) {
+            String name = "p" + (percentile == Math.rint(percentile) ? Long.toString((long) percentile)
+                    : Double.toString(percentile));
+            latency.put(name, latencies.getValueAtPercentile(percentile) / 1000.0);
+        }
+        latency.put("max", latencies.getMaxValue() / 1000.0);
+        return latency;
+    }
+
+    /**
+     * Returns the latency at percentiles that halve the remaining distance to 100% five times per halving,
+     * as HdrHistogram prints its percentile distributions.
+     */
+    private static List<Map<String, Object>> distribution(Histogram latencies) {
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (HistogramIterationValue value : latencies.percentiles(5)) {
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("percentile", value.getPercentileLevelIteratedTo());
+            step.put("latencyMillis", value.getValueIteratedTo() / 1000.0);
+            step.put("count", value.getTotalCountToThisValue());
+            steps.add(step);
+        }
+        return steps;
+    }
+
+    private static String encode(Histogram latencies) {
+        ByteBuffer buffer = ByteBuffer.allocate(latencies.getNeededByteBufferCapacity());
+        int length = latencies.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
@@ -0,0 +1,98 @@
+package tinysensormanager.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tinysensormanager.TinysensorSpringbootApplication;
+import tinysensormanager.dto.DbUserDTO;
+import tinysensormanager.service.IDbUserService;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a load test against the REST API and the reading ingestion, and reports throughput, latency
+ * histograms and error rates per operation.
+ *
+ * <p>Unless a target URL is given, the application is started in-process with the {@code loadtest} profile,
+ * on a random port and an embedded H2 database in MySQL mode. The run seeds users, devices and database users
+ * through the import and registration endpoints, warms the node up, forgets the warm-up measurements and
+ * measures for the configured duration. API clients send a weighted mix of CRUD requests, searches,
+ * dashboards and logins, while simulated sensors post readings and heartbeats at jittered intervals, with
+ * retransmissions and readings out of order.</p>
+ *
+ * <p>Settings are read from {@code loadtest.*} system properties, see {@link LoadTestConfig}. The JSON report
+ * is written to the file given as the first argument. The process exits with status 1 when the error rate
+ * exceeds {@code loadtest.max-error-rate}, so the run can gate a build.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    /**
+     * Runs the load test.
+     * @param args the path of the JSON report, defaults to build/reports/loadtest/report.json
+     * @throws Exception if the application cannot be started or seeded
+     */
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        Path reportFile = Path.of(args.length > 0 ? args[0] : "build/reports/loadtest/report.json");
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = config.target;
+        if (config.isEmbedded()) {
+            context = new SpringApplicationBuilder(TinysensorSpringbootApplication.class)
+                    .profiles("loadtest")
+                    .run("--server.port=0");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            context.getBean(IDbUserService.class).registerUser(new DbUserDTO(null, config.username, config.password));
+        }
+
+        LoadReport report;
+        try {
+            ApiClient client = new ApiClient(baseUrl, config.username, config.password);
+            Fleet fleet = new Fleet();
+            System.out.printf("Seeding %d users, %d devices and %d database users on %s%n",
+                    config.users, config.devices, config.dbUsers, baseUrl);
+            fleet.seed(client, config);
+
+            Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) stats.put(operation, new OperationStats());
+            ApiTraffic traffic = new ApiTraffic(client, fleet, stats, config);
+            SensorFleet sensors = new SensorFleet(client, fleet.seededDevices.snapshot(), stats, config);
+
+            traffic.start();
+            sensors.start();
+            System.out.printf("Warming up for %d s with %d clients and %d sensors%n",
+                    config.warmupSeconds, config.clients, sensors.size());
+            TimeUnit.SECONDS.sleep(config.warmupSeconds);
+            for (OperationStats operation : stats.values()) operation.reset();
+
+            System.out.printf("Measuring for %d s%n", config.durationSeconds);
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(config.durationSeconds);
+            sensors.stop();
+            traffic.stop();
+            long elapsed = System.nanoTime() - start;
+
+            report = new LoadReport(config, fleet, sensors.size(), stats, elapsed);
+            report.write(reportFile);
+            report.print(System.out);
+            System.out.println("Report written to " + reportFile.toAbsolutePath());
+        } finally {
+            if (context != null) context.close();
+        }
+
+        if (report.errorRate() > config.maxErrorRate) {
+            System.err.printf("The error rate %.4f exceeds the maximum of %.4f%n", report.errorRate(),
+                    config.maxErrorRate);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,108 @@
+package tinysensormanager.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The settings of a load test run, read from {@code loadtest.*} system properties.
+ *
+ * <p>Without {@code loadtest.target} the application is started in-process against the embedded database of
+ * the {@code loadtest} profile. With it, the load is sent to a running node, whose credentials must then be
+ * given; the test only changes and deletes entities it created itself.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class LoadTestConfig {
+    final String target;
+    final String username;
+    final String password;
+    final int users;
+    final int devices;
+    final int dbUsers;
+    final int clients;
+    final long thinkMillis;
+    final int sensors;
+    final long sensorIntervalMillis;
+    final double sensorJitter;
+    final int readingsPerPost;
+    final double heartbeatShare;
+    final double retransmitShare;
+    final long warmupSeconds;
+    final long durationSeconds;
+    final Map<Operation, Integer> mix;
+    final double maxErrorRate;
+
+    private LoadTestConfig() {
+        target = string("target", "");
+        username = string("username", "loadtest");
+        password = string("password", "loadtest");
+        users = integer("users", 1000);
+        devices = integer("devices", 1000);
+        dbUsers = integer("dbusers", 20);
+        clients = integer("clients", 32);
+        thinkMillis = integer("think-ms", 0);
+        sensors = Math.min(integer("sensors", 500), devices);
+        sensorIntervalMillis = integer("sensor-interval-ms", 1000);
+        sensorJitter = decimal("sensor-jitter", 0.2);
+        readingsPerPost = integer("readings-per-post", 5);
+        heartbeatShare = decimal("heartbeat-share", 0.1);
+        retransmitShare = decimal("retransmit-share", 0.05);
+        warmupSeconds = integer("warmup-seconds", 10);
+        durationSeconds = integer("duration-seconds", 60);
+        mix = mix(string("mix", ""));
+        maxErrorRate = decimal("max-error-rate", 1);
+    }
+
+    /**
+     * Reads the settings from the system properties.
+     * @return the settings
+     * @throws IllegalArgumentException if a setting is malformed
+     */
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig();
+    }
+
+    /**
+     * Returns whether the application is started in-process.
+     * @return true if no target is given
+     */
+    boolean isEmbedded() {
+        return target.isBlank();
+    }
+
+    private static Map<Operation, Integer> mix(String configured) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        if (configured.isBlank()) {
+            for (Operation operation : Operation.values()) {
+                if (operation.getDefaultWeight() > 0) weights.put(operation, operation.getDefaultWeight());
+            }
+            return weights;
+        }
+        for (String entry : configured.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Mix entries are OPERATION:weight, not " + entry);
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            if (operation.getDefaultWeight() == 0) {
+                throw new IllegalArgumentException(operation + " is sent by the sensors and cannot be mixed");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) weights.put(operation, weight);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("The mix contains no operation");
+        return weights;
+    }
+
+    private static String string(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static int integer(String name, int defaultValue) {
+        return Integer.parseInt(string(name, Integer.toString(defaultValue)).trim());
+    }
+
+    private static double decimal(String name, double defaultValue) {
+        return Double.parseDouble(string(name, Double.toString(defaultValue)).trim());
+    }
+}
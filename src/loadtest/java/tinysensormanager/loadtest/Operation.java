@@ -0,0 +1,108 @@
+package tinysensormanager.loadtest;
+
+/**
+ * The kinds of requests the load test sends, with their default share of the API traffic.
+ *
+ * <p>The API operations are sent by the simulated clients in proportion to their weights, which can be
+ * replaced with {@code -Dloadtest.mix=DEVICE_GET:50,USER_GET:50}. Readings and heartbeats are sent by the
+ * simulated sensors at their own rate and are not part of the mix.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public enum Operation {
+    /**
+     * POST /api/auth/token with the credentials of a seeded database user.
+     */
+    LOGIN(2),
+    /**
+     * GET /api/dashboard, searching users by a last name.
+     */
+    DASHBOARD(3),
+    /**
+     * GET /api/devices/{id}.
+     */
+    DEVICE_GET(20),
+    /**
+     * GET /api/devices?model=, by a model prefix.
+     */
+    DEVICE_SEARCH(8),
+    /**
+     * GET /api/devices/all.
+     */
+    DEVICE_LIST(1),
+    /**
+     * POST /api/devices.
+     */
+    DEVICE_CREATE(3),
+    /**
+     * PUT /api/devices/{id} of a device created by the test.
+     */
+    DEVICE_UPDATE(3),
+    /**
+     * DELETE /api/devices/{id} of a device created during the run.
+     */
+    DEVICE_DELETE(1),
+    /**
+     * GET /api/users/{id}.
+     */
+    USER_GET(20),
+    /**
+     * GET /api/users?lastname=, by a last name prefix.
+     */
+    USER_SEARCH(8),
+    /**
+     * GET /api/users/all.
+     */
+    USER_LIST(1),
+    /**
+     * POST /api/users.
+     */
+    USER_CREATE(3),
+    /**
+     * PUT /api/users/{id} of a user created by the test.
+     */
+    USER_UPDATE(3),
+    /**
+     * DELETE /api/users/{id} of a user created during the run.
+     */
+    USER_DELETE(1),
+    /**
+     * GET /api/dbusers/{id}.
+     */
+    DBUSER_GET(4),
+    /**
+     * GET /api/dbusers/all.
+     */
+    DBUSER_LIST(1),
+    /**
+     * POST /api/dbusers.
+     */
+    DBUSER_CREATE(1),
+    /**
+     * GET /api/devices/{id}/readings/latest of a sensor.
+     */
+    READINGS_LATEST(5),
+    /**
+     * POST /api/devices/{id}/readings by a sensor.
+     */
+    READINGS(0),
+    /**
+     * POST /api/devices/{id}/heartbeat by a sensor.
+     */
+    HEARTBEAT(0);
+
+    private final int defaultWeight;
+
+    Operation(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Returns the share of the API traffic of this operation when no mix is configured.
+     * @return the weight, 0 for the sensor traffic
+     */
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+}
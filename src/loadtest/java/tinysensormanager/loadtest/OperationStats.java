@@ -0,0 +1,68 @@
+package tinysensormanager.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The outcomes of the requests of one {@link Operation}: a latency histogram in microseconds and the number
+ * of responses per status code. Requests that got no response at all are counted under status 0. Any status
+ * other than 2xx is an error. Safe for concurrent recording.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class OperationStats {
+    private final Recorder latencies = new Recorder(3);
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * Records a request.
+     * @param status the status code of the response, 0 if there was none
+     * @param elapsedNanos the time from the intended start of the request to its response
+     */
+    void record(int status, long elapsedNanos) {
+        latencies.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), 1));
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    /**
+     * Forgets everything recorded so far, at the end of the warm-up.
+     */
+    void reset() {
+        latencies.reset();
+        statuses.clear();
+    }
+
+    /**
+     * Returns the latencies recorded since the last call or {@link #reset()}.
+     * @return the histogram in microseconds
+     */
+    Histogram takeLatencies() {
+        return latencies.getIntervalHistogram();
+    }
+
+    /**
+     * Returns the number of responses per status code.
+     * @return the counts, ordered by status
+     */
+    Map<Integer, Long> statuses() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Returns whether a status code counts as an error.
+     * @param status the status code, 0 if there was no response
+     * @return true unless the status is 2xx
+     */
+    static boolean isError(int status) {
+        return status < 200 || status >= 300;
+    }
+}
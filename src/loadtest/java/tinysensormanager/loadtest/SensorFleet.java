@@ -0,0 +1,150 @@
+package tinysensormanager.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The simulated sensors: every sensor posts a batch of readings, or only a heartbeat, at a jittered interval,
+ * and now and then sends the same batch a second time, as a device does that missed the acknowledgement.
+ *
+ * <p>The sensors form an open system: a send is scheduled at its intended time whether or not the previous
+ * one was answered, and its latency is measured from that intended time, so a node that falls behind shows
+ * its queueing delay in the latencies instead of silently lowering the rate.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class SensorFleet {
+    private static final String JSON = "application/json";
+
+    private final ApiClient client;
+    private final Map<Operation, OperationStats> stats;
+    private final LoadTestConfig config;
+    private final List<Long> deviceIds;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    /**
+     * Creates the sensors.
+     * @param client the client of the API
+     * @param deviceIds the devices the sensors report for, one sensor each
+     * @param stats the statistics the sends are recorded in
+     * @param config the settings of the run
+     */
+    SensorFleet(ApiClient client, List<Long> deviceIds, Map<Operation, OperationStats> stats, LoadTestConfig config) {
+        this.client = client;
+        this.stats = stats;
+        this.config = config;
+        this.deviceIds = new ArrayList<>(deviceIds.subList(0, Math.min(config.sensors, deviceIds.size())));
+        this.scheduler = Executors.newScheduledThreadPool(2, task -> {
+            Thread thread = new Thread(task, "loadtest-sensors");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the sensors, spreading their first sends over one interval.
+     */
+    void start() {
+        running = true;
+        for (Long deviceId : deviceIds) {
+            Sensor sensor = new Sensor(deviceId);
+            long delay = ThreadLocalRandom.current().nextLong(Math.max(config.sensorIntervalMillis, 1));
+            sensor.schedule(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+    }
+
+    /**
+     * Stops the sensors. Sends in flight are still recorded when they are answered.
+     */
+    void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the number of simulated sensors.
+     * @return the number of sensors
+     */
+    int size() {
+        return deviceIds.size();
+    }
+
+    /**
+     * A sensor of one device, with the random walk its readings follow.
+     */
+    private final class Sensor {
+        private final long deviceId;
+        private final Random random = new Random();
+        private double value;
+
+        Sensor(long deviceId) {
+            this.deviceId = deviceId;
+            this.value = 15 + random.nextDouble() * 10;
+        }
+
+        void schedule(long intendedAt) {
+            if (!running) return;
+            long delay = Math.max(0, intendedAt - System.nanoTime());
+            scheduler.schedule(() -> send(intendedAt), delay, TimeUnit.NANOSECONDS);
+        }
+
+        private void send(long intendedAt) {
+            if (!running) return;
+            long now = System.currentTimeMillis();
+            if (random.nextDouble() < config.heartbeatShare) {
+                post(Operation.HEARTBEAT, "/api/devices/" + deviceId + "/heartbeat?timestamp=" + now, null,
+                        intendedAt);
+            } else {
+                String batch = batch(now);
+                String path = "/api/devices/" + deviceId + "/readings";
+                post(Operation.READINGS, path, batch, intendedAt);
+                if (random.nextDouble() < config.retransmitShare) {
+                    long retransmitAt = intendedAt + TimeUnit.MILLISECONDS.toNanos(50 + random.nextInt(450));
+                    scheduler.schedule(() -> post(Operation.READINGS, path, batch, retransmitAt),
+                            Math.max(0, retransmitAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            }
+            schedule(intendedAt + nextInterval());
+        }
+
+        /**
+         * Returns the readings of one post, spaced evenly over the last interval, in reverse order one time in
+         * ten so the server sees readings that arrive out of order.
+         */
+        private String batch(long now) {
+            int n = config.readingsPerPost;
+            long spacing = Math.max(config.sensorIntervalMillis / n, 1);
+            StringBuilder json = new StringBuilder(n * 48).append('[');
+            boolean reversed = random.nextInt(10) == 0;
+            for (int i = 0; i < n; i++) {
+                value += random.nextGaussian() * 0.1;
+                int k = reversed ? i : n - 1 - i;
+                if (i > 0) json.append(',');
+                json.append("{\"timestamp\":").append(now - k * spacing)
+                        .append(",\"value\":").append(Math.round(value * 1000) / 1000.0).append('}');
+            }
+            return json.append(']').toString();
+        }
+
+        private long nextInterval() {
+            double factor = 1 + config.sensorJitter * random.nextGaussian();
+            factor = Math.max(0.1, Math.min(factor, 1 + 3 * config.sensorJitter));
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(1, Math.round(config.sensorIntervalMillis * factor)));
+        }
+
+        private void post(Operation operation, String path, String body, long intendedAt) {
+            if (!running) return;
+            client.sendAsync("POST", path, body != null ? JSON : null, body)
+                    .whenComplete((status, failure) -> stats.get(operation)
+                            .record(failure != null ? 0 : status, System.nanoTime() - intendedAt));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+-- The schema of the migrations in db/migration, V1 to V7, written for H2 in MySQL mode.
+-- READINGS is not partitioned; everything else matches.
+
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE DEVICES (
+    ID            BIGINT       NOT NULL,
+    DEVICE_NAME   VARCHAR(255) NOT NULL,
+    SERIAL_NUMBER VARCHAR(255),
+    MAC_ADDRESS   VARCHAR(255),
+    IP_ADDRESS    VARCHAR(255),
+    MAC           VARCHAR(255),
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_DEVICES_MAC_ADDRESS UNIQUE (MAC_ADDRESS)
+);
+
+CREATE INDEX IDX_DEVICES_DEVICE_NAME ON DEVICES (DEVICE_NAME);
+CREATE INDEX IDX_DEVICES_SERIAL_NUMBER ON DEVICES (SERIAL_NUMBER);
+CREATE INDEX IDX_DEVICES_IP_ADDRESS ON DEVICES (IP_ADDRESS);
+
+CREATE TABLE USERS (
+    ID        BIGINT       NOT NULL,
+    FIRSTNAME VARCHAR(255),
+    LASTNAME  VARCHAR(255),
+    EMAIL     VARCHAR(255) NOT NULL,
+    ADDRESS   VARCHAR(255),
+    IMAGE     VARCHAR(255),
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_USERS_EMAIL UNIQUE (EMAIL)
+);
+
+CREATE INDEX IDX_USERS_LASTNAME ON USERS (LASTNAME);
+
+CREATE TABLE DBUSERS (
+    ID       BIGINT       NOT NULL,
+    USERNAME VARCHAR(255) NOT NULL,
+    PASSWORD VARCHAR(255) NOT NULL,
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_DBUSERS_USERNAME UNIQUE (USERNAME)
+);
+
+CREATE TABLE READINGS (
+    ID            BIGINT NOT NULL AUTO_INCREMENT,
+    DEVICE_ID     BIGINT NOT NULL,
+    TS            BIGINT NOT NULL,
+    READING_VALUE DOUBLE NOT NULL,
+    PRIMARY KEY (ID, TS)
+);
+
+CREATE INDEX IDX_READINGS_DEVICE_TS ON READINGS (DEVICE_ID, TS);
+
+CREATE TABLE ALERT_RULES (
+    ID        BIGINT       NOT NULL,
+    NAME      VARCHAR(255) NOT NULL,
+    SCOPE     VARCHAR(255) NOT NULL,
+    TARGET    VARCHAR(255),
+    RULE_TYPE VARCHAR(255) NOT NULL,
+    THRESHOLD DOUBLE       NOT NULL,
+    ENABLED   BIT          NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE ALERTS (
+    ID            BIGINT NOT NULL AUTO_INCREMENT,
+    RULE_ID       BIGINT NOT NULL,
+    DEVICE_ID     BIGINT NOT NULL,
+    RAISED        BIT    NOT NULL,
+    READING_VALUE DOUBLE,
+    TS            BIGINT NOT NULL,
+    MESSAGE       VARCHAR(1000),
+    PRIMARY KEY (ID)
+);
+
+CREATE INDEX IDX_ALERTS_DEVICE_TS ON ALERTS (DEVICE_ID, TS);
+
+CREATE TABLE OUTBOX (
+    SEQ         BIGINT      NOT NULL AUTO_INCREMENT,
+    ENTITY      VARCHAR(16) NOT NULL,
+    ENTITY_ID   BIGINT      NOT NULL,
+    CHANGE_TYPE VARCHAR(16) NOT NULL,
+    UNIQUE_KEY  VARCHAR(255),
+    ORIGIN_NODE VARCHAR(64) NOT NULL,
+    CREATED_AT  BIGINT      NOT NULL,
+    PRIMARY KEY (SEQ)
+);
+
+CREATE INDEX IDX_OUTBOX_CREATED_AT ON OUTBOX (CREATED_AT);
+
+CREATE TABLE READING_SKETCHES (
+    SCOPE        CHAR(1)      NOT NULL,
+    SCOPE_KEY    VARCHAR(255) NOT NULL,
+    BUCKET_START BIGINT       NOT NULL,
+    NODE_ID      VARCHAR(64)  NOT NULL,
+    READINGS     BIGINT       NOT NULL,
+    SKETCH       BLOB         NOT NULL,
+    PRIMARY KEY (SCOPE, SCOPE_KEY, BUCKET_START, NODE_ID)
+);
+
+CREATE INDEX IDX_READING_SKETCHES_BUCKET_START ON READING_SKETCHES (BUCKET_START);
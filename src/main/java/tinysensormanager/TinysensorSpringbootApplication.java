@@ -2,6 +2,7 @@ package tinysensormanager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 /**
  * The main class for the TinySensor Spring Boot application.
@@ -18,11 +19,16 @@ public class TinysensorSpringbootApplication {
     /**
      * The main method of the application. It calls the SpringApplication.run method with the
      * TinysensorSpringbootApplication class and command-line arguments, which starts the Spring Boot application.
+     * When the system property {@code tinysensor.exit-after-startup} is true, the application stops as soon as
+     * it has started, which is used to record the class-data-sharing archive.
      *
      * @param args command-line arguments passed to the application
      */
     public static void main(String[] args) {
-        SpringApplication.run(TinysensorSpringbootApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(TinysensorSpringbootApplication.class, args);
+        if (Boolean.getBoolean("tinysensor.exit-after-startup")) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
@@ -0,0 +1,57 @@
+package tinysensormanager.authentication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Grants the {@code ADMIN} role to the database users listed in {@code tinysensor.admin.usernames}, for form
+ * logins and bearer tokens alike. The administration endpoints under {@code /api/admin} require the role, so
+ * no one can reach them until an administrator is configured.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class AdminUsers {
+    /**
+     * The role that grants access to the administration endpoints.
+     */
+    public static final String ROLE = "ADMIN";
+
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_" + ROLE));
+
+    private final Set<String> usernames;
+
+    /**
+     * Constructor to inject the configured administrators via Spring's dependency injection.
+     * @param usernames the usernames of the administrators
+     */
+    @Autowired
+    public AdminUsers(@Value("${tinysensor.admin.usernames:}") String[] usernames) {
+        this.usernames = Arrays.stream(usernames)
+                .map(username -> username.strip().toLowerCase(Locale.ROOT))
+                .filter(username -> !username.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Returns the authorities of a user. Usernames are compared without case, like the database does.
+     * @param username the name of the authenticated user
+     * @return the admin authority if the user is an administrator, otherwise no authority
+     */
+    public List<GrantedAuthority> authoritiesOf(String username) {
+        return username != null && usernames.contains(username.strip().toLowerCase(Locale.ROOT))
+                ? ADMIN_AUTHORITIES : Collections.emptyList();
+    }
+}
@@ -8,12 +8,12 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
 import tinysensormanager.repo.DbUserRepo;
 
 import javax.annotation.PostConstruct;
-import java.util.Collections;
 import java.util.Locale;
 
 /**
@@ -29,10 +29,13 @@ import java.util.Locale;
  * @version 1.0
  */
 @Component
+@RoutedTo(Workload.AUTH)
 public class CustomAuthenticationProvider implements AuthenticationProvider {
 
     private DbUserRepo dbUserRepo;
 
+    private final AdminUsers adminUsers;
+
     /**
      * Message source used to retrieve localized error messages.
      */
@@ -42,11 +45,13 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
      * Constructor to inject the {@link DbUserRepo} instance via Spring's dependency injection.
      * @param dbUserRepo The repository for interacting with User entities in the database.
      * @param messageSource The message source used to retrieve localized error messages.
+     * @param adminUsers The administrators, who are granted the admin role.
      */
     @Autowired
-    public CustomAuthenticationProvider(DbUserRepo dbUserRepo, MessageSource messageSource) {
+    public CustomAuthenticationProvider(DbUserRepo dbUserRepo, MessageSource messageSource, AdminUsers adminUsers) {
         this.dbUserRepo = dbUserRepo;
         this.messageSource = messageSource;
+        this.adminUsers = adminUsers;
     }
 
     /**
@@ -78,7 +83,7 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
             throw new BadCredentialsException(accessor.getMessage("Bad Credentials"));
         }
 
-        return new UsernamePasswordAuthenticationToken(username, password, Collections.<GrantedAuthority>emptyList());
+        return new UsernamePasswordAuthenticationToken(username, password, adminUsers.authoritiesOf(username));
     }
 
     /**
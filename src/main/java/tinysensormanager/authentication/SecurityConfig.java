@@ -3,6 +3,9 @@ package tinysensormanager.authentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.BeanIds;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -10,12 +13,20 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 /**
  * This class provides the configuration for Spring Security.
  *
+ * <p>The REST API under {@code /api} is authenticated with signed bearer tokens from
+ * {@code POST /api/auth/token}, which are verified without a database lookup or a server-side session.
+ * The browser UI keeps its form login; its session is still honoured by the API but the API never
+ * creates one. The administration endpoints under {@code /api/admin} are reserved to the {@link AdminUsers}.</p>
+ *
  * @author manokel01
  * @version 1.0.0
  */
@@ -24,15 +35,22 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 public class SecurityConfig {
 
     private final CustomAuthenticationProvider authProvider;
+    private final TokenService tokenService;
+    private final AdminUsers adminUsers;
 
     /**
      * Constructor for SecurityConfig class.
      * Injects the custom authentication provider to the SecurityConfig
      * @param customAuthenticationProvider the custom authentication provider for the application
+     * @param tokenService the service that verifies bearer tokens
+     * @param adminUsers the administrators allowed to use the administration endpoints
      */
     @Autowired
-    public SecurityConfig(CustomAuthenticationProvider customAuthenticationProvider) {
+    public SecurityConfig(CustomAuthenticationProvider customAuthenticationProvider, TokenService tokenService,
+                          AdminUsers adminUsers) {
         this.authProvider = customAuthenticationProvider;
+        this.tokenService = tokenService;
+        this.adminUsers = adminUsers;
     }
 
     /**
@@ -45,6 +63,34 @@ public class SecurityConfig {
         auth.authenticationProvider(authProvider);
     }
 
+    /**
+     * Configures the security filter chain for the REST API. Requests are authenticated by their bearer token,
+     * or by an existing form login session; no session is created and no password is checked per request.
+     * @param http the HttpSecurity object
+     * @return the security filter chain of the REST API
+     * @throws Exception if there is an error configuring the filter chain
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain apiFilterChain(HttpSecurity http) throws Exception {
+        http.antMatcher("/api/**")
+                .cors().and().csrf().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.NEVER)
+                .and()
+                // Reads an existing session but never writes token authentications into it
+                .securityContext().requireExplicitSave(true)
+                .and()
+                .authorizeRequests().antMatchers(HttpMethod.POST, "/api/auth/token").permitAll()
+                .antMatchers("/api/admin/**").hasRole(AdminUsers.ROLE)
+                .anyRequest().authenticated()
+                .and()
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, adminUsers),
+                        UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling().authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED));
+
+        return http.build();
+    }
+
     /**
      * Configures the security filter chain for the application.
      * @param http the HttpSecurity object
@@ -62,8 +108,6 @@ public class SecurityConfig {
                 // Configures form login settings, including the login page and default success URL
                 .anyRequest().authenticated().and().formLogin()
                 .loginPage("/login").defaultSuccessUrl("/api/users?lastname=").permitAll()
-                // Configures HTTP basic authentication
-                .and().httpBasic()
                 .and()
                 // Configures logout settings, including the logout URL and success URL
                 .logout().logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/login");
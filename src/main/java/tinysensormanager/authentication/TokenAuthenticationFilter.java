@@ -0,0 +1,67 @@
+package tinysensormanager.authentication;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Authenticates REST API requests that carry a bearer token issued by {@link TokenService}.
+ * Requests without an {@code Authorization: Bearer} header pass through unchanged, so other
+ * authentication mechanisms still apply to them; requests with an invalid token are refused with 401.
+ *
+ * <p>Not a bean on purpose: it is added to the security filter chain by {@link SecurityConfig} and
+ * must not also be registered as a servlet filter.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+    private final AdminUsers adminUsers;
+
+    /**
+     * Creates the filter.
+     * @param tokenService the service that verifies tokens
+     * @param adminUsers the administrators, who are granted the admin role
+     */
+    public TokenAuthenticationFilter(TokenService tokenService, AdminUsers adminUsers) {
+        this.tokenService = tokenService;
+        this.adminUsers = adminUsers;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        TokenService.Claims claims = tokenService.verify(header.substring(BEARER.length()).trim());
+        if (claims == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(claims.getSubject(), null,
+                adminUsers.authoritiesOf(claims.getSubject())));
+        SecurityContextHolder.setContext(context);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package tinysensormanager.authentication;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the HMAC keys used to sign and verify access tokens.
+ *
+ * <p>Keys are configured as {@code kid:base64-secret} pairs in {@code tinysensor.auth.token-keys}. New tokens
+ * are signed with the key named by {@code tinysensor.auth.active-key}; tokens signed with any configured key
+ * are accepted. To rotate, add a new key, make it active once every node knows it, and remove the old key
+ * after the token lifetime has passed. Without configured keys a random key is generated, so tokens are then
+ * only valid on the node that issued them and until it restarts.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class TokenKeyRing {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final Map<String, ThreadLocal<Mac>> macs = new HashMap<>();
+    private final String activeKeyId;
+
+    /**
+     * Creates the key ring from the configuration injected via Spring's dependency injection.
+     * @param configuredKeys the keys as comma separated kid:base64-secret pairs
+     * @param activeKeyId the id of the key that signs new tokens
+     */
+    public TokenKeyRing(@Value("${tinysensor.auth.token-keys:}") String configuredKeys,
+                        @Value("${tinysensor.auth.active-key:}") String activeKeyId) {
+        for (String entry : configuredKeys.split(",")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.indexOf(':');
+            if (colon <= 0) throw new IllegalStateException("Token keys must be configured as kid:base64-secret");
+            String kid = entry.substring(0, colon).trim();
+            if (!kid.matches("[A-Za-z0-9_-]+")) throw new IllegalStateException("Invalid token key id " + kid);
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            if (secret.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("Token key " + kid + " must be at least " + MIN_SECRET_BYTES + " bytes");
+            }
+            add(kid, secret);
+        }
+        if (keys.isEmpty()) {
+            LoggerUtil.getCurrentLogger().warning("No token keys configured, tokens are valid on this node only");
+            byte[] secret = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secret);
+            add("local", secret);
+            this.activeKeyId = "local";
+        } else if (activeKeyId.isBlank()) {
+            this.activeKeyId = keys.keySet().iterator().next();
+        } else if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalStateException("The active token key " + activeKeyId + " is not configured");
+        } else {
+            this.activeKeyId = activeKeyId;
+        }
+    }
+
+    /**
+     * Returns the id of the key that signs new tokens.
+     * @return the key id
+     */
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * Computes the signature of data with a key.
+     * @param keyId the id of the key
+     * @param data the data to sign
+     * @return the signature, or null if the key is unknown
+     */
+    public byte[] sign(String keyId, byte[] data) {
+        ThreadLocal<Mac> mac = macs.get(keyId);
+        return mac == null ? null : mac.get().doFinal(data);
+    }
+
+    private void add(String kid, byte[] secret) {
+        SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+        keys.put(kid, key);
+        macs.put(kid, ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+    }
+}
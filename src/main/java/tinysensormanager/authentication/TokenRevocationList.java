@@ -0,0 +1,117 @@
+package tinysensormanager.authentication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.EntityChangedEvent.ChangeType;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.outbox.OutboxRelay;
+import tinysensormanager.service.outbox.OutboxWriter;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.Transactional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the ids of revoked access tokens until the tokens expire on their own.
+ * Since tokens are short-lived, the list stays small: each entry is a pair of longs and is dropped
+ * once the token it revokes has expired.
+ *
+ * <p>Tokens are verified by every node, so revocations are shared through the outbox: a revocation is
+ * appended as a {@link Entity#TOKEN} event, which the {@link OutboxRelay} of every other node applies to its
+ * list. A starting node loads the revocations of the last token lifetime from the outbox after its relay has
+ * started, so none falls between the two. The outbox retention must exceed the token lifetime.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@DependsOn("outboxRelay")
+public class TokenRevocationList {
+    private static final String LOAD_SQL = "SELECT ENTITY_ID, UNIQUE_KEY FROM OUTBOX WHERE ENTITY = ? AND CREATED_AT >= ?";
+
+    private final ConcurrentHashMap<Long, Long> revoked = new ConcurrentHashMap<>();
+    private final OutboxWriter outboxWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlSeconds;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param outboxWriter the writer that shares revocations with the other nodes
+     * @param jdbcTemplate the JDBC template used to load the revocations at startup
+     * @param ttlSeconds the lifetime of issued tokens in seconds
+     */
+    @Autowired
+    public TokenRevocationList(OutboxWriter outboxWriter, JdbcTemplate jdbcTemplate,
+                               @Value("${tinysensor.auth.token-ttl-seconds:900}") long ttlSeconds) {
+        this.outboxWriter = outboxWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Loads the revocations of tokens that may not have expired yet.
+     */
+    @PostConstruct
+    private void load() {
+        long since = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttlSeconds);
+        jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) rs -> add(rs.getLong(1), Long.parseLong(rs.getString(2))),
+                Entity.TOKEN.name(), since);
+        purge();
+    }
+
+    /**
+     * Revokes a token on this node at once and on the other nodes when the revocation is relayed.
+     * @param tokenId the id of the token
+     * @param expiresAt the expiry of the token in seconds since the epoch
+     */
+    @Transactional
+    public void revoke(long tokenId, long expiresAt) {
+        purge();
+        add(tokenId, expiresAt);
+        outboxWriter.append(Entity.TOKEN, tokenId, ChangeType.DELETED, Long.toString(expiresAt));
+    }
+
+    /**
+     * Applies a revocation made by another node.
+     * @param event the change event
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isLocal() || event.getEntity() != Entity.TOKEN) return;
+        purge();
+        add(event.getEntityId(), Long.parseLong(event.getUniqueKey()));
+    }
+
+    /**
+     * Returns whether a token was revoked.
+     * @param tokenId the id of the token
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(long tokenId) {
+        return !revoked.isEmpty() && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Returns the number of revoked tokens that have not expired yet.
+     * @return the size of the list
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    private void add(long tokenId, long expiresAt) {
+        revoked.put(tokenId, expiresAt);
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis() / 1000;
+        revoked.values().removeIf(expiresAt -> expiresAt < now);
+    }
+}
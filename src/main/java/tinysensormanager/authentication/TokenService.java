@@ -0,0 +1,147 @@
+package tinysensormanager.authentication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Issues and verifies the signed access tokens of the REST API.
+ *
+ * <p>A token has the form {@code kid.subject.expiry.id.signature}: the id of the signing key, the base64url
+ * encoded username, the expiry in seconds since the epoch, a random token id and the base64url encoded
+ * HMAC-SHA256 of everything before the signature. Verifying a token needs neither the database nor a
+ * session, so any node that knows the key accepts it.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Service
+public class TokenService {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final int MAX_TOKEN_LENGTH = 1024;
+
+    private final TokenKeyRing keyRing;
+    private final TokenRevocationList revocationList;
+    private final long ttlSeconds;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The verified content of a token.
+     */
+    public static final class Claims {
+        private final String subject;
+        private final long expiresAt;
+        private final long tokenId;
+
+        Claims(String subject, long expiresAt, long tokenId) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+            this.tokenId = tokenId;
+        }
+
+        /**
+         * Returns the username the token was issued to.
+         * @return the username
+         */
+        public String getSubject() {
+            return subject;
+        }
+
+        /**
+         * Returns the expiry of the token.
+         * @return the expiry in seconds since the epoch
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * Returns the random id of the token.
+         * @return the token id
+         */
+        public long getTokenId() {
+            return tokenId;
+        }
+    }
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param keyRing the keys tokens are signed with
+     * @param revocationList the list of revoked tokens
+     * @param ttlSeconds the lifetime of issued tokens in seconds
+     */
+    @Autowired
+    public TokenService(TokenKeyRing keyRing, TokenRevocationList revocationList,
+                        @Value("${tinysensor.auth.token-ttl-seconds:900}") long ttlSeconds) {
+        this.keyRing = keyRing;
+        this.revocationList = revocationList;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Returns the lifetime of issued tokens.
+     * @return the lifetime in seconds
+     */
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * Issues a token for an authenticated user.
+     * @param username the name of the user
+     * @return the token
+     */
+    public String issue(String username) {
+        String kid = keyRing.getActiveKeyId();
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = kid + '.' + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + '.'
+                + expiresAt + '.' + Long.toUnsignedString(random.nextLong(), 36);
+        byte[] signature = keyRing.sign(kid, payload.getBytes(StandardCharsets.US_ASCII));
+        return payload + '.' + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * Verifies a token.
+     * @param token the token
+     * @return the claims of the token, or null if it is malformed, forged, expired or revoked
+     */
+    public Claims verify(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) return null;
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) return null;
+        String[] parts = token.substring(0, signatureStart).split("\\.", -1);
+        if (parts.length != 4) return null;
+        try {
+            byte[] expected = keyRing.sign(parts[0], token.substring(0, signatureStart).getBytes(StandardCharsets.US_ASCII));
+            if (expected == null
+                    || !MessageDigest.isEqual(expected, DECODER.decode(token.substring(signatureStart + 1)))) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(parts[2]);
+            if (expiresAt <= System.currentTimeMillis() / 1000) return null;
+            long tokenId = Long.parseUnsignedLong(parts[3], 36);
+            if (revocationList.isRevoked(tokenId)) return null;
+            return new Claims(new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8), expiresAt, tokenId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Revokes a token before it expires.
+     * @param token the token
+     * @return true if the token was valid and is now revoked
+     */
+    public boolean revoke(String token) {
+        Claims claims = verify(token);
+        if (claims == null) return false;
+        revocationList.revoke(claims.getTokenId(), claims.getExpiresAt());
+        return true;
+    }
+}
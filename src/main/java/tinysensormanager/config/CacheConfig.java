@@ -0,0 +1,26 @@
+package tinysensormanager.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This class enables Spring's cache abstraction. The caches are Caffeine caches configured through the
+ * {@code spring.cache.*} properties.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * The cache of devices by id.
+     */
+    public static final String DEVICES = "devices";
+
+    /**
+     * The cache of users by id.
+     */
+    public static final String USERS = "users";
+}
@@ -0,0 +1,75 @@
+package tinysensormanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class provides the data source of the application: one Hikari pool per {@link Workload}, all
+ * connecting with the {@code spring.datasource.*} settings, behind a {@link WorkloadRoutingDataSource}.
+ * Logins, interactive reads and writes therefore keep their connections while bulk imports or the
+ * ingestion pipeline saturate theirs. Every pool reports its metrics under its own pool name,
+ * {@code tinysensor-<workload>}.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Configures the routing data source and its pools.
+     * @param properties the {@code spring.datasource.*} settings
+     * @param meterRegistry the registry the pool metrics are reported to, if any
+     * @param authSize the maximum number of connections of credential checks
+     * @param readSize the maximum number of connections of interactive reads
+     * @param writeSize the maximum number of connections of interactive writes
+     * @param batchSize the maximum number of connections of bulk exports and imports
+     * @param ingestSize the maximum number of connections of the ingestion pipeline
+     * @param defaultSize the maximum number of connections of all other work
+     * @param connectionTimeoutMillis the longest time a caller waits for a connection of its pool
+     * @return the data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${tinysensor.datasource.pool-size.auth:4}") int authSize,
+                                 @Value("${tinysensor.datasource.pool-size.read:16}") int readSize,
+                                 @Value("${tinysensor.datasource.pool-size.write:8}") int writeSize,
+                                 @Value("${tinysensor.datasource.pool-size.batch:4}") int batchSize,
+                                 @Value("${tinysensor.datasource.pool-size.ingest:4}") int ingestSize,
+                                 @Value("${tinysensor.datasource.pool-size.default:8}") int defaultSize,
+                                 @Value("${tinysensor.datasource.connection-timeout-ms:5000}") long connectionTimeoutMillis) {
+        Map<Workload, Integer> sizes = new EnumMap<>(Workload.class);
+        sizes.put(Workload.AUTH, authSize);
+        sizes.put(Workload.READ, readSize);
+        sizes.put(Workload.WRITE, writeSize);
+        sizes.put(Workload.BATCH, batchSize);
+        sizes.put(Workload.INGEST, ingestSize);
+        sizes.put(Workload.DEFAULT, defaultSize);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+
+        Map<Workload, DataSource> pools = new EnumMap<>(Workload.class);
+        for (Map.Entry<Workload, Integer> size : sizes.entrySet()) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            pool.setPoolName("tinysensor-" + size.getKey().name().toLowerCase(Locale.ROOT));
+            pool.setMaximumPoolSize(size.getValue());
+            pool.setMinimumIdle(Math.min(2, size.getValue()));
+            pool.setConnectionTimeout(connectionTimeoutMillis);
+            if (registry != null) pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            pools.put(size.getKey(), pool);
+        }
+        return new WorkloadRoutingDataSource(pools);
+    }
+}
@@ -0,0 +1,47 @@
+package tinysensormanager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * This class provides the JDBC beans used next to Spring Data JPA for bulk and streaming access.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Configuration
+public class JdbcConfig {
+
+    /**
+     * Configures a {@link JdbcTemplate} whose queries read their results through a forward-only cursor
+     * instead of loading them into memory. MySQL only streams rows one by one when the fetch size
+     * is {@link Integer#MIN_VALUE}; other databases expect a positive fetch size.
+     * @param dataSource the data source of the application
+     * @param fetchSize the JDBC fetch size of streaming queries
+     * @return the streaming JDBC template
+     */
+    @Bean
+    public JdbcTemplate streamingJdbcTemplate(DataSource dataSource,
+                                              @Value("${tinysensor.jdbc.stream-fetch-size:-2147483648}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        return jdbcTemplate;
+    }
+
+    /**
+     * Configures the {@link JdbcTemplate} used for ordinary JDBC statements and batches.
+     * Declared explicitly because the streaming template would otherwise disable Spring Boot's default one.
+     * @param dataSource the data source of the application
+     * @return the JDBC template
+     */
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
@@ -0,0 +1,51 @@
+package tinysensormanager.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This class defers the creation of beans that no request needs at startup, such as the springdoc
+ * OpenAPI endpoints and the scanning behind them, until they are first used.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "tinysensor.lazy-beans.enabled", havingValue = "true", matchIfMissing = true)
+public class LazyBeansConfig {
+
+    /**
+     * The packages whose beans are initialized lazily.
+     */
+    private static final String[] LAZY_PACKAGES = {"org.springdoc."};
+
+    /**
+     * Configures a post processor that marks the beans of the lazy packages, including the beans
+     * declared by their configuration classes, as lazy.
+     * @return the post processor
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyBeansPostProcessor() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String type = definition.getBeanClassName();
+                if (type == null && definition.getFactoryBeanName() != null
+                        && beanFactory.containsBeanDefinition(definition.getFactoryBeanName())) {
+                    type = beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName();
+                }
+                if (type != null && isLazy(type)) definition.setLazyInit(true);
+            }
+        };
+    }
+
+    private static boolean isLazy(String type) {
+        for (String prefix : LAZY_PACKAGES) {
+            if (type.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
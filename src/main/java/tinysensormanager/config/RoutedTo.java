@@ -0,0 +1,30 @@
+package tinysensormanager.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the database work of a method, or of all methods of a bean, to the connection pool of a
+ * {@link Workload}. An annotation on a method overrides the one on its class.
+ *
+ * <p>The pool is chosen when a connection is taken, so the annotation has no effect on a method that runs
+ * inside a transaction which already holds a connection: the work of a nested call stays on the pool of
+ * the outermost transaction.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RoutedTo {
+
+    /**
+     * The workload whose pool serves the method.
+     * @return the workload
+     */
+    Workload value();
+}
@@ -0,0 +1,44 @@
+package tinysensormanager.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tinysensormanager.service.sql.SqlExecutionListener;
+
+import javax.sql.DataSource;
+
+/**
+ * This class wraps the data source of the application in a proxy that reports every executed statement
+ * to the {@link SqlExecutionListener}, which replaces Hibernate's show-sql output with timed statistics.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "tinysensor.sql.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlInstrumentationConfig {
+
+    /**
+     * Configures a post processor that proxies every {@link DataSource} bean.
+     * Declared static so it is created before the data source, and resolving the listener lazily
+     * keeps the listener's own dependencies out of the early post processor phase.
+     * @param listener a provider of the listener
+     * @return the post processor
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(ObjectProvider<SqlExecutionListener> listener) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) return bean;
+                return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                        .listener(listener.getObject())
+                        .build();
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package tinysensormanager.config;
+
+/**
+ * The workload classes that get a connection pool of their own, so a burst of one class cannot take the
+ * connections of another. Work is assigned to a class with {@link RoutedTo}; unassigned work uses the
+ * {@link #DEFAULT} pool.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public enum Workload {
+    /**
+     * Credential checks of logins and token requests.
+     */
+    AUTH,
+    /**
+     * Interactive reads of the REST API.
+     */
+    READ,
+    /**
+     * Interactive writes of the REST API.
+     */
+    WRITE,
+    /**
+     * Bulk exports and imports.
+     */
+    BATCH,
+    /**
+     * Batch inserts of the reading ingestion pipeline.
+     */
+    INGEST,
+    /**
+     * Everything else, such as migrations and background jobs.
+     */
+    DEFAULT
+}
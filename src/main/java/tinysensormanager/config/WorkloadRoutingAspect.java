@@ -0,0 +1,50 @@
+package tinysensormanager.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Sets the {@link Workload} of the current thread for the duration of a method annotated with
+ * {@link RoutedTo}, so the {@link WorkloadRoutingDataSource} takes its connections from the right pool.
+ * Ordered before the transaction interceptor, so a transaction started by the method already gets its
+ * connection from that pool.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WorkloadRoutingAspect {
+
+    /**
+     * Runs an annotated method with the workload of its annotation.
+     * @param joinPoint the method call
+     * @return the result of the method
+     * @throws Throwable whatever the method throws
+     */
+    @Around("@annotation(tinysensormanager.config.RoutedTo) || @within(tinysensormanager.config.RoutedTo)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        RoutedTo routedTo = AnnotatedElementUtils.findMergedAnnotation(specific, RoutedTo.class);
+        if (routedTo == null) routedTo = AnnotatedElementUtils.findMergedAnnotation(targetClass, RoutedTo.class);
+        if (routedTo == null) return joinPoint.proceed();
+        Workload previous = WorkloadRoutingDataSource.use(routedTo.value());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            WorkloadRoutingDataSource.use(previous);
+        }
+    }
+}
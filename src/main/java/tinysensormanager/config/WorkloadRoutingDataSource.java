@@ -0,0 +1,67 @@
+package tinysensormanager.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A data source that hands out connections from the pool of the {@link Workload} the current thread works
+ * for. The workload is set by the {@link WorkloadRoutingAspect} for methods annotated with
+ * {@link RoutedTo}, and is {@link Workload#DEFAULT} otherwise.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final ThreadLocal<Workload> CURRENT = ThreadLocal.withInitial(() -> Workload.DEFAULT);
+
+    private final Map<Workload, DataSource> pools;
+
+    /**
+     * Creates the data source.
+     * @param pools the pool of every workload
+     */
+    public WorkloadRoutingDataSource(Map<Workload, DataSource> pools) {
+        this.pools = pools;
+        setTargetDataSources(Map.copyOf(pools));
+        setDefaultTargetDataSource(pools.get(Workload.DEFAULT));
+    }
+
+    /**
+     * Makes the current thread work for a workload.
+     * @param workload the workload
+     * @return the workload the thread worked for before, to be restored afterwards
+     */
+    public static Workload use(Workload workload) {
+        Workload previous = CURRENT.get();
+        CURRENT.set(workload);
+        return previous;
+    }
+
+    /**
+     * Returns the workload the current thread works for.
+     * @return the workload
+     */
+    public static Workload current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Closes the pools.
+     * @throws IOException if a pool cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof Closeable) ((Closeable) pool).close();
+        }
+    }
+}
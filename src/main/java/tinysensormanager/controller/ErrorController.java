@@ -1,10 +1,14 @@
 package tinysensormanager.controller;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import tinysensormanager.service.exceptions.DatabaseUnavailableException;
+import tinysensormanager.service.util.LoggerUtil;
 
 /**
  * A controller advice that handles exceptions and errors that may occur during requests.
@@ -38,6 +42,35 @@ public class ErrorController {
         return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles exceptions of type {@link DatabaseUnavailableException} by returning an HTTP service unavailable
+     * status code with a Retry-After header, so clients back off while the database recovers.
+     *
+     * @param ex the exception that occurred
+     * @return a {@link ResponseEntity} with a service unavailable status code and the exception message
+     */
+    @ExceptionHandler(DatabaseUnavailableException.class)
+    public ResponseEntity<String> handleDatabaseUnavailable(DatabaseUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Handles exceptions of type {@link DataIntegrityViolationException} by returning an HTTP conflict status code.
+     * They are raised by the unique constraints when a value passed the validators but was stored concurrently
+     * by another request, so the message of the database is logged instead of being returned.
+     *
+     * @param ex the exception that occurred
+     * @return a {@link ResponseEntity} with a conflict status code and a message
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
+        LoggerUtil.getCurrentLogger().info(() -> "Data integrity violation: " + ex.getMostSpecificCause().getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The request conflicts with stored data, such as a unique value already taken");
+    }
+
     /**
      * Handles all other exceptions by returning an HTTP internal server error status code
      * along with a message that describes the error that occurred.
@@ -0,0 +1,60 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.Alert;
+import tinysensormanager.model.AlertRule;
+
+/**
+ * This is a data transfer object (DTO) that represents an {@link Alert} emitted by the rule engine.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertDTO {
+    /**
+     * The ID of the rule that changed state.
+     */
+    private Long ruleId;
+    /**
+     * The name of the rule that changed state.
+     */
+    private String ruleName;
+    /**
+     * The condition of the rule.
+     */
+    private AlertRule.Type type;
+    /**
+     * The ID of the device the alert is about.
+     */
+    private Long deviceId;
+    /**
+     * Whether the rule started (true) or stopped (false) being violated.
+     */
+    private boolean raised;
+    /**
+     * The value of the reading that changed the state, or null for silence alerts.
+     */
+    private Double value;
+    /**
+     * The threshold of the rule.
+     */
+    private double threshold;
+    /**
+     * The time of the change in milliseconds since the epoch.
+     */
+    private long timestamp;
+
+    /**
+     * Returns a human readable description of the alert.
+     * @return the description
+     */
+    public String describe() {
+        return (raised ? "RAISED " : "RESOLVED ") + type + " rule '" + ruleName + "' (" + ruleId + ") for device "
+                + deviceId + (value != null ? ", value " + value : "") + ", threshold " + threshold;
+    }
+}
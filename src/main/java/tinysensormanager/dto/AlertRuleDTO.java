@@ -0,0 +1,46 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.AlertRule;
+
+/**
+ * This is a data transfer object (DTO) that represents an {@link AlertRule}.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertRuleDTO {
+    /**
+     * The ID of the rule.
+     */
+    private Long id;
+    /**
+     * The name of the rule.
+     */
+    private String name;
+    /**
+     * The scope of the rule.
+     */
+    private AlertRule.Scope scope;
+    /**
+     * The device id or model prefix the rule applies to.
+     */
+    private String target;
+    /**
+     * The condition of the rule.
+     */
+    private AlertRule.Type type;
+    /**
+     * The threshold of the rule.
+     */
+    private double threshold;
+    /**
+     * Whether the rule is evaluated.
+     */
+    private boolean enabled;
+}
@@ -0,0 +1,47 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.Device;
+
+/**
+ * This is a data transfer object (DTO) that represents a {@link Device} whose recent readings are
+ * anomalous compared with its own history.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyDTO {
+    /**
+     * The ID of the device.
+     */
+    private Long deviceId;
+    /**
+     * The model of the device.
+     */
+    private String model;
+    /**
+     * The time of the latest reading in milliseconds since the epoch.
+     */
+    private long timestamp;
+    /**
+     * The value of the latest reading.
+     */
+    private double value;
+    /**
+     * The value expected from the history of the device at the time of the latest reading.
+     */
+    private double expected;
+    /**
+     * The score of the latest reading, in standard deviations of the level or of the rate of change.
+     */
+    private double score;
+    /**
+     * The time of the reading that made the device anomalous, in milliseconds since the epoch.
+     */
+    private long since;
+}
@@ -0,0 +1,47 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * This is a data transfer object (DTO) that represents the summary shown on the landing page: the users
+ * searched by last name, the devices and the number of users, devices and database users.
+ *
+ * <p>Each part is queried separately; a part that did not answer in time or failed is null and its name is
+ * listed in {@link #incomplete}.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDTO {
+    /**
+     * The users whose last name starts with the requested string, null if no last name was requested.
+     */
+    private List<UserDTO> users;
+    /**
+     * All devices.
+     */
+    private List<DeviceDTO> devices;
+    /**
+     * The number of users.
+     */
+    private Long userCount;
+    /**
+     * The number of devices.
+     */
+    private Long deviceCount;
+    /**
+     * The number of database users.
+     */
+    private Long dbUserCount;
+    /**
+     * The names of the parts that timed out or failed, empty when the summary is complete.
+     */
+    private List<String> incomplete;
+}
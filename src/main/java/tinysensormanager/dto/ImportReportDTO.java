@@ -0,0 +1,60 @@
+package tinysensormanager.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a data transfer object (DTO) that summarises the outcome of a bulk import.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+public class ImportReportDTO {
+    /**
+     * The maximum number of error messages kept in a report.
+     */
+    public static final int MAX_ERRORS = 100;
+
+    /**
+     * The number of records read from the request body.
+     */
+    private long received;
+
+    /**
+     * The number of records that were stored.
+     */
+    private long imported;
+
+    /**
+     * The number of records that failed validation or could not be stored.
+     */
+    private long rejected;
+
+    /**
+     * The first {@link #MAX_ERRORS} error messages, in input order.
+     */
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * Records a rejected record and keeps its message if there is room for it.
+     * @param message the reason the record was rejected
+     */
+    public void reject(String message) {
+        reject(1, message);
+    }
+
+    /**
+     * Records a group of rejected records that share the same failure.
+     * @param count the number of records rejected
+     * @param message the reason the records were rejected
+     */
+    public void reject(long count, String message) {
+        rejected += count;
+        if (errors.size() < MAX_ERRORS) errors.add(message);
+    }
+}
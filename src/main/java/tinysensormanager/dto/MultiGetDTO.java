@@ -0,0 +1,25 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the result of fetching many entities by id.
+ * @param <T> the type of the returned entities
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetDTO<T> {
+    /**
+     * The found entities, in the order their ids were requested.
+     */
+    private List<T> found;
+    /**
+     * The requested ids that do not exist, in the order they were requested.
+     */
+    private List<Long> missing;
+}
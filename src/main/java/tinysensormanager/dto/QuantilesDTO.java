@@ -0,0 +1,60 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.Device;
+
+/**
+ * This is a data transfer object (DTO) that represents percentiles of the readings of a {@link Device} or of
+ * the devices of a model over a range of hours. The values are within the relative accuracy of the exact
+ * percentiles.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantilesDTO {
+    /**
+     * The prefix of the model the devices were selected by, null for a single device.
+     */
+    private String model;
+    /**
+     * The ID of the device, null for a model.
+     */
+    private Long deviceId;
+    /**
+     * The inclusive start of the range in milliseconds since the epoch, rounded down to the hour.
+     */
+    private long from;
+    /**
+     * The exclusive end of the range in milliseconds since the epoch.
+     */
+    private long to;
+    /**
+     * The number of readings in the range.
+     */
+    private long count;
+    /**
+     * The smallest reading in the range.
+     */
+    private double min;
+    /**
+     * The largest reading in the range.
+     */
+    private double max;
+    /**
+     * The relative error bound of the values.
+     */
+    private double relativeAccuracy;
+    /**
+     * The quantiles requested, between 0 and 1.
+     */
+    private double[] quantiles;
+    /**
+     * The values of the quantiles, parallel to the quantiles.
+     */
+    private double[] values;
+}
@@ -0,0 +1,27 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.Reading;
+
+/**
+ * This is a data transfer object (DTO) that represents a single {@link Reading} posted by a device.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingDTO {
+    /**
+     * The time of the reading in milliseconds since the epoch.
+     */
+    private long timestamp;
+
+    /**
+     * The measured value.
+     */
+    private double value;
+}
@@ -0,0 +1,50 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tinysensormanager.model.Reading;
+
+/**
+ * This is a data transfer object (DTO) that represents a series of {@link Reading}s of one device.
+ *
+ * <p>The points are held in two parallel primitive arrays, so a series costs no object per point.
+ * {@link #timestamps} is sorted in ascending order.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingSeriesDTO {
+    /**
+     * The id of the device the readings belong to.
+     */
+    private Long deviceId;
+
+    /**
+     * The inclusive start of the requested range in milliseconds since the epoch.
+     */
+    private long from;
+
+    /**
+     * The exclusive end of the requested range in milliseconds since the epoch.
+     */
+    private long to;
+
+    /**
+     * The number of stored readings in the range before downsampling.
+     */
+    private long rawCount;
+
+    /**
+     * The timestamps of the returned points.
+     */
+    private long[] timestamps;
+
+    /**
+     * The values of the returned points.
+     */
+    private double[] values;
+}
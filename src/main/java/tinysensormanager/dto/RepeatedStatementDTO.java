@@ -0,0 +1,34 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a data transfer object (DTO) that represents a request handler suspected of an N+1 query
+ * pattern, i.e. of issuing the same statement many times within one request.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepeatedStatementDTO {
+    /**
+     * The HTTP method and path pattern of the handler.
+     */
+    private String handler;
+    /**
+     * The normalized statement that was repeated.
+     */
+    private String sql;
+    /**
+     * The highest number of times the statement ran within one request.
+     */
+    private long maxRepeats;
+    /**
+     * The number of requests in which the statement was repeated beyond the threshold.
+     */
+    private long requests;
+}
@@ -0,0 +1,36 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one page of a search.
+ * @param <T> the type of the returned entities
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageDTO<T> {
+    /**
+     * The entities of the page, in the order of the search.
+     */
+    private List<T> items;
+    /**
+     * The cursor to pass to get the next page, or null if this is the last page.
+     */
+    private String nextCursor;
+    /**
+     * The reasons the search may have read more rows than it returned.
+     */
+    private List<String> warnings;
+    /**
+     * The reason the search was refused, or null if it ran.
+     */
+    private String error;
+}
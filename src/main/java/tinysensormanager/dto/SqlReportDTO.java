@@ -0,0 +1,36 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * This is a data transfer object (DTO) that summarises the SQL statements executed since startup or
+ * the last reset.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlReportDTO {
+    /**
+     * The total number of executed statements.
+     */
+    private long totalStatements;
+    /**
+     * The number of statements slower than the slow query threshold.
+     */
+    private long slowStatements;
+    /**
+     * The statistics per normalized statement, by descending total time.
+     */
+    private List<SqlStatementStatsDTO> statements;
+    /**
+     * The request handlers suspected of N+1 query patterns.
+     */
+    private List<RepeatedStatementDTO> repeatedStatements;
+}
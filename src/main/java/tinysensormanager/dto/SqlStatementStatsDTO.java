@@ -0,0 +1,45 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a data transfer object (DTO) that represents the latency statistics of one normalized SQL statement.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlStatementStatsDTO {
+    /**
+     * The normalized statement.
+     */
+    private String sql;
+    /**
+     * The number of executions.
+     */
+    private long count;
+    /**
+     * The mean latency in milliseconds.
+     */
+    private double meanMillis;
+    /**
+     * The median latency in milliseconds, exact to within a factor of two.
+     */
+    private double p50Millis;
+    /**
+     * The 95th percentile latency in milliseconds, exact to within a factor of two.
+     */
+    private double p95Millis;
+    /**
+     * The 99th percentile latency in milliseconds, exact to within a factor of two.
+     */
+    private double p99Millis;
+    /**
+     * The largest latency in milliseconds.
+     */
+    private double maxMillis;
+}
@@ -0,0 +1,26 @@
+package tinysensormanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for an issued access token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenDTO {
+    /**
+     * The signed token, sent back as {@code Authorization: Bearer <token>}.
+     */
+    private String token;
+    /**
+     * The type of the token, always {@code Bearer}.
+     */
+    private String tokenType;
+    /**
+     * The number of seconds until the token expires.
+     */
+    private long expiresIn;
+}
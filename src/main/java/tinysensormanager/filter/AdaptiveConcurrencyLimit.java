@@ -0,0 +1,144 @@
+package tinysensormanager.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that adapts to the latency of the protected resource, following the gradient
+ * approach of TCP Vegas.
+ *
+ * <p>Latency samples are collected in windows. At the end of each window its average latency (the short
+ * term latency) is compared with a slowly moving average (the long term latency). While they agree the
+ * limit grows by roughly its square root; once requests queue up in front of the resource, latency rises
+ * above the long term average and the limit shrinks by the same ratio, down to half of its value per window.
+ * Failed requests shrink the limit multiplicatively. Windows in which less than half of the limit was used
+ * do not grow it, so an idle service does not build up a limit it cannot sustain.</p>
+ *
+ * <p>{@link #tryAcquire()} and {@link #release(long, boolean)} take no lock; closing a window is
+ * serialised.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW_ALPHA = 2.0 / (100 + 1);
+    private static final double DROP_FACTOR = 0.9;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRtt;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    /**
+     * Creates a limit.
+     * @param initialLimit the limit before any latency was measured
+     * @param minLimit the lowest the limit may go
+     * @param maxLimit the highest the limit may go
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("Invalid concurrency limits");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+    }
+
+    /**
+     * Reserves a slot for a request.
+     * @return true if the request may proceed and must later call {@link #release(long, boolean)},
+     * false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Releases the slot of a completed request and records its latency.
+     * @param rttNanos the time the request took in nanoseconds
+     * @param dropped whether the request failed in a way that suggests overload
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(rttNanos, inFlightBefore, dropped);
+    }
+
+    /**
+     * Returns the current limit.
+     * @return the maximum number of concurrent requests
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of requests currently holding a slot.
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of requests refused since startup.
+     * @return the number of rejections
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightBefore, boolean dropped) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+        windowDropped |= dropped;
+        if (windowSamples < Math.max(MIN_WINDOW_SAMPLES, limit)) return;
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        boolean appLimited = windowMaxInFlight < estimatedLimit / 2;
+        boolean failed = windowDropped;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += LONG_WINDOW_ALPHA * (shortRtt - longRtt);
+            // After a lasting latency increase, adopt the new baseline instead of shrinking forever
+            if (longRtt / shortRtt > 2) longRtt = shortRtt * 2;
+        }
+
+        double newLimit;
+        if (failed) {
+            newLimit = estimatedLimit * DROP_FACTOR;
+        } else if (appLimited) {
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        }
+        estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+    }
+}
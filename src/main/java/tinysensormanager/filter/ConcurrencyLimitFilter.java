@@ -0,0 +1,137 @@
+package tinysensormanager.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A servlet filter that limits the number of concurrent requests per endpoint group with an
+ * {@link AdaptiveConcurrencyLimit}, so that a slow database makes the service refuse excess requests
+ * quickly instead of letting every thread block on the connection pool.
+ *
+ * <p>Requests are grouped into authentication (login, logout and /api/auth), writes (non-GET requests
+ * to /api) and reads (GET requests and POST lookups to /api). Reading ingestion, which has its own admission control,
+ * and the long running bulk export and import endpoints are not limited, nor is anything outside /api.
+ * A refused request is answered with 503 and a Retry-After header. The filter runs before Spring Security,
+ * so refused requests cost no authentication work.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    /**
+     * The endpoint groups that are limited separately.
+     */
+    public enum Group {
+        READ, WRITE, AUTH
+    }
+
+    private final boolean enabled;
+    private final Map<Group, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Group.class);
+
+    /**
+     * Creates the filter with its limits configured via Spring's dependency injection.
+     * @param enabled whether requests are limited
+     * @param readLimit the initial, minimum and maximum limit of reads
+     * @param writeLimit the initial, minimum and maximum limit of writes
+     * @param authLimit the initial, minimum and maximum limit of authentication requests
+     */
+    public ConcurrencyLimitFilter(@Value("${tinysensor.limiter.enabled:true}") boolean enabled,
+                                  @Value("${tinysensor.limiter.read:50,10,400}") int[] readLimit,
+                                  @Value("${tinysensor.limiter.write:20,5,200}") int[] writeLimit,
+                                  @Value("${tinysensor.limiter.auth:10,2,50}") int[] authLimit) {
+        this.enabled = enabled;
+        limits.put(Group.READ, create(readLimit));
+        limits.put(Group.WRITE, create(writeLimit));
+        limits.put(Group.AUTH, create(authLimit));
+    }
+
+    /**
+     * Returns the limit of an endpoint group.
+     * @param group the group
+     * @return the limit of the group
+     */
+    public AdaptiveConcurrencyLimit getLimit(Group group) {
+        return limits.get(group);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimit limit = limits.get(classify(request));
+        if (!limit.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            chain.doFilter(request, response);
+            dropped = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            limit.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<Group, AdaptiveConcurrencyLimit> entry : limits.entrySet()) {
+            String group = entry.getKey().name().toLowerCase(Locale.ROOT);
+            AdaptiveConcurrencyLimit limit = entry.getValue();
+            Gauge.builder("tinysensor.limiter.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("group", group)
+                    .register(registry);
+            Gauge.builder("tinysensor.limiter.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("group", group)
+                    .register(registry);
+            FunctionCounter.builder("tinysensor.limiter.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                    .tag("group", group)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Returns the group of a request, or null if it is not limited.
+     */
+    private static Group classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if (path.equals("/login") || path.equals("/logout") || path.startsWith("/api/auth/")) return Group.AUTH;
+        if (!path.startsWith("/api/")) return null;
+        if (path.endsWith("/export") || path.endsWith("/import")) return null;
+        if ("GET".equals(method) || "HEAD".equals(method) || path.endsWith("/lookup")) return Group.READ;
+        if (path.endsWith("/readings") || path.endsWith("/heartbeat")) return null;
+        return Group.WRITE;
+    }
+
+    private static AdaptiveConcurrencyLimit create(int[] limit) {
+        if (limit.length != 3) throw new IllegalArgumentException("A limit is configured as initial,min,max");
+        return new AdaptiveConcurrencyLimit(limit[0], limit[1], limit[2]);
+    }
+}
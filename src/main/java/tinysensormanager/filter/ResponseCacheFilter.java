@@ -0,0 +1,172 @@
+package tinysensormanager.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.outbox.TableVersions;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A servlet filter that caches the serialized responses of the hot list endpoints, so repeated identical
+ * queries skip the database, the mapping to DTOs, Jackson and gzip altogether.
+ *
+ * <p>Responses are keyed by path, query parameters in name order and Accept header, and stored both as
+ * identity and as gzip bytes, which are written straight to the servlet output stream according to the
+ * Accept-Encoding of the request. Every entry remembers the {@link TableVersions} counter of the table its
+ * endpoint reads, taken before the response was computed, and is served only while that counter is
+ * unchanged, so any write to the table invalidates all of its responses at once. The cache is bounded by
+ * the size of the stored bytes; stale responses served while the database is unavailable are not cached.
+ * The filter runs after Spring Security, so only authenticated requests are answered from the cache.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class ResponseCacheFilter extends OncePerRequestFilter implements MeterBinder {
+
+    /**
+     * The cached endpoints and the table each of them reads.
+     */
+    private static final Map<String, Entity> ENDPOINTS = Map.of(
+            "/api/devices", Entity.DEVICE,
+            "/api/users", Entity.USER);
+
+    private final TableVersions tableVersions;
+    private final boolean enabled;
+    private final Cache<String, CachedResponse> cache;
+
+    /**
+     * Creates the filter with its cache configured via Spring's dependency injection.
+     * @param tableVersions the change counters that invalidate the responses
+     * @param enabled whether responses are cached
+     * @param maxMegabytes the maximum size of the cached responses in megabytes
+     */
+    public ResponseCacheFilter(TableVersions tableVersions,
+                               @Value("${tinysensor.response-cache.enabled:true}") boolean enabled,
+                               @Value("${tinysensor.response-cache.max-mb:64}") long maxMegabytes) {
+        this.tableVersions = tableVersions;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMegabytes << 20)
+                .weigher((String key, CachedResponse response) -> key.length() * 2 + response.size())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || !ENDPOINTS.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // Read before the response is computed, so a write that commits meanwhile invalidates the entry
+        long version = tableVersions.version(ENDPOINTS.get(path(request)));
+        String key = key(request);
+        boolean gzip = acceptsGzip(request);
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.version == version) {
+            write(response, cached, gzip);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() != HttpStatus.OK.value() || wrapper.getContentType() == null
+                || response.containsHeader(HttpHeaders.SET_COOKIE) || response.containsHeader(HttpHeaders.WARNING)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        byte[] identity = wrapper.getContentAsByteArray();
+        CachedResponse computed = new CachedResponse(version, wrapper.getContentType(), identity, compress(identity));
+        cache.put(key, computed);
+        write(response, computed, gzip);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "responses");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(path(request));
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            key.append('&').append(parameter.getKey().length()).append(':').append(parameter.getKey())
+                    .append('=').append(Arrays.toString(parameter.getValue()));
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return key.append('|').append(accept != null ? accept.trim().toLowerCase(Locale.ROOT) : "").toString();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String encodings = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return encodings != null && encodings.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private static byte[] compress(byte[] identity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(identity);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(HttpServletResponse response, CachedResponse cached, boolean gzip) throws IOException {
+        byte[] body = gzip ? cached.gzip : cached.identity;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.contentType);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * A serialized response, valid while the change counter of its table equals its version.
+     */
+    private static final class CachedResponse {
+        final long version;
+        final String contentType;
+        final byte[] identity;
+        final byte[] gzip;
+
+        CachedResponse(long version, String contentType, byte[] identity, byte[] gzip) {
+            this.version = version;
+            this.contentType = contentType;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        int size() {
+            return identity.length + gzip.length + contentType.length() * 2 + 64;
+        }
+    }
+}
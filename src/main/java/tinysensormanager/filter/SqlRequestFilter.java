@@ -0,0 +1,50 @@
+package tinysensormanager.filter;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import tinysensormanager.service.sql.SqlRequestContext;
+import tinysensormanager.service.sql.SqlStatistics;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * A servlet filter that counts the SQL statements each request executes and reports handlers that run the
+ * same statement many times within one request, the typical symptom of an N+1 query pattern.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class SqlRequestFilter extends OncePerRequestFilter {
+    private final SqlStatistics statistics;
+
+    /**
+     * Constructor to inject the statistics via Spring's dependency injection.
+     * @param statistics the statistics repeated statements are reported to
+     */
+    public SqlRequestFilter(SqlStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlRequestContext context = SqlRequestContext.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlRequestContext.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statistics.checkRepeats(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()),
+                    context);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package tinysensormanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Java bean for {@link Alert} instances stored in the database when alerts are sent to the database sink.
+ * Every time a {@link Device} starts or stops violating an {@link AlertRule} one alert is recorded.
+ * Implements Serializable to be able to be sent over the network.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ALERTS", indexes = @Index(name = "IDX_ALERTS_DEVICE_TS", columnList = "DEVICE_ID, TS"))
+public class Alert implements Serializable {
+    /**
+     * The id of the {@link Alert}.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID", nullable = false)
+    private Long id;
+    /**
+     * The id of the {@link AlertRule} that raised the {@link Alert}.
+     */
+    @Column(name = "RULE_ID", nullable = false)
+    private Long ruleId;
+    /**
+     * The id of the {@link Device} the {@link Alert} is about.
+     */
+    @Column(name = "DEVICE_ID", nullable = false)
+    private Long deviceId;
+    /**
+     * Whether the rule started (true) or stopped (false) being violated.
+     */
+    @Column(name = "RAISED", nullable = false)
+    private boolean raised;
+    /**
+     * The value of the reading that changed the state, if any.
+     */
+    @Column(name = "READING_VALUE")
+    private Double value;
+    /**
+     * The time of the change in milliseconds since the epoch.
+     */
+    @Column(name = "TS", nullable = false)
+    private long timestamp;
+    /**
+     * A human readable description of the {@link Alert}.
+     */
+    @Column(name = "MESSAGE", length = 1000)
+    private String message;
+}
@@ -0,0 +1,105 @@
+package tinysensormanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Java bean for {@link AlertRule} instances stored in the database.
+ * A rule applies to a single {@link Device}, to every {@link Device} whose model starts with a prefix,
+ * or to every {@link Device}.
+ * Implements Serializable to be able to be sent over the network.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ALERT_RULES")
+public class AlertRule implements Serializable {
+
+    /**
+     * The set of devices a rule applies to.
+     */
+    public enum Scope {
+        /**
+         * The device whose id equals the target.
+         */
+        DEVICE,
+        /**
+         * The devices whose model starts with the target.
+         */
+        MODEL,
+        /**
+         * Every device, the target is ignored.
+         */
+        GLOBAL
+    }
+
+    /**
+     * The condition a rule checks.
+     */
+    public enum Type {
+        /**
+         * A reading is above the threshold.
+         */
+        ABOVE,
+        /**
+         * A reading is below the threshold.
+         */
+        BELOW,
+        /**
+         * The value changes faster than the threshold, in units per second.
+         */
+        RATE,
+        /**
+         * No reading or heartbeat arrived for longer than the threshold, in seconds.
+         */
+        SILENCE
+    }
+
+    /**
+     * The id of the {@link AlertRule}.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "ID", nullable = false)
+    private Long id;
+    /**
+     * The name of the {@link AlertRule}.
+     */
+    @Column(name = "NAME", nullable = false)
+    private String name;
+    /**
+     * The scope of the {@link AlertRule}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "SCOPE", nullable = false)
+    private Scope scope;
+    /**
+     * The device id or model prefix the {@link AlertRule} applies to, depending on its scope.
+     */
+    @Column(name = "TARGET")
+    private String target;
+    /**
+     * The condition of the {@link AlertRule}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "RULE_TYPE", nullable = false)
+    private Type type;
+    /**
+     * The threshold of the {@link AlertRule}, interpreted according to its type.
+     */
+    @Column(name = "THRESHOLD", nullable = false)
+    private double threshold;
+    /**
+     * Whether the {@link AlertRule} is evaluated.
+     */
+    @Column(name = "ENABLED", nullable = false)
+    private boolean enabled;
+}
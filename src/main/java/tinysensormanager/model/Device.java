@@ -18,7 +18,10 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "DEVICES")
+@Table(name = "DEVICES", indexes = {
+        @Index(name = "IDX_DEVICES_DEVICE_NAME", columnList = "DEVICE_NAME"),
+        @Index(name = "IDX_DEVICES_SERIAL_NUMBER", columnList = "SERIAL_NUMBER"),
+        @Index(name = "IDX_DEVICES_IP_ADDRESS", columnList = "IP_ADDRESS")})
 public class Device implements Serializable {
     /**
      * The id of the {@link Device}.
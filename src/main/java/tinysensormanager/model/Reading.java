@@ -0,0 +1,47 @@
+package tinysensormanager.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Java bean for a single sensor {@link Reading} of a {@link Device} stored in the database.
+ * Implements Serializable to be able to be sent over the network.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "READINGS", indexes = @Index(name = "IDX_READINGS_DEVICE_TS", columnList = "DEVICE_ID, TS"))
+public class Reading implements Serializable {
+    /**
+     * The id of the {@link Reading}.
+     * Readings are inserted in JDBC batches, so the id is generated by the database.
+     * The table is partitioned by {@link #timestamp}, so the primary key of the table is (ID, TS).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID", nullable = false)
+    private Long id;
+    /**
+     * The id of the {@link Device} that produced the {@link Reading}.
+     */
+    @Column(name = "DEVICE_ID", nullable = false)
+    private Long deviceId;
+    /**
+     * The time of the {@link Reading} in milliseconds since the epoch.
+     */
+    @Column(name = "TS", nullable = false)
+    private long timestamp;
+    /**
+     * The measured value of the {@link Reading}.
+     */
+    @Column(name = "READING_VALUE", nullable = false)
+    private double value;
+}
@@ -17,7 +17,7 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "USERS")
+@Table(name = "USERS", indexes = @Index(name = "IDX_USERS_LASTNAME", columnList = "LASTNAME"))
 public class User implements Serializable {
     /**
      * The id of the {@link User}.
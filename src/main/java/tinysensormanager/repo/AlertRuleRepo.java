@@ -0,0 +1,15 @@
+package tinysensormanager.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import tinysensormanager.model.AlertRule;
+
+/**
+ * This interface is used to access the database {@link AlertRule} table.
+ * It is used by Spring Data JPA to generate the implementation.
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Repository
+public interface AlertRuleRepo extends JpaRepository<AlertRule, Long> {
+}
@@ -32,13 +32,19 @@ public interface DbUserRepo extends JpaRepository<DbUser, Long> {
     boolean isUserValid(String username, String password);
 
     /**
-     * This method is used to find a {@link DbUser} by username and password.
-     * @param username The username of the {@link DbUser} to find.
-     * @param password The password of the {@link DbUser} to find.
-     * @return A {@link List} of {@link DbUser} objects.
+     * This method is used to check whether a {@link DbUser} has a username.
+     * @param username The username to check.
+     * @return true if a {@link DbUser} has the username.
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * This method is used to check whether another {@link DbUser} has a username.
+     * @param username The username to check.
+     * @param id The id of the {@link DbUser} to ignore.
+     * @return true if a {@link DbUser} with a different id has the username.
      */
-    @Query("SELECT count(*) > 0 FROM DbUser U WHERE U.username = ?1")
-    boolean usernameExists(String username, String password);
+    boolean existsByUsernameAndIdNot(String username, Long id);
 
     // similar to first method above.
     // @Query("SELECT count(*) > 0 FROM DbUser U WHERE U.username = ?1")
@@ -27,4 +27,19 @@ public interface  DeviceRepo extends JpaRepository<Device, Long> {
      * @return A {@link Device} object.
      */
     Device findDeviceById(Long id);
+
+    /**
+     * This method is used to check whether a {@link Device} has a MAC address.
+     * @param mac The MAC address to check.
+     * @return true if a {@link Device} has the MAC address.
+     */
+    boolean existsByMac(String mac);
+
+    /**
+     * This method is used to check whether another {@link Device} has a MAC address.
+     * @param mac The MAC address to check.
+     * @param id The id of the {@link Device} to ignore.
+     * @return true if a {@link Device} with a different id has the MAC address.
+     */
+    boolean existsByMacAndIdNot(String mac, Long id);
 }
@@ -27,4 +27,19 @@ public interface UserRepo extends JpaRepository<User, Long> {
      * @return A {@link User} object.
      */
     User findUserById(Long id);
+
+    /**
+     * This method is used to check whether a {@link User} has an email address.
+     * @param email The email address to check.
+     * @return true if a {@link User} has the email address.
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * This method is used to check whether another {@link User} has an email address.
+     * @param email The email address to check.
+     * @param id The id of the {@link User} to ignore.
+     * @return true if a {@link User} with a different id has the email address.
+     */
+    boolean existsByEmailAndIdNot(String email, Long id);
 }
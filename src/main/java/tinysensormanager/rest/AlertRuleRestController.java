@@ -0,0 +1,202 @@
+package tinysensormanager.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tinysensormanager.dto.AlertRuleDTO;
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.service.IAlertRuleService;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.util.LoggerUtil;
+import tinysensormanager.validator.AlertRuleValidator;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ *  Rest controller for handling {@link AlertRule}-related HTTP requests.
+ *  This controller handles the retrieval, addition, modification and
+ *  deletion of the rules evaluated against incoming readings.
+ *
+ *  @author manokel01
+ *  @version 1.0.0
+ */
+@RestController
+@RequestMapping("/api")
+public class AlertRuleRestController {
+
+    private final IAlertRuleService alertRuleService;
+    private final AlertRuleValidator alertRuleValidator;
+    private final MessageSource messageSource;
+    private MessageSourceAccessor accessor;
+
+    /**
+     * Constructor for AlertRuleRestController class, injects dependencies.
+     * @param alertRuleService an instance of the alert rule service.
+     * @param alertRuleValidator a validator instance for checking rule inputs.
+     * @param messageSource an instance of a message source for localization of error messages.
+     */
+    public AlertRuleRestController(IAlertRuleService alertRuleService, AlertRuleValidator alertRuleValidator,
+                                   MessageSource messageSource) {
+        this.alertRuleService = alertRuleService;
+        this.alertRuleValidator = alertRuleValidator;
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * This method is called after construction is completed, to initialize dependencies.
+     */
+    @PostConstruct
+    private void init() {
+        accessor = new MessageSourceAccessor(messageSource, Locale.getDefault());
+    }
+
+    /**
+     * Endpoint for GET requests to retrieve all {@link AlertRule}s.
+     * @return a ResponseEntity with all rules.
+     */
+    @Operation(summary = "Get all alert rules")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "List all alert rules",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AlertRuleDTO.class)) })})
+    @RequestMapping(value = "/rules", method = RequestMethod.GET)
+    public ResponseEntity<List<AlertRuleDTO>> getAllRules() {
+        List<AlertRuleDTO> rules = alertRuleService.findAllRules().stream()
+                .map(AlertRuleRestController::map)
+                .collect(Collectors.toList());
+        return new ResponseEntity<>(rules, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for GET requests to retrieve an {@link AlertRule} by its ID.
+     * @param ruleId the ID of the rule.
+     * @return a ResponseEntity with the rule, or status 404 if it was not found.
+     */
+    @Operation(summary = "Get an alert rule by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alert rule Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AlertRuleDTO.class)) }),
+            @ApiResponse(responseCode = "404", description = "Alert rule not found",
+                    content = @Content)})
+    @RequestMapping(value = "/rules/{ruleId}", method = RequestMethod.GET)
+    public ResponseEntity<AlertRuleDTO> getRule(@PathVariable("ruleId") Long ruleId) {
+        try {
+            return new ResponseEntity<>(map(alertRuleService.findRuleById(ruleId)), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Endpoint for POST requests to add an {@link AlertRule}.
+     * The rule is validated before being added and is evaluated from the next processed reading on.
+     * @param dto the rule to add.
+     * @param bindingResult the validation result of the rule.
+     * @return a ResponseEntity with status 201 and the created rule, or status 400 if the input was invalid.
+     */
+    @Operation(summary = "Add an alert rule")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Alert rule created",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AlertRuleDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid input was supplied",
+                    content = @Content)})
+    @RequestMapping(value = "/rules", method = RequestMethod.POST)
+    public ResponseEntity<AlertRuleDTO> addRule(@RequestBody AlertRuleDTO dto, BindingResult bindingResult) {
+        alertRuleValidator.validate(dto, bindingResult);
+        if (bindingResult.hasErrors()) {
+            LoggerUtil.getCurrentLogger().warning(accessor.getMessage("empty"));
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        dto.setId(null);
+        AlertRuleDTO ruleDTO = map(alertRuleService.addRule(dto));
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(ruleDTO.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(ruleDTO);
+    }
+
+    /**
+     * Endpoint for PUT requests to update an {@link AlertRule} by its ID.
+     * @param ruleId the ID of the rule to update.
+     * @param dto the updated rule.
+     * @param bindingResult the validation result of the rule.
+     * @return a ResponseEntity with the updated rule, status 400 if the input was invalid
+     * or 404 if the rule was not found.
+     */
+    @Operation(summary = "Update an alert rule")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alert rule updated",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AlertRuleDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid input was supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Alert rule not found",
+                    content = @Content) })
+    @RequestMapping(value = "/rules/{ruleId}", method = RequestMethod.PUT)
+    public ResponseEntity<AlertRuleDTO> updateRule(@PathVariable("ruleId") Long ruleId,
+                                                   @RequestBody AlertRuleDTO dto, BindingResult bindingResult) {
+        alertRuleValidator.validate(dto, bindingResult);
+        if (bindingResult.hasErrors()) {
+            LoggerUtil.getCurrentLogger().warning(accessor.getMessage("empty"));
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            dto.setId(ruleId);
+            return new ResponseEntity<>(map(alertRuleService.updateRule(dto)), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Endpoint for DELETE requests for an {@link AlertRule} by its ID.
+     * @param ruleId the ID of the rule to delete.
+     * @return a ResponseEntity with the deleted rule, or status 404 if it was not found.
+     */
+    @Operation(summary = "Delete an alert rule by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alert rule Deleted",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AlertRuleDTO.class)) }),
+            @ApiResponse(responseCode = "404", description = "Alert rule not found",
+                    content = @Content)})
+    @RequestMapping(value = "/rules/{ruleId}", method = RequestMethod.DELETE)
+    public ResponseEntity<AlertRuleDTO> deleteRule(@PathVariable("ruleId") Long ruleId) {
+        try {
+            AlertRule rule = alertRuleService.findRuleById(ruleId);
+            alertRuleService.deleteRule(ruleId);
+            return new ResponseEntity<>(map(rule), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Maps an {@link AlertRule} to an {@link AlertRuleDTO}
+     * @param rule the rule to map
+     * @return the mapped rule
+     */
+    private static AlertRuleDTO map(AlertRule rule) {
+        return new AlertRuleDTO(rule.getId(), rule.getName(), rule.getScope(), rule.getTarget(),
+                rule.getType(), rule.getThreshold(), rule.isEnabled());
+    }
+}
@@ -0,0 +1,98 @@
+package tinysensormanager.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import tinysensormanager.authentication.TokenService;
+import tinysensormanager.dto.DbUserDTO;
+import tinysensormanager.dto.TokenDTO;
+
+/**
+ *  Rest controller that exchanges credentials for signed access tokens.
+ *
+ *  @author manokel01
+ *  @version 1.0.0
+ */
+@RestController
+@RequestMapping("/api/auth")
+public class AuthRestController {
+
+    private static final String BEARER = "Bearer ";
+
+    private final AuthenticationManager authenticationManager;
+    private final TokenService tokenService;
+
+    /**
+     * Constructor for AuthRestController class, injects dependencies.
+     * @param authenticationManager the manager that checks the credentials.
+     * @param tokenService the service that issues tokens.
+     */
+    @Autowired
+    public AuthRestController(AuthenticationManager authenticationManager, TokenService tokenService) {
+        this.authenticationManager = authenticationManager;
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Endpoint for POST requests that check the credentials once and return a short-lived token,
+     * to be sent as {@code Authorization: Bearer <token>} with the following requests.
+     * @param credentials the username and password.
+     * @return a ResponseEntity with the {@link TokenDTO}, or status 401 if the credentials are wrong.
+     */
+    @Operation(summary = "Issue an access token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Token issued",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TokenDTO.class)) }),
+            @ApiResponse(responseCode = "401", description = "Bad credentials", content = @Content)})
+    @RequestMapping(value = "/token", method = RequestMethod.POST)
+    public ResponseEntity<TokenDTO> issueToken(@RequestBody DbUserDTO credentials) {
+        if (credentials.getUsername() == null || credentials.getPassword() == null) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(credentials.getUsername(), credentials.getPassword()));
+        } catch (AuthenticationException e) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        TokenDTO token = new TokenDTO(tokenService.issue(authentication.getName()), "Bearer",
+                tokenService.getTtlSeconds());
+        return new ResponseEntity<>(token, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for POST requests that revoke the token the request was authenticated with.
+     * @param authorization the Authorization header carrying the token.
+     * @return a ResponseEntity with status 204, or 400 if the request carries no valid token.
+     */
+    @Operation(summary = "Revoke the current access token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Token revoked", content = @Content),
+            @ApiResponse(responseCode = "400", description = "No bearer token", content = @Content)})
+    @RequestMapping(value = "/revoke", method = RequestMethod.POST)
+    public ResponseEntity<Void> revokeToken(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())
+                || !tokenService.revoke(authorization.substring(BEARER.length()).trim())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
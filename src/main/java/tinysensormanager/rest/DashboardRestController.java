@@ -0,0 +1,54 @@
+package tinysensormanager.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tinysensormanager.dto.DashboardDTO;
+import tinysensormanager.service.IDashboardService;
+
+/**
+ *  Rest controller for the summary shown on the landing page, which replaces the separate calls for the
+ *  users, the devices and the counts with a single request whose parts are queried concurrently.
+ *
+ *  @author manokel01
+ *  @version 1.0.0
+ */
+@RestController
+@RequestMapping("/api")
+public class DashboardRestController {
+
+    private final IDashboardService dashboardService;
+
+    /**
+     * Constructor for DashboardRestController class, injects dependencies.
+     * @param dashboardService an instance of the dashboard service.
+     */
+    @Autowired
+    public DashboardRestController(IDashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Endpoint for GET requests that return the users searched by last name, the devices and the number of
+     * users, devices and database users. Parts that did not answer in time are left out and named in the
+     * "incomplete" field of the response.
+     * @param lastname the start of the last name of the users to include, optional.
+     * @return a ResponseEntity with the {@link DashboardDTO}.
+     */
+    @Operation(summary = "Get the users, devices and counts of the landing page in one request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dashboard assembled, possibly incomplete",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DashboardDTO.class)) })})
+    @RequestMapping(value = "/dashboard", method = RequestMethod.GET)
+    public ResponseEntity<DashboardDTO> getDashboard(@RequestParam(value = "lastname", required = false)
+                                                     String lastname) {
+        return new ResponseEntity<>(dashboardService.getDashboard(lastname), HttpStatus.OK);
+    }
+}
@@ -93,7 +93,7 @@ public class DbUserRestController {
             }
             return new ResponseEntity<>(dbUsersDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
@@ -121,7 +121,7 @@ public class DbUserRestController {
             );
             return new ResponseEntity<>(dbUserDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -192,7 +192,7 @@ public class DbUserRestController {
             DbUserDTO dbUserDTO = map(dbUser);
             return new ResponseEntity<>(dbUserDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -216,18 +216,18 @@ public class DbUserRestController {
     @RequestMapping(value = "/dbusers/{dbuserId}", method = RequestMethod.PUT)
     public ResponseEntity<DbUserDTO> updateUser(@PathVariable("dbuserId") Long dbUserId,
                                               @RequestBody DbUserDTO dto, BindingResult bindingResult) {
+        dto.setId(dbUserId);
         dbUserValidator.validate(dto, bindingResult);
         if (bindingResult.hasErrors()) {
             LoggerUtil.getCurrentLogger().warning(accessor.getMessage("empty"));
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         try {
-            dto.setId(dbUserId);
             DbUser dbUser = dbUserService.updateUser(dto);
             DbUserDTO dbUserDTO = map(dbUser);
             return new ResponseEntity<>(dbUserDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -5,25 +5,41 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tinysensormanager.dto.DeviceDTO;
+import tinysensormanager.dto.ImportReportDTO;
+import tinysensormanager.dto.MultiGetDTO;
+import tinysensormanager.dto.SearchPageDTO;
 import tinysensormanager.model.Device;
+import tinysensormanager.service.IDataTransferService;
 import tinysensormanager.service.IDeviceService;
+import tinysensormanager.service.TransferFormat;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
 import tinysensormanager.service.util.LoggerUtil;
 import tinysensormanager.validator.DeviceValidator;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 
 /**
@@ -43,20 +59,27 @@ public class DeviceRestController {
 
     private final IDeviceService deviceService;
     private final DeviceValidator deviceValidator;
+    private final IDataTransferService dataTransferService;
     private final MessageSource messageSource;
+    private final int multiGetMaxIds;
     private MessageSourceAccessor accessor;
 
     /**
      * Constructor for DeviceRestController class, injects dependencies.
      * @param deviceService an instance of the device service.
      * @param deviceValidator a validator instance for checking device inputs.
+     * @param dataTransferService an instance of the bulk export and import service.
      * @param messageSource an instance of a message source for localization of error messages.
+     * @param multiGetMaxIds the maximum number of ids of one multi-get request.
      */
     public DeviceRestController(IDeviceService deviceService, DeviceValidator deviceValidator,
-                                MessageSource messageSource) {
+                                IDataTransferService dataTransferService, MessageSource messageSource,
+                                @Value("${tinysensor.multiget.max-ids:1000}") int multiGetMaxIds) {
         this.deviceService = deviceService;
         this.deviceValidator = deviceValidator;
+        this.dataTransferService = dataTransferService;
         this.messageSource = messageSource;
+        this.multiGetMaxIds = multiGetMaxIds;
     }
 
     /**
@@ -97,11 +120,83 @@ public class DeviceRestController {
             }
             return new ResponseEntity<>(deviceDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Endpoint for GET requests that search {@link Device} instances with filters, a sort and keyset pagination.
+     * Searches that no index supports are refused, so every search reads a bounded number of rows.
+     * @param filters the filters, each field:operator:value, for example model:in:TS-100,TS-200 or serialnumber:ge:SN-1000.
+     * @param sort the field to sort by, prefixed with '-' for descending order.
+     * @param limit the maximum number of {@link Device} instances to return.
+     * @param cursor the cursor returned with the previous page, to get the next one.
+     * @return a ResponseEntity with one page of {@link DeviceDTO}s and the cursor of the next page,
+     * or status 400 with the reason if the search is malformed or not supported by an index.
+     */
+    @Operation(summary = "Search devices with filters, a sort and keyset pagination")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devices Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SearchPageDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Malformed search, or no index supports it",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SearchPageDTO.class)) })})
+    @RequestMapping(value = "/devices/search", method = RequestMethod.GET)
+    public ResponseEntity<SearchPageDTO<DeviceDTO>> searchDevices(
+            @RequestParam(value = "filter", required = false) List<String> filters,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        try {
+            SearchResult<Device> page = deviceService.searchDevices(SearchQuery.parse(filters, sort, limit, cursor));
+            List<DeviceDTO> items = new ArrayList<>(page.getItems().size());
+            for (Device device : page.getItems()) items.add(map(device));
+            return new ResponseEntity<>(new SearchPageDTO<>(items, page.getNextCursor(), page.getWarnings(), null),
+                    HttpStatus.OK);
+        } catch (InvalidSearchException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(new SearchPageDTO<>(null, null, null, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint for GET requests that fetch many {@link Device} instances by id with as few queries as possible.
+     * @param ids the comma separated ids of the devices.
+     * @return a ResponseEntity with the found devices in the requested order and the ids that do not exist,
+     * or status 400 if more than the allowed number of ids were requested.
+     */
+    @Operation(summary = "Get many devices by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devices found or reported missing",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = MultiGetDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many ids supplied",
+                    content = @Content)})
+    @RequestMapping(path = "/devices", params = "ids", method = RequestMethod.GET)
+    public ResponseEntity<MultiGetDTO<DeviceDTO>> getDevicesByIds(@RequestParam("ids") List<Long> ids) {
+        return lookupDevices(ids);
+    }
+
+    /**
+     * Endpoint for POST requests that fetch many {@link Device} instances by id, for id lists too long for a URL.
+     * @param ids the ids of the devices as a JSON array.
+     * @return a ResponseEntity with the found devices in the requested order and the ids that do not exist,
+     * or status 400 if more than the allowed number of ids were requested.
+     */
+    @Operation(summary = "Look up many devices by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devices found or reported missing",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = MultiGetDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many ids supplied",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/lookup", method = RequestMethod.POST)
+    public ResponseEntity<MultiGetDTO<DeviceDTO>> lookupDevicesByIds(@RequestBody List<Long> ids) {
+        return lookupDevices(ids);
+    }
+
     /**
      * Endpoint for POST requests to retrieving {@link Device} data by its ID.
      * The {@link Device} is validated before being added.
@@ -131,7 +226,7 @@ public class DeviceRestController {
             ));
             return new ResponseEntity<>(deviceDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -151,6 +246,54 @@ public class DeviceRestController {
         return new ResponseEntity<>(devices, HttpStatus.OK);
     }
 
+    /**
+     * Endpoint for GET requests that stream every {@link Device} as NDJSON or CSV.
+     * The response is gzip encoded when the client accepts it.
+     *
+     * @param format the output format, either "ndjson" or "csv".
+     * @param acceptEncoding the Accept-Encoding header of the request.
+     * @return a streaming response with one record per {@link Device}.
+     */
+    @Operation(summary = "Export all devices as NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devices exported",
+                    content = { @Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv") }),
+            @ApiResponse(responseCode = "400", description = "Unsupported format",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportDevices(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return TransferResponses.export("devices", TransferFormat.fromParameter(format), acceptEncoding,
+                dataTransferService::exportDevices);
+    }
+
+    /**
+     * Endpoint for POST requests that bulk-load {@link Device} records from an NDJSON or CSV body.
+     * The body may be gzip encoded. Ids in the body are ignored.
+     *
+     * @param format the input format, either "ndjson" or "csv".
+     * @param request the request whose body holds the records.
+     * @return a report with the number of imported and rejected records.
+     * @throws IOException if the request body cannot be read.
+     */
+    @Operation(summary = "Import devices from NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Devices imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImportReportDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Unsupported format",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/import", method = RequestMethod.POST)
+    public ResponseEntity<ImportReportDTO> importDevices(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            HttpServletRequest request) throws IOException {
+        TransferFormat transferFormat = TransferFormat.fromParameter(format);
+        try (InputStream in = TransferResponses.openImport(request)) {
+            return new ResponseEntity<>(dataTransferService.importDevices(transferFormat, in), HttpStatus.OK);
+        }
+    }
+
     @Operation(summary = "Add a device")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Device created",
@@ -199,7 +342,7 @@ public class DeviceRestController {
             DeviceDTO DeviceDTO = map(device);
             return new ResponseEntity<>(DeviceDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -227,22 +370,42 @@ public class DeviceRestController {
     @RequestMapping(value = "/devices/{deviceId}", method = RequestMethod.PUT)
     public ResponseEntity<DeviceDTO> updateDevice(@PathVariable("deviceId") Long deviceId,
                                               @RequestBody DeviceDTO dto, BindingResult bindingResult) {
+        dto.setId(deviceId);
         deviceValidator.validate(dto, bindingResult);
         if (bindingResult.hasErrors()) {
             LoggerUtil.getCurrentLogger().warning(accessor.getMessage("empty"));
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         try {
-            dto.setId(deviceId);
             Device device = deviceService.updateDevice(dto);
             DeviceDTO deviceDTO = map(device);
             return new ResponseEntity<>(deviceDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Resolves the requested ids and splits them into found devices and missing ids.
+     * @param ids the requested ids
+     * @return the response of the multi-get endpoints
+     */
+    private ResponseEntity<MultiGetDTO<DeviceDTO>> lookupDevices(List<Long> ids) {
+        if (ids.size() > multiGetMaxIds) {
+            LoggerUtil.getCurrentLogger().warning("Too many ids requested: " + ids.size());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<Long, Device> found = deviceService.findDevicesByIds(ids);
+        List<DeviceDTO> deviceDTOs = new ArrayList<>(found.size());
+        for (Device device : found.values()) deviceDTOs.add(map(device));
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id != null && !found.containsKey(id)) missing.add(id);
+        }
+        return new ResponseEntity<>(new MultiGetDTO<>(deviceDTOs, missing), HttpStatus.OK);
+    }
+
     /**
      * Maps a {@link Device} to a {@link DeviceDTO}
      * @param device
@@ -0,0 +1,277 @@
+package tinysensormanager.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tinysensormanager.dto.AnomalyDTO;
+import tinysensormanager.dto.QuantilesDTO;
+import tinysensormanager.dto.ReadingDTO;
+import tinysensormanager.dto.ReadingSeriesDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.Reading;
+import tinysensormanager.service.IReadingService;
+import tinysensormanager.service.exceptions.BatchTooLargeException;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.ThrottledException;
+import tinysensormanager.service.util.Downsampler;
+import tinysensormanager.service.util.LoggerUtil;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ *  Rest controller for handling {@link Reading}-related HTTP requests.
+ *  This controller handles the recording of readings posted by a {@link Device}
+ *  and the retrieval of downsampled reading history for charts.
+ *
+ *  @author manokel01
+ *  @version 1.0.0
+ */
+@RestController
+@RequestMapping("/api")
+public class ReadingRestController {
+
+    /**
+     * The largest number of points a single range query may return.
+     */
+    private static final int MAX_POINTS_LIMIT = 10_000;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * The number of seconds an overloaded client is asked to wait before retrying.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final IReadingService readingService;
+
+    /**
+     * Constructor for ReadingRestController class, injects dependencies.
+     * @param readingService an instance of the reading service.
+     */
+    @Autowired
+    public ReadingRestController(IReadingService readingService) {
+        this.readingService = readingService;
+    }
+
+    /**
+     * Endpoint for POST requests that record readings of a {@link Device}.
+     * @param deviceId the ID of the {@link Device} that produced the readings.
+     * @param readings the readings to record.
+     * @return a ResponseEntity with status 202 if the readings were accepted, 404 if the device was not found,
+     * 413 with the largest accepted batch size if there are too many readings, 429 if the device or the server
+     * is over its limits, or 503 with the number of accepted readings if the queue filled up while they were
+     * accepted.
+     */
+    @Operation(summary = "Record readings of a device")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Readings accepted",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Device not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "413", description = "Too many readings, split them into smaller batches",
+                    content = @Content),
+            @ApiResponse(responseCode = "429", description = "Throttled, retry after the given number of seconds",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Overloaded, only the first readings were accepted",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/{deviceId}/readings", method = RequestMethod.POST)
+    public ResponseEntity<Integer> addReadings(@PathVariable("deviceId") Long deviceId,
+                                               @RequestBody List<ReadingDTO> readings) {
+        try {
+            int accepted = readingService.recordReadings(deviceId, readings);
+            if (accepted < readings.size()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .body(accepted);
+            }
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (ThrottledException e) {
+            return throttled(e);
+        } catch (BatchTooLargeException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(e.getLimit(), HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+    }
+
+    /**
+     * Endpoint for POST requests that report a sign of life of a {@link Device} without a reading.
+     * Heartbeats keep silence alerts from being raised.
+     * @param deviceId the ID of the {@link Device}.
+     * @param timestamp the time of the heartbeat in milliseconds since the epoch, defaults to now.
+     * @return a ResponseEntity with status 202 if the heartbeat was accepted, 404 if the device was not found,
+     * 429 if the device or the server is over its limits, or 503 if the queue is full.
+     */
+    @Operation(summary = "Record a heartbeat of a device")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Heartbeat accepted",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Device not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "429", description = "Throttled, retry after the given number of seconds",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Overloaded",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/{deviceId}/heartbeat", method = RequestMethod.POST)
+    public ResponseEntity<Void> addHeartbeat(@PathVariable("deviceId") Long deviceId,
+                                             @RequestParam(value = "timestamp", required = false) Long timestamp) {
+        try {
+            if (!readingService.recordHeartbeat(deviceId, timestamp != null ? timestamp : System.currentTimeMillis())) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .build();
+            }
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (ThrottledException e) {
+            return throttled(e);
+        }
+    }
+
+    /**
+     * Endpoint for GET requests that return the readings of a {@link Device} in a time range,
+     * downsampled on the server so that at most maxPoints points are returned.
+     * @param deviceId the ID of the {@link Device}.
+     * @param from the inclusive start of the range in milliseconds since the epoch, defaults to one day before "to".
+     * @param to the exclusive end of the range in milliseconds since the epoch, defaults to now.
+     * @param maxPoints the maximum number of points to return.
+     * @param mode the downsampling algorithm, "lttb" or "minmax".
+     * @return a ResponseEntity with the downsampled {@link ReadingSeriesDTO}.
+     */
+    @Operation(summary = "Get the downsampled readings of a device in a time range")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Readings Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReadingSeriesDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid range, maxPoints or mode supplied",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/{deviceId}/readings", method = RequestMethod.GET)
+    public ResponseEntity<ReadingSeriesDTO> getReadings(@PathVariable("deviceId") Long deviceId,
+                                                        @RequestParam(value = "from", required = false) Long from,
+                                                        @RequestParam(value = "to", required = false) Long to,
+                                                        @RequestParam(value = "maxPoints", defaultValue = "1500") int maxPoints,
+                                                        @RequestParam(value = "mode", defaultValue = "lttb") String mode) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DAY_MILLIS;
+        Downsampler.Mode downsampling = Downsampler.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        ReadingSeriesDTO series = readingService.findReadings(deviceId, start, end,
+                Math.min(maxPoints, MAX_POINTS_LIMIT), downsampling);
+        return new ResponseEntity<>(series, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for GET requests that return the latest readings of a {@link Device}.
+     * They are served from memory, so the endpoint never reaches the database.
+     * @param deviceId the ID of the {@link Device}.
+     * @param n the maximum number of readings to return, capped at the number kept per device.
+     * @return a ResponseEntity with the {@link ReadingSeriesDTO} of the latest readings in timestamp order,
+     * 400 if n is not positive, or 404 if the device was not found.
+     */
+    @Operation(summary = "Get the latest readings of a device")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Readings Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReadingSeriesDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid n supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Device not found",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/{deviceId}/readings/latest", method = RequestMethod.GET)
+    public ResponseEntity<ReadingSeriesDTO> getLatestReadings(@PathVariable("deviceId") Long deviceId,
+                                                              @RequestParam(value = "n", defaultValue = "100") int n) {
+        if (n < 1) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(readingService.findLatestReadings(deviceId, n), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Endpoint for GET requests that list the devices whose recent readings are anomalous compared with
+     * their own history. The list is computed in memory by the ingestion path.
+     * @return a ResponseEntity with the {@link AnomalyDTO}s, the highest score first.
+     */
+    @Operation(summary = "Get the devices with anomalous readings")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Anomalies Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AnomalyDTO.class)) })})
+    @RequestMapping(value = "/devices/anomalies", method = RequestMethod.GET)
+    public ResponseEntity<List<AnomalyDTO>> getAnomalies() {
+        return new ResponseEntity<>(readingService.findAnomalies(), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for GET requests that return percentiles of the readings of the devices of a model, or of a
+     * single {@link Device}, over a time range. They are merged from hourly sketches, so the cost does not
+     * depend on the number of readings, and every value is within 1% of the exact percentile.
+     * @param model the prefix of the model of the devices, empty for all devices.
+     * @param deviceId the ID of the {@link Device}, used when no model is given.
+     * @param q the comma separated quantiles between 0 and 1, e.g. "0.5,0.95,0.99".
+     * @param from the inclusive start of the range in milliseconds since the epoch, defaults to one day before "to".
+     * @param to the exclusive end of the range in milliseconds since the epoch, defaults to now.
+     * @return a ResponseEntity with the {@link QuantilesDTO}, 400 if neither a model nor a device is given or
+     * a quantile is invalid, or 404 if the device was not found.
+     */
+    @Operation(summary = "Get percentiles of the readings of a model or a device")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Quantiles Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = QuantilesDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid model, device or quantiles supplied",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Device not found",
+                    content = @Content)})
+    @RequestMapping(value = "/devices/quantiles", method = RequestMethod.GET)
+    public ResponseEntity<QuantilesDTO> getQuantiles(@RequestParam(value = "model", required = false) String model,
+                                                     @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                                     @RequestParam(value = "q", defaultValue = "0.5,0.9,0.99") String q,
+                                                     @RequestParam(value = "from", required = false) Long from,
+                                                     @RequestParam(value = "to", required = false) Long to) {
+        if (model == null && deviceId == null) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        String[] parts = q.split(",");
+        double[] quantiles = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) quantiles[i] = Double.parseDouble(parts[i].trim());
+        } catch (NumberFormatException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        for (double quantile : quantiles) {
+            if (!(quantile >= 0 && quantile <= 1)) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DAY_MILLIS;
+        try {
+            return new ResponseEntity<>(readingService.findQuantiles(model, deviceId, quantiles, start, end),
+                    HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Builds a 429 response that tells the client when to retry.
+     * Throttling is expected under load, so it is not logged per request.
+     * @param e the reason for throttling
+     * @return the response
+     */
+    private static <T> ResponseEntity<T> throttled(ThrottledException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+}
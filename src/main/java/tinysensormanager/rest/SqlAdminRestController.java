@@ -0,0 +1,70 @@
+package tinysensormanager.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import tinysensormanager.dto.SqlReportDTO;
+import tinysensormanager.service.sql.SqlStatistics;
+
+/**
+ *  Rest controller for the SQL statement statistics collected by the instrumented data source.
+ *  Reserved to the administrators configured in {@code tinysensor.admin.usernames}.
+ *
+ *  @author manokel01
+ *  @version 1.0.0
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class SqlAdminRestController {
+
+    private final SqlStatistics sqlStatistics;
+
+    /**
+     * Constructor for SqlAdminRestController class, injects dependencies.
+     * @param sqlStatistics the collected SQL statistics.
+     */
+    @Autowired
+    public SqlAdminRestController(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    /**
+     * Endpoint for GET requests that return the latency statistics per normalized statement
+     * and the request handlers suspected of N+1 query patterns.
+     * @param limit the maximum number of statements to return.
+     * @return a ResponseEntity with the {@link SqlReportDTO}.
+     */
+    @Operation(summary = "Get SQL statement statistics and suspected N+1 queries")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SqlReportDTO.class)) }),
+            @ApiResponse(responseCode = "403", description = "Not an administrator", content = @Content)})
+    @RequestMapping(value = "/sql", method = RequestMethod.GET)
+    public ResponseEntity<SqlReportDTO> getSqlReport(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return new ResponseEntity<>(sqlStatistics.report(Math.max(1, limit)), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint for DELETE requests that discard the collected statistics.
+     * @return a ResponseEntity with status 204.
+     */
+    @Operation(summary = "Reset SQL statement statistics")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Statistics reset", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Not an administrator", content = @Content)})
+    @RequestMapping(value = "/sql", method = RequestMethod.DELETE)
+    public ResponseEntity<Void> resetSqlReport() {
+        sqlStatistics.reset();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
@@ -0,0 +1,83 @@
+package tinysensormanager.rest;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tinysensormanager.service.TransferFormat;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Helper methods shared by the REST controllers that offer bulk export and import endpoints.
+ * Bodies are gzip encoded or decoded on the fly, so they are never buffered as a whole.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class TransferResponses {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private TransferResponses() {}
+
+    /**
+     * Builds a streaming download response.
+     * @param name the base name of the downloaded file
+     * @param format the format of the download
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null
+     * @param exporter writes the records to the response body
+     * @return the response entity with the streaming body
+     */
+    static ResponseEntity<StreamingResponseBody> export(String name, TransferFormat format, String acceptEncoding,
+                                                        Exporter exporter) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(name + "." + format.getExtension()).build());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                exporter.export(format, gzipOut);
+                gzipOut.finish();
+            } else {
+                exporter.export(format, out);
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Opens the body of an import request, decompressing it if it is gzip encoded.
+     * @param request the import request
+     * @return the stream of the request body
+     * @throws IOException if the body cannot be read
+     */
+    static InputStream openImport(HttpServletRequest request) throws IOException {
+        InputStream in = request.getInputStream();
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && encoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    /**
+     * Writes the records of a table in the given format.
+     */
+    @FunctionalInterface
+    interface Exporter {
+        void export(TransferFormat format, OutputStream out) throws IOException;
+    }
+}
@@ -6,25 +6,41 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tinysensormanager.dto.ImportReportDTO;
+import tinysensormanager.dto.MultiGetDTO;
+import tinysensormanager.dto.SearchPageDTO;
 import tinysensormanager.dto.UserDTO;
 import tinysensormanager.model.User;
+import tinysensormanager.service.IDataTransferService;
 import tinysensormanager.service.IUserService;
+import tinysensormanager.service.TransferFormat;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
 import tinysensormanager.service.util.LoggerUtil;
 import tinysensormanager.validator.UserValidator;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  *  This REST controller allows users {@link User} to perform CRUD operations on User entities via HTTP endpoints.
@@ -41,7 +57,9 @@ import java.util.Locale;
 @RequestMapping("/api") public class UserRestController {
     private final IUserService userService;
     private final UserValidator userValidator;
+    private final IDataTransferService dataTransferService;
     private final MessageSource messageSource;
+    private final int multiGetMaxIds;
     private MessageSourceAccessor accessor;
 
     /**
@@ -49,14 +67,19 @@ import java.util.Locale;
      *
      * @param userService   A service object for managing {@link User} entities.
      * @param userValidator A validator object for validating {@link UserDTO} objects before they are persisted.
+     * @param dataTransferService A service object for bulk export and import of {@link User} entities.
      * @param messageSource A message source object for getting localized error messages.
+     * @param multiGetMaxIds The maximum number of ids of one multi-get request.
      */
     @Autowired
     public UserRestController(IUserService userService, UserValidator userValidator,
-                              MessageSource messageSource) {
+                              IDataTransferService dataTransferService, MessageSource messageSource,
+                              @Value("${tinysensor.multiget.max-ids:1000}") int multiGetMaxIds) {
         this.userService = userService;
         this.userValidator = userValidator;
+        this.dataTransferService = dataTransferService;
         this.messageSource = messageSource;
+        this.multiGetMaxIds = multiGetMaxIds;
     }
 
     /**
@@ -99,11 +122,83 @@ import java.util.Locale;
             }
             return new ResponseEntity<>(usersDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Endpoint for GET requests that search {@link User} instances with filters, a sort and keyset pagination.
+     * Searches that no index supports are refused, so every search reads a bounded number of rows.
+     * @param filters the filters, each field:operator:value, for example lastname:prefix:Pap or email:eq:jane@example.com.
+     * @param sort the field to sort by, prefixed with '-' for descending order.
+     * @param limit the maximum number of {@link User} instances to return.
+     * @param cursor the cursor returned with the previous page, to get the next one.
+     * @return a ResponseEntity with one page of {@link UserDTO}s and the cursor of the next page,
+     * or status 400 with the reason if the search is malformed or not supported by an index.
+     */
+    @Operation(summary = "Search users with filters, a sort and keyset pagination")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SearchPageDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Malformed search, or no index supports it",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SearchPageDTO.class)) })})
+    @RequestMapping(value = "/users/search", method = RequestMethod.GET)
+    public ResponseEntity<SearchPageDTO<UserDTO>> searchUsers(
+            @RequestParam(value = "filter", required = false) List<String> filters,
+            @RequestParam(value = "sort", defaultValue = "id") String sort,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        try {
+            SearchResult<User> page = userService.searchUsers(SearchQuery.parse(filters, sort, limit, cursor));
+            List<UserDTO> items = new ArrayList<>(page.getItems().size());
+            for (User user : page.getItems()) items.add(map(user));
+            return new ResponseEntity<>(new SearchPageDTO<>(items, page.getNextCursor(), page.getWarnings(), null),
+                    HttpStatus.OK);
+        } catch (InvalidSearchException e) {
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
+            return new ResponseEntity<>(new SearchPageDTO<>(null, null, null, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint for GET requests that fetch many {@link User} instances by id with as few queries as possible.
+     * @param ids the comma separated ids of the users.
+     * @return a ResponseEntity with the found users in the requested order and the ids that do not exist,
+     * or status 400 if more than the allowed number of ids were requested.
+     */
+    @Operation(summary = "Get many users by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users found or reported missing",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = MultiGetDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many ids supplied",
+                    content = @Content)})
+    @RequestMapping(path = "/users", params = "ids", method = RequestMethod.GET)
+    public ResponseEntity<MultiGetDTO<UserDTO>> getUsersByIds(@RequestParam("ids") List<Long> ids) {
+        return lookupUsers(ids);
+    }
+
+    /**
+     * Endpoint for POST requests that fetch many {@link User} instances by id, for id lists too long for a URL.
+     * @param ids the ids of the users as a JSON array.
+     * @return a ResponseEntity with the found users in the requested order and the ids that do not exist,
+     * or status 400 if more than the allowed number of ids were requested.
+     */
+    @Operation(summary = "Look up many users by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users found or reported missing",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = MultiGetDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many ids supplied",
+                    content = @Content)})
+    @RequestMapping(value = "/users/lookup", method = RequestMethod.POST)
+    public ResponseEntity<MultiGetDTO<UserDTO>> lookupUsersByIds(@RequestBody List<Long> ids) {
+        return lookupUsers(ids);
+    }
+
     /**
      * Gets a single {@link User} by ID.
      *
@@ -132,7 +227,7 @@ import java.util.Locale;
             );
             return new ResponseEntity<>(userDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -153,6 +248,55 @@ import java.util.Locale;
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Streams all Users {@link User} as NDJSON or CSV, gzip encoded when the client accepts it.
+     *
+     * @param format The output format, either "ndjson" or "csv".
+     * @param acceptEncoding The Accept-Encoding header of the request.
+     *
+     * @return ResponseEntity<StreamingResponseBody> A streaming response with one record per {@link User}.
+     */
+    @Operation(summary = "Export all users as NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users exported",
+                    content = { @Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv") }),
+            @ApiResponse(responseCode = "400", description = "Unsupported format",
+                    content = @Content)})
+    @RequestMapping(value = "/users/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return TransferResponses.export("users", TransferFormat.fromParameter(format), acceptEncoding,
+                dataTransferService::exportUsers);
+    }
+
+    /**
+     * Bulk-loads Users {@link User} from an NDJSON or CSV body, which may be gzip encoded.
+     * Ids in the body are ignored.
+     *
+     * @param format The input format, either "ndjson" or "csv".
+     * @param request The request whose body holds the records.
+     *
+     * @return ResponseEntity<ImportReportDTO> A report with the number of imported and rejected records.
+     * @throws IOException if the request body cannot be read.
+     */
+    @Operation(summary = "Import users from NDJSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImportReportDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Unsupported format",
+                    content = @Content)})
+    @RequestMapping(value = "/users/import", method = RequestMethod.POST)
+    public ResponseEntity<ImportReportDTO> importUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            HttpServletRequest request) throws IOException {
+        TransferFormat transferFormat = TransferFormat.fromParameter(format);
+        try (InputStream in = TransferResponses.openImport(request)) {
+            return new ResponseEntity<>(dataTransferService.importUsers(transferFormat, in), HttpStatus.OK);
+        }
+    }
+
     /**
      * Adds a new {@link User} to the system.
      *
@@ -208,7 +352,7 @@ import java.util.Locale;
             UserDTO userDTO = map(user);
             return new ResponseEntity<>(userDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -234,22 +378,42 @@ import java.util.Locale;
     @RequestMapping(value = "/users/{userId}", method = RequestMethod.PUT)
     public ResponseEntity<UserDTO> updateUser(@PathVariable("userId") Long userId,
                                               @RequestBody UserDTO dto, BindingResult bindingResult) {
+        dto.setId(userId);
         userValidator.validate(dto, bindingResult);
         if (bindingResult.hasErrors()) {
             LoggerUtil.getCurrentLogger().warning(accessor.getMessage("empty"));
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
         try {
-            dto.setId(userId);
             User user = userService.updateUser(dto);
             UserDTO userDTO = map(user);
             return new ResponseEntity<>(userDTO, HttpStatus.OK);
         } catch (EntityNotFoundException e) {
-            LoggerUtil.getCurrentLogger().warning(e.getMessage());
+            LoggerUtil.getCurrentLogger().fine(e::getMessage);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Resolves the requested ids and splits them into found users and missing ids.
+     * @param ids the requested ids
+     * @return the response of the multi-get endpoints
+     */
+    private ResponseEntity<MultiGetDTO<UserDTO>> lookupUsers(List<Long> ids) {
+        if (ids.size() > multiGetMaxIds) {
+            LoggerUtil.getCurrentLogger().warning("Too many ids requested: " + ids.size());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<Long, User> found = userService.findUsersByIds(ids);
+        List<UserDTO> userDTOs = new ArrayList<>(found.size());
+        for (User user : found.values()) userDTOs.add(map(user));
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id != null && !found.containsKey(id)) missing.add(id);
+        }
+        return new ResponseEntity<>(new MultiGetDTO<>(userDTOs, missing), HttpStatus.OK);
+    }
+
     /**
      * Maps a User entity to a {@link UserDTO} entity.
      *
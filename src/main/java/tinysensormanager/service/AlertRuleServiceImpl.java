@@ -0,0 +1,135 @@
+package tinysensormanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tinysensormanager.dto.AlertRuleDTO;
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.repo.AlertRuleRepo;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.rules.RuleEngine;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.Transactional;
+import java.util.List;
+
+/**
+ * This class implements the {@link IAlertRuleService} interface and provides the business logic for
+ * handling {@link AlertRule}s. It uses the {@link AlertRuleRepo} interface to interact with the database
+ * and hands the full set of rules to the {@link RuleEngine} at startup and after every committed change.
+ * Changes are announced to the other nodes through the outbox, which reload their rules in turn.
+ */
+@Service
+public class AlertRuleServiceImpl implements IAlertRuleService {
+
+    private final AlertRuleRepo alertRuleRepo;
+    private final RuleEngine ruleEngine;
+    private final OutboxWriter outboxWriter;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param alertRuleRepo The repository for interacting with AlertRule entities in the database.
+     * @param ruleEngine The rule engine that evaluates the rules.
+     * @param outboxWriter The writer of the change events other nodes reload their rules on.
+     */
+    @Autowired
+    public AlertRuleServiceImpl(AlertRuleRepo alertRuleRepo, RuleEngine ruleEngine, OutboxWriter outboxWriter) {
+        this.alertRuleRepo = alertRuleRepo;
+        this.ruleEngine = ruleEngine;
+        this.outboxWriter = outboxWriter;
+    }
+
+    /**
+     * Loads the stored rules into the rule engine.
+     */
+    @PostConstruct
+    private void init() {
+        ruleEngine.setRules(alertRuleRepo.findAll());
+    }
+
+    @Transactional
+    @Override
+    public AlertRule addRule(AlertRuleDTO ruleDTO) {
+        AlertRule rule = alertRuleRepo.save(convertToRule(ruleDTO));
+        publish(rule.getId(), EntityChangedEvent.ChangeType.CREATED);
+        return rule;
+    }
+
+    @Override
+    public List<AlertRule> findAllRules() {
+        return alertRuleRepo.findAll();
+    }
+
+    @Override
+    public AlertRule findRuleById(Long id) throws EntityNotFoundException {
+        return alertRuleRepo.findById(id).orElseThrow(() -> new EntityNotFoundException(AlertRule.class, id));
+    }
+
+    @Transactional
+    @Override
+    public AlertRule updateRule(AlertRuleDTO ruleDTO) throws EntityNotFoundException {
+        if (!alertRuleRepo.existsById(ruleDTO.getId())) {
+            throw new EntityNotFoundException(AlertRule.class, ruleDTO.getId());
+        }
+        AlertRule rule = alertRuleRepo.save(convertToRule(ruleDTO));
+        publish(rule.getId(), EntityChangedEvent.ChangeType.UPDATED);
+        return rule;
+    }
+
+    @Transactional
+    @Override
+    public void deleteRule(Long id) throws EntityNotFoundException {
+        if (!alertRuleRepo.existsById(id)) throw new EntityNotFoundException(AlertRule.class, id);
+        alertRuleRepo.deleteById(id);
+        publish(id, EntityChangedEvent.ChangeType.DELETED);
+    }
+
+    /**
+     * Loads the rules as the current transaction sees them and hands them to the {@link RuleEngine} once it has
+     * committed, so a rolled back change is never evaluated, and records the change in the outbox.
+     * @param id the id of the changed rule
+     * @param changeType the kind of change
+     */
+    private void publish(long id, EntityChangedEvent.ChangeType changeType) {
+        List<AlertRule> rules = alertRuleRepo.findAll();
+        afterCommit(() -> ruleEngine.setRules(rules));
+        outboxWriter.append(EntityChangedEvent.Entity.ALERT_RULE, id, changeType, null);
+    }
+
+    /**
+     * Runs an update of the in-memory state once the current transaction has committed, or at once when there
+     * is none.
+     * @param action the update
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Maps an {@link AlertRuleDTO} object to an AlertRule object.
+     * @param dto the rule to map
+     * @return the mapped rule
+     */
+    private static AlertRule convertToRule(AlertRuleDTO dto) {
+        return new AlertRule(dto.getId(),
+                dto.getName(),
+                dto.getScope(),
+                dto.getTarget(),
+                dto.getType(),
+                dto.getThreshold(),
+                dto.isEnabled()
+        );
+    }
+}
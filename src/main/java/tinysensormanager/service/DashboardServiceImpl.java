@@ -0,0 +1,179 @@
+package tinysensormanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tinysensormanager.dto.DashboardDTO;
+import tinysensormanager.dto.DeviceDTO;
+import tinysensormanager.dto.UserDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.User;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the {@link IDashboardService} interface. It queries the parts of the dashboard
+ * concurrently through the {@link IUserService}, {@link IDeviceService} and {@link IDbUserService}, so the
+ * dashboard takes as long as its slowest part rather than the sum of them.
+ *
+ * <p>The queries run on a bounded pool of threads. Every part has its own timeout: a part that does not
+ * answer in time is interrupted and left out, as is a part that fails or that the pool has no room for, and
+ * the dashboard is returned with the parts that did answer.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Service
+public class DashboardServiceImpl implements IDashboardService {
+
+    private final IUserService userService;
+    private final IDeviceService deviceService;
+    private final IDbUserService dbUserService;
+    private final long listTimeoutMillis;
+    private final long countTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param userService The service of the users.
+     * @param deviceService The service of the devices.
+     * @param dbUserService The service of the database users.
+     * @param threads The number of threads that run the queries.
+     * @param queueSize The number of queries that may wait for a thread before further ones are left out.
+     * @param listTimeoutMillis The time the lists of users and devices may take.
+     * @param countTimeoutMillis The time each count may take.
+     */
+    @Autowired
+    public DashboardServiceImpl(IUserService userService, IDeviceService deviceService, IDbUserService dbUserService,
+                                @Value("${tinysensor.dashboard.threads:8}") int threads,
+                                @Value("${tinysensor.dashboard.queue-size:64}") int queueSize,
+                                @Value("${tinysensor.dashboard.list-timeout-ms:2000}") long listTimeoutMillis,
+                                @Value("${tinysensor.dashboard.count-timeout-ms:500}") long countTimeoutMillis) {
+        this.userService = userService;
+        this.deviceService = deviceService;
+        this.dbUserService = dbUserService;
+        this.listTimeoutMillis = listTimeoutMillis;
+        this.countTimeoutMillis = countTimeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "dashboard-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the query threads.
+     */
+    @PreDestroy
+    private void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queries the users by last name, the devices and the counts concurrently and assembles them.
+     * @param lastname The start of the last name of the users to include, or null to include no users.
+     * @return The {@link DashboardDTO}, with the parts that timed out or failed left out.
+     */
+    @Override
+    public DashboardDTO getDashboard(String lastname) {
+        // Every query is submitted before any is waited for
+        CompletableFuture<List<UserDTO>> users = lastname == null || lastname.isBlank() ? null
+                : branch(() -> findUsers(lastname), listTimeoutMillis);
+        CompletableFuture<List<DeviceDTO>> devices = branch(() -> deviceService.findAllDevices().stream()
+                .map(DashboardServiceImpl::convertToDeviceDTO)
+                .collect(Collectors.toList()), listTimeoutMillis);
+        CompletableFuture<Long> userCount = branch(userService::countUsers, countTimeoutMillis);
+        CompletableFuture<Long> deviceCount = branch(deviceService::countDevices, countTimeoutMillis);
+        CompletableFuture<Long> dbUserCount = branch(dbUserService::countUsers, countTimeoutMillis);
+
+        List<String> incomplete = new ArrayList<>();
+        DashboardDTO dashboard = new DashboardDTO();
+        dashboard.setUsers(users == null ? null : join("users", users, incomplete));
+        dashboard.setDevices(join("devices", devices, incomplete));
+        dashboard.setUserCount(join("userCount", userCount, incomplete));
+        dashboard.setDeviceCount(join("deviceCount", deviceCount, incomplete));
+        dashboard.setDbUserCount(join("dbUserCount", dbUserCount, incomplete));
+        dashboard.setIncomplete(incomplete);
+        return dashboard;
+    }
+
+    private List<UserDTO> findUsers(String lastname) {
+        try {
+            return userService.findUserByLastname(lastname).stream()
+                    .map(DashboardServiceImpl::convertToUserDTO)
+                    .collect(Collectors.toList());
+        } catch (EntityNotFoundException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Runs a query on the pool. The returned future fails when the query fails, when the pool has no room for
+     * it, or when it does not answer within the timeout, in which case the query is interrupted.
+     */
+    private <T> CompletableFuture<T> branch(Supplier<T> query, long timeoutMillis) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(query.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, failure) -> {
+            if (failure instanceof TimeoutException) task.cancel(true);
+        });
+        return result;
+    }
+
+    private static <T> T join(String part, CompletableFuture<T> future, List<String> incomplete) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                LoggerUtil.getCurrentLogger().warning("The dashboard part " + part + " timed out");
+            } else {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "The dashboard part " + part + " failed", cause);
+            }
+            incomplete.add(part);
+            return null;
+        }
+    }
+
+    private static UserDTO convertToUserDTO(User user) {
+        return new UserDTO(user.getId(), user.getFirstname(), user.getLastname(), user.getEmail(),
+                user.getAddress(), user.getImageUrl());
+    }
+
+    private static DeviceDTO convertToDeviceDTO(Device device) {
+        return new DeviceDTO(device.getId(), device.getModel(), device.getSerialnumber(), device.getMac(),
+                device.getIp(), device.getImageUrl());
+    }
+}
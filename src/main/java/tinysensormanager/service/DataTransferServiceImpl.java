@@ -0,0 +1,384 @@
+package tinysensormanager.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Validator;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
+import tinysensormanager.dto.DeviceDTO;
+import tinysensormanager.dto.ImportReportDTO;
+import tinysensormanager.dto.UserDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.User;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.util.CsvReader;
+import tinysensormanager.service.util.CsvWriter;
+import tinysensormanager.validator.DeviceValidator;
+import tinysensormanager.validator.UserValidator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the {@link IDataTransferService} interface.
+ *
+ * <p>Exports read the tables through a forward-only, read-only JDBC cursor and write every row as soon as
+ * it is read. Imports parse the input one record at a time, validate each chunk of records and persist it in
+ * a single transaction using JDBC batching, clearing the persistence context afterwards. Only one chunk is
+ * held in memory at any time. When a chunk violates a constraint, for example because another node stored the
+ * same MAC address meanwhile, its records are stored one by one, so only the offending records are rejected.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+@Service
+@RoutedTo(Workload.BATCH)
+public class DataTransferServiceImpl implements IDataTransferService {
+
+    private static final String[] DEVICE_COLUMNS = {"id", "model", "serialnumber", "mac", "ip", "imageUrl"};
+    private static final String[] USER_COLUMNS = {"id", "firstname", "lastname", "email", "address", "imageUrl"};
+    private static final String DEVICE_EXPORT_SQL =
+            "SELECT ID, DEVICE_NAME, SERIAL_NUMBER, MAC_ADDRESS, IP_ADDRESS, MAC FROM DEVICES ORDER BY ID";
+    private static final String USER_EXPORT_SQL =
+            "SELECT ID, FIRSTNAME, LASTNAME, EMAIL, ADDRESS, IMAGE FROM USERS ORDER BY ID";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final DeviceValidator deviceValidator;
+    private final UserValidator userValidator;
+    private final DeviceIndex deviceIndex;
+    private final UniquenessIndex uniquenessIndex;
+    private final OutboxWriter outboxWriter;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param streamingJdbcTemplate the JDBC template whose queries stream their results
+     * @param transactionManager the transaction manager used for each imported chunk
+     * @param objectMapper the Jackson mapper used for NDJSON
+     * @param deviceValidator the validator applied to imported devices
+     * @param userValidator the validator applied to imported users
+     * @param deviceIndex the index imported devices are registered with
+     * @param uniquenessIndex the index imported MAC and email addresses are added to
+     * @param outboxWriter the writer of the change events of imported records
+     * @param batchSize the number of records validated and inserted together
+     */
+    @Autowired
+    public DataTransferServiceImpl(@Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper, DeviceValidator deviceValidator,
+                                   UserValidator userValidator, DeviceIndex deviceIndex,
+                                   UniquenessIndex uniquenessIndex, OutboxWriter outboxWriter,
+                                   @Value("${tinysensor.transfer.batch-size:1000}") int batchSize) {
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.deviceValidator = deviceValidator;
+        this.userValidator = userValidator;
+        this.deviceIndex = deviceIndex;
+        this.uniquenessIndex = uniquenessIndex;
+        this.outboxWriter = outboxWriter;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void exportDevices(TransferFormat format, OutputStream out) throws IOException {
+        export(format, out, DEVICE_EXPORT_SQL, DEVICE_COLUMNS);
+    }
+
+    @Override
+    public void exportUsers(TransferFormat format, OutputStream out) throws IOException {
+        export(format, out, USER_EXPORT_SQL, USER_COLUMNS);
+    }
+
+    @Override
+    public ImportReportDTO importDevices(TransferFormat format, InputStream in) throws IOException {
+        return importRecords(format, in, DeviceDTO.class, DEVICE_COLUMNS, deviceValidator, "mac", DeviceDTO::getMac,
+                values -> new DeviceDTO(null, values[1], values[2], values[3], values[4], values[5]),
+                DataTransferServiceImpl::convertToDevice,
+                devices -> outboxWriter.appendAll(EntityChangedEvent.Entity.DEVICE,
+                        devices.stream().map(Device::getId).collect(Collectors.toList()),
+                        EntityChangedEvent.ChangeType.CREATED,
+                        devices.stream().map(Device::getMac).collect(Collectors.toList())),
+                device -> {
+                    deviceIndex.register(device.getId(), device.getModel(), device.getMac());
+                    uniquenessIndex.add(UniquenessIndex.Column.DEVICE_MAC, device.getMac());
+                });
+    }
+
+    @Override
+    public ImportReportDTO importUsers(TransferFormat format, InputStream in) throws IOException {
+        return importRecords(format, in, UserDTO.class, USER_COLUMNS, userValidator, "email", UserDTO::getEmail,
+                values -> new UserDTO(null, values[1], values[2], values[3], values[4], values[5]),
+                DataTransferServiceImpl::convertToUser,
+                users -> outboxWriter.appendAll(EntityChangedEvent.Entity.USER,
+                        users.stream().map(User::getId).collect(Collectors.toList()),
+                        EntityChangedEvent.ChangeType.CREATED,
+                        users.stream().map(User::getEmail).collect(Collectors.toList())),
+                user -> uniquenessIndex.add(UniquenessIndex.Column.USER_EMAIL, user.getEmail()));
+    }
+
+    /**
+     * Streams the rows of the given query to the output in the given format.
+     * The first column is the numeric id, all other columns are written as strings.
+     */
+    private void export(TransferFormat format, OutputStream out, String sql, String[] columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        if (format == TransferFormat.CSV) {
+            CsvWriter csv = new CsvWriter(writer);
+            csv.writeRow(columns);
+            String[] row = new String[columns.length];
+            query(sql, rs -> {
+                for (int i = 0; i < row.length; i++) row[i] = rs.getString(i + 1);
+                csv.writeRow(row);
+            });
+            csv.flush();
+        } else {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            query(sql, rs -> {
+                generator.writeStartObject();
+                generator.writeNumberField(columns[0], rs.getLong(1));
+                for (int i = 1; i < columns.length; i++) {
+                    generator.writeStringField(columns[i], rs.getString(i + 1));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+            generator.flush();
+        }
+    }
+
+    private void query(String sql, RowWriter rowWriter) throws IOException {
+        try {
+            streamingJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads records one at a time and stores them chunk by chunk. The journal runs inside the transaction
+     * of each stored chunk, onStored for every entity once the chunk is committed. The unique field is the
+     * one the validator checks against the stored records, which the chunk itself must not repeat either.
+     */
+    private <D, E> ImportReportDTO importRecords(TransferFormat format, InputStream in, Class<D> dtoClass,
+                                                 String[] columns, Validator validator,
+                                                 String uniqueField, Function<D, String> uniqueKey,
+                                                 Function<String[], D> csvMapper,
+                                                 Function<D, E> converter,
+                                                 Consumer<List<E>> journal,
+                                                 Consumer<E> onStored) throws IOException {
+        ImportReportDTO report = new ImportReportDTO();
+        RecordSource<D> source = format == TransferFormat.CSV
+                ? csvSource(in, columns, csvMapper, report)
+                : ndjsonSource(in, dtoClass);
+        List<D> chunk = new ArrayList<>(batchSize);
+        // The record number of each entry of the chunk, as the CSV source also counts the rows it skips
+        long[] numbers = new long[batchSize];
+        try {
+            D dto;
+            while ((dto = source.next()) != null) {
+                report.setReceived(report.getReceived() + 1);
+                numbers[chunk.size()] = report.getReceived();
+                chunk.add(dto);
+                if (chunk.size() == batchSize) {
+                    storeChunk(chunk, numbers, report, validator, uniqueField, uniqueKey, converter, journal,
+                            onStored);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            // A malformed JSON document cannot be resynchronised, so keep what was read so far
+            report.reject("Record " + (report.getReceived() + 1) + ": " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            storeChunk(chunk, numbers, report, validator, uniqueField, uniqueKey, converter, journal, onStored);
+        }
+        return report;
+    }
+
+    private <D, E> void storeChunk(List<D> chunk, long[] numbers, ImportReportDTO report, Validator validator,
+                                   String uniqueField, Function<D, String> uniqueKey, Function<D, E> converter,
+                                   Consumer<List<E>> journal, Consumer<E> onStored) {
+        // Validated on this thread, as the uniqueness checks may block on the database
+        List<D> valid = new ArrayList<>(chunk.size());
+        long[] validNumbers = new long[chunk.size()];
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            D dto = chunk.get(i);
+            String failure = validate(validator, dto);
+            // The validator only sees stored records; the unique indexes compare without regard to case
+            if (failure == null && !keys.add(uniqueKey.apply(dto).toLowerCase(Locale.ROOT))) {
+                failure = uniqueField + " duplicate";
+            }
+            if (failure == null) {
+                validNumbers[valid.size()] = numbers[i];
+                valid.add(dto);
+            } else {
+                report.reject("Record " + numbers[i] + ": " + failure);
+            }
+        }
+        if (valid.isEmpty()) return;
+        try {
+            store(valid, report, converter, journal, onStored);
+        } catch (DataIntegrityViolationException e) {
+            // Retried record by record, so only the records that conflict with a concurrent change are rejected
+            for (int i = 0; i < valid.size(); i++) {
+                try {
+                    store(List.of(valid.get(i)), report, converter, journal, onStored);
+                } catch (DataAccessException single) {
+                    report.reject("Record " + validNumbers[i] + ": " + single.getMostSpecificCause().getMessage());
+                }
+            }
+        } catch (DataAccessException e) {
+            report.reject(valid.size(), "Records " + numbers[0] + "-" + numbers[chunk.size() - 1] + ": "
+                    + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Stores records in a single transaction. They are converted anew for every attempt, as a rolled back
+     * insert leaves its generated id on the entity.
+     */
+    private <D, E> void store(List<D> dtos, ImportReportDTO report, Function<D, E> converter,
+                              Consumer<List<E>> journal, Consumer<E> onStored) {
+        List<E> entities = new ArrayList<>(dtos.size());
+        for (D dto : dtos) entities.add(converter.apply(dto));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (E entity : entities) entityManager.persist(entity);
+            entityManager.flush();
+            journal.accept(entities);
+            entityManager.clear();
+        });
+        report.setImported(report.getImported() + entities.size());
+        entities.forEach(onStored);
+    }
+
+    private static String validate(Validator validator, Object dto) {
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(dto, "dto");
+        try {
+            validator.validate(dto, result);
+        } catch (RuntimeException e) {
+            return "missing or malformed fields";
+        }
+        if (!result.hasErrors()) return null;
+        return result.getFieldErrors().stream()
+                .map(error -> error.getField() + " " + error.getCode())
+                .collect(Collectors.joining(", "));
+    }
+
+    private <D> RecordSource<D> ndjsonSource(InputStream in, Class<D> dtoClass) throws IOException {
+        MappingIterator<D> iterator = objectMapper.readerFor(dtoClass).readValues(in);
+        return () -> iterator.hasNextValue() ? iterator.nextValue() : null;
+    }
+
+    private static <D> RecordSource<D> csvSource(InputStream in, String[] columns,
+                                                 Function<String[], D> csvMapper, ImportReportDTO report)
+            throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) return () -> null;
+        int[] positions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) positions[i] = header.indexOf(columns[i]);
+        String[] values = new String[columns.length];
+        return () -> {
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (fields.size() != header.size()) {
+                    report.setReceived(report.getReceived() + 1);
+                    report.reject("Record " + report.getReceived() + ": expected " + header.size()
+                            + " fields but found " + fields.size());
+                    continue;
+                }
+                for (int i = 0; i < positions.length; i++) {
+                    values[i] = positions[i] < 0 ? null : fields.get(positions[i]);
+                }
+                return csvMapper.apply(values);
+            }
+            return null;
+        };
+    }
+
+    private static Device convertToDevice(DeviceDTO dto) {
+        return new Device(null,
+                dto.getModel(),
+                dto.getSerialnumber(),
+                dto.getMac(),
+                dto.getIp(),
+                dto.getImageUrl()
+        );
+    }
+
+    private static User convertToUser(UserDTO dto) {
+        return new User(null,
+                dto.getFirstname(),
+                dto.getLastname(),
+                dto.getEmail(),
+                dto.getAddress(),
+                dto.getImageUrl()
+        );
+    }
+
+    /**
+     * Writes a single row of a result set.
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Supplies parsed records one at a time, returning null at the end of the input.
+     */
+    @FunctionalInterface
+    private interface RecordSource<D> {
+        D next() throws IOException;
+    }
+}
@@ -1,11 +1,15 @@
 package tinysensormanager.service;
 
 import org.springframework.stereotype.Service;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
 import tinysensormanager.dto.DbUserDTO;
 import tinysensormanager.model.DbUser;
 import tinysensormanager.model.User;
 import tinysensormanager.repo.DbUserRepo;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.OutboxWriter;
 
 import javax.transaction.Transactional;
 import java.util.List;
@@ -15,16 +19,23 @@ import java.util.Optional;
  * Service implementation for managing {@link DbUser} entities in the database.
  */
 @Service
+@RoutedTo(Workload.READ)
 public class DbUserServiceImpl implements IDbUserService {
 
     private final DbUserRepo dbUserRepo;
+    private final UniquenessIndex uniquenessIndex;
+    private final OutboxWriter outboxWriter;
 
     /**
      * Constructor for DbUserServiceImpl that takes a DbUserRepo object as a parameter
      * @param dbUserRepo the repository for the DbUser entity
+     * @param uniquenessIndex the index that pre-checks the uniqueness of usernames
+     * @param outboxWriter the writer of the change events other nodes update their state with
      */
-    public DbUserServiceImpl(DbUserRepo dbUserRepo) {
+    public DbUserServiceImpl(DbUserRepo dbUserRepo, UniquenessIndex uniquenessIndex, OutboxWriter outboxWriter) {
         this.dbUserRepo = dbUserRepo;
+        this.uniquenessIndex = uniquenessIndex;
+        this.outboxWriter = outboxWriter;
     }
 
     /**
@@ -34,9 +45,14 @@ public class DbUserServiceImpl implements IDbUserService {
      * @return the registered {@link DbUser} entity
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
     @Override
     public DbUser registerUser(DbUserDTO dbUserDTO) {
-        return dbUserRepo.save(convertToDbUser(dbUserDTO));
+        DbUser dbUser = dbUserRepo.save(convertToDbUser(dbUserDTO));
+        uniquenessIndex.add(UniquenessIndex.Column.DBUSER_USERNAME, dbUser.getUsername());
+        outboxWriter.append(EntityChangedEvent.Entity.DBUSER, dbUser.getId(), EntityChangedEvent.ChangeType.CREATED,
+                dbUser.getUsername());
+        return dbUser;
     }
 
     /**
@@ -48,6 +64,15 @@ public class DbUserServiceImpl implements IDbUserService {
         return dbUserRepo.findAll();
     }
 
+    /**
+     * Count the DbUsers in the system
+     * @return the number of DbUser objects in the system
+     */
+    @Override
+    public long countUsers() {
+        return dbUserRepo.count();
+    }
+
     /**
      * Find a specific DbUser in the system by their ID
      * @param id the ID of the DbUser to be retrieved
@@ -69,11 +94,16 @@ public class DbUserServiceImpl implements IDbUserService {
      * @throws EntityNotFoundException if no DbUser with the specified ID can be found
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
     @Override
     public DbUser updateUser(DbUserDTO dbUserDTO) throws EntityNotFoundException {
         Optional<DbUser> user = dbUserRepo.findById(dbUserDTO.getId());
         if (user.isEmpty()) throw new EntityNotFoundException(User.class, dbUserDTO.getId());
-        return dbUserRepo.save(convertToDbUser(dbUserDTO));
+        DbUser updated = dbUserRepo.save(convertToDbUser(dbUserDTO));
+        uniquenessIndex.add(UniquenessIndex.Column.DBUSER_USERNAME, updated.getUsername());
+        outboxWriter.append(EntityChangedEvent.Entity.DBUSER, updated.getId(), EntityChangedEvent.ChangeType.UPDATED,
+                updated.getUsername());
+        return updated;
     }
 
     /**
@@ -82,6 +112,7 @@ public class DbUserServiceImpl implements IDbUserService {
      * @throws EntityNotFoundException if no DbUser with the specified ID can be found
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
     @Override
     public void deleteUser(Long id) throws EntityNotFoundException {
         try {
@@ -89,6 +120,7 @@ public class DbUserServiceImpl implements IDbUserService {
         } catch (Exception e) {
             throw new EntityNotFoundException(User.class, id);
         }
+        outboxWriter.append(EntityChangedEvent.Entity.DBUSER, id, EntityChangedEvent.ChangeType.DELETED, null);
     }
 
     /**
@@ -106,14 +138,17 @@ public class DbUserServiceImpl implements IDbUserService {
     }
 
     /**
-     * Checks if a username already exists in the database.
+     * Checks if a username is taken by another DbUser. Usernames the uniqueness index has
+     * never seen are reported as free without a query.
      *
-     * @param email The username to check.
+     * @param username The username to check.
+     * @param excludedId The ID of the DbUser being updated, or null for a new user.
      * @return True if the username exists, false otherwise.
      */
     @Override
-    public boolean usernameExists(String email) {
-        return false;
+    public boolean usernameExists(String username, Long excludedId) {
+        return uniquenessIndex.exists(UniquenessIndex.Column.DBUSER_USERNAME, username, () -> excludedId == null
+                ? dbUserRepo.existsByUsername(username) : dbUserRepo.existsByUsernameAndIdNot(username, excludedId));
     }
 
     /**
@@ -1,15 +1,34 @@
 package tinysensormanager.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tinysensormanager.config.CacheConfig;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
 import tinysensormanager.dto.DeviceDTO;
 import tinysensormanager.model.Device;
-import tinysensormanager.model.User;
 import tinysensormanager.repo.DeviceRepo;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.search.EntitySearch;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
+import tinysensormanager.service.util.MultiGet;
 
 import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,17 +36,42 @@ import java.util.Optional;
  * It uses the {@link DeviceRepo} interface to interact with the database.
  */
 @Service
+@RoutedTo(Workload.READ)
 public class DeviceServiceImpl implements IDeviceService {
 
     private final DeviceRepo deviceRepo;
+    private final DeviceIndex deviceIndex;
+    private final UniquenessIndex uniquenessIndex;
+    private final CacheManager cacheManager;
+    private final OutboxWriter outboxWriter;
+    private final NegativeLookupCache negativeLookupCache;
+    private final EntitySearch entitySearch;
+    private final int multiGetChunkSize;
 
     /**
-     * Constructor to inject the {@link DeviceRepo} instance via Spring's dependency injection.
+     * Constructor to inject the dependencies via Spring's dependency injection.
      * @param deviceRepo The repository for interacting with Device entities in the database.
+     * @param deviceIndex The index of devices that may send readings.
+     * @param uniquenessIndex The index that pre-checks the uniqueness of MAC addresses.
+     * @param cacheManager The manager of the device cache.
+     * @param outboxWriter The writer of the change events other nodes invalidate their caches with.
+     * @param negativeLookupCache The cache of recent lookups that found no device.
+     * @param entitySearch The runner of the index-aware searches.
+     * @param multiGetChunkSize The maximum number of ids per query when devices are fetched by many ids.
      */
     @Autowired
-    public DeviceServiceImpl(DeviceRepo deviceRepo) {
+    public DeviceServiceImpl(DeviceRepo deviceRepo, DeviceIndex deviceIndex, UniquenessIndex uniquenessIndex,
+                             CacheManager cacheManager, OutboxWriter outboxWriter,
+                             NegativeLookupCache negativeLookupCache, EntitySearch entitySearch,
+                             @Value("${tinysensor.multiget.chunk-size:500}") int multiGetChunkSize) {
         this.deviceRepo = deviceRepo;
+        this.deviceIndex = deviceIndex;
+        this.uniquenessIndex = uniquenessIndex;
+        this.cacheManager = cacheManager;
+        this.outboxWriter = outboxWriter;
+        this.negativeLookupCache = negativeLookupCache;
+        this.entitySearch = entitySearch;
+        this.multiGetChunkSize = multiGetChunkSize;
     }
 
    /**
@@ -37,9 +81,15 @@ public class DeviceServiceImpl implements IDeviceService {
     * @return The {@link Device} object that has been added to the database.
     */
     @Transactional
+    @RoutedTo(Workload.WRITE)
     @Override
     public Device addDevice(DeviceDTO deviceDTO) {
-        return deviceRepo.save(convertToDevice(deviceDTO));
+        Device device = deviceRepo.save(convertToDevice(deviceDTO));
+        afterCommit(() -> deviceIndex.register(device.getId(), device.getModel(), device.getMac()));
+        uniquenessIndex.add(UniquenessIndex.Column.DEVICE_MAC, device.getMac());
+        outboxWriter.append(EntityChangedEvent.Entity.DEVICE, device.getId(), EntityChangedEvent.ChangeType.CREATED,
+                device.getMac());
+        return device;
     }
 
     /**
@@ -52,18 +102,48 @@ public class DeviceServiceImpl implements IDeviceService {
     }
 
     /**
-     * Retrieves a {@link Device} entity from the database by its ID.
+     * Counts the {@link Device} entities in the database.
+     * @return The number of {@link Device} entities in the database.
+     */
+    @Override
+    public long countDevices() {
+        return deviceRepo.count();
+    }
+
+    /**
+     * Retrieves a {@link Device} entity from the database by its ID. IDs recently found missing are
+     * rejected without a query until the DEVICES table changes.
      * @param id The ID of the {@link Device} entity to retrieve.
      * @return The {@link Device} entity corresponding to the provided ID.
      * @throws EntityNotFoundException if the {@link Device} entity with the provided ID is not found in the database.
      */
+    @Cacheable(value = CacheConfig.DEVICES, key = "#id")
     @Override
     public Device findDeviceById(Long id) throws EntityNotFoundException {
+        if (negativeLookupCache.isMissing(EntityChangedEvent.Entity.DEVICE, "id", id)) {
+            throw new EntityNotFoundException(Device.class, id);
+        }
+        long version = negativeLookupCache.version(EntityChangedEvent.Entity.DEVICE);
         Optional<Device> device = deviceRepo.findById(id);
-        if (device.isEmpty()) throw new EntityNotFoundException(Device.class, id);
+        if (device.isEmpty()) {
+            negativeLookupCache.remember(EntityChangedEvent.Entity.DEVICE, "id", id, version);
+            throw new EntityNotFoundException(Device.class, id);
+        }
         return device.get();
     }
 
+    /**
+     * Retrieves the {@link Device} entities with the provided IDs. Cached devices are served from the cache,
+     * the others are loaded with chunked {@code IN} queries.
+     * @param ids The IDs of the {@link Device} entities to retrieve.
+     * @return The found {@link Device} entities by ID, in the order of the provided IDs. Unknown IDs are absent.
+     */
+    @Override
+    public Map<Long, Device> findDevicesByIds(Collection<Long> ids) {
+        return MultiGet.load(ids, cacheManager.getCache(CacheConfig.DEVICES), Device.class, multiGetChunkSize,
+                deviceRepo::findAllById, Device::getId);
+    }
+
     /**
      * Updates a Device entity in the database by saving the {@link Device} object converted from
      * the provided {@link DeviceDTO} object.
@@ -72,11 +152,18 @@ public class DeviceServiceImpl implements IDeviceService {
      * @throws EntityNotFoundException if the {@link DeviceDTO} entity with the provided ID is not found in the database.
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
+    @CachePut(value = CacheConfig.DEVICES, key = "#result.id")
     @Override
     public Device updateDevice(DeviceDTO deviceDTO) throws EntityNotFoundException {
         Device device = deviceRepo.findDeviceById(deviceDTO.getId());
         if (device == null) throw new EntityNotFoundException(Device.class, deviceDTO.getId());
-        return deviceRepo.save(convertToDevice(deviceDTO));
+        Device updated = deviceRepo.save(convertToDevice(deviceDTO));
+        afterCommit(() -> deviceIndex.register(updated.getId(), updated.getModel(), updated.getMac()));
+        uniquenessIndex.add(UniquenessIndex.Column.DEVICE_MAC, updated.getMac());
+        outboxWriter.append(EntityChangedEvent.Entity.DEVICE, updated.getId(), EntityChangedEvent.ChangeType.UPDATED,
+                updated.getMac());
+        return updated;
     }
 
     /**
@@ -85,6 +172,8 @@ public class DeviceServiceImpl implements IDeviceService {
      * @throws EntityNotFoundException if the {@link Device} entity with the provided ID is not found in the database.
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
+    @CacheEvict(value = CacheConfig.DEVICES, key = "#id")
     @Override
     public void deleteDevice(Long id) throws EntityNotFoundException {
         try {
@@ -92,22 +181,74 @@ public class DeviceServiceImpl implements IDeviceService {
         } catch (Exception e) {
             throw new EntityNotFoundException(Device.class, id);
         }
+        afterCommit(() -> deviceIndex.unregister(id));
+        outboxWriter.append(EntityChangedEvent.Entity.DEVICE, id, EntityChangedEvent.ChangeType.DELETED, null);
     }
 
     /**
      * Retrieves a list of {@link Device} entities from the database whose model names start with the provided string.
+     * Prefixes recently found to match no device are rejected without a query until the DEVICES table changes.
      * @param model The string representing the beginning of the model names to search for.
      * @return A list of {@link Device} entities whose model names start with the provided string.
      * @throws EntityNotFoundException if no {@link Device entities are found in the database with a model name starting with the provided string.
      */
     @Override
     public List<Device> findDeviceByModel(String model) throws EntityNotFoundException {
+        if (negativeLookupCache.isMissing(EntityChangedEvent.Entity.DEVICE, "model", model)) {
+            throw new EntityNotFoundException(Device.class, 0L);
+        }
+        long version = negativeLookupCache.version(EntityChangedEvent.Entity.DEVICE);
         List<Device> devices;
         devices = deviceRepo.findByModelStartingWith(model);
-        if (devices.size() == 0) throw new EntityNotFoundException(User.class, 0L);
+        if (devices.size() == 0) {
+            negativeLookupCache.remember(EntityChangedEvent.Entity.DEVICE, "model", model, version);
+            throw new EntityNotFoundException(Device.class, 0L);
+        }
         return devices;
     }
 
+    /**
+     * Retrieves one page of the {@link Device} entities matching a search, refusing searches no index supports.
+     * @param query The filters, sort, limit and cursor of the search.
+     * @return The page of {@link Device} entities and the cursor of the next page.
+     * @throws InvalidSearchException if the search is malformed or not supported by an index.
+     */
+    @Override
+    public SearchResult<Device> searchDevices(SearchQuery query) throws InvalidSearchException {
+        return entitySearch.search(Device.class, query);
+    }
+
+    /**
+     * Checks if a MAC address is taken by another {@link Device}. Addresses the uniqueness index has
+     * never seen are reported as free without a query.
+     * @param mac The MAC address to check.
+     * @param excludedId The ID of the {@link Device} being updated, or null for a new device.
+     * @return True if the MAC address exists, false otherwise.
+     */
+    @Override
+    public boolean macExists(String mac, Long excludedId) {
+        return uniquenessIndex.exists(UniquenessIndex.Column.DEVICE_MAC, mac, () -> excludedId == null
+                ? deviceRepo.existsByMac(mac) : deviceRepo.existsByMacAndIdNot(mac, excludedId));
+    }
+
+    /**
+     * Runs an update of the in-memory state once the current transaction has committed, or at once when there
+     * is none, so a rolled back change never reaches the {@link DeviceIndex}.
+     * @param action the update
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * Maps a {@link DeviceDTO} object to a Device object.
      * @param dto
@@ -0,0 +1,60 @@
+package tinysensormanager.service;
+
+import tinysensormanager.dto.AlertRuleDTO;
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+
+import java.util.List;
+
+/**
+ * This interface defines the methods that an alert rule service should implement.
+ *
+ * <p>The methods in this interface allow for the manipulation of {@link AlertRule} data.
+ * Every change takes effect in the rule engine without a restart.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public interface IAlertRuleService {
+
+    /**
+     * Adds a new rule.
+     *
+     * @param ruleDTO the {@link AlertRuleDTO} containing the rule's information
+     * @return the newly created {@link AlertRule}
+     */
+    AlertRule addRule(AlertRuleDTO ruleDTO);
+
+    /**
+     * Retrieves all rules.
+     *
+     * @return a list of all {@link AlertRule}s
+     */
+    List<AlertRule> findAllRules();
+
+    /**
+     * Retrieves a rule by its ID.
+     *
+     * @param id the ID of the rule to retrieve
+     * @return the {@link AlertRule} with the specified ID
+     * @throws EntityNotFoundException if the {@link AlertRule} with the specified ID is not found
+     */
+    AlertRule findRuleById(Long id) throws EntityNotFoundException;
+
+    /**
+     * Updates an existing rule.
+     *
+     * @param ruleDTO the {@link AlertRuleDTO} containing the updated rule information
+     * @return the updated {@link AlertRule}
+     * @throws EntityNotFoundException if the {@link AlertRule} with the specified ID is not found
+     */
+    AlertRule updateRule(AlertRuleDTO ruleDTO) throws EntityNotFoundException;
+
+    /**
+     * Deletes a rule.
+     *
+     * @param id the ID of the rule to delete
+     * @throws EntityNotFoundException if the {@link AlertRule} with the specified ID is not found
+     */
+    void deleteRule(Long id) throws EntityNotFoundException;
+}
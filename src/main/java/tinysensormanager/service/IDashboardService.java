@@ -0,0 +1,20 @@
+package tinysensormanager.service;
+
+import tinysensormanager.dto.DashboardDTO;
+
+/**
+ * This interface defines the methods that a dashboard service should implement.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public interface IDashboardService {
+
+    /**
+     * Assembles the summary of the landing page, querying its parts concurrently.
+     *
+     * @param lastname the start of the last name of the users to include, or null to include no users
+     * @return the {@link DashboardDTO}, with the parts that timed out or failed left out
+     */
+    DashboardDTO getDashboard(String lastname);
+}
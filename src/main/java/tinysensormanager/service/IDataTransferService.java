@@ -0,0 +1,61 @@
+package tinysensormanager.service;
+
+import tinysensormanager.dto.ImportReportDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This interface defines the bulk export and import operations for whole tables.
+ *
+ * <p>Implementations stream records from and to the given streams so that memory usage does not
+ * depend on the number of records transferred.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public interface IDataTransferService {
+
+    /**
+     * Writes every {@link Device} to the given stream.
+     *
+     * @param format the {@link TransferFormat} to write
+     * @param out the stream to write to, left open
+     * @throws IOException if writing to the stream fails
+     */
+    void exportDevices(TransferFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Writes every {@link User} to the given stream.
+     *
+     * @param format the {@link TransferFormat} to write
+     * @param out the stream to write to, left open
+     * @throws IOException if writing to the stream fails
+     */
+    void exportUsers(TransferFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Reads {@link Device}s from the given stream, validates them and stores the valid ones.
+     * Ids in the input are ignored and new ids are generated.
+     *
+     * @param format the {@link TransferFormat} to read
+     * @param in the stream to read from
+     * @return an {@link ImportReportDTO} with the number of imported and rejected records
+     * @throws IOException if reading from the stream fails
+     */
+    ImportReportDTO importDevices(TransferFormat format, InputStream in) throws IOException;
+
+    /**
+     * Reads {@link User}s from the given stream, validates them and stores the valid ones.
+     * Ids in the input are ignored and new ids are generated.
+     *
+     * @param format the {@link TransferFormat} to read
+     * @param in the stream to read from
+     * @return an {@link ImportReportDTO} with the number of imported and rejected records
+     * @throws IOException if reading from the stream fails
+     */
+    ImportReportDTO importUsers(TransferFormat format, InputStream in) throws IOException;
+}
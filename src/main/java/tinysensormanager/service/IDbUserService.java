@@ -31,6 +31,13 @@ public interface IDbUserService {
      */
     List<DbUser> findAllUsers();
 
+    /**
+     * Counts the database users in the system.
+     *
+     * @return the number of {@link DbUser}s
+     */
+    long countUsers();
+
     /**
      * Retrieves a user by their ID.
      *
@@ -67,11 +74,12 @@ public interface IDbUserService {
     List<DbUser> findUserByUsername(String username) throws EntityNotFoundException;
 
     /**
-     * Checks if a username exists in the system.
+     * Checks if a username is taken by another user.
      *
      * @param username the username to check for existence
+     * @param excludedId the ID of the user being updated, or null for a new user
      * @return true if the username exists, false otherwise
      */
-    boolean usernameExists(String username);
+    boolean usernameExists(String username, Long excludedId);
 }
 
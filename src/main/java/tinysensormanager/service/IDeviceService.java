@@ -3,8 +3,13 @@ package tinysensormanager.service;
 import tinysensormanager.dto.DeviceDTO;
 import tinysensormanager.model.Device;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface defines the methods that a device service should implement.
@@ -31,6 +36,13 @@ public interface IDeviceService {
      */
     List<Device> findAllDevices();
 
+    /**
+     * Counts the devices in the system.
+     *
+     * @return the number of {@link Device}s
+     */
+    long countDevices();
+
     /**
      * Retrieves a device by its ID.
      *
@@ -40,6 +52,14 @@ public interface IDeviceService {
      */
     Device findDeviceById(Long id) throws EntityNotFoundException;
 
+    /**
+     * Retrieves the devices with the specified IDs.
+     *
+     * @param ids the IDs of the devices to retrieve
+     * @return the found {@link Device}s by ID, in the order of the specified IDs; unknown IDs are absent
+     */
+    Map<Long, Device> findDevicesByIds(Collection<Long> ids);
+
     /**
      * Updates an existing device in the system.
      *
@@ -65,5 +85,23 @@ public interface IDeviceService {
      * @throws EntityNotFoundException if no {@link Device}s with the specified model are found
      */
     List<Device> findDeviceByModel(String model) throws EntityNotFoundException;
+
+    /**
+     * Retrieves one page of the devices matching a search.
+     *
+     * @param query the filters, sort, limit and cursor of the search
+     * @return the page of {@link Device}s and the cursor of the next page
+     * @throws InvalidSearchException if the search is malformed or not supported by an index
+     */
+    SearchResult<Device> searchDevices(SearchQuery query) throws InvalidSearchException;
+
+    /**
+     * Checks if a MAC address is taken by another device.
+     *
+     * @param mac the MAC address to check for existence
+     * @param excludedId the ID of the device being updated, or null for a new device
+     * @return true if the MAC address exists, false otherwise
+     */
+    boolean macExists(String mac, Long excludedId);
 }
 
@@ -0,0 +1,94 @@
+package tinysensormanager.service;
+
+import tinysensormanager.dto.AnomalyDTO;
+import tinysensormanager.dto.QuantilesDTO;
+import tinysensormanager.dto.ReadingDTO;
+import tinysensormanager.dto.ReadingSeriesDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.Reading;
+import tinysensormanager.service.exceptions.BatchTooLargeException;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.ThrottledException;
+import tinysensormanager.service.util.Downsampler;
+
+import java.util.List;
+
+/**
+ * This interface defines the methods that a reading service should implement.
+ *
+ * <p>The methods in this interface allow for storing and querying {@link Reading} data.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public interface IReadingService {
+
+    /**
+     * Accepts readings of a device for storage and rule evaluation.
+     * Fewer readings than passed are accepted when the system is overloaded.
+     *
+     * @param deviceId the id of the device that produced the readings
+     * @param readings the {@link ReadingDTO}s to store
+     * @return the number of readings accepted, the first ones of the list
+     * @throws EntityNotFoundException if the {@link Device} with the specified ID is not found
+     * @throws ThrottledException if the system is overloaded or the device sends too fast
+     * @throws BatchTooLargeException if the list holds more readings than may ever be accepted at once
+     */
+    int recordReadings(Long deviceId, List<ReadingDTO> readings)
+            throws EntityNotFoundException, ThrottledException, BatchTooLargeException;
+
+    /**
+     * Accepts a heartbeat of a device, a sign of life without a reading.
+     *
+     * @param deviceId the id of the device
+     * @param timestamp the time of the heartbeat in milliseconds since the epoch
+     * @return true if the heartbeat was accepted, false if the system is overloaded
+     * @throws EntityNotFoundException if the {@link Device} with the specified ID is not found
+     * @throws ThrottledException if the system is overloaded or the device sends too fast
+     */
+    boolean recordHeartbeat(Long deviceId, long timestamp) throws EntityNotFoundException, ThrottledException;
+
+    /**
+     * Retrieves the readings of a device in a time range, downsampled to a bounded number of points.
+     *
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds since the epoch
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @param maxPoints the maximum number of points to return
+     * @param mode the downsampling algorithm
+     * @return the downsampled {@link ReadingSeriesDTO}
+     */
+    ReadingSeriesDTO findReadings(Long deviceId, long from, long to, int maxPoints, Downsampler.Mode mode);
+
+    /**
+     * Retrieves the latest readings of a device from memory, without reaching the database.
+     *
+     * @param deviceId the id of the device
+     * @param n the maximum number of readings to return
+     * @return the {@link ReadingSeriesDTO} of the latest readings in timestamp order
+     * @throws EntityNotFoundException if the {@link Device} with the specified ID is not found
+     */
+    ReadingSeriesDTO findLatestReadings(Long deviceId, int n) throws EntityNotFoundException;
+
+    /**
+     * Retrieves the devices whose recent readings are anomalous compared with their own history.
+     *
+     * @return the {@link AnomalyDTO}s of the anomalous devices, the highest score first
+     */
+    List<AnomalyDTO> findAnomalies();
+
+    /**
+     * Retrieves percentiles of the readings of the devices whose model starts with a prefix, or of a single
+     * device, from hourly sketches instead of the readings.
+     *
+     * @param model the prefix of the model, or null to select a device
+     * @param deviceId the id of the device, used when the model is null
+     * @param quantiles the quantiles to compute, between 0 and 1
+     * @param from the inclusive start of the range in milliseconds since the epoch, rounded down to the hour
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @return the {@link QuantilesDTO} with the value of every quantile
+     * @throws EntityNotFoundException if a device is selected and the {@link Device} is not found
+     */
+    QuantilesDTO findQuantiles(String model, Long deviceId, double[] quantiles, long from, long to)
+            throws EntityNotFoundException;
+}
@@ -3,8 +3,13 @@ package tinysensormanager.service;
 import tinysensormanager.dto.UserDTO;
 import tinysensormanager.model.User;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
   This interface defines the methods that a user service should implement.
@@ -31,6 +36,13 @@ public interface IUserService {
      */
     List<User> findAllUsers();
 
+    /**
+     * Counts the users in the system.
+     *
+     * @return the number of {@link User}s
+     */
+    long countUsers();
+
     /**
      * Retrieves a user by their ID.
      *
@@ -40,6 +52,14 @@ public interface IUserService {
      */
     User findUserById(Long id) throws EntityNotFoundException;
 
+    /**
+     * Retrieves the users with the specified IDs.
+     *
+     * @param ids the IDs of the users to retrieve
+     * @return the found {@link User}s by ID, in the order of the specified IDs; unknown IDs are absent
+     */
+    Map<Long, User> findUsersByIds(Collection<Long> ids);
+
     /**
      * Updates an existing user in the system.
      *
@@ -65,4 +85,22 @@ public interface IUserService {
      * @throws EntityNotFoundException if no {@link User}s with the specified last name are found
      */
     List<User> findUserByLastname(String lastname) throws EntityNotFoundException;
+
+    /**
+     * Retrieves one page of the users matching a search.
+     *
+     * @param query the filters, sort, limit and cursor of the search
+     * @return the page of {@link User}s and the cursor of the next page
+     * @throws InvalidSearchException if the search is malformed or not supported by an index
+     */
+    SearchResult<User> searchUsers(SearchQuery query) throws InvalidSearchException;
+
+    /**
+     * Checks if an email address is taken by another user.
+     *
+     * @param email the email address to check for existence
+     * @param excludedId the ID of the user being updated, or null for a new user
+     * @return true if the email address exists, false otherwise
+     */
+    boolean emailExists(String email, Long excludedId);
 }
@@ -0,0 +1,94 @@
+package tinysensormanager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.outbox.TableVersions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the keys recently looked up without a result, so repeated lookups of ids or names that do not
+ * exist, such as those of scanners and misconfigured clients, are answered without a query.
+ *
+ * <p>Every miss is stored with the {@link TableVersions} counter of its table, read before the lookup was
+ * queried, and is trusted only while that counter is unchanged. Any insert, update or delete of the table,
+ * on this node or another, therefore invalidates all of its misses at once. The number of misses kept is
+ * bounded, and misses also expire after a while, in case rows are inserted without the application.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class NegativeLookupCache implements MeterBinder {
+    private final TableVersions tableVersions;
+    private final Cache<List<Object>, Long> misses;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param tableVersions the change counters that invalidate the misses
+     * @param maxEntries the maximum number of misses kept
+     * @param ttlSeconds the time after which a miss is forgotten
+     */
+    @Autowired
+    public NegativeLookupCache(TableVersions tableVersions,
+                               @Value("${tinysensor.negative-cache.max-entries:100000}") long maxEntries,
+                               @Value("${tinysensor.negative-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.tableVersions = tableVersions;
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the change counter of a table, to be read before the lookup is queried and passed to
+     * {@link #remember(Entity, String, Object, long)} if it finds nothing.
+     * @param entity the table of the lookup
+     * @return the counter
+     */
+    public long version(Entity entity) {
+        return tableVersions.version(entity);
+    }
+
+    /**
+     * Returns whether a lookup found nothing before and its table has not changed since.
+     * @param entity the table of the lookup
+     * @param lookup the name of the lookup, e.g. the column searched
+     * @param key the key looked up
+     * @return true if the lookup is known to find nothing
+     */
+    public boolean isMissing(Entity entity, String lookup, Object key) {
+        Long version = misses.getIfPresent(key(entity, lookup, key));
+        return version != null && version == tableVersions.version(entity);
+    }
+
+    /**
+     * Remembers that a lookup found nothing.
+     * @param entity the table of the lookup
+     * @param lookup the name of the lookup, e.g. the column searched
+     * @param key the key looked up
+     * @param version the change counter of the table read before the lookup was queried
+     */
+    public void remember(Entity entity, String lookup, Object key, long version) {
+        misses.put(key(entity, lookup, key), version);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, misses, "missing-keys");
+    }
+
+    private static List<Object> key(Entity entity, String lookup, Object key) {
+        return Arrays.asList(entity, lookup, key);
+    }
+}
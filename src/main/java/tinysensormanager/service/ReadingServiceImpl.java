@@ -0,0 +1,241 @@
+package tinysensormanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import tinysensormanager.dto.AnomalyDTO;
+import tinysensormanager.dto.QuantilesDTO;
+import tinysensormanager.dto.ReadingDTO;
+import tinysensormanager.dto.ReadingSeriesDTO;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.Reading;
+import tinysensormanager.service.anomaly.AnomalyDetector;
+import tinysensormanager.service.exceptions.BatchTooLargeException;
+import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.ThrottledException;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.IngestQuota;
+import tinysensormanager.service.ingest.ReadingIngestionPipeline;
+import tinysensormanager.service.ingest.RecentReadingsStore;
+import tinysensormanager.service.rollup.QuantileRollup;
+import tinysensormanager.service.storage.ColdReadingCursor;
+import tinysensormanager.service.storage.SegmentStore;
+import tinysensormanager.service.util.Downsampler;
+import tinysensormanager.service.util.QuantileSketch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements the {@link IReadingService} interface and provides the business logic for
+ * handling {@link Reading}s in the system.
+ * Readings are admitted by the {@link IngestQuota} of their device and handed to the
+ * {@link ReadingIngestionPipeline}, which evaluates the alert rules and writes them with JDBC batches.
+ * They are read through a streaming cursor, so range queries never materialise one object per stored
+ * reading. Old readings are moved to the compressed segments of the {@link SegmentStore}, which range
+ * queries read alongside the database. Percentiles are answered from the hourly sketches of the
+ * {@link QuantileRollup}.
+ */
+@Service
+public class ReadingServiceImpl implements IReadingService {
+
+    private static final String RANGE_SQL = "SELECT TS, READING_VALUE, ID FROM READINGS "
+            + "WHERE DEVICE_ID = ? AND TS >= ? AND TS < ? ORDER BY TS";
+
+    private final ReadingIngestionPipeline pipeline;
+    private final DeviceIndex deviceIndex;
+    private final IngestQuota ingestQuota;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final SegmentStore segmentStore;
+    private final RecentReadingsStore recentReadings;
+    private final AnomalyDetector anomalyDetector;
+    private final QuantileRollup quantileRollup;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param pipeline the pipeline readings are handed to
+     * @param deviceIndex the index of devices that may send readings
+     * @param ingestQuota the per-device rate limits
+     * @param streamingJdbcTemplate the JDBC template used for range queries
+     * @param segmentStore the archived readings
+     * @param recentReadings the latest readings of every device
+     * @param anomalyDetector the detector of anomalous readings
+     * @param quantileRollup the hourly quantile sketches of the readings
+     */
+    @Autowired
+    public ReadingServiceImpl(ReadingIngestionPipeline pipeline, DeviceIndex deviceIndex, IngestQuota ingestQuota,
+                              @Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate,
+                              SegmentStore segmentStore, RecentReadingsStore recentReadings,
+                              AnomalyDetector anomalyDetector, QuantileRollup quantileRollup) {
+        this.pipeline = pipeline;
+        this.deviceIndex = deviceIndex;
+        this.ingestQuota = ingestQuota;
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.segmentStore = segmentStore;
+        this.recentReadings = recentReadings;
+        this.anomalyDetector = anomalyDetector;
+        this.quantileRollup = quantileRollup;
+    }
+
+    /**
+     * Queues the readings of a device on the ingestion pipeline. Stops at the first reading the
+     * pipeline refuses because its queue is full.
+     * @param deviceId the id of the device that produced the readings
+     * @param readings the {@link ReadingDTO}s to store
+     * @return the number of readings accepted
+     * @throws EntityNotFoundException if the {@link Device} is not registered
+     * @throws ThrottledException if the pipeline is saturated or the device exceeded its quota
+     * @throws BatchTooLargeException if there are more readings than the quota of a device allows at once
+     */
+    @Override
+    public int recordReadings(Long deviceId, List<ReadingDTO> readings)
+            throws EntityNotFoundException, ThrottledException, BatchTooLargeException {
+        if (readings.size() > ingestQuota.burst()) {
+            throw new BatchTooLargeException("Device " + deviceId + " sent " + readings.size()
+                    + " readings at once", ingestQuota.burst());
+        }
+        admit(deviceId, readings.size());
+        int accepted = 0;
+        for (ReadingDTO reading : readings) {
+            ReadingIngestionPipeline.Admission admission =
+                    pipeline.offer(deviceId, reading.getTimestamp(), reading.getValue());
+            if (admission == ReadingIngestionPipeline.Admission.UNKNOWN_DEVICE) {
+                throw new EntityNotFoundException(Device.class, deviceId);
+            }
+            if (admission == ReadingIngestionPipeline.Admission.QUEUE_FULL) break;
+            accepted++;
+        }
+        return accepted;
+    }
+
+    /**
+     * Queues a heartbeat of a device on the ingestion pipeline.
+     * @param deviceId the id of the device
+     * @param timestamp the time of the heartbeat in milliseconds since the epoch
+     * @return true if the heartbeat was accepted, false if the queue is full
+     * @throws EntityNotFoundException if the {@link Device} is not registered
+     * @throws ThrottledException if the pipeline is saturated or the device exceeded its quota
+     */
+    @Override
+    public boolean recordHeartbeat(Long deviceId, long timestamp) throws EntityNotFoundException, ThrottledException {
+        admit(deviceId, 1);
+        ReadingIngestionPipeline.Admission admission = pipeline.offerHeartbeat(deviceId, timestamp);
+        if (admission == ReadingIngestionPipeline.Admission.UNKNOWN_DEVICE) {
+            throw new EntityNotFoundException(Device.class, deviceId);
+        }
+        return admission == ReadingIngestionPipeline.Admission.ACCEPTED;
+    }
+
+    /**
+     * Refuses work before anything is queued when the pipeline is saturated or the device is over its quota.
+     */
+    private void admit(Long deviceId, int readings) throws EntityNotFoundException, ThrottledException {
+        if (pipeline.isSaturated()) throw new ThrottledException("Reading ingestion is saturated", 1);
+        int slot = deviceIndex.findSlot(deviceId);
+        if (slot < 0) throw new EntityNotFoundException(Device.class, deviceId);
+        long wait = ingestQuota.tryAcquire(slot, readings);
+        if (wait > 0) {
+            throw new ThrottledException("Device " + deviceId + " exceeded its reading quota",
+                    TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+        }
+    }
+
+    /**
+     * Streams the readings of a device in a time range through a {@link Downsampler},
+     * so the size of the result is bounded by maxPoints whatever the size of the range.
+     * Archived readings of the {@link SegmentStore} are merged with the rows of the database
+     * in timestamp order; rows that were archived but not yet deleted are skipped.
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds since the epoch
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @param maxPoints the maximum number of points to return
+     * @param mode the downsampling algorithm
+     * @return the downsampled {@link ReadingSeriesDTO}
+     */
+    @Override
+    public ReadingSeriesDTO findReadings(Long deviceId, long from, long to, int maxPoints, Downsampler.Mode mode) {
+        Downsampler downsampler = new Downsampler(from, to, maxPoints, mode);
+        try (ColdReadingCursor cold = segmentStore.open(deviceId, from, to)) {
+            boolean[] coldLeft = {cold.advance()};
+            streamingJdbcTemplate.query(RANGE_SQL, (RowCallbackHandler) rs -> {
+                long timestamp = rs.getLong(1);
+                if (cold.isArchived(timestamp, rs.getLong(3))) return;
+                while (coldLeft[0] && cold.timestamp() <= timestamp) {
+                    downsampler.accept(cold.timestamp(), cold.value());
+                    coldLeft[0] = cold.advance();
+                }
+                downsampler.accept(timestamp, rs.getDouble(2));
+            }, deviceId, from, to);
+            while (coldLeft[0]) {
+                downsampler.accept(cold.timestamp(), cold.value());
+                coldLeft[0] = cold.advance();
+            }
+        }
+        downsampler.finish();
+        return new ReadingSeriesDTO(deviceId, from, to, downsampler.getCount(),
+                downsampler.getTimestamps(), downsampler.getValues());
+    }
+
+    /**
+     * Copies the latest readings of a device out of the {@link RecentReadingsStore}.
+     * @param deviceId the id of the device
+     * @param n the maximum number of readings, capped at the capacity of the store
+     * @return the {@link ReadingSeriesDTO} of the latest readings, spanning from the first to the last one
+     * @throws EntityNotFoundException if the {@link Device} is not registered
+     */
+    @Override
+    public ReadingSeriesDTO findLatestReadings(Long deviceId, int n) throws EntityNotFoundException {
+        int slot = deviceIndex.findSlot(deviceId);
+        if (slot < 0) throw new EntityNotFoundException(Device.class, deviceId);
+        int limit = Math.max(0, Math.min(n, recentReadings.getCapacity()));
+        long[] timestamps = new long[limit];
+        double[] values = new double[limit];
+        int count = recentReadings.latest(slot, deviceId, limit, timestamps, values);
+        if (count < limit) {
+            timestamps = Arrays.copyOf(timestamps, count);
+            values = Arrays.copyOf(values, count);
+        }
+        long from = count > 0 ? timestamps[0] : 0;
+        long to = count > 0 ? timestamps[count - 1] + 1 : 0;
+        return new ReadingSeriesDTO(deviceId, from, to, count, timestamps, values);
+    }
+
+    /**
+     * Lists the devices the {@link AnomalyDetector} currently considers anomalous.
+     * @return the {@link AnomalyDTO}s of the anomalous devices, the highest score first
+     */
+    @Override
+    public List<AnomalyDTO> findAnomalies() {
+        return anomalyDetector.findAnomalies();
+    }
+
+    /**
+     * Merges the hourly sketches of a model prefix or of a device and reads the quantiles from the result.
+     * @param model the prefix of the model, or null to select a device
+     * @param deviceId the id of the device, used when the model is null
+     * @param quantiles the quantiles to compute, between 0 and 1
+     * @param from the inclusive start of the range in milliseconds since the epoch
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @return the {@link QuantilesDTO}, with NaN values when there are no readings in the range
+     * @throws EntityNotFoundException if a device is selected and the {@link Device} is not registered
+     */
+    @Override
+    public QuantilesDTO findQuantiles(String model, Long deviceId, double[] quantiles, long from, long to)
+            throws EntityNotFoundException {
+        QuantileSketch sketch;
+        if (model != null) {
+            sketch = quantileRollup.forModel(model, from, to);
+        } else {
+            int slot = deviceIndex.findSlot(deviceId);
+            if (slot < 0) throw new EntityNotFoundException(Device.class, deviceId);
+            sketch = quantileRollup.forDevice(slot, deviceId, from, to);
+        }
+        double[] values = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) values[i] = sketch.quantile(quantiles[i]);
+        return new QuantilesDTO(model, model != null ? null : deviceId, QuantileRollup.bucketOf(from), to,
+                sketch.count(), sketch.min(), sketch.max(), QuantileSketch.RELATIVE_ACCURACY, quantiles, values);
+    }
+}
@@ -0,0 +1,55 @@
+package tinysensormanager.service;
+
+/**
+ * The wire formats supported by the bulk export and import endpoints.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public enum TransferFormat {
+    /**
+     * Newline delimited JSON, one object per line.
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /**
+     * Comma separated values with a header row.
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    TransferFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the media type used for responses in this format.
+     * @return the content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the file extension used for downloads in this format.
+     * @return the file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Resolves a format from a request parameter, ignoring case.
+     * @param name the name of the format, e.g. "ndjson" or "csv"
+     * @return the matching {@link TransferFormat}
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public static TransferFormat fromParameter(String name) {
+        for (TransferFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) return format;
+        }
+        throw new IllegalArgumentException("Unsupported transfer format: " + name);
+    }
+}
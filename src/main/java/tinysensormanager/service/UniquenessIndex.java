@@ -0,0 +1,214 @@
+package tinysensormanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.BloomFilter;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+
+/**
+ * Pre-checks the uniqueness of the unique columns with one in-memory {@link BloomFilter} per column.
+ *
+ * <p>The filters are loaded from the database at startup and every stored value is added to them. A value
+ * the filter has never seen is definitely new and needs no query; only probable hits are confirmed with an
+ * existence query on the column's unique index. Values are compared the way the case-insensitive MySQL
+ * collation compares them. Since entries cannot be removed, deleted and changed values stay in the filter
+ * and only cost an extra query. A filter that outgrows its size is reloaded with twice the capacity on a
+ * background thread, so no request waits for the reload; the old filter answers until the new one is loaded.
+ * The unique constraints stay in place as the final guard against values stored concurrently.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class UniquenessIndex {
+
+    /**
+     * The unique columns covered by the index.
+     */
+    public enum Column {
+        /**
+         * The MAC address of a device.
+         */
+        DEVICE_MAC("SELECT MAC_ADDRESS FROM DEVICES WHERE MAC_ADDRESS IS NOT NULL"),
+        /**
+         * The email address of a user.
+         */
+        USER_EMAIL("SELECT EMAIL FROM USERS"),
+        /**
+         * The username of a database user.
+         */
+        DBUSER_USERNAME("SELECT USERNAME FROM DBUSERS");
+
+        private final String loadSql;
+
+        Column(String loadSql) {
+            this.loadSql = loadSql;
+        }
+    }
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final AtomicReferenceArray<Filter> filters = new AtomicReferenceArray<>(Column.values().length);
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "uniqueness-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param streamingJdbcTemplate the JDBC template used to load the existing values
+     * @param expectedInsertions the number of values each filter is initially sized for
+     * @param falsePositiveRate the false positive probability of a filter at its expected size
+     */
+    @Autowired
+    public UniquenessIndex(@Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate,
+                           @Value("${tinysensor.uniqueness.expected-insertions:100000}") long expectedInsertions,
+                           @Value("${tinysensor.uniqueness.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Loads the existing values of every column.
+     */
+    @PostConstruct
+    private void load() {
+        for (Column column : Column.values()) {
+            Filter filter = new Filter(new BloomFilter(expectedInsertions, falsePositiveRate));
+            load(column, filter);
+            filters.set(column.ordinal(), filter);
+        }
+    }
+
+    /**
+     * Abandons a reload in progress.
+     */
+    @PreDestroy
+    private void stop() {
+        reloader.shutdownNow();
+    }
+
+    /**
+     * Checks whether a value is already taken.
+     * @param column the unique column
+     * @param value the value to check
+     * @param existsInDatabase the existence query run when the filter reports a probable hit
+     * @return true if the value is taken
+     */
+    public boolean exists(Column column, String value, BooleanSupplier existsInDatabase) {
+        if (value == null) return false;
+        if (!filters.get(column.ordinal()).bloom.mightContain(normalize(value))) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        confirmed.incrementAndGet();
+        boolean exists = existsInDatabase.getAsBoolean();
+        if (!exists) falsePositives.incrementAndGet();
+        return exists;
+    }
+
+    /**
+     * Records a value that was stored.
+     * @param column the unique column
+     * @param value the stored value, may be null
+     */
+    public void add(Column column, String value) {
+        if (value == null) return;
+        String normalized = normalize(value);
+        Filter filter = filters.get(column.ordinal());
+        filter.bloom.put(normalized);
+        Filter next = filter.next;
+        if (next != null) next.bloom.put(normalized);
+        if (filter.size.incrementAndGet() > filter.bloom.getExpectedInsertions() * 2) grow(column, filter, normalized);
+    }
+
+    /**
+     * Returns the number of checks answered by a filter alone.
+     * @return the number of skipped database queries
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of checks confirmed with a database query.
+     * @return the number of existence queries
+     */
+    public long getConfirmed() {
+        return confirmed.get();
+    }
+
+    /**
+     * Returns the number of confirmed checks that found the value free after all.
+     * @return the number of false positives
+     */
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    /**
+     * Starts reloading an outgrown filter, unless it is already being reloaded.
+     */
+    private synchronized void grow(Column column, Filter filter, String normalized) {
+        if (filters.get(column.ordinal()) != filter || filter.next != null) return;
+        long capacity = filter.bloom.getExpectedInsertions() * 2;
+        LoggerUtil.getCurrentLogger().info("Reloading the uniqueness filter of " + column + " for " + capacity + " values");
+        Filter grown = new Filter(new BloomFilter(capacity, falsePositiveRate));
+        // Values stored while the new filter is loading are added to both filters
+        filter.next = grown;
+        grown.bloom.put(normalized);
+        reloader.execute(() -> {
+            try {
+                load(column, grown);
+                filters.set(column.ordinal(), grown);
+            } catch (DataAccessException e) {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "Uniqueness filter of " + column + " could not be reloaded", e);
+                // The next stored value tries again
+                filter.next = null;
+            }
+        });
+    }
+
+    private void load(Column column, Filter filter) {
+        streamingJdbcTemplate.query(column.loadSql, (RowCallbackHandler) rs -> {
+            filter.bloom.put(normalize(rs.getString(1)));
+            filter.size.incrementAndGet();
+        });
+    }
+
+    private static String normalize(String value) {
+        return value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Filter {
+        final BloomFilter bloom;
+        final AtomicLong size = new AtomicLong();
+        volatile Filter next;
+
+        Filter(BloomFilter bloom) {
+            this.bloom = bloom;
+        }
+    }
+}
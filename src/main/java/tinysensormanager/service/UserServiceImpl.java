@@ -1,14 +1,31 @@
 package tinysensormanager.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import tinysensormanager.config.CacheConfig;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
 import tinysensormanager.dto.UserDTO;
 import tinysensormanager.model.User;
 import tinysensormanager.repo.UserRepo;
 import tinysensormanager.service.exceptions.EntityNotFoundException;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.search.EntitySearch;
+import tinysensormanager.service.search.SearchQuery;
+import tinysensormanager.service.search.SearchResult;
+import tinysensormanager.service.util.MultiGet;
 
 import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,6 +34,7 @@ import java.util.Optional;
  * It uses the {@link UserRepo} interface to interact with the database.
  */
 @Service
+@RoutedTo(Workload.READ)
 public class UserServiceImpl implements IUserService {
 
     /**
@@ -24,13 +42,58 @@ public class UserServiceImpl implements IUserService {
      */
     private final UserRepo userRepo;
 
+    /**
+     * The index that pre-checks the uniqueness of email addresses.
+     */
+    private final UniquenessIndex uniquenessIndex;
+
+    /**
+     * The manager of the {@link User} cache.
+     */
+    private final CacheManager cacheManager;
+
+    /**
+     * The writer of the change events other nodes invalidate their caches with.
+     */
+    private final OutboxWriter outboxWriter;
+
+    /**
+     * The cache of recent lookups that found no {@link User}.
+     */
+    private final NegativeLookupCache negativeLookupCache;
+
+    /**
+     * The runner of the index-aware searches over {@link User} entities.
+     */
+    private final EntitySearch entitySearch;
+
+    /**
+     * The maximum number of ids per query when users are fetched by many ids.
+     */
+    private final int multiGetChunkSize;
+
     /**
      * Constructor to inject the {@link UserRepo} instance via Spring's dependency injection.
      * @param userRepo The repository for interacting with {@link User} entities in the database.
+     * @param uniquenessIndex The index that pre-checks the uniqueness of email addresses.
+     * @param cacheManager The manager of the {@link User} cache.
+     * @param outboxWriter The writer of the change events other nodes invalidate their caches with.
+     * @param negativeLookupCache The cache of recent lookups that found no {@link User}.
+     * @param entitySearch The runner of the index-aware searches.
+     * @param multiGetChunkSize The maximum number of ids per query when users are fetched by many ids.
      */
     @Autowired
-    public UserServiceImpl(UserRepo userRepo) {
+    public UserServiceImpl(UserRepo userRepo, UniquenessIndex uniquenessIndex, CacheManager cacheManager,
+                           OutboxWriter outboxWriter, NegativeLookupCache negativeLookupCache,
+                           EntitySearch entitySearch,
+                           @Value("${tinysensor.multiget.chunk-size:500}") int multiGetChunkSize) {
         this.userRepo = userRepo;
+        this.uniquenessIndex = uniquenessIndex;
+        this.cacheManager = cacheManager;
+        this.outboxWriter = outboxWriter;
+        this.negativeLookupCache = negativeLookupCache;
+        this.entitySearch = entitySearch;
+        this.multiGetChunkSize = multiGetChunkSize;
     }
 
     /**
@@ -40,9 +103,14 @@ public class UserServiceImpl implements IUserService {
      * @return The User object that has been added to the database.
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
     @Override
     public User addUser(UserDTO userDTO) {
-        return userRepo.save(convertToUser(userDTO));
+        User user = userRepo.save(convertToUser(userDTO));
+        uniquenessIndex.add(UniquenessIndex.Column.USER_EMAIL, user.getEmail());
+        outboxWriter.append(EntityChangedEvent.Entity.USER, user.getId(), EntityChangedEvent.ChangeType.CREATED,
+                user.getEmail());
+        return user;
     }
 
     /**
@@ -55,19 +123,49 @@ public class UserServiceImpl implements IUserService {
     }
 
     /**
-     * Retrieves a {@link User} entity from the database by its ID.
+     * Counts the {@link User} entities in the database.
+     * @return The number of {@link User} entities in the database.
+     */
+    @Override
+    public long countUsers() {
+        return userRepo.count();
+    }
+
+    /**
+     * Retrieves a {@link User} entity from the database by its ID. IDs recently found missing are
+     * rejected without a query until the USERS table changes.
      * @param id The ID of the {@link User} entity to retrieve.
      * @return The {@link User} entity corresponding to the provided ID.
      * @throws EntityNotFoundException if the {@link User} entity with the provided ID is not found in the database.
      */
+    @Cacheable(value = CacheConfig.USERS, key = "#id")
     @Override
     public User findUserById(Long id) throws EntityNotFoundException {
+        if (negativeLookupCache.isMissing(EntityChangedEvent.Entity.USER, "id", id)) {
+            throw new EntityNotFoundException(User.class, id);
+        }
+        long version = negativeLookupCache.version(EntityChangedEvent.Entity.USER);
         Optional<User> user;
         user = userRepo.findById(id);
-        if (user.isEmpty()) throw new EntityNotFoundException(User.class, 0L);
+        if (user.isEmpty()) {
+            negativeLookupCache.remember(EntityChangedEvent.Entity.USER, "id", id, version);
+            throw new EntityNotFoundException(User.class, id);
+        }
         return user.get();
     }
 
+    /**
+     * Retrieves the {@link User} entities with the provided IDs. Cached users are served from the cache,
+     * the others are loaded with chunked {@code IN} queries.
+     * @param ids The IDs of the {@link User} entities to retrieve.
+     * @return The found {@link User} entities by ID, in the order of the provided IDs. Unknown IDs are absent.
+     */
+    @Override
+    public Map<Long, User> findUsersByIds(Collection<Long> ids) {
+        return MultiGet.load(ids, cacheManager.getCache(CacheConfig.USERS), User.class, multiGetChunkSize,
+                userRepo::findAllById, User::getId);
+    }
+
     /**
      * Updates an existing {@link User} entity in the database by saving the {@link User}
      * object converted from the provided {@link UserDTO} object.
@@ -76,13 +174,19 @@ public class UserServiceImpl implements IUserService {
      * @throws EntityNotFoundException if the {@link User} entity with the provided ID is not found in the database.
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
+    @CachePut(value = CacheConfig.USERS, key = "#result.id")
     @Override
     public User updateUser(UserDTO userDTO) throws EntityNotFoundException {
         // Optional<User> user = userRepo.findById(userDTO.getId());
         // if (user.isEmpty() throw new EntityNotFoundException(User.class, userDTO.getId());
         User user = userRepo.findUserById(userDTO.getId());
         if (user == null) throw new EntityNotFoundException(User.class, userDTO.getId());
-        return userRepo.save(convertToUser(userDTO));
+        User updated = userRepo.save(convertToUser(userDTO));
+        uniquenessIndex.add(UniquenessIndex.Column.USER_EMAIL, updated.getEmail());
+        outboxWriter.append(EntityChangedEvent.Entity.USER, updated.getId(), EntityChangedEvent.ChangeType.UPDATED,
+                updated.getEmail());
+        return updated;
     }
 
     /**
@@ -91,6 +195,8 @@ public class UserServiceImpl implements IUserService {
      * @throws EntityNotFoundException if the {@link User} entity with the provided ID is not found in the database.
      */
     @Transactional
+    @RoutedTo(Workload.WRITE)
+    @CacheEvict(value = CacheConfig.USERS, key = "#id")
     @Override
     public void deleteUser(Long id) throws EntityNotFoundException {
         try {
@@ -98,6 +204,7 @@ public class UserServiceImpl implements IUserService {
         } catch (Exception e) {
             throw new EntityNotFoundException(User.class, id);
         }
+        outboxWriter.append(EntityChangedEvent.Entity.USER, id, EntityChangedEvent.ChangeType.DELETED, null);
     }
 
     /**
@@ -114,6 +221,30 @@ public class UserServiceImpl implements IUserService {
         return users;
     }
 
+    /**
+     * Retrieves one page of the {@link User} entities matching a search, refusing searches no index supports.
+     * @param query The filters, sort, limit and cursor of the search.
+     * @return The page of {@link User} entities and the cursor of the next page.
+     * @throws InvalidSearchException if the search is malformed or not supported by an index.
+     */
+    @Override
+    public SearchResult<User> searchUsers(SearchQuery query) throws InvalidSearchException {
+        return entitySearch.search(User.class, query);
+    }
+
+    /**
+     * Checks if an email address is taken by another {@link User}. Addresses the uniqueness index has
+     * never seen are reported as free without a query.
+     * @param email The email address to check.
+     * @param excludedId The ID of the {@link User} being updated, or null for a new user.
+     * @return True if the email address exists, false otherwise.
+     */
+    @Override
+    public boolean emailExists(String email, Long excludedId) {
+        return uniquenessIndex.exists(UniquenessIndex.Column.USER_EMAIL, email, () -> excludedId == null
+                ? userRepo.existsByEmail(email) : userRepo.existsByEmailAndIdNot(email, excludedId));
+    }
+
     /**
      * Converts a {@link UserDTO} object to a {@link User} object.
      * @param dto The {@link UserDTO} object to convert.
@@ -0,0 +1,82 @@
+package tinysensormanager.service.anomaly;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AnomalyDTO;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.ReadingIngestionPipeline;
+import tinysensormanager.service.ingest.ReadingListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scores every reading that passes through the {@link ReadingIngestionPipeline} against the history of its
+ * device with {@link AnomalyStatistics}, and keeps track of the devices whose readings are currently
+ * anomalous. Unlike alert rules, it needs no configuration per device: every device is compared with itself.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class AnomalyDetector implements ReadingListener, MeterBinder {
+    private final DeviceIndex deviceIndex;
+    private final AnomalyStatistics statistics;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param deviceIndex the index that assigns devices to slots
+     * @param alpha the weight of a new reading in the mean and variance of its device
+     * @param seasonalAlpha the weight of a new reading in the time-of-day baseline of its device
+     * @param seasons the number of time-of-day buckets of the baseline, 1 to disable it
+     * @param threshold the score, in standard deviations, from which a reading is anomalous
+     * @param warmup the number of readings of a device before its readings are scored
+     */
+    @Autowired
+    public AnomalyDetector(DeviceIndex deviceIndex,
+                           @Value("${tinysensor.anomaly.alpha:0.02}") double alpha,
+                           @Value("${tinysensor.anomaly.seasonal-alpha:0.1}") double seasonalAlpha,
+                           @Value("${tinysensor.anomaly.seasons:24}") int seasons,
+                           @Value("${tinysensor.anomaly.threshold:4}") double threshold,
+                           @Value("${tinysensor.anomaly.warmup:30}") int warmup) {
+        this.deviceIndex = deviceIndex;
+        this.statistics = new AnomalyStatistics(deviceIndex.size(), alpha, seasonalAlpha, seasons, threshold, warmup);
+    }
+
+    @Override
+    public void onReading(int slot, long deviceId, long timestamp, double value) {
+        if (slot >= statistics.capacity()) statistics.ensureCapacity(Math.max(slot + 1, deviceIndex.size()));
+        statistics.observe(slot, timestamp, value);
+    }
+
+    /**
+     * Lists the devices whose recent readings are anomalous, the highest score first.
+     * @return the anomalous devices
+     */
+    public List<AnomalyDTO> findAnomalies() {
+        List<AnomalyDTO> anomalies = new ArrayList<>();
+        int size = deviceIndex.size();
+        for (int slot = statistics.nextAnomalous(0); slot >= 0 && slot < size;
+             slot = statistics.nextAnomalous(slot + 1)) {
+            if (!deviceIndex.isRegistered(slot)) continue;
+            long timestamp = statistics.lastTimestamp(slot);
+            anomalies.add(new AnomalyDTO(deviceIndex.deviceIdAt(slot), deviceIndex.modelAt(slot), timestamp,
+                    statistics.lastValue(slot), statistics.expected(slot, timestamp), statistics.score(slot),
+                    statistics.anomalousSince(slot)));
+        }
+        anomalies.sort(Comparator.comparingDouble(AnomalyDTO::getScore).reversed());
+        return anomalies;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tinysensor.anomalies.active", statistics, AnomalyStatistics::anomalousCount)
+                .description("Devices whose recent readings are anomalous")
+                .register(registry);
+    }
+}
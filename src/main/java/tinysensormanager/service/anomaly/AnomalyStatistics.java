@@ -0,0 +1,272 @@
+package tinysensormanager.service.anomaly;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constant-memory online statistics of the readings of every device slot, used to score how unusual a
+ * reading is relative to the history of its own device.
+ *
+ * <p>For each slot the statistics hold an exponentially weighted mean and variance of the level, a seasonal
+ * offset per time-of-day bucket, and an exponentially weighted mean and variance of the rate of change per
+ * second. A reading is scored by the larger of the z-scores of its level (against the mean plus the offset
+ * of its bucket) and of its rate of change. Residuals are clipped to the threshold before they update the
+ * statistics, so a single spike does not widen the variance enough to hide the next one.</p>
+ *
+ * <p>All state lives in struct-of-arrays form indexed by slot, so {@link #observe(int, long, double)} runs in
+ * constant time and allocates nothing. A slot becomes anomalous once a reading scores at least the
+ * threshold after the warm-up, and normal again once a reading scores below half of it; anomalous slots are
+ * kept in a bit set. Only one thread may call {@link #observe(int, long, double)} and
+ * {@link #ensureCapacity(int)}. Other threads may read the bit set and the per-slot values, which may be
+ * in the middle of an update.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class AnomalyStatistics {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final double MIN_RELATIVE_STDDEV = 1e-3;
+
+    private final double alpha;
+    private final double seasonalAlpha;
+    private final int seasons;
+    private final double threshold;
+    private final int warmup;
+
+    private volatile int capacity;
+    private int[] counts;
+    private double[] means;
+    private double[] variances;
+    private float[] seasonal;
+    private double[] rateMeans;
+    private double[] rateVariances;
+    private long[] lastTimestamps;
+    private double[] lastValues;
+    private float[] scores;
+    private long[] anomalousSince;
+    private long[] anomalous;
+    private int anomalousCount;
+
+    /**
+     * Creates the statistics.
+     * @param capacity the initial number of slots
+     * @param alpha the weight of a new reading in the level and rate statistics, between 0 and 1
+     * @param seasonalAlpha the weight of a new reading in the offset of its time-of-day bucket
+     * @param seasons the number of time-of-day buckets, 1 to disable the seasonal baseline
+     * @param threshold the score from which a reading is anomalous
+     * @param warmup the number of readings of a slot before it is scored
+     */
+    public AnomalyStatistics(int capacity, double alpha, double seasonalAlpha, int seasons, double threshold,
+                             int warmup) {
+        if (alpha <= 0 || alpha >= 1) throw new IllegalArgumentException("alpha must be between 0 and 1");
+        if (seasons < 1) throw new IllegalArgumentException("seasons must be at least 1");
+        this.alpha = alpha;
+        this.seasonalAlpha = seasonalAlpha;
+        this.seasons = seasons;
+        this.threshold = threshold;
+        this.warmup = Math.max(warmup, 2);
+        this.counts = new int[0];
+        this.means = new double[0];
+        this.variances = new double[0];
+        this.seasonal = new float[0];
+        this.rateMeans = new double[0];
+        this.rateVariances = new double[0];
+        this.lastTimestamps = new long[0];
+        this.lastValues = new double[0];
+        this.scores = new float[0];
+        this.anomalousSince = new long[0];
+        this.anomalous = new long[0];
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Grows the statistics to hold at least the given number of slots.
+     * @param slots the number of slots
+     */
+    public void ensureCapacity(int slots) {
+        if (slots <= capacity) return;
+        int grown = Math.max(slots, capacity + (capacity >> 1));
+        counts = Arrays.copyOf(counts, grown);
+        means = Arrays.copyOf(means, grown);
+        variances = Arrays.copyOf(variances, grown);
+        seasonal = Arrays.copyOf(seasonal, grown * seasons);
+        rateMeans = Arrays.copyOf(rateMeans, grown);
+        rateVariances = Arrays.copyOf(rateVariances, grown);
+        lastTimestamps = Arrays.copyOf(lastTimestamps, grown);
+        lastValues = Arrays.copyOf(lastValues, grown);
+        scores = Arrays.copyOf(scores, grown);
+        anomalousSince = Arrays.copyOf(anomalousSince, grown);
+        anomalous = Arrays.copyOf(anomalous, (grown + 63) >>> 6);
+        capacity = grown;
+    }
+
+    /**
+     * Returns the number of slots the statistics hold.
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Scores a reading and folds it into the statistics of its slot.
+     * @param slot the slot of the device, less than {@link #capacity()}
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @param value the value of the reading
+     * @return the score of the reading, 0 during the warm-up
+     */
+    public double observe(int slot, long timestamp, double value) {
+        int n = counts[slot];
+        if (n == 0) {
+            counts[slot] = 1;
+            means[slot] = value;
+            lastTimestamps[slot] = timestamp;
+            lastValues[slot] = value;
+            return 0;
+        }
+        // Early readings weigh as in a plain average, so the statistics settle quickly
+        double weight = Math.max(alpha, 1.0 / (n + 1));
+        double mean = means[slot];
+        int bucket = slot * seasons + bucket(timestamp);
+        double offset = seasonal[bucket];
+        double residual = value - mean - offset;
+        double floor = MIN_RELATIVE_STDDEV * Math.max(1, Math.abs(mean));
+        double stddev = Math.max(Math.sqrt(variances[slot]), floor);
+        double score = Math.abs(residual) / stddev;
+
+        long elapsed = timestamp - lastTimestamps[slot];
+        if (elapsed > 0) {
+            double rate = (value - lastValues[slot]) * 1000 / elapsed;
+            double rateMean = rateMeans[slot];
+            double rateResidual = rate - rateMean;
+            if (n >= warmup) {
+                double rateStddev = Math.max(Math.sqrt(rateVariances[slot]), floor);
+                score = Math.max(score, Math.abs(rateResidual) / rateStddev);
+                double limit = threshold * rateStddev;
+                rateResidual = Math.max(-limit, Math.min(limit, rateResidual));
+            }
+            double increment = weight * rateResidual;
+            rateMeans[slot] = rateMean + increment;
+            rateVariances[slot] = (1 - weight) * (rateVariances[slot] + rateResidual * increment);
+            lastTimestamps[slot] = timestamp;
+            lastValues[slot] = value;
+        }
+
+        double clipped = residual;
+        if (n >= warmup) {
+            double limit = threshold * stddev;
+            clipped = Math.max(-limit, Math.min(limit, residual));
+        }
+        double increment = weight * clipped;
+        means[slot] = mean + increment;
+        variances[slot] = (1 - weight) * (variances[slot] + clipped * increment);
+        // The part of the residual the level did not absorb belongs to the time of day
+        seasonal[bucket] = (float) (offset + seasonalAlpha * (clipped - increment));
+        if (n < Integer.MAX_VALUE) counts[slot] = n + 1;
+
+        if (n < warmup) score = 0;
+        scores[slot] = (float) score;
+        boolean wasAnomalous = isAnomalous(slot);
+        if (!wasAnomalous && score >= threshold) {
+            anomalousSince[slot] = timestamp;
+            flip(slot);
+            anomalousCount++;
+        } else if (wasAnomalous && score < threshold / 2) {
+            flip(slot);
+            anomalousCount--;
+        }
+        return score;
+    }
+
+    /**
+     * Returns whether a slot is anomalous.
+     * @param slot the slot
+     * @return true if its recent readings are anomalous
+     */
+    public boolean isAnomalous(int slot) {
+        long[] bits = anomalous;
+        int word = slot >>> 6;
+        return word < bits.length && ((long) LONGS.getAcquire(bits, word) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Returns the next anomalous slot.
+     * @param from the first slot to consider
+     * @return the next anomalous slot at or after from, or -1 if there is none
+     */
+    public int nextAnomalous(int from) {
+        long[] bits = anomalous;
+        for (int word = from >>> 6; word < bits.length; word++) {
+            long set = (long) LONGS.getAcquire(bits, word);
+            if (word == from >>> 6) set &= -1L << from;
+            if (set != 0) return (word << 6) + Long.numberOfTrailingZeros(set);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of anomalous slots.
+     * @return the number of anomalous slots
+     */
+    public int anomalousCount() {
+        return anomalousCount;
+    }
+
+    /**
+     * Returns the score of the latest reading of a slot.
+     * @param slot the slot
+     * @return the score
+     */
+    public double score(int slot) {
+        return slot < capacity ? scores[slot] : 0;
+    }
+
+    /**
+     * Returns the time of the reading that made a slot anomalous.
+     * @param slot the slot
+     * @return the time in milliseconds since the epoch
+     */
+    public long anomalousSince(int slot) {
+        return slot < capacity ? anomalousSince[slot] : 0;
+    }
+
+    /**
+     * Returns the time of the latest reading of a slot.
+     * @param slot the slot
+     * @return the time in milliseconds since the epoch
+     */
+    public long lastTimestamp(int slot) {
+        return slot < capacity ? lastTimestamps[slot] : 0;
+    }
+
+    /**
+     * Returns the value of the latest reading of a slot.
+     * @param slot the slot
+     * @return the value
+     */
+    public double lastValue(int slot) {
+        return slot < capacity ? lastValues[slot] : Double.NaN;
+    }
+
+    /**
+     * Returns the value the statistics expect for a slot at a point in time.
+     * @param slot the slot
+     * @param timestamp the time in milliseconds since the epoch
+     * @return the mean of the slot plus the offset of the time of day
+     */
+    public double expected(int slot, long timestamp) {
+        return slot < capacity ? means[slot] + seasonal[slot * seasons + bucket(timestamp)] : Double.NaN;
+    }
+
+    private int bucket(long timestamp) {
+        return (int) (Math.floorMod(timestamp, DAY_MILLIS) * seasons / DAY_MILLIS);
+    }
+
+    private void flip(int slot) {
+        int word = slot >>> 6;
+        LONGS.setRelease(anomalous, word, anomalous[word] ^ (1L << slot));
+    }
+}
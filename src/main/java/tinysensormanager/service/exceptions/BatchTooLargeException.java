@@ -0,0 +1,27 @@
+package tinysensormanager.service.exceptions;
+
+/**
+ *  Exception to be thrown when a request carries more items than may ever be accepted at once.
+ *  Unlike a {@link ThrottledException}, retrying the same request later does not help.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public class BatchTooLargeException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int limit;
+
+    public BatchTooLargeException(String reason, int limit) {
+        super(reason);
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the largest number of items a request may carry.
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
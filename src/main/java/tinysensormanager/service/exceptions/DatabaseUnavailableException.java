@@ -0,0 +1,27 @@
+package tinysensormanager.service.exceptions;
+
+/**
+ *  Exception to be thrown when the database is not called because it is failing or too slow, or when a
+ *  call failed because the database could not be reached.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public DatabaseUnavailableException(String reason, long retryAfterSeconds, Throwable cause) {
+        super(reason, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Returns the number of seconds after which the database will be called again.
+     * @return the number of seconds to wait, at least 1
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, retryAfterSeconds);
+    }
+}
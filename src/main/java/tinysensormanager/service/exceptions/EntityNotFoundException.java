@@ -3,13 +3,42 @@ package tinysensormanager.service.exceptions;
 /**
  *  Exception to be thrown when an entity with a given id cannot be found in the database.
  *
+ *  <p>Misses are a normal outcome of lookups and can be frequent, so the exception captures no stack trace
+ *  and builds its message only when it is asked for.</p>
+ *
  * @author manokel01
  * @version 1.0
  */
 public class EntityNotFoundException extends Exception {
     private static final long serialVersionUID = 1L;
 
+    private final Class<?> entityClass;
+    private final Long id;
+
     public EntityNotFoundException(Class<?> entityClass, Long id) {
-        super("Entity" + entityClass.getSimpleName() + " with id" + id + " does not exist");
+        super(null, null, false, false);
+        this.entityClass = entityClass;
+        this.id = id;
+    }
+
+    /**
+     * Returns the class of the entity that was not found.
+     * @return the entity class
+     */
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Returns the id that was looked up.
+     * @return the id, 0 for lookups by other keys
+     */
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Entity" + entityClass.getSimpleName() + " with id" + id + " does not exist";
     }
 }
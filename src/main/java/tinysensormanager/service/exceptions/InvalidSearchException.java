@@ -0,0 +1,16 @@
+package tinysensormanager.service.exceptions;
+
+/**
+ *  Exception to be thrown when a search is malformed, or is refused because it could not be answered
+ *  within a bounded cost.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public class InvalidSearchException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidSearchException(String reason) {
+        super(reason);
+    }
+}
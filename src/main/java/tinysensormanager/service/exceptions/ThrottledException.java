@@ -0,0 +1,26 @@
+package tinysensormanager.service.exceptions;
+
+/**
+ *  Exception to be thrown when a request is refused because the system or the caller is over its limits.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public class ThrottledException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public ThrottledException(String reason, long retryAfterSeconds) {
+        super(reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Returns the number of seconds after which the request may succeed.
+     * @return the number of seconds to wait, at least 1
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, retryAfterSeconds);
+    }
+}
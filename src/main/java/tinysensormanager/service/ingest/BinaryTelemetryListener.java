@@ -0,0 +1,272 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.DirectBufferPool;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Receives readings as compact binary {@link TelemetryFrames} over UDP and TCP and hands them to the
+ * {@link ReadingIngestionPipeline}, bypassing HTTP, JSON and the servlet container.
+ *
+ * <p>One thread serves both protocols with a {@link Selector}. Datagrams and stream data are read into
+ * pooled direct buffers and decoded in place. A TCP connection keeps its own buffer, so frames may be split
+ * across reads; a connection that sends an invalid frame is closed, while an invalid datagram is dropped.
+ * Frames of devices over their {@link IngestQuota} and readings the pipeline refuses are counted and dropped,
+ * as there is no cheap way to signal backpressure to a sensor over UDP. Devices are resolved with the
+ * {@link DeviceIndex} alone: the input is unauthenticated, so frames of unknown devices are counted and
+ * dropped rather than looked up in the database, which would stall the I/O thread. The listener is only started when
+ * {@code tinysensor.telemetry.enabled} is true; a port of 0 disables that protocol.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.telemetry.enabled", havingValue = "true")
+public class BinaryTelemetryListener implements TelemetryFrames.Handler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final int UDP_RECEIVE_BUFFER = 4 * 1024 * 1024;
+
+    private final ReadingIngestionPipeline pipeline;
+    private final DeviceIndex deviceIndex;
+    private final IngestQuota ingestQuota;
+    private final String bindAddress;
+    private final int udpPort;
+    private final int tcpPort;
+    private final DirectBufferPool bufferPool = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+    private Selector selector;
+    private DatagramChannel udpChannel;
+    private ServerSocketChannel tcpChannel;
+    private ByteBuffer datagramBuffer;
+    private volatile boolean running;
+    private Thread worker;
+
+    private volatile long frames;
+    private volatile long malformed;
+    private volatile long dropped;
+    private volatile long unknown;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param pipeline the pipeline readings are handed to
+     * @param deviceIndex the index used to resolve devices
+     * @param ingestQuota the per-device rate limits
+     * @param bindAddress the local address to listen on
+     * @param udpPort the UDP port, or 0 to disable UDP
+     * @param tcpPort the TCP port, or 0 to disable TCP
+     */
+    @Autowired
+    public BinaryTelemetryListener(ReadingIngestionPipeline pipeline, DeviceIndex deviceIndex, IngestQuota ingestQuota,
+                                   @Value("${tinysensor.telemetry.bind-address:0.0.0.0}") String bindAddress,
+                                   @Value("${tinysensor.telemetry.udp-port:9750}") int udpPort,
+                                   @Value("${tinysensor.telemetry.tcp-port:9750}") int tcpPort) {
+        this.pipeline = pipeline;
+        this.deviceIndex = deviceIndex;
+        this.ingestQuota = ingestQuota;
+        this.bindAddress = bindAddress;
+        this.udpPort = udpPort;
+        this.tcpPort = tcpPort;
+    }
+
+    /**
+     * Opens the channels and starts the I/O thread.
+     * @throws IOException if a port cannot be bound
+     */
+    @PostConstruct
+    private void start() throws IOException {
+        selector = Selector.open();
+        if (udpPort > 0) {
+            udpChannel = DatagramChannel.open();
+            udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, UDP_RECEIVE_BUFFER);
+            udpChannel.bind(new InetSocketAddress(bindAddress, udpPort));
+            udpChannel.configureBlocking(false);
+            udpChannel.register(selector, SelectionKey.OP_READ);
+            datagramBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        if (tcpPort > 0) {
+            tcpChannel = ServerSocketChannel.open();
+            tcpChannel.bind(new InetSocketAddress(bindAddress, tcpPort));
+            tcpChannel.configureBlocking(false);
+            tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        running = true;
+        worker = new Thread(this::run, "telemetry-io");
+        worker.setDaemon(true);
+        worker.start();
+        LoggerUtil.getCurrentLogger().info("Binary telemetry listening on " + bindAddress
+                + " (udp " + udpPort + ", tcp " + tcpPort + ")");
+    }
+
+    /**
+     * Stops the I/O thread and closes all channels.
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    @PreDestroy
+    private void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Returns the number of frames decoded since startup.
+     * @return the number of frames
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of invalid datagrams and connections closed for an invalid frame since startup.
+     * @return the number of malformed inputs
+     */
+    public long malformed() {
+        return malformed;
+    }
+
+    /**
+     * Returns the number of readings dropped since startup, because the device was unknown or throttled,
+     * or the pipeline was full.
+     * @return the number of dropped readings
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of readings dropped since startup because their device is not in the {@link DeviceIndex}.
+     * They are also counted as dropped.
+     * @return the number of readings of unknown devices
+     */
+    public long unknown() {
+        return unknown;
+    }
+
+    @Override
+    public long resolve(long device, boolean mac, int count) {
+        int slot = mac ? deviceIndex.slotOfMac(device) : deviceIndex.slotOf(device);
+        if (slot < 0) unknown += count;
+        if (slot < 0 || ingestQuota.tryAcquire(slot, count) > 0) {
+            dropped += count;
+            return -1;
+        }
+        return deviceIndex.deviceIdAt(slot);
+    }
+
+    @Override
+    public void onReading(long deviceId, long timestamp, double value) {
+        if (pipeline.offer(deviceId, timestamp, value) != ReadingIngestionPipeline.Admission.ACCEPTED) dropped++;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.channel() == udpChannel) {
+                            receiveDatagrams();
+                        } else {
+                            readStream(key);
+                        }
+                    } catch (IOException e) {
+                        LoggerUtil.getCurrentLogger().fine("Telemetry connection failed: " + e.getMessage());
+                        if (key.channel() instanceof SocketChannel) close(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LoggerUtil.getCurrentLogger().log(Level.SEVERE, "Binary telemetry listener stopped", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = tcpChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, bufferPool.acquire());
+        }
+    }
+
+    private void receiveDatagrams() throws IOException {
+        ByteBuffer buffer = datagramBuffer;
+        while (true) {
+            buffer.clear();
+            if (udpChannel.receive(buffer) == null) return;
+            buffer.flip();
+            int decoded = TelemetryFrames.decode(buffer, this);
+            if (decoded == TelemetryFrames.MALFORMED || buffer.hasRemaining()) {
+                malformed++;
+            }
+            if (decoded > 0) frames += decoded;
+        }
+    }
+
+    private void readStream(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        while ((read = channel.read(buffer)) > 0) {
+            buffer.flip();
+            int decoded = TelemetryFrames.decode(buffer, this);
+            if (decoded == TelemetryFrames.MALFORMED) {
+                malformed++;
+                close(key);
+                return;
+            }
+            frames += decoded;
+            buffer.compact();
+        }
+        if (read < 0) close(key);
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            LoggerUtil.getCurrentLogger().fine("Telemetry connection could not be closed: " + e.getMessage());
+        }
+        if (key.attachment() instanceof ByteBuffer) {
+            bufferPool.release((ByteBuffer) key.attachment());
+            key.attach(null);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) close(key);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LoggerUtil.getCurrentLogger().fine("Telemetry selector could not be closed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tinysensormanager.model.Device;
+import tinysensormanager.service.NegativeLookupCache;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.util.LongIntHashMap;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+
+/**
+ * Assigns every {@link Device} a dense slot number, so per-device state on the ingestion path can be kept
+ * in flat primitive arrays indexed by slot instead of in maps of objects. Devices can be looked up by id
+ * or by MAC address.
+ *
+ * <p>The index is loaded from the DEVICES table at startup and kept up to date by the device service.
+ * Lookups take no lock; registrations are serialised. Slots are never reused while the application runs:
+ * the slot of a deleted device is unregistered, so lookups no longer find it, but keeps its place.</p>
+ *
+ * <p>Devices created on another node are registered when their change event is relayed, which may be late.
+ * {@link #findSlot(long)} therefore looks a missing device up in the database and registers it; misses
+ * are remembered in the {@link NegativeLookupCache}, so unknown devices cost one query per change of the
+ * table rather than one per request. The lookup blocks on the database, so it is meant for request threads;
+ * the telemetry I/O thread uses {@link #slotOf(long)} and {@link #slotOfMac(long)} only.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class DeviceIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final String SELECT_SQL = "SELECT ID, DEVICE_NAME, MAC_ADDRESS FROM DEVICES";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final NegativeLookupCache negativeLookupCache;
+    private final LongIntHashMap slots = new LongIntHashMap(INITIAL_CAPACITY);
+    private final LongIntHashMap macSlots = new LongIntHashMap(INITIAL_CAPACITY);
+    private volatile long[] deviceIds = new long[INITIAL_CAPACITY];
+    private volatile String[] models = new String[INITIAL_CAPACITY];
+    private volatile long[] macs = new long[INITIAL_CAPACITY];
+    private volatile boolean[] unregistered = new boolean[INITIAL_CAPACITY];
+    private volatile int[] changedAt = new int[INITIAL_CAPACITY];
+    private volatile int size;
+    private volatile int version;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param streamingJdbcTemplate the JDBC template used to load all devices at startup and missing ones later
+     * @param negativeLookupCache the cache of devices known not to exist
+     */
+    @Autowired
+    public DeviceIndex(@Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate,
+                       NegativeLookupCache negativeLookupCache) {
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.negativeLookupCache = negativeLookupCache;
+    }
+
+    /**
+     * Loads every device from the database.
+     */
+    @PostConstruct
+    private void load() {
+        streamingJdbcTemplate.query(SELECT_SQL + " ORDER BY ID", registerRow());
+    }
+
+    /**
+     * Returns the slot of a device.
+     * @param deviceId the id of the device
+     * @return the slot of the device, or -1 if the device is unknown or was deleted
+     */
+    public int slotOf(long deviceId) {
+        int slot = slots.get(deviceId);
+        return slot >= 0 && !unregistered[slot] ? slot : -1;
+    }
+
+    /**
+     * Returns the slot of the device with a MAC address.
+     * @param mac the MAC address as the lower 48 bits of a long
+     * @return the slot of the device, or -1 if no registered device has the address
+     */
+    public int slotOfMac(long mac) {
+        int slot = macSlots.get(mac);
+        // The address may have been moved to another device or changed since it was indexed
+        return slot >= 0 && macs[slot] == mac ? slot : -1;
+    }
+
+    /**
+     * Returns the slot of a device, looking the device up in the database if the index does not know it.
+     * @param deviceId the id of the device
+     * @return the slot of the device, or -1 if the device does not exist
+     */
+    public int findSlot(long deviceId) {
+        int slot = slotOf(deviceId);
+        if (slot >= 0 || negativeLookupCache.isMissing(Entity.DEVICE, "ID", deviceId)) return slot;
+        long version = negativeLookupCache.version(Entity.DEVICE);
+        streamingJdbcTemplate.query(SELECT_SQL + " WHERE ID = ?", registerRow(), deviceId);
+        slot = slotOf(deviceId);
+        if (slot < 0) negativeLookupCache.remember(Entity.DEVICE, "ID", deviceId, version);
+        return slot;
+    }
+
+    private RowCallbackHandler registerRow() {
+        return rs -> register(rs.getLong(1), rs.getString(2), rs.getString(3));
+    }
+
+    /**
+     * Registers a device, or updates the model and MAC address of an already registered device.
+     * @param deviceId the id of the device
+     * @param model the model of the device
+     * @param mac the MAC address of the device, may be null
+     * @return the slot of the device
+     */
+    public synchronized int register(long deviceId, String model, String mac) {
+        long macBits = parseMac(mac);
+        int slot = slots.get(deviceId);
+        if (slot < 0) {
+            slot = size;
+            if (slot == deviceIds.length) {
+                int capacity = deviceIds.length * 2;
+                deviceIds = Arrays.copyOf(deviceIds, capacity);
+                models = Arrays.copyOf(models, capacity);
+                macs = Arrays.copyOf(macs, capacity);
+                unregistered = Arrays.copyOf(unregistered, capacity);
+                changedAt = Arrays.copyOf(changedAt, capacity);
+            }
+            deviceIds[slot] = deviceId;
+        }
+        models[slot] = model;
+        macs[slot] = macBits;
+        unregistered[slot] = false;
+        if (macBits >= 0) macSlots.put(macBits, slot);
+        if (slot == size) {
+            size = slot + 1;
+            slots.put(deviceId, slot);
+        }
+        // Written before the version, so a reader that sees the new version sees the changed slot as well
+        changedAt[slot] = version + 1;
+        version++;
+        return slot;
+    }
+
+    /**
+     * Unregisters a deleted device, so its readings are refused and its slot is skipped by the per-device
+     * state. Unknown devices are ignored.
+     * @param deviceId the id of the device
+     */
+    public synchronized void unregister(long deviceId) {
+        int slot = slots.get(deviceId);
+        if (slot < 0 || unregistered[slot]) return;
+        unregistered[slot] = true;
+        macs[slot] = -1;
+        changedAt[slot] = version + 1;
+        version++;
+    }
+
+    /**
+     * Returns whether the device in a slot is registered, that is, has not been deleted.
+     * @param slot the slot
+     * @return true if the device of the slot is registered
+     */
+    public boolean isRegistered(int slot) {
+        return !unregistered[slot];
+    }
+
+    /**
+     * Returns the version of the index at which the device in a slot was last registered, changed or
+     * unregistered, so the slots changed since an earlier version can be found without comparing them.
+     * @param slot the slot
+     * @return the version of the last change of the slot
+     */
+    public int changedAt(int slot) {
+        return changedAt[slot];
+    }
+
+    /**
+     * Returns the id of the device in a slot.
+     * @param slot the slot
+     * @return the id of the device
+     */
+    public long deviceIdAt(int slot) {
+        return deviceIds[slot];
+    }
+
+    /**
+     * Returns the model of the device in a slot.
+     * @param slot the slot
+     * @return the model of the device
+     */
+    public String modelAt(int slot) {
+        return models[slot];
+    }
+
+    /**
+     * Parses a MAC address written as six hexadecimal octets, separated by colons, dashes or nothing.
+     * @param mac the address
+     * @return the address as the lower 48 bits of a long, or -1 if it is null or malformed
+     */
+    static long parseMac(String mac) {
+        if (mac == null) return -1;
+        long bits = 0;
+        int digits = 0;
+        for (int i = 0; i < mac.length(); i++) {
+            char c = mac.charAt(i);
+            if (c == ':' || c == '-' || c == '.') continue;
+            int digit = Character.digit(c, 16);
+            if (digit < 0 || ++digits > 12) return -1;
+            bits = bits << 4 | digit;
+        }
+        return digits == 12 ? bits : -1;
+    }
+
+    /**
+     * Returns the number of slots in use. Valid slots are 0 to size - 1.
+     * @return the number of registered devices
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a number that changes whenever a device is registered or unregistered, or its model changes.
+     * @return the version of the index
+     */
+    public int version() {
+        return version;
+    }
+}
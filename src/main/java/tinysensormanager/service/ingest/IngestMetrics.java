@@ -0,0 +1,76 @@
+package tinysensormanager.service.ingest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the state of the ingestion path as Micrometer metrics, available under /actuator/metrics.
+ * All values are read from the ingestion components when the metrics are scraped.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class IngestMetrics implements MeterBinder {
+    private final ReadingIngestionPipeline pipeline;
+    private final IngestQuota ingestQuota;
+    private final ObjectProvider<BinaryTelemetryListener> telemetryListener;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param pipeline the ingestion pipeline
+     * @param ingestQuota the per-device rate limits
+     * @param telemetryListener the binary telemetry listener, if enabled
+     */
+    @Autowired
+    public IngestMetrics(ReadingIngestionPipeline pipeline, IngestQuota ingestQuota,
+                         ObjectProvider<BinaryTelemetryListener> telemetryListener) {
+        this.pipeline = pipeline;
+        this.ingestQuota = ingestQuota;
+        this.telemetryListener = telemetryListener;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tinysensor.ingest.queue.depth", pipeline, ReadingIngestionPipeline::depth)
+                .description("Readings and heartbeats waiting in the ingestion queue")
+                .register(registry);
+        Gauge.builder("tinysensor.ingest.queue.capacity", pipeline, ReadingIngestionPipeline::capacity)
+                .register(registry);
+        FunctionCounter.builder("tinysensor.ingest.processed", pipeline, ReadingIngestionPipeline::processed)
+                .register(registry);
+        FunctionCounter.builder("tinysensor.ingest.write.failures", pipeline, ReadingIngestionPipeline::failedWrites)
+                .register(registry);
+        FunctionCounter.builder("tinysensor.ingest.duplicates", pipeline, ReadingIngestionPipeline::duplicates)
+                .description("Retransmitted readings dropped")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.ingest.late", pipeline, ReadingIngestionPipeline::late)
+                .description("Readings that arrived after the reorder window closed over them")
+                .register(registry);
+        Gauge.builder("tinysensor.ingest.reorder.buffered", pipeline, ReadingIngestionPipeline::reordering)
+                .description("Readings held to be released in timestamp order")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.ingest.throttled", ingestQuota, IngestQuota::throttled)
+                .description("Readings and heartbeats refused because their device exceeded its quota")
+                .register(registry);
+        Gauge.builder("tinysensor.ingest.throttled.devices", ingestQuota, IngestQuota::throttledDevices)
+                .description("Devices throttled within the last minute")
+                .register(registry);
+        telemetryListener.ifAvailable(listener -> {
+            FunctionCounter.builder("tinysensor.telemetry.frames", listener, BinaryTelemetryListener::frames)
+                    .register(registry);
+            FunctionCounter.builder("tinysensor.telemetry.malformed", listener, BinaryTelemetryListener::malformed)
+                    .register(registry);
+            FunctionCounter.builder("tinysensor.telemetry.dropped", listener, BinaryTelemetryListener::dropped)
+                    .register(registry);
+            FunctionCounter.builder("tinysensor.telemetry.unknown", listener, BinaryTelemetryListener::unknown)
+                    .description("Telemetry readings of devices missing from the device index")
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.model.Device;
+import tinysensormanager.service.util.LoggerUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate at which each {@link Device} may submit readings and heartbeats.
+ *
+ * <p>Every device has a token bucket that refills at {@code rate} tokens per second and holds at most
+ * {@code burst} tokens. The buckets are implemented with the generic cell rate algorithm: a bucket is a
+ * single long, the theoretical arrival time of the next token, stored in an {@link AtomicLongArray} indexed
+ * by {@link DeviceIndex} slot and updated with compare-and-set, so checking a quota takes no lock and
+ * allocates nothing. A second array remembers when each device was last throttled, which lets the metrics
+ * report how many devices are currently being throttled.</p>
+ *
+ * <p>Every reading is charged, so a batch never costs less than sending its readings one by one. A batch
+ * larger than the burst could never fit in a bucket and is refused outright, callers should check
+ * {@link #burst()} first to tell the sender.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class IngestQuota {
+    private static final long THROTTLED_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DeviceIndex deviceIndex;
+    private final long origin = System.nanoTime();
+    private final long interval;
+    private final long tolerance;
+    private final int burst;
+    private final LongAdder throttled = new LongAdder();
+    private volatile AtomicLongArray arrivals = new AtomicLongArray(1024);
+    private volatile AtomicLongArray lastThrottled = new AtomicLongArray(1024);
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param deviceIndex the index used to name throttled devices in the log
+     * @param ratePerSecond the sustained number of readings per second allowed per device
+     * @param burst the number of readings a device may send at once after being idle
+     */
+    @Autowired
+    public IngestQuota(DeviceIndex deviceIndex,
+                       @Value("${tinysensor.ingest.quota.rate-per-second:100}") double ratePerSecond,
+                       @Value("${tinysensor.ingest.quota.burst:1000}") int burst) {
+        this.deviceIndex = deviceIndex;
+        if (ratePerSecond <= 0 || burst < 1) throw new IllegalArgumentException("Invalid ingest quota");
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.tolerance = interval * burst;
+        this.burst = burst;
+    }
+
+    /**
+     * Takes tokens from the bucket of a device.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param tokens the number of readings or heartbeats to admit
+     * @return 0 if the tokens were taken, otherwise the number of nanoseconds until they would be available,
+     * or {@link Long#MAX_VALUE} if they are more than the burst and never will be
+     */
+    public long tryAcquire(int slot, int tokens) {
+        AtomicLongArray buckets = bucketsFor(slot);
+        long now = now();
+        if (tokens > burst) {
+            markThrottled(slot, now, tokens);
+            return Long.MAX_VALUE;
+        }
+        long cost = interval * Math.max(tokens, 1);
+        while (true) {
+            long arrival = buckets.get(slot);
+            long next = Math.max(arrival, now) + cost;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                markThrottled(slot, now, tokens);
+                return wait;
+            }
+            if (buckets.compareAndSet(slot, arrival, next)) return 0;
+        }
+    }
+
+    /**
+     * Returns the largest number of readings a device may send at once.
+     * @return the burst
+     */
+    public int burst() {
+        return burst;
+    }
+
+    /**
+     * Returns the number of readings and heartbeats refused since startup.
+     * @return the number of throttled readings
+     */
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    /**
+     * Returns the number of devices throttled within the last minute.
+     * @return the number of throttled devices
+     */
+    public int throttledDevices() {
+        AtomicLongArray marks = lastThrottled;
+        long since = now() - THROTTLED_WINDOW_NANOS;
+        int devices = 0;
+        for (int i = 0; i < marks.length(); i++) {
+            long mark = marks.get(i);
+            if (mark != 0 && mark > since) devices++;
+        }
+        return devices;
+    }
+
+    private void markThrottled(int slot, long now, int tokens) {
+        throttled.add(tokens);
+        long previous = lastThrottled.getAndSet(slot, now);
+        if (previous == 0 || now - previous > THROTTLED_WINDOW_NANOS) {
+            LoggerUtil.getCurrentLogger().warning("Throttling readings of device " + deviceIndex.deviceIdAt(slot));
+        }
+    }
+
+    /**
+     * Returns the time on a clock that starts at 1, so 0 can mean "never".
+     */
+    private long now() {
+        return System.nanoTime() - origin + 1;
+    }
+
+    private AtomicLongArray bucketsFor(int slot) {
+        AtomicLongArray buckets = arrivals;
+        return slot < buckets.length() ? buckets : grow(slot);
+    }
+
+    /**
+     * Grows the arrays to hold the given slot. Updates racing with the copy may be lost,
+     * which at worst grants a device one extra burst.
+     */
+    private synchronized AtomicLongArray grow(int slot) {
+        if (slot < arrivals.length()) return arrivals;
+        int capacity = Math.max(arrivals.length() * 2, Integer.highestOneBit(slot) << 1);
+        // Publish the throttle marks first, a caller that sees the grown buckets must see grown marks too
+        lastThrottled = copy(lastThrottled, capacity);
+        arrivals = copy(arrivals, capacity);
+        return arrivals;
+    }
+
+    private static AtomicLongArray copy(AtomicLongArray source, int capacity) {
+        AtomicLongArray copy = new AtomicLongArray(capacity);
+        for (int i = 0; i < source.length(); i++) copy.set(i, source.get(i));
+        return copy;
+    }
+}
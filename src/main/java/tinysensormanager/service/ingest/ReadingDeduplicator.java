@@ -0,0 +1,83 @@
+package tinysensormanager.service.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Recognises readings a device sent more than once, as sensors on flaky links retransmit readings whose
+ * acknowledgement was lost. A reading is a duplicate of an earlier one of the same device with the same
+ * timestamp.
+ *
+ * <p>Per slot, the deduplicator keeps the highest timestamp seen, the high-water mark, and the last few
+ * timestamps accepted in a small ring. A reading above the high-water mark is new, one at the mark is a
+ * duplicate, and one below it is a duplicate if its timestamp is in the ring. Readings older than all
+ * timestamps in the ring cannot be told apart and are accepted. All state is kept in flat primitive arrays,
+ * which grow with {@link #ensureCapacity(int)}; the deduplicator is not thread safe.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class ReadingDeduplicator {
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final int recent;
+    private long[] highWaterMarks = new long[0];
+    private long[] recentTimestamps = new long[0];
+    private int[] positions = new int[0];
+    private int capacity;
+
+    /**
+     * Creates the deduplicator.
+     * @param capacity the initial number of slots
+     * @param recent the number of timestamps below the high-water mark remembered per slot
+     */
+    public ReadingDeduplicator(int capacity, int recent) {
+        if (recent < 0) throw new IllegalArgumentException("recent must not be negative");
+        this.recent = recent;
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Grows the deduplicator to hold at least the given number of slots.
+     * @param slots the number of slots
+     */
+    public void ensureCapacity(int slots) {
+        if (slots <= capacity) return;
+        int grown = Math.max(slots, capacity + (capacity >> 1));
+        highWaterMarks = Arrays.copyOf(highWaterMarks, grown);
+        Arrays.fill(highWaterMarks, capacity, grown, NONE);
+        recentTimestamps = Arrays.copyOf(recentTimestamps, grown * recent);
+        Arrays.fill(recentTimestamps, capacity * recent, grown * recent, NONE);
+        positions = Arrays.copyOf(positions, grown);
+        capacity = grown;
+    }
+
+    /**
+     * Returns whether a reading is a duplicate, and remembers its timestamp if it is not.
+     * @param slot the slot of the device
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @return true if the device sent a reading with the same timestamp before
+     */
+    public boolean isDuplicate(int slot, long timestamp) {
+        if (slot >= capacity) ensureCapacity(slot + 1);
+        long highWaterMark = highWaterMarks[slot];
+        if (timestamp > highWaterMark) {
+            highWaterMarks[slot] = timestamp;
+            remember(slot, timestamp);
+            return false;
+        }
+        if (timestamp == highWaterMark) return true;
+        int base = slot * recent;
+        for (int i = base; i < base + recent; i++) {
+            if (recentTimestamps[i] == timestamp) return true;
+        }
+        remember(slot, timestamp);
+        return false;
+    }
+
+    private void remember(int slot, long timestamp) {
+        if (recent == 0) return;
+        int position = positions[slot];
+        recentTimestamps[slot * recent + position] = timestamp;
+        positions[slot] = position + 1 == recent ? 0 : position + 1;
+    }
+}
@@ -0,0 +1,360 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+/**
+ * The path every reading and heartbeat takes from the network to storage.
+ *
+ * <p>Producers (REST controllers and other listeners) enqueue readings into a bounded ring of primitive
+ * arrays and return immediately. A single pipeline thread drains the ring in batches, passes every reading
+ * to the registered {@link ReadingListener}s and hands it to the {@link ReadingWriter}, which stores it in
+ * JDBC batches. Because only the pipeline thread touches listener state, listeners can keep per-device
+ * state in plain arrays. When the ring is full, readings are refused instead of queued, which gives callers
+ * a cheap backpressure signal.</p>
+ *
+ * <p>Readings a device retransmitted are dropped by a {@link ReadingDeduplicator}. The others pass through a
+ * {@link ReorderBuffer}, which holds them for the reorder window, so listeners and storage see the readings of
+ * a device in timestamp order even when they arrive out of order. Readings that arrive after the window closed
+ * over them are late: they are stored, but not passed to the listeners, whose per-device state has already
+ * moved past them. Heartbeats carry no value and are passed on without delay.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class ReadingIngestionPipeline {
+
+    /**
+     * The outcome of offering a reading to the pipeline.
+     */
+    public enum Admission {
+        /**
+         * The reading was queued.
+         */
+        ACCEPTED,
+        /**
+         * The device is not registered, the reading was dropped.
+         */
+        UNKNOWN_DEVICE,
+        /**
+         * The queue is full, the reading was dropped.
+         */
+        QUEUE_FULL
+    }
+
+    private static final byte READING = 0;
+    private static final byte HEARTBEAT = 1;
+    private static final int DRAIN_SIZE = 1024;
+
+    private final DeviceIndex deviceIndex;
+    private final ReadingWriter readingWriter;
+    private final ReadingListener[] listeners;
+    private final long flushIntervalMillis;
+    private final int admissionLimit;
+    private final ReadingDeduplicator deduplicator;
+    private final ReorderBuffer reorderBuffer;
+    private final ReorderBuffer.Sink emitter = this::emit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final int capacity;
+    private final int mask;
+    private final byte[] kinds;
+    private final int[] slots;
+    private final long[] deviceIds;
+    private final long[] timestamps;
+    private final double[] values;
+    private long head;
+    private long tail;
+    private volatile int depth;
+
+    private final byte[] batchKinds = new byte[DRAIN_SIZE];
+    private final int[] batchSlots = new int[DRAIN_SIZE];
+    private final long[] batchDeviceIds = new long[DRAIN_SIZE];
+    private final long[] batchTimestamps = new long[DRAIN_SIZE];
+    private final double[] batchValues = new double[DRAIN_SIZE];
+
+    private volatile long processed;
+    private volatile long failedWrites;
+    private volatile long duplicates;
+    private volatile long late;
+    private volatile int reordering;
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param deviceIndex the index that resolves device ids to slots
+     * @param readingWriter the writer that stores readings
+     * @param listeners the listeners that observe every reading
+     * @param queueCapacity the number of readings the queue can hold, rounded up to a power of two
+     * @param flushIntervalMillis the longest time a reading stays buffered before it is written
+     * @param admissionThreshold the fraction of the queue above which {@link #isSaturated()} reports true
+     * @param dedupRecent the number of recent timestamps per device checked for duplicates below the latest one
+     * @param reorderWindowMillis the time readings are held to be released in timestamp order, 0 to disable
+     * @param reorderCapacity the number of readings the reorder buffer can hold
+     */
+    @Autowired
+    public ReadingIngestionPipeline(DeviceIndex deviceIndex, ReadingWriter readingWriter,
+                                    List<ReadingListener> listeners,
+                                    @Value("${tinysensor.ingest.queue-capacity:262144}") int queueCapacity,
+                                    @Value("${tinysensor.ingest.flush-interval-ms:200}") long flushIntervalMillis,
+                                    @Value("${tinysensor.ingest.admission-threshold:0.75}") double admissionThreshold,
+                                    @Value("${tinysensor.ingest.dedup-recent:8}") int dedupRecent,
+                                    @Value("${tinysensor.ingest.reorder-window-ms:1000}") long reorderWindowMillis,
+                                    @Value("${tinysensor.ingest.reorder-capacity:65536}") int reorderCapacity) {
+        this.deviceIndex = deviceIndex;
+        this.readingWriter = readingWriter;
+        this.listeners = listeners.toArray(new ReadingListener[0]);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.capacity = Integer.highestOneBit(Math.max(queueCapacity - 1, 1)) << 1;
+        this.mask = capacity - 1;
+        this.admissionLimit = (int) (capacity * admissionThreshold);
+        this.kinds = new byte[capacity];
+        this.slots = new int[capacity];
+        this.deviceIds = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.deduplicator = new ReadingDeduplicator(deviceIndex.size(), dedupRecent);
+        this.reorderBuffer = new ReorderBuffer(reorderCapacity, reorderWindowMillis);
+    }
+
+    /**
+     * Starts the pipeline thread.
+     */
+    @PostConstruct
+    private void start() {
+        running = true;
+        worker = new Thread(this::run, "reading-ingest");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the pipeline thread after the queued readings were processed and written.
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    @PreDestroy
+    private void stop() throws InterruptedException {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Offers a reading to the pipeline.
+     * @param deviceId the id of the device
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @param value the value of the reading
+     * @return whether the reading was accepted
+     */
+    public Admission offer(long deviceId, long timestamp, double value) {
+        return enqueue(READING, deviceId, timestamp, value);
+    }
+
+    /**
+     * Offers a heartbeat, a sign of life without a value, to the pipeline.
+     * @param deviceId the id of the device
+     * @param timestamp the time of the heartbeat in milliseconds since the epoch
+     * @return whether the heartbeat was accepted
+     */
+    public Admission offerHeartbeat(long deviceId, long timestamp) {
+        return enqueue(HEARTBEAT, deviceId, timestamp, 0);
+    }
+
+    /**
+     * Returns the number of queued readings and heartbeats.
+     * @return the depth of the queue
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns whether the queue is filled beyond the admission threshold. Callers should refuse new
+     * requests while it is, before doing any work for them, so the queue can drain.
+     * @return true if no new requests should be admitted
+     */
+    public boolean isSaturated() {
+        return depth >= admissionLimit;
+    }
+
+    /**
+     * Returns the number of readings and heartbeats the queue can hold.
+     * @return the capacity of the queue
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of readings and heartbeats processed since startup.
+     * @return the number of processed entries
+     */
+    public long processed() {
+        return processed;
+    }
+
+    /**
+     * Returns the number of batch writes that failed since startup.
+     * @return the number of failed writes
+     */
+    public long failedWrites() {
+        return failedWrites;
+    }
+
+    /**
+     * Returns the number of retransmitted readings dropped since startup.
+     * @return the number of duplicates
+     */
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns the number of readings that arrived after the reorder window closed over them since startup.
+     * @return the number of late readings
+     */
+    public long late() {
+        return late;
+    }
+
+    /**
+     * Returns the number of readings held in the reorder buffer.
+     * @return the number of readings waiting to be released in timestamp order
+     */
+    public int reordering() {
+        return reordering;
+    }
+
+    private Admission enqueue(byte kind, long deviceId, long timestamp, double value) {
+        int slot = deviceIndex.slotOf(deviceId);
+        if (slot < 0) return Admission.UNKNOWN_DEVICE;
+        lock.lock();
+        try {
+            if (tail - head == capacity) return Admission.QUEUE_FULL;
+            int i = (int) (tail & mask);
+            kinds[i] = kind;
+            slots[i] = slot;
+            deviceIds[i] = deviceId;
+            timestamps[i] = timestamp;
+            values[i] = value;
+            tail++;
+            depth = (int) (tail - head);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return Admission.ACCEPTED;
+    }
+
+    private void run() {
+        long lastFlush = System.currentTimeMillis();
+        while (running || depth > 0) {
+            int n;
+            try {
+                n = drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < n; i++) {
+                dispatch(batchKinds[i], batchSlots[i], batchDeviceIds[i], batchTimestamps[i], batchValues[i], now);
+            }
+            reorderBuffer.release(now, emitter);
+            reordering = reorderBuffer.size();
+            processed += n;
+            if (now - lastFlush >= flushIntervalMillis) {
+                flush();
+                lastFlush = now;
+            }
+            for (ReadingListener listener : listeners) {
+                try {
+                    listener.onTick(now);
+                } catch (RuntimeException e) {
+                    LoggerUtil.getCurrentLogger().log(Level.WARNING, "Reading listener failed", e);
+                }
+            }
+        }
+        reorderBuffer.releaseAll(emitter);
+        reordering = 0;
+        flush();
+    }
+
+    private void dispatch(byte kind, int slot, long deviceId, long timestamp, double value, long now) {
+        if (kind == HEARTBEAT) {
+            try {
+                for (ReadingListener listener : listeners) listener.onHeartbeat(slot, deviceId, timestamp);
+            } catch (RuntimeException e) {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "Reading listener failed", e);
+            }
+            return;
+        }
+        if (deduplicator.isDuplicate(slot, timestamp)) {
+            duplicates++;
+            return;
+        }
+        reorderBuffer.add(slot, deviceId, timestamp, value, now, emitter);
+    }
+
+    private void emit(int slot, long deviceId, long timestamp, double value, boolean isLate) {
+        if (isLate) {
+            late++;
+        } else {
+            try {
+                for (ReadingListener listener : listeners) listener.onReading(slot, deviceId, timestamp, value);
+            } catch (RuntimeException e) {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "Reading listener failed", e);
+            }
+        }
+        if (readingWriter.isFull()) flush();
+        readingWriter.add(deviceId, timestamp, value);
+    }
+
+    private void flush() {
+        try {
+            readingWriter.flush();
+        } catch (RuntimeException e) {
+            failedWrites++;
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Readings could not be written", e);
+        }
+    }
+
+    private int drain() throws InterruptedException {
+        lock.lock();
+        try {
+            if (tail == head && running) notEmpty.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            int n = (int) Math.min(tail - head, DRAIN_SIZE);
+            for (int j = 0; j < n; j++) {
+                int i = (int) ((head + j) & mask);
+                batchKinds[j] = kinds[i];
+                batchSlots[j] = slots[i];
+                batchDeviceIds[j] = deviceIds[i];
+                batchTimestamps[j] = timestamps[i];
+                batchValues[j] = values[i];
+            }
+            head += n;
+            depth = (int) (tail - head);
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
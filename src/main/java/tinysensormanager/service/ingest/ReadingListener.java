@@ -0,0 +1,40 @@
+package tinysensormanager.service.ingest;
+
+/**
+ * A consumer of the readings that flow through the {@link ReadingIngestionPipeline}.
+ *
+ * <p>All methods are called from the single pipeline thread, so implementations may keep per-device
+ * state in plain arrays indexed by slot without synchronisation. They must not block and should not
+ * allocate per reading, since they run at ingest rate.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public interface ReadingListener {
+
+    /**
+     * Called for every reading, in the order the pipeline processes them.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param deviceId the id of the device
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @param value the value of the reading
+     */
+    void onReading(int slot, long deviceId, long timestamp, double value);
+
+    /**
+     * Called for every heartbeat, i.e. a sign of life without a value.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param deviceId the id of the device
+     * @param timestamp the time of the heartbeat in milliseconds since the epoch
+     */
+    default void onHeartbeat(int slot, long deviceId, long timestamp) {
+    }
+
+    /**
+     * Called at least every flush interval of the pipeline, also when no readings arrive,
+     * so listeners can run time based checks on the pipeline thread.
+     * @param now the current time in milliseconds since the epoch
+     */
+    default void onTick(long now) {
+    }
+}
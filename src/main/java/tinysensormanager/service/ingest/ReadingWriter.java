@@ -0,0 +1,97 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tinysensormanager.config.RoutedTo;
+import tinysensormanager.config.Workload;
+import tinysensormanager.model.Reading;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Buffers {@link Reading}s in primitive arrays and writes them to the READINGS table in JDBC batches.
+ * Used only from the {@link ReadingIngestionPipeline} thread.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class ReadingWriter {
+    private static final String INSERT_SQL = "INSERT INTO READINGS (DEVICE_ID, TS, READING_VALUE) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long[] deviceIds;
+    private final long[] timestamps;
+    private final double[] values;
+    private int pending;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used for the batch inserts
+     * @param batchSize the maximum number of readings written in one batch
+     */
+    @Autowired
+    public ReadingWriter(JdbcTemplate jdbcTemplate, @Value("${tinysensor.ingest.batch-size:2000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceIds = new long[batchSize];
+        this.timestamps = new long[batchSize];
+        this.values = new double[batchSize];
+    }
+
+    /**
+     * Adds a reading to the current batch. The batch must not be full.
+     * @param deviceId the id of the device
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @param value the value of the reading
+     */
+    public void add(long deviceId, long timestamp, double value) {
+        deviceIds[pending] = deviceId;
+        timestamps[pending] = timestamp;
+        values[pending] = value;
+        pending++;
+    }
+
+    /**
+     * Returns whether the batch is full and must be flushed before the next {@link #add(long, long, double)}.
+     * @return true if the batch is full
+     */
+    public boolean isFull() {
+        return pending == deviceIds.length;
+    }
+
+    /**
+     * Returns the number of buffered readings.
+     * @return the number of readings not yet written
+     */
+    public int pending() {
+        return pending;
+    }
+
+    /**
+     * Writes the buffered readings. The buffer is emptied even if the write fails,
+     * so a failing database cannot stall the pipeline.
+     */
+    @RoutedTo(Workload.INGEST)
+    public void flush() {
+        if (pending == 0) return;
+        int count = pending;
+        pending = 0;
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, deviceIds[i]);
+                ps.setLong(2, timestamps[i]);
+                ps.setDouble(3, values[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return count;
+            }
+        });
+    }
+}
@@ -0,0 +1,243 @@
+package tinysensormanager.service.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Keeps the most recent readings of every device in a fixed size ring per {@link DeviceIndex} slot, outside
+ * of the Java heap, so "last N readings" queries never reach the database and millions of devices cost the
+ * garbage collector nothing.
+ *
+ * <p>Every slot is a region of {@code 24 + 16 * capacity} bytes: a version, the number of readings ever
+ * written, the id of the device and the ring of (timestamp, value) pairs. The regions live in chunks of
+ * direct memory, or of a memory-mapped file when {@code tinysensor.recent.file} is set, so the rings
+ * survive a restart. Only the pipeline thread writes. Readers take no lock: they use the version as a
+ * seqlock, which the writer makes odd while it updates a slot, and retry when it changed under them.</p>
+ *
+ * <p>A mapped file from an earlier run is reused when its ring capacity matches. Slots are assigned anew at
+ * every startup, so the rings are moved to the current slot of their device; rings of deleted devices are
+ * dropped. With several nodes, every node only holds the readings it ingested itself.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class RecentReadingsStore implements ReadingListener {
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final long FILE_MAGIC = 0x5453524543454E54L;
+    private static final int FILE_HEADER = 64;
+    private static final int SLOT_HEADER = 24;
+    private static final int VERSION = 0;
+    private static final int WRITTEN = 8;
+    private static final int DEVICE = 16;
+    private static final int CHUNK_BYTES = 64 << 20;
+
+    private final DeviceIndex deviceIndex;
+    private final int capacity;
+    private final int slotBytes;
+    private final int slotsPerChunk;
+    private final Path file;
+    private FileChannel channel;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param deviceIndex the index that assigns the slots
+     * @param capacity the number of readings kept per device
+     * @param file the file the rings are mapped from, empty to keep them in direct memory only
+     */
+    @Autowired
+    public RecentReadingsStore(DeviceIndex deviceIndex,
+                               @Value("${tinysensor.recent.capacity:128}") int capacity,
+                               @Value("${tinysensor.recent.file:}") String file) {
+        if (capacity < 1) throw new IllegalArgumentException("tinysensor.recent.capacity must be at least 1");
+        this.deviceIndex = deviceIndex;
+        this.capacity = capacity;
+        this.slotBytes = SLOT_HEADER + capacity * 16;
+        this.slotsPerChunk = Math.max(1, CHUNK_BYTES / slotBytes);
+        this.file = file.isBlank() ? null : Paths.get(file);
+    }
+
+    /**
+     * Maps the file, moving the rings of an earlier run to the current slots of their devices.
+     * @throws IOException if the file cannot be mapped
+     */
+    @PostConstruct
+    private void start() throws IOException {
+        if (file == null) return;
+        Path previous = file.resolveSibling(file.getFileName() + ".old");
+        if (Files.exists(file)) Files.move(file, previous, StandardCopyOption.REPLACE_EXISTING);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        header.putLong(FILE_MAGIC).putLong(capacity).flip();
+        channel.write(header, 0);
+        if (Files.exists(previous)) {
+            restore(previous);
+            Files.delete(previous);
+        }
+    }
+
+    /**
+     * Flushes the mapped file to disk.
+     * @throws IOException if the file cannot be closed
+     */
+    @PreDestroy
+    private void stop() throws IOException {
+        if (channel == null) return;
+        for (ByteBuffer chunk : chunks) ((MappedByteBuffer) chunk).force();
+        channel.close();
+    }
+
+    @Override
+    public void onReading(int slot, long deviceId, long timestamp, double value) {
+        ByteBuffer chunk = chunkFor(slot);
+        int base = (slot % slotsPerChunk) * slotBytes;
+        long version = (long) LONGS.get(chunk, base + VERSION);
+        long written = (long) LONGS.get(chunk, base + WRITTEN);
+        LONGS.setOpaque(chunk, base + VERSION, version + 1);
+        VarHandle.storeStoreFence();
+        int entry = base + SLOT_HEADER + (int) (written % capacity) * 16;
+        chunk.putLong(entry, timestamp);
+        chunk.putDouble(entry + 8, value);
+        chunk.putLong(base + WRITTEN, written + 1);
+        chunk.putLong(base + DEVICE, deviceId);
+        LONGS.setRelease(chunk, base + VERSION, version + 2);
+    }
+
+    /**
+     * Returns the number of readings kept per device.
+     * @return the capacity of a ring
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Copies the latest readings of a device into the given arrays, ordered by timestamp.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param deviceId the id of the device
+     * @param n the maximum number of readings, at most {@link #getCapacity()}
+     * @param timestamps receives the timestamps, at least n long
+     * @param values receives the values, at least n long
+     * @return the number of readings copied
+     */
+    public int latest(int slot, long deviceId, int n, long[] timestamps, double[] values) {
+        ByteBuffer[] current = chunks;
+        if (slot / slotsPerChunk >= current.length) return 0;
+        ByteBuffer chunk = current[slot / slotsPerChunk];
+        int base = (slot % slotsPerChunk) * slotBytes;
+        int count;
+        while (true) {
+            long version = (long) LONGS.getAcquire(chunk, base + VERSION);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long written = chunk.getLong(base + WRITTEN);
+            long device = chunk.getLong(base + DEVICE);
+            count = (int) Math.min(Math.min(n, written), capacity);
+            for (int i = 0; i < count; i++) {
+                int entry = base + SLOT_HEADER + (int) ((written - count + i) % capacity) * 16;
+                timestamps[i] = chunk.getLong(entry);
+                values[i] = chunk.getDouble(entry + 8);
+            }
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getAcquire(chunk, base + VERSION) != version) continue;
+            if (written > 0 && device != deviceId) return 0;
+            break;
+        }
+        sortByTimestamp(timestamps, values, count);
+        return count;
+    }
+
+    private ByteBuffer chunkFor(int slot) {
+        int index = slot / slotsPerChunk;
+        ByteBuffer[] current = chunks;
+        if (index < current.length) return current[index];
+        ByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+        for (int i = current.length; i < grown.length; i++) grown[i] = allocate(i);
+        chunks = grown;
+        return grown[index];
+    }
+
+    private ByteBuffer allocate(int index) {
+        int size = slotsPerChunk * slotBytes;
+        if (channel == null) return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER + (long) index * size, size)
+                    .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void restore(Path previous) throws IOException {
+        try (FileChannel old = FileChannel.open(previous, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            old.read(header, 0);
+            header.flip();
+            if (header.remaining() < 16 || header.getLong() != FILE_MAGIC || header.getLong() != capacity) {
+                LoggerUtil.getCurrentLogger().warning("Discarding recent readings of " + previous
+                        + ", written with another capacity");
+                return;
+            }
+            ByteBuffer region = ByteBuffer.allocate(slotBytes).order(ByteOrder.nativeOrder());
+            int restored = 0;
+            for (long position = FILE_HEADER; position + slotBytes <= old.size(); position += slotBytes) {
+                region.clear();
+                while (region.hasRemaining()) {
+                    if (old.read(region, position + region.position()) < 0) break;
+                }
+                long deviceId = region.getLong(DEVICE);
+                int slot = region.getLong(WRITTEN) > 0 ? deviceIndex.slotOf(deviceId) : -1;
+                if (slot < 0) continue;
+                ByteBuffer chunk = chunkFor(slot);
+                int base = (slot % slotsPerChunk) * slotBytes;
+                region.putLong(VERSION, 0).clear();
+                chunk.duplicate().position(base).put(region);
+                restored++;
+            }
+            LoggerUtil.getCurrentLogger().info("Restored the recent readings of " + restored + " devices");
+        } catch (IOException | UncheckedIOException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Recent readings could not be restored", e);
+        }
+    }
+
+    private static void sortByTimestamp(long[] timestamps, double[] values, int count) {
+        // Readings mostly arrive in order, so insertion sort is linear in practice
+        for (int i = 1; i < count; i++) {
+            long timestamp = timestamps[i];
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && timestamps[j] > timestamp) {
+                timestamps[j + 1] = timestamps[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            timestamps[j + 1] = timestamp;
+            values[j + 1] = value;
+        }
+    }
+}
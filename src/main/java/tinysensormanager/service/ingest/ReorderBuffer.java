@@ -0,0 +1,179 @@
+package tinysensormanager.service.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Holds readings for a short window so that readings arriving out of order are released in timestamp order.
+ *
+ * <p>Every reading is buffered until the window has passed since its arrival. When a reading is due, it is
+ * released together with all buffered readings that have a lower timestamp, in timestamp order, so no reading
+ * waits longer than the window and readings arriving within the window of each other come out ordered. A
+ * reading whose device already had a reading with a higher timestamp released is late: it arrived after the
+ * window had closed over it. Late readings are still released, flagged as such, for the consumer to decide.</p>
+ *
+ * <p>The buffer is bounded: when it is full, the oldest arrival is released early. Readings are kept in rings
+ * of primitive arrays indexed by arrival, ordered by a binary min-heap of their positions, so buffering
+ * allocates nothing. The buffer is not thread safe.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class ReorderBuffer {
+
+    /**
+     * The consumer of the released readings.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Called for every released reading.
+         * @param slot the {@link DeviceIndex} slot of the device
+         * @param deviceId the id of the device
+         * @param timestamp the time of the reading in milliseconds since the epoch
+         * @param value the value of the reading
+         * @param late whether a later reading of the device was released before this one
+         */
+        void accept(int slot, long deviceId, long timestamp, double value, boolean late);
+    }
+
+    private final long windowMillis;
+    private final int capacity;
+    private final int mask;
+    private final int[] slots;
+    private final long[] deviceIds;
+    private final long[] timestamps;
+    private final double[] values;
+    private final long[] deadlines;
+    private final long[] sequences;
+    private final boolean[] released;
+    private final int[] heap;
+    private int heapSize;
+    private long tail;
+    private long expired;
+    private long[] releasedUpTo = new long[0];
+
+    /**
+     * Creates the buffer.
+     * @param capacity the number of readings the buffer can hold, rounded up to a power of two
+     * @param windowMillis the time a reading is held after its arrival, 0 to release every reading at once
+     */
+    public ReorderBuffer(int capacity, long windowMillis) {
+        this.windowMillis = Math.max(windowMillis, 0);
+        this.capacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new int[this.capacity];
+        this.deviceIds = new long[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.values = new double[this.capacity];
+        this.deadlines = new long[this.capacity];
+        this.sequences = new long[this.capacity];
+        this.released = new boolean[this.capacity];
+        this.heap = new int[this.capacity];
+    }
+
+    /**
+     * Buffers a reading, releasing the oldest arrival first if the buffer is full.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param deviceId the id of the device
+     * @param timestamp the time of the reading in milliseconds since the epoch
+     * @param value the value of the reading
+     * @param now the current time in milliseconds since the epoch
+     * @param sink the consumer of the readings released early
+     */
+    public void add(int slot, long deviceId, long timestamp, double value, long now, Sink sink) {
+        if (tail - expired == capacity) expireOldest(sink);
+        int i = (int) (tail & mask);
+        slots[i] = slot;
+        deviceIds[i] = deviceId;
+        timestamps[i] = timestamp;
+        values[i] = value;
+        deadlines[i] = now + windowMillis;
+        sequences[i] = tail;
+        released[i] = false;
+        tail++;
+        push(i);
+    }
+
+    /**
+     * Releases the readings that are due, and the buffered readings with lower timestamps.
+     * @param now the current time in milliseconds since the epoch
+     * @param sink the consumer of the released readings
+     */
+    public void release(long now, Sink sink) {
+        while (expired < tail && deadlines[(int) (expired & mask)] <= now) expireOldest(sink);
+    }
+
+    /**
+     * Releases all buffered readings in timestamp order.
+     * @param sink the consumer of the released readings
+     */
+    public void releaseAll(Sink sink) {
+        while (heapSize > 0) pop(sink);
+        expired = tail;
+    }
+
+    /**
+     * Returns the number of buffered readings.
+     * @return the number of readings not yet released
+     */
+    public int size() {
+        return heapSize;
+    }
+
+    private void expireOldest(Sink sink) {
+        int oldest = (int) (expired & mask);
+        while (!released[oldest]) pop(sink);
+        expired++;
+    }
+
+    private void pop(Sink sink) {
+        int i = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            siftDown(0);
+        }
+        released[i] = true;
+        int slot = slots[i];
+        if (slot >= releasedUpTo.length) {
+            int grown = Math.max(slot + 1, releasedUpTo.length + (releasedUpTo.length >> 1));
+            int previous = releasedUpTo.length;
+            releasedUpTo = Arrays.copyOf(releasedUpTo, grown);
+            Arrays.fill(releasedUpTo, previous, grown, Long.MIN_VALUE);
+        }
+        boolean late = timestamps[i] < releasedUpTo[slot];
+        if (!late) releasedUpTo[slot] = timestamps[i];
+        sink.accept(slot, deviceIds[i], timestamps[i], values[i], late);
+    }
+
+    private void push(int i) {
+        int child = heapSize++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!before(i, heap[parent])) break;
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = i;
+    }
+
+    private void siftDown(int position) {
+        int i = heap[position];
+        int half = heapSize >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) child++;
+            if (!before(heap[child], i)) break;
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = i;
+    }
+
+    /**
+     * Orders readings by timestamp, and readings with equal timestamps by arrival.
+     */
+    private boolean before(int a, int b) {
+        return timestamps[a] < timestamps[b] || timestamps[a] == timestamps[b] && sequences[a] < sequences[b];
+    }
+}
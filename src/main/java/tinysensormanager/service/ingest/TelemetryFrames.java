@@ -0,0 +1,129 @@
+package tinysensormanager.service.ingest;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the compact binary frames accepted by the {@link BinaryTelemetryListener}.
+ *
+ * <p>All fields are big-endian. A frame is a 16 byte header followed by {@code count} readings of 16 bytes:</p>
+ * <pre>
+ *  offset  size  field
+ *       0     2  magic, 0x5453 ("TS")
+ *       2     1  version, 1
+ *       3     1  flags, bit 0 set when the device field holds a MAC address instead of a device id
+ *       4     2  count, the number of readings, 1 to {@value #MAX_READINGS}
+ *       6     2  reserved, 0
+ *       8     8  device id, or MAC address in the lower 48 bits
+ *  16 + 16i   8  timestamp of reading i in milliseconds since the epoch
+ *  24 + 16i   8  value of reading i as an IEEE 754 double
+ * </pre>
+ * <p>A UDP datagram or a TCP stream carries any number of frames back to back. Frames are decoded with
+ * absolute reads straight from the receive buffer, so decoding creates no objects.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class TelemetryFrames {
+    public static final short MAGIC = 0x5453;
+    public static final byte VERSION = 1;
+    public static final byte FLAG_MAC = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int READING_SIZE = 16;
+    public static final int MAX_READINGS = 4000;
+    public static final int MAX_FRAME_SIZE = HEADER_SIZE + MAX_READINGS * READING_SIZE;
+
+    /**
+     * Returned by {@link #decode(ByteBuffer, Handler)} when the input is not a valid frame.
+     */
+    public static final int MALFORMED = -1;
+
+    /**
+     * Receives the content of decoded frames.
+     */
+    public interface Handler {
+
+        /**
+         * Resolves the device field of a frame.
+         * @param device the device id, or the MAC address when mac is true
+         * @param mac whether the field holds a MAC address
+         * @param count the number of readings in the frame
+         * @return the device id, or a negative number to skip the readings of the frame
+         */
+        long resolve(long device, boolean mac, int count);
+
+        /**
+         * Receives one reading of a frame whose device was resolved.
+         * @param deviceId the id of the device
+         * @param timestamp the time of the reading in milliseconds since the epoch
+         * @param value the value of the reading
+         */
+        void onReading(long deviceId, long timestamp, double value);
+    }
+
+    private TelemetryFrames() {
+    }
+
+    /**
+     * Decodes all complete frames between the position and the limit of a buffer and advances the position
+     * past them. An incomplete frame at the end is left in the buffer for the next call.
+     * @param buffer the buffer holding the frames
+     * @param handler the handler that receives the readings
+     * @return the number of decoded frames, or {@link #MALFORMED} if an invalid header was found,
+     * in which case the position is left at that header
+     */
+    public static int decode(ByteBuffer buffer, Handler handler) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int frames = 0;
+        while (limit - position >= HEADER_SIZE) {
+            if (buffer.getShort(position) != MAGIC || buffer.get(position + 2) != VERSION) {
+                buffer.position(position);
+                return MALFORMED;
+            }
+            int count = Short.toUnsignedInt(buffer.getShort(position + 4));
+            if (count == 0 || count > MAX_READINGS) {
+                buffer.position(position);
+                return MALFORMED;
+            }
+            int size = HEADER_SIZE + count * READING_SIZE;
+            if (limit - position < size) break;
+
+            boolean mac = (buffer.get(position + 3) & FLAG_MAC) != 0;
+            long deviceId = handler.resolve(buffer.getLong(position + 8), mac, count);
+            if (deviceId >= 0) {
+                for (int i = position + HEADER_SIZE; i < position + size; i += READING_SIZE) {
+                    handler.onReading(deviceId, buffer.getLong(i), buffer.getDouble(i + 8));
+                }
+            }
+            position += size;
+            frames++;
+        }
+        buffer.position(position);
+        return frames;
+    }
+
+    /**
+     * Writes a frame at the position of a buffer and advances the position past it.
+     * @param buffer the buffer to write to
+     * @param device the device id, or the MAC address when mac is true
+     * @param mac whether device holds a MAC address
+     * @param timestamps the timestamps of the readings
+     * @param values the values of the readings
+     * @param count the number of readings to write, 1 to {@value #MAX_READINGS}
+     */
+    public static void encode(ByteBuffer buffer, long device, boolean mac, long[] timestamps, double[] values,
+                              int count) {
+        if (count < 1 || count > MAX_READINGS) {
+            throw new IllegalArgumentException("A frame holds 1 to " + MAX_READINGS + " readings");
+        }
+        buffer.putShort(MAGIC)
+                .put(VERSION)
+                .put(mac ? FLAG_MAC : 0)
+                .putShort((short) count)
+                .putShort((short) 0)
+                .putLong(device);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(timestamps[i]).putDouble(values[i]);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package tinysensormanager.service.outbox;
+
+/**
+ * An application event announcing that a device, user, database user or alert rule was created, updated or
+ * deleted on any node, or that an access token was revoked. Events are published by the {@link OutboxRelay} in the
+ * order of their outbox sequence numbers.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class EntityChangedEvent {
+
+    /**
+     * The kind of entity that changed.
+     */
+    public enum Entity {
+        DEVICE, USER, DBUSER,
+        /**
+         * A revoked access token, deleted with its token id as entity id and its expiry in seconds
+         * since the epoch as unique key.
+         */
+        TOKEN,
+        /**
+         * An alert rule, announced without a unique key.
+         */
+        ALERT_RULE
+    }
+
+    /**
+     * The kind of change.
+     */
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Entity entity;
+    private final long entityId;
+    private final ChangeType changeType;
+    private final String uniqueKey;
+    private final boolean local;
+
+    /**
+     * Creates an event.
+     * @param sequence the sequence number of the event in the outbox
+     * @param entity the kind of entity that changed
+     * @param entityId the id of the entity
+     * @param changeType the kind of change
+     * @param uniqueKey the value of the entity's unique column after the change, may be null
+     * @param local whether the change was made by this node
+     */
+    public EntityChangedEvent(long sequence, Entity entity, long entityId, ChangeType changeType, String uniqueKey,
+                              boolean local) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.changeType = changeType;
+        this.uniqueKey = uniqueKey;
+        this.local = local;
+    }
+
+    /**
+     * Returns the sequence number of the event in the outbox.
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the kind of entity that changed.
+     * @return the kind of entity
+     */
+    public Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Returns the id of the entity that changed.
+     * @return the id
+     */
+    public long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Returns the kind of change.
+     * @return the kind of change
+     */
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Returns the value of the entity's unique column (MAC address, email address or username) after the change.
+     * @return the unique value, or null
+     */
+    public String getUniqueKey() {
+        return uniqueKey;
+    }
+
+    /**
+     * Returns whether the change was made by this node, whose caches are then already up to date.
+     * @return true for changes made by this node
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChangedEvent{" + sequence + ": " + entity + " " + entityId + " " + changeType + "}";
+    }
+}
@@ -0,0 +1,255 @@
+package tinysensormanager.service.outbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.outbox.EntityChangedEvent.ChangeType;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Tails the OUTBOX table by sequence number and publishes every row as an {@link EntityChangedEvent}
+ * to the in-process listeners, in sequence order. Every node runs a relay, so changes made on one node
+ * reach the listeners of all nodes without a message broker.
+ *
+ * <p>Sequence numbers are assigned when a row is inserted, but transactions may commit in a different
+ * order, so a gap in the sequence can be a transaction that has not committed yet. The relay waits at a
+ * gap for up to {@code tinysensor.outbox.gap-timeout-ms} before it moves on. The skipped sequence numbers
+ * are remembered and looked up again on every poll, so a transaction that commits later still has its event
+ * published, out of order, until the number is older than the retention period. Rows older than the
+ * retention period are purged.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class OutboxRelay implements MeterBinder {
+    private static final String POLL_SQL = "SELECT SEQ, ENTITY, ENTITY_ID, CHANGE_TYPE, UNIQUE_KEY, ORIGIN_NODE "
+            + "FROM OUTBOX WHERE SEQ > ? ORDER BY SEQ LIMIT ?";
+    private static final String LATE_SQL = "SELECT SEQ, ENTITY, ENTITY_ID, CHANGE_TYPE, UNIQUE_KEY, ORIGIN_NODE "
+            + "FROM OUTBOX WHERE SEQ IN (%s) ORDER BY SEQ";
+    private static final int PURGE_BATCH = 10000;
+    private static final int MAX_SKIPPED = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final String nodeId;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+    private final NavigableMap<Long, Long> skipped = new TreeMap<>();
+
+    private volatile long lastSequence;
+    private volatile long published;
+    private volatile long skippedGaps;
+    private volatile long lateEvents;
+    private long gapSince;
+    private long lastPurge;
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used to read and purge the outbox
+     * @param publisher the publisher of the application events
+     * @param outboxWriter the writer whose node id marks the events of this node
+     * @param pollIntervalMillis the time between polls when the outbox has no new rows
+     * @param batchSize the maximum number of rows read per poll
+     * @param gapTimeoutMillis the longest time to wait for a missing sequence number
+     * @param retentionHours the number of hours rows are kept before they are purged
+     */
+    @Autowired
+    public OutboxRelay(JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher, OutboxWriter outboxWriter,
+                       @Value("${tinysensor.outbox.poll-interval-ms:500}") long pollIntervalMillis,
+                       @Value("${tinysensor.outbox.batch-size:500}") int batchSize,
+                       @Value("${tinysensor.outbox.gap-timeout-ms:5000}") long gapTimeoutMillis,
+                       @Value("${tinysensor.outbox.retention-hours:24}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.nodeId = outboxWriter.getNodeId();
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+    }
+
+    /**
+     * Starts tailing the outbox after its current end. Earlier events need no relaying because the
+     * caches of a starting node are empty.
+     */
+    @PostConstruct
+    private void start() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(SEQ) FROM OUTBOX", Long.class);
+        lastSequence = max == null ? 0 : max;
+        running = true;
+        worker = new Thread(this::run, "outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the relay thread.
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    @PreDestroy
+    private void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Returns the sequence number of the last published event.
+     * @return the last sequence number
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the number of events published since startup.
+     * @return the number of published events
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tinysensor.outbox.sequence", this, OutboxRelay::getLastSequence)
+                .description("Sequence number of the last relayed change event")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.outbox.published", this, OutboxRelay::getPublished)
+                .description("Change events published to in-process listeners")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.outbox.skipped.gaps", this, relay -> relay.skippedGaps)
+                .description("Sequence gaps the relay stopped waiting for")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.outbox.late", this, relay -> relay.lateEvents)
+                .description("Change events published after their sequence number was skipped")
+                .register(registry);
+    }
+
+    private void run() {
+        while (running) {
+            int n = 0;
+            try {
+                n = poll();
+                pollSkipped();
+                purge();
+            } catch (DataAccessException e) {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "Outbox could not be read", e);
+            }
+            if (n < batchSize) {
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int poll() {
+        List<EntityChangedEvent> events = jdbcTemplate.query(POLL_SQL, this::toEvent, lastSequence, batchSize);
+        int n = 0;
+        for (EntityChangedEvent event : events) {
+            if (event.getSequence() != lastSequence + 1) {
+                long now = System.currentTimeMillis();
+                if (gapSince == 0) gapSince = now;
+                // A transaction holding the missing sequence number may still commit
+                if (now - gapSince < gapTimeoutMillis) break;
+                skippedGaps++;
+                skip(lastSequence + 1, event.getSequence(), now);
+            }
+            gapSince = 0;
+            publish(event);
+            lastSequence = event.getSequence();
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Remembers the sequence numbers of a gap, from inclusive to exclusive. A gap wider than the room left
+     * is remembered only in part, its newest numbers being the likeliest to still commit.
+     */
+    private void skip(long from, long to, long now) {
+        for (long sequence = Math.max(from, to - MAX_SKIPPED); sequence < to; sequence++) {
+            skipped.put(sequence, now);
+        }
+        while (skipped.size() > MAX_SKIPPED) skipped.pollFirstEntry();
+    }
+
+    /**
+     * Publishes the events of skipped sequence numbers whose transaction committed after all, and forgets
+     * the numbers older than the retention period, whose rows would have been purged anyway.
+     */
+    private void pollSkipped() {
+        if (skipped.isEmpty()) return;
+        long expired = System.currentTimeMillis() - retentionMillis;
+        skipped.values().removeIf(skippedAt -> skippedAt < expired);
+        for (List<Long> chunk : chunks(List.copyOf(skipped.keySet()))) {
+            String placeholders = chunk.stream().map(sequence -> "?").collect(Collectors.joining(", "));
+            for (EntityChangedEvent event : jdbcTemplate.query(String.format(LATE_SQL, placeholders),
+                    this::toEvent, chunk.toArray())) {
+                skipped.remove(event.getSequence());
+                publish(event);
+                lateEvents++;
+            }
+        }
+    }
+
+    private List<List<Long>> chunks(List<Long> sequences) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < sequences.size(); i += batchSize) {
+            chunks.add(sequences.subList(i, Math.min(i + batchSize, sequences.size())));
+        }
+        return chunks;
+    }
+
+    private EntityChangedEvent toEvent(ResultSet rs, int rowNum) throws SQLException {
+        return new EntityChangedEvent(rs.getLong(1), Entity.valueOf(rs.getString(2)), rs.getLong(3),
+                ChangeType.valueOf(rs.getString(4)), rs.getString(5), nodeId.equals(rs.getString(6)));
+    }
+
+    private void publish(EntityChangedEvent event) {
+        try {
+            publisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Listener failed on " + event, e);
+        }
+        published++;
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < TimeUnit.MINUTES.toMillis(1)) return;
+        lastPurge = now;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM OUTBOX WHERE CREATED_AT < ? LIMIT " + PURGE_BATCH,
+                    now - retentionMillis);
+        } while (deleted == PURGE_BATCH && running);
+    }
+}
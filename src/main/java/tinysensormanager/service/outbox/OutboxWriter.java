@@ -0,0 +1,107 @@
+package tinysensormanager.service.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.outbox.EntityChangedEvent.ChangeType;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+
+import javax.transaction.Transactional;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Appends change events to the OUTBOX table. Appends must run inside the transaction of the change they
+ * describe, so an event is visible exactly when the change is committed.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class OutboxWriter {
+    private static final String INSERT_SQL = "INSERT INTO OUTBOX (ENTITY, ENTITY_ID, CHANGE_TYPE, UNIQUE_KEY, "
+            + "ORIGIN_NODE, CREATED_AT) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableVersions tableVersions;
+    private final String nodeId;
+    private final boolean nodeIdGenerated;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template, which joins the transaction of the caller
+     * @param tableVersions the change counters increased when the transaction of an event completes
+     * @param nodeId the id of this node, generated when not configured
+     */
+    @Autowired
+    public OutboxWriter(JdbcTemplate jdbcTemplate, TableVersions tableVersions,
+                        @Value("${tinysensor.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableVersions = tableVersions;
+        this.nodeIdGenerated = nodeId.isBlank();
+        this.nodeId = nodeIdGenerated ? generateNodeId() : nodeId;
+    }
+
+    /**
+     * Returns the id this node writes into the events it appends.
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns whether the node id was generated because none is configured, so it changes on every start.
+     * @return true if the node id is not configured
+     */
+    public boolean isNodeIdGenerated() {
+        return nodeIdGenerated;
+    }
+
+    /**
+     * Appends a change event.
+     * @param entity the kind of entity that changed
+     * @param entityId the id of the entity
+     * @param changeType the kind of change
+     * @param uniqueKey the value of the entity's unique column after the change, may be null
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(Entity entity, long entityId, ChangeType changeType, String uniqueKey) {
+        jdbcTemplate.update(INSERT_SQL, entity.name(), entityId, changeType.name(), uniqueKey, nodeId,
+                System.currentTimeMillis());
+        tableVersions.changed(entity);
+    }
+
+    /**
+     * Appends change events of several entities of the same kind in one batch.
+     * @param entity the kind of entities that changed
+     * @param entityIds the ids of the entities
+     * @param changeType the kind of change
+     * @param uniqueKeys the values of the entities' unique column, parallel to the ids
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void appendAll(Entity entity, List<Long> entityIds, ChangeType changeType, List<String> uniqueKeys) {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(entityIds.size());
+        for (int i = 0; i < entityIds.size(); i++) {
+            rows.add(new Object[] {entity.name(), entityIds.get(i), changeType.name(), uniqueKeys.get(i), nodeId, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        tableVersions.changed(entity);
+    }
+
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        String id = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+}
@@ -0,0 +1,93 @@
+package tinysensormanager.service.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tinysensormanager.config.CacheConfig;
+import tinysensormanager.repo.AlertRuleRepo;
+import tinysensormanager.repo.DeviceRepo;
+import tinysensormanager.service.UniquenessIndex;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.outbox.EntityChangedEvent.ChangeType;
+import tinysensormanager.service.rules.RuleEngine;
+
+/**
+ * Applies the changes made by other nodes to the in-memory state of this node: cached devices and users
+ * are evicted, new unique values are added to the {@link UniquenessIndex} and changed devices are
+ * registered with the {@link DeviceIndex}, so they can send readings to this node as well, and deleted
+ * devices are unregistered from it. Changed alert rules are reloaded into the {@link RuleEngine}.
+ * Changes made by this node are ignored, because its services already updated that state.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class RemoteChangeListener {
+    private final CacheManager cacheManager;
+    private final UniquenessIndex uniquenessIndex;
+    private final DeviceIndex deviceIndex;
+    private final DeviceRepo deviceRepo;
+    private final RuleEngine ruleEngine;
+    private final AlertRuleRepo alertRuleRepo;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param cacheManager the manager of the entity caches
+     * @param uniquenessIndex the index of unique values
+     * @param deviceIndex the index of devices that may send readings
+     * @param deviceRepo the repository used to load changed devices
+     * @param ruleEngine the engine evaluating the alert rules
+     * @param alertRuleRepo the repository used to reload the alert rules
+     */
+    @Autowired
+    public RemoteChangeListener(CacheManager cacheManager, UniquenessIndex uniquenessIndex, DeviceIndex deviceIndex,
+                                DeviceRepo deviceRepo, RuleEngine ruleEngine, AlertRuleRepo alertRuleRepo) {
+        this.cacheManager = cacheManager;
+        this.uniquenessIndex = uniquenessIndex;
+        this.deviceIndex = deviceIndex;
+        this.deviceRepo = deviceRepo;
+        this.ruleEngine = ruleEngine;
+        this.alertRuleRepo = alertRuleRepo;
+    }
+
+    /**
+     * Applies a change made by another node.
+     * @param event the change event
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isLocal()) return;
+        boolean deleted = event.getChangeType() == ChangeType.DELETED;
+        switch (event.getEntity()) {
+            case DEVICE:
+                evict(CacheConfig.DEVICES, event.getEntityId());
+                if (deleted) {
+                    deviceIndex.unregister(event.getEntityId());
+                    return;
+                }
+                uniquenessIndex.add(UniquenessIndex.Column.DEVICE_MAC, event.getUniqueKey());
+                deviceRepo.findById(event.getEntityId())
+                        .ifPresent(device -> deviceIndex.register(device.getId(), device.getModel(), device.getMac()));
+                break;
+            case USER:
+                evict(CacheConfig.USERS, event.getEntityId());
+                if (!deleted) uniquenessIndex.add(UniquenessIndex.Column.USER_EMAIL, event.getUniqueKey());
+                break;
+            case DBUSER:
+                if (!deleted) uniquenessIndex.add(UniquenessIndex.Column.DBUSER_USERNAME, event.getUniqueKey());
+                break;
+            case ALERT_RULE:
+                ruleEngine.setRules(alertRuleRepo.findAll());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void evict(String cacheName, long id) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) cache.evict(id);
+    }
+}
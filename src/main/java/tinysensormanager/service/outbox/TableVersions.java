@@ -0,0 +1,61 @@
+package tinysensormanager.service.outbox;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A change counter per kind of entity, increased after every committed change on this node and after every
+ * change of another node relayed by the {@link OutboxRelay}. A value computed from the entities stays valid
+ * as long as the counter read before computing it is unchanged.
+ *
+ * <p>Local changes increase the counter when their transaction completes, not when the change is appended,
+ * so a reader that saw the old counter cannot have read the data of the change before it was committed.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class TableVersions {
+    private final AtomicLongArray versions = new AtomicLongArray(Entity.values().length);
+
+    /**
+     * Returns the change counter of a kind of entity.
+     * @param entity the kind of entity
+     * @return the counter
+     */
+    public long version(Entity entity) {
+        return versions.get(entity.ordinal());
+    }
+
+    /**
+     * Increases the change counter of a kind of entity when the current transaction completes, or at once
+     * when there is none.
+     * @param entity the kind of entity that changes
+     */
+    public void changed(Entity entity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.incrementAndGet(entity.ordinal());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                versions.incrementAndGet(entity.ordinal());
+            }
+        });
+    }
+
+    /**
+     * Increases the change counter for a change made by another node.
+     * @param event the change event
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isLocal()) versions.incrementAndGet(event.getEntity().ordinal());
+    }
+}
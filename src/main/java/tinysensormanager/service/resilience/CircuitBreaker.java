@@ -0,0 +1,170 @@
+package tinysensormanager.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker that stops calls to a failing or slow resource and lets them through again gradually.
+ *
+ * <p>While closed, the outcomes of the last {@code windowSize} calls are kept in a ring. Once at least
+ * {@code minimumCalls} were recorded, the breaker opens when the share of failed calls or the share of
+ * slow calls reaches its threshold. While open, every call is refused. After the open period the breaker
+ * is half-open: it admits a share of the calls that starts at {@code 1 / probeCalls} and grows by the same
+ * amount with every successful call, and closes after {@code probeCalls} successes. A failed or slow call
+ * while half-open opens it again.</p>
+ *
+ * <p>All methods are synchronized; they are cheap compared with the calls they protect.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int probeCalls;
+    private final LongSupplier nanoClock;
+
+    private final byte[] outcomes;
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private long halfOpenCalls;
+    private int probeSuccesses;
+    private long rejected;
+
+    /**
+     * Creates a closed breaker.
+     * @param windowSize the number of recent calls the rates are computed over
+     * @param minimumCalls the number of calls recorded before the breaker may open
+     * @param failureRateThreshold the share of failed calls, between 0 and 1, that opens the breaker
+     * @param slowCallMillis the duration from which a call is slow
+     * @param slowRateThreshold the share of slow calls, between 0 and 1, that opens the breaker
+     * @param openMillis the time the breaker stays open before it probes
+     * @param probeCalls the number of successful calls that close a half-open breaker
+     * @param nanoClock the clock, {@link System#nanoTime()} outside of tests
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis,
+                          double slowRateThreshold, long openMillis, int probeCalls, LongSupplier nanoClock) {
+        if (windowSize < 1 || probeCalls < 1) throw new IllegalArgumentException("Invalid circuit breaker sizes");
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.slowRateThreshold = slowRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.probeCalls = probeCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks whether a call may proceed. A call that may proceed must report its outcome with
+     * {@link #onResult(boolean, long)}.
+     * @return true if the call may proceed, false if it is refused
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenCalls = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN && halfOpenCalls++ % probeCalls > probeSuccesses) {
+            rejected++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a call that was allowed to proceed.
+     * @param failed whether the call failed because of the resource
+     * @param elapsedNanos the duration of the call
+     */
+    public synchronized void onResult(boolean failed, long elapsedNanos) {
+        boolean slow = elapsedNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++probeSuccesses >= probeCalls) {
+                close();
+            }
+            return;
+        }
+        // Calls admitted before the breaker opened do not count
+        if (state == State.OPEN) return;
+        if (recorded == outcomes.length) {
+            byte oldest = outcomes[next];
+            if ((oldest & FAILED) != 0) failures--;
+            if ((oldest & SLOW) != 0) slowCalls--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        next = (next + 1) % outcomes.length;
+        if (failed) failures++;
+        if (slow) slowCalls++;
+        if (recorded >= minimumCalls && (failures >= failureRateThreshold * recorded
+                || slowCalls >= slowRateThreshold * recorded)) {
+            open();
+        }
+    }
+
+    /**
+     * Returns the state of the breaker. An open breaker whose open period is over is reported as half-open.
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) return State.HALF_OPEN;
+        return state;
+    }
+
+    /**
+     * Returns the time until an open breaker starts to probe.
+     * @return the remaining open time in milliseconds, 0 if the breaker is not open
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openNanos - (nanoClock.getAsLong() - openedAt)));
+    }
+
+    /**
+     * Returns the number of calls refused since the breaker was created.
+     * @return the number of refused calls
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,236 @@
+package tinysensormanager.service.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import tinysensormanager.repo.DeviceRepo;
+import tinysensormanager.repo.UserRepo;
+import tinysensormanager.service.exceptions.DatabaseUnavailableException;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.outbox.TableVersions;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Guards the calls to the device, user and database user repositories, and the transactional service
+ * methods that use them, with a {@link CircuitBreaker}, so a failing or slow database is not called until
+ * it has recovered.
+ *
+ * <p>Only failures to reach the database count against it: failed connections, transactions that cannot be
+ * started and transient errors such as timeouts. Errors of a statement itself, such as a constraint
+ * violation, count as successes. Every successful repository read is remembered as the last known good
+ * result of its arguments. When the breaker refuses a read, or a read fails to reach the database, the last
+ * known good result is returned instead, and the HTTP response is marked with a
+ * {@code Warning: 110 - "Response is Stale"} header and an {@code Age} header giving the age of the result in
+ * seconds. Other calls, and reads without a remembered result, fail at once with a
+ * {@link DatabaseUnavailableException}. Credential checks are never answered from memory.</p>
+ *
+ * <p>Last known good results are tagged with the {@link TableVersions} counter of their table, read before
+ * the call, and are dropped instead of served once the table has changed, so a fallback never undoes a
+ * change that was acknowledged. They are bounded by the number of rows they hold, not by their number, so
+ * a few large lists cannot hold on to a whole table.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RepositoryGuard implements MeterBinder {
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    private static final List<String> READ_PREFIXES = List.of("find", "exists", "count");
+    private static final ThreadLocal<Boolean> GUARDED = new ThreadLocal<>();
+
+    private final CircuitBreaker breaker;
+    private final TableVersions tableVersions;
+    private final Cache<List<Object>, KnownGood> lastKnownGood;
+    private final LongAdder staleServed = new LongAdder();
+
+    /**
+     * Creates the guard with its breaker configured via Spring's dependency injection.
+     * @param windowSize the number of recent calls the failure and slow call rates are computed over
+     * @param minimumCalls the number of calls recorded before the breaker may open
+     * @param failureRate the share of failed calls that opens the breaker
+     * @param slowCallMillis the duration from which a call is slow
+     * @param slowRate the share of slow calls that opens the breaker
+     * @param openMillis the time the breaker stays open before it probes the database
+     * @param probeCalls the number of successful probes after which all calls are let through again
+     * @param staleRows the maximum number of rows held by the last known good results, each result counting as
+     *                  one row more than it holds
+     * @param tableVersions the change counters that invalidate the last known good results
+     */
+    public RepositoryGuard(@Value("${tinysensor.breaker.window:100}") int windowSize,
+                           @Value("${tinysensor.breaker.minimum-calls:20}") int minimumCalls,
+                           @Value("${tinysensor.breaker.failure-rate:0.5}") double failureRate,
+                           @Value("${tinysensor.breaker.slow-call-ms:2000}") long slowCallMillis,
+                           @Value("${tinysensor.breaker.slow-rate:0.8}") double slowRate,
+                           @Value("${tinysensor.breaker.open-ms:10000}") long openMillis,
+                           @Value("${tinysensor.breaker.probe-calls:20}") int probeCalls,
+                           @Value("${tinysensor.breaker.stale-rows:10000}") long staleRows,
+                           TableVersions tableVersions) {
+        this.breaker = new CircuitBreaker(windowSize, minimumCalls, failureRate, slowCallMillis, slowRate, openMillis,
+                probeCalls, System::nanoTime);
+        this.tableVersions = tableVersions;
+        this.lastKnownGood = Caffeine.newBuilder()
+                .maximumWeight(staleRows)
+                .weigher((List<Object> key, KnownGood known) -> known.rows())
+                .build();
+    }
+
+    /**
+     * Guards a repository call, falling back to the last known good result of reads.
+     * @param joinPoint the repository call
+     * @return the result of the call, or the last known good result of a read
+     * @throws Throwable whatever the call throws, or a {@link DatabaseUnavailableException}
+     */
+    @Around("target(tinysensormanager.repo.DeviceRepo) || target(tinysensormanager.repo.UserRepo) "
+            + "|| target(tinysensormanager.repo.DbUserRepo)")
+    public Object guardRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        boolean read = READ_PREFIXES.stream().anyMatch(method::startsWith);
+        List<Object> key = read ? key(joinPoint) : null;
+        Entity entity = entityOf(joinPoint.getTarget());
+        long version = tableVersions.version(entity);
+        try {
+            Object result = guard(joinPoint);
+            if (key != null && result != null) {
+                lastKnownGood.put(key, new KnownGood(result, version, System.currentTimeMillis()));
+            }
+            return result;
+        } catch (DatabaseUnavailableException e) {
+            KnownGood known = key != null ? lastKnownGood.getIfPresent(key) : null;
+            if (known == null) throw e;
+            if (known.version != tableVersions.version(entity)) {
+                lastKnownGood.invalidate(key);
+                throw e;
+            }
+            markStale(known.storedAt);
+            return known.result;
+        }
+    }
+
+    /**
+     * Guards a transactional service method, so a write fails fast instead of waiting for a connection.
+     * @param joinPoint the service call
+     * @return the result of the call
+     * @throws Throwable whatever the call throws, or a {@link DatabaseUnavailableException}
+     */
+    @Around("execution(* tinysensormanager.service.*ServiceImpl.*(..)) "
+            + "&& @annotation(javax.transaction.Transactional)")
+    public Object guardTransaction(ProceedingJoinPoint joinPoint) throws Throwable {
+        return guard(joinPoint);
+    }
+
+    /**
+     * Returns the circuit breaker of the database.
+     * @return the breaker
+     */
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tinysensor.database.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("State of the database circuit breaker: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.database.breaker.rejected", breaker, CircuitBreaker::getRejected)
+                .description("Database calls refused by the circuit breaker")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.database.stale.served", this, guard -> guard.staleServed.sum())
+                .description("Reads answered with a last known good result")
+                .register(registry);
+    }
+
+    private Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Calls nested in a guarded call share its permit and its outcome
+        if (GUARDED.get() != null) return joinPoint.proceed();
+        if (!breaker.tryAcquire()) {
+            throw new DatabaseUnavailableException("The database circuit breaker is open",
+                    TimeUnit.MILLISECONDS.toSeconds(breaker.getRemainingOpenMillis() + 999), null);
+        }
+        GUARDED.set(Boolean.TRUE);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            return joinPoint.proceed();
+        } catch (DataAccessResourceFailureException | TransientDataAccessException
+                 | CannotCreateTransactionException e) {
+            failed = true;
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "The database could not be reached", e);
+            throw new DatabaseUnavailableException("The database could not be reached", 1, e);
+        } finally {
+            GUARDED.remove();
+            breaker.onResult(failed, System.nanoTime() - start);
+        }
+    }
+
+    private static List<Object> key(ProceedingJoinPoint joinPoint) {
+        // Inherited methods such as findById are declared by the same interface for every repository
+        return Arrays.asList(joinPoint.getTarget().getClass().getName(), joinPoint.getSignature().getName(),
+                Arrays.asList(joinPoint.getArgs()));
+    }
+
+    private static Entity entityOf(Object repository) {
+        if (repository instanceof DeviceRepo) return Entity.DEVICE;
+        if (repository instanceof UserRepo) return Entity.USER;
+        return Entity.DBUSER;
+    }
+
+    private void markStale(long storedAt) {
+        staleServed.increment();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) return;
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (response == null || response.isCommitted()) return;
+        response.setHeader(HttpHeaders.WARNING, STALE_WARNING);
+        response.setHeader(HttpHeaders.AGE,
+                Long.toString(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - storedAt)));
+    }
+
+    /**
+     * A result of a read, the change counter of its table before it was read and the time it was read.
+     */
+    private static final class KnownGood {
+        final Object result;
+        final long version;
+        final long storedAt;
+
+        KnownGood(Object result, long version, long storedAt) {
+            this.result = result;
+            this.version = version;
+            this.storedAt = storedAt;
+        }
+
+        int rows() {
+            if (result instanceof Collection) return 1 + ((Collection<?>) result).size();
+            if (result instanceof Slice) return 1 + ((Slice<?>) result).getNumberOfElements();
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package tinysensormanager.service.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.ReadingIngestionPipeline;
+import tinysensormanager.service.ingest.ReadingListener;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.util.LoggerUtil;
+import tinysensormanager.service.util.QuantileSketch;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Rolls the readings that pass through the {@link ReadingIngestionPipeline} up into hourly
+ * {@link QuantileSketch}es per device and per model, so percentiles over any range of hours are answered by
+ * merging a few sketches instead of scanning readings.
+ *
+ * <p>The sketches of the open hour are updated by the pipeline thread. Model sketches are published to the
+ * READING_SKETCHES table every publish interval, and all sketches of an hour once it closes, by the
+ * "sketch-flusher" thread. Readings count towards the hour in which they are ingested, so late readings
+ * land in the open hour instead of reopening a closed one. Every node writes its own rows; queries merge the
+ * rows of all nodes with the sketches this node has not written completely yet. The sketches of the open
+ * hour are written on shutdown. They are reloaded on startup only if {@code tinysensor.node-id} is set, since
+ * a generated node id changes on every start; the rows of the previous run are then merged by queries like
+ * those of another node, but stay separate rows. Device sketches of the open hour are lost on a crash.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class QuantileRollup implements ReadingListener {
+    /**
+     * The length of a rollup bucket.
+     */
+    public static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final String DEVICE_SCOPE = "D";
+    private static final String MODEL_SCOPE = "M";
+    private static final String UPSERT_SQL = "INSERT INTO READING_SKETCHES (SCOPE, SCOPE_KEY, BUCKET_START, "
+            + "NODE_ID, READINGS, SKETCH) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE READINGS = VALUES(READINGS), SKETCH = VALUES(SKETCH)";
+    private static final String SELECT_SQL = "SELECT SKETCH FROM READING_SKETCHES WHERE SCOPE = ? AND ";
+    private static final String RANGE_SQL = " AND BUCKET_START >= ? AND BUCKET_START < ? "
+            + "AND (NODE_ID <> ? OR BUCKET_START < ?)";
+    private static final int BATCH_SIZE = 1000;
+    private static final int PURGE_BATCH = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceIndex deviceIndex;
+    private final String nodeId;
+    private final boolean nodeIdGenerated;
+    private final long publishIntervalMillis;
+    private final int retentionDays;
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "sketch-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Bucket open;
+    private volatile Bucket closing;
+    private long lastPublish;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used to write and read the sketches
+     * @param deviceIndex the index that assigns devices to slots
+     * @param outboxWriter the writer whose node id marks the rows of this node
+     * @param publishIntervalMillis the interval at which the model sketches of the open hour are written
+     * @param retentionDays the number of days sketches are kept, 0 to keep them forever
+     */
+    @Autowired
+    public QuantileRollup(JdbcTemplate jdbcTemplate, DeviceIndex deviceIndex, OutboxWriter outboxWriter,
+                          @Value("${tinysensor.quantiles.publish-interval-ms:60000}") long publishIntervalMillis,
+                          @Value("${tinysensor.quantiles.retention-days:400}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceIndex = deviceIndex;
+        this.nodeId = outboxWriter.getNodeId();
+        this.nodeIdGenerated = outboxWriter.isNodeIdGenerated();
+        this.publishIntervalMillis = publishIntervalMillis;
+        this.retentionDays = retentionDays;
+        long now = System.currentTimeMillis();
+        this.open = new Bucket(bucketOf(now), deviceIndex.size());
+        this.lastPublish = now;
+    }
+
+    /**
+     * Reloads the sketches this node wrote for the open hour before a restart, so the rows written when the
+     * hour closes include the readings ingested before it. Without a configured node id there is nothing to
+     * reload, as the rows of the previous run carry another id.
+     */
+    @PostConstruct
+    private void start() {
+        if (nodeIdGenerated) {
+            LoggerUtil.getCurrentLogger().warning("tinysensor.node-id is not set, so the quantile sketches of the "
+                    + "open hour are not reloaded after a restart and every restart adds a set of rows");
+            return;
+        }
+        Bucket bucket = open;
+        try {
+            jdbcTemplate.query("SELECT SCOPE, SCOPE_KEY, SKETCH FROM READING_SKETCHES "
+                    + "WHERE BUCKET_START = ? AND NODE_ID = ?", rs -> {
+                QuantileSketch sketch = QuantileSketch.fromBytes(rs.getBytes(3));
+                if (MODEL_SCOPE.equals(rs.getString(1))) {
+                    mergeInto(bucket.models.computeIfAbsent(rs.getString(2), key -> new QuantileSketch()), sketch);
+                    return;
+                }
+                int slot = deviceIndex.slotOf(Long.parseLong(rs.getString(2)));
+                if (slot < 0 || slot >= bucket.devices.length) return;
+                if (bucket.devices[slot] == null) bucket.devices[slot] = new QuantileSketch();
+                mergeInto(bucket.devices[slot], sketch);
+            }, bucket.start, nodeId);
+        } catch (DataAccessException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Quantile sketches could not be reloaded", e);
+        }
+    }
+
+    /**
+     * Writes the sketches of the open hour and stops the flusher.
+     */
+    @PreDestroy
+    private void stop() {
+        Bucket bucket = open;
+        flusher.execute(() -> flush(bucket, true));
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onReading(int slot, long deviceId, long timestamp, double value) {
+        Bucket bucket = open;
+        QuantileSketch[] devices = bucket.devices;
+        if (slot >= devices.length) {
+            devices = Arrays.copyOf(devices, Math.max(slot + 1, deviceIndex.size()));
+            bucket.devices = devices;
+        }
+        QuantileSketch device = devices[slot];
+        if (device == null) {
+            device = new QuantileSketch();
+            devices[slot] = device;
+        }
+        synchronized (device) {
+            device.add(value);
+        }
+        String model = deviceIndex.modelAt(slot);
+        if (model == null) return;
+        QuantileSketch sketch = bucket.models.computeIfAbsent(model, key -> new QuantileSketch());
+        synchronized (sketch) {
+            sketch.add(value);
+        }
+    }
+
+    @Override
+    public void onTick(long now) {
+        long start = bucketOf(now);
+        Bucket bucket = open;
+        if (start != bucket.start) {
+            closing = bucket;
+            open = new Bucket(start, deviceIndex.size());
+            lastPublish = now;
+            flusher.execute(() -> {
+                flush(bucket, true);
+                purge(now);
+            });
+        } else if (now - lastPublish >= publishIntervalMillis) {
+            lastPublish = now;
+            flusher.execute(() -> flush(bucket, false));
+        }
+    }
+
+    /**
+     * Merges the sketches of the devices whose model starts with a prefix.
+     * @param modelPrefix the prefix of the model, empty for all devices
+     * @param from the inclusive start of the range in milliseconds since the epoch, rounded down to the hour
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @return the merged sketch
+     */
+    public QuantileSketch forModel(String modelPrefix, long from, long to) {
+        // Read before the database, so an hour written in between is not missed
+        Bucket pending = closing;
+        Bucket current = open;
+        long written = pending != null ? pending.start : current.start;
+        QuantileSketch merged = new QuantileSketch();
+        String pattern = modelPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        query(merged, SELECT_SQL + "SCOPE_KEY LIKE ?" + RANGE_SQL,
+                MODEL_SCOPE, pattern, bucketOf(from), to, nodeId, written);
+        for (Bucket bucket : pending != null ? List.of(pending, current) : List.of(current)) {
+            if (bucket.start < bucketOf(from) || bucket.start >= to) continue;
+            for (Map.Entry<String, QuantileSketch> entry : bucket.models.entrySet()) {
+                if (entry.getKey().startsWith(modelPrefix)) mergeCopy(merged, entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the sketches of a device.
+     * @param slot the {@link DeviceIndex} slot of the device
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds since the epoch, rounded down to the hour
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @return the merged sketch
+     */
+    public QuantileSketch forDevice(int slot, long deviceId, long from, long to) {
+        Bucket pending = closing;
+        Bucket current = open;
+        long written = pending != null ? pending.start : current.start;
+        QuantileSketch merged = new QuantileSketch();
+        query(merged, SELECT_SQL + "SCOPE_KEY = ?" + RANGE_SQL,
+                DEVICE_SCOPE, Long.toString(deviceId), bucketOf(from), to, nodeId, written);
+        for (Bucket bucket : pending != null ? List.of(pending, current) : List.of(current)) {
+            if (bucket.start < bucketOf(from) || bucket.start >= to) continue;
+            QuantileSketch[] devices = bucket.devices;
+            if (slot < devices.length && devices[slot] != null) mergeCopy(merged, devices[slot]);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the start of the bucket a time falls into.
+     * @param timestamp the time in milliseconds since the epoch
+     * @return the start of its hour
+     */
+    public static long bucketOf(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, BUCKET_MILLIS);
+    }
+
+    private void query(QuantileSketch merged, String sql, Object... args) {
+        jdbcTemplate.query(sql, rs -> {
+            merged.merge(QuantileSketch.fromBytes(rs.getBytes(1)));
+        }, args);
+    }
+
+    private static void mergeInto(QuantileSketch target, QuantileSketch sketch) {
+        synchronized (target) {
+            target.merge(sketch);
+        }
+    }
+
+    private static void mergeCopy(QuantileSketch merged, QuantileSketch sketch) {
+        QuantileSketch copy;
+        synchronized (sketch) {
+            copy = sketch.copy();
+        }
+        merged.merge(copy);
+    }
+
+    /**
+     * Writes the model sketches of a bucket and, when it is closed, the device sketches too.
+     */
+    private void flush(Bucket bucket, boolean closed) {
+        try {
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, QuantileSketch> entry : bucket.models.entrySet()) {
+                rows.add(row(MODEL_SCOPE, entry.getKey(), bucket.start, entry.getValue()));
+            }
+            if (closed) {
+                QuantileSketch[] devices = bucket.devices;
+                for (int slot = 0; slot < devices.length; slot++) {
+                    if (devices[slot] == null) continue;
+                    rows.add(row(DEVICE_SCOPE, Long.toString(deviceIndex.deviceIdAt(slot)), bucket.start,
+                            devices[slot]));
+                    if (rows.size() == BATCH_SIZE) {
+                        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                        rows.clear();
+                    }
+                }
+            }
+            if (!rows.isEmpty()) jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        } catch (DataAccessException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Quantile sketches could not be written", e);
+        } finally {
+            if (closed && closing == bucket) closing = null;
+        }
+    }
+
+    private Object[] row(String scope, String key, long start, QuantileSketch sketch) {
+        QuantileSketch copy;
+        synchronized (sketch) {
+            copy = sketch.copy();
+        }
+        return new Object[] {scope, key, start, nodeId, copy.count(), copy.toBytes()};
+    }
+
+    private void purge(long now) {
+        if (retentionDays <= 0) return;
+        long cutoff = now - TimeUnit.DAYS.toMillis(retentionDays);
+        try {
+            int n;
+            do {
+                n = jdbcTemplate.update("DELETE FROM READING_SKETCHES WHERE BUCKET_START < ? LIMIT " + PURGE_BATCH,
+                        cutoff);
+            } while (n == PURGE_BATCH);
+        } catch (DataAccessException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Expired quantile sketches could not be deleted", e);
+        }
+    }
+
+    /**
+     * The sketches of one hour. The device array is replaced when it grows, only by the pipeline thread.
+     */
+    private static final class Bucket {
+        final long start;
+        final Map<String, QuantileSketch> models = new ConcurrentHashMap<>();
+        volatile QuantileSketch[] devices;
+
+        Bucket(long start, int devices) {
+            this.start = start;
+            this.devices = new QuantileSketch[devices];
+        }
+    }
+}
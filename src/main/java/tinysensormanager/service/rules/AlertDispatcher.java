@@ -0,0 +1,91 @@
+package tinysensormanager.service.rules;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Hands alerts from the ingestion path to the configured {@link AlertSink} on a separate thread,
+ * so a slow sink can never delay the evaluation of readings. When the queue is full, alerts are
+ * dropped and counted.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class AlertDispatcher {
+    private final AlertSink alertSink;
+    private final BlockingQueue<AlertDTO> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread worker;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param alertSink the sink alerts are published to
+     * @param queueCapacity the number of alerts that may wait for the sink
+     */
+    @Autowired
+    public AlertDispatcher(AlertSink alertSink, @Value("${tinysensor.alerts.queue-capacity:10000}") int queueCapacity) {
+        this.alertSink = alertSink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Starts the dispatcher thread.
+     */
+    @PostConstruct
+    private void start() {
+        worker = new Thread(this::run, "alert-dispatch");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the dispatcher thread.
+     */
+    @PreDestroy
+    private void stop() {
+        worker.interrupt();
+    }
+
+    /**
+     * Queues an alert for publication without blocking.
+     * @param alert the alert
+     */
+    public void dispatch(AlertDTO alert) {
+        if (!queue.offer(alert)) dropped.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of alerts dropped because the queue was full.
+     * @return the number of dropped alerts
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            AlertDTO alert;
+            try {
+                alert = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                alertSink.publish(alert);
+            } catch (RuntimeException e) {
+                LoggerUtil.getCurrentLogger().log(Level.WARNING, "Alert could not be published", e);
+            }
+        }
+    }
+}
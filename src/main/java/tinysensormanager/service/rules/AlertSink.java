@@ -0,0 +1,19 @@
+package tinysensormanager.service.rules;
+
+import tinysensormanager.dto.AlertDTO;
+
+/**
+ * A destination for the alerts emitted by the {@link RuleEngine}.
+ * The sink is selected with the {@code tinysensor.alerts.sink} property.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public interface AlertSink {
+
+    /**
+     * Publishes an alert. Called from the alert dispatcher thread, never from the ingestion path.
+     * @param alert the alert to publish
+     */
+    void publish(AlertDTO alert);
+}
@@ -0,0 +1,154 @@
+package tinysensormanager.service.rules;
+
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.util.LoggerUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * An array based form of the enabled {@link AlertRule}s, resolved against the slots of the
+ * {@link DeviceIndex}.
+ *
+ * <p>Rule attributes are stored column-wise in parallel arrays. For every slot, {@link #bySlot} lists the
+ * indexes of the rules that apply to the device in that slot, so evaluating a reading is a loop over a small
+ * int array with no lookups and no allocation. Devices with the same set of rules share the same array.
+ * At most {@link #MAX_RULES_PER_DEVICE} rules apply to a device, since their state is kept in one long.</p>
+ *
+ * <p>The rule arrays never change. When only devices change, {@link #update} resolves the new slots and the
+ * slots changed since the last resolution, so registering a device costs one slot rather than a compilation
+ * of every device. Instances are only used by the pipeline thread.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+final class CompiledRules {
+    static final int MAX_RULES_PER_DEVICE = 64;
+    private static final int[] NONE = new int[0];
+
+    final long[] ruleIds;
+    final String[] names;
+    final AlertRule.Type[] types;
+    final double[] thresholds;
+    final boolean hasSilenceRules;
+    int[][] bySlot = new int[0][];
+    int size;
+    int indexVersion = -1;
+
+    private final List<AlertRule> enabled;
+    private final Map<Long, List<Integer>> deviceRules = new HashMap<>();
+    private final List<Integer> modelRules = new ArrayList<>();
+    private final List<Integer> globalRules = new ArrayList<>();
+    private final Map<String, int[]> shared = new HashMap<>();
+    private final List<Integer> applicable = new ArrayList<>();
+
+    private CompiledRules(List<AlertRule> enabled) {
+        int n = enabled.size();
+        this.enabled = enabled;
+        this.ruleIds = new long[n];
+        this.names = new String[n];
+        this.types = new AlertRule.Type[n];
+        this.thresholds = new double[n];
+        boolean silence = false;
+        for (int i = 0; i < n; i++) {
+            AlertRule rule = enabled.get(i);
+            ruleIds[i] = rule.getId();
+            names[i] = rule.getName();
+            types[i] = rule.getType();
+            thresholds[i] = rule.getType() == AlertRule.Type.SILENCE ? rule.getThreshold() * 1000 : rule.getThreshold();
+            silence |= rule.getType() == AlertRule.Type.SILENCE;
+            switch (rule.getScope()) {
+                case DEVICE:
+                    deviceRules.computeIfAbsent(Long.valueOf(rule.getTarget().trim()), id -> new ArrayList<>()).add(i);
+                    break;
+                case MODEL:
+                    modelRules.add(i);
+                    break;
+                default:
+                    globalRules.add(i);
+            }
+        }
+        this.hasSilenceRules = silence;
+    }
+
+    /**
+     * Compiles the enabled rules for every device currently in the index.
+     * @param rules all rules
+     * @param deviceIndex the index whose slots the rules are resolved against
+     * @return the compiled rules
+     */
+    static CompiledRules compile(List<AlertRule> rules, DeviceIndex deviceIndex) {
+        List<AlertRule> enabled = new ArrayList<>();
+        for (AlertRule rule : rules) {
+            if (rule.isEnabled()) enabled.add(rule);
+        }
+        CompiledRules compiled = new CompiledRules(enabled);
+        compiled.update(deviceIndex, slot -> { });
+        return compiled;
+    }
+
+    /**
+     * Resolves the rules of the slots added to the index or changed in it since the last resolution.
+     * @param deviceIndex the index whose slots the rules are resolved against
+     * @param onChanged called with every previously resolved slot whose applicable rules changed
+     */
+    void update(DeviceIndex deviceIndex, IntConsumer onChanged) {
+        // Read before the slots, so changes made meanwhile are resolved again by the next update
+        int version = deviceIndex.version();
+        int slots = deviceIndex.size();
+        if (slots > bySlot.length) bySlot = Arrays.copyOf(bySlot, Math.max(slots, bySlot.length * 2));
+        for (int slot = 0; slot < size; slot++) {
+            if (deviceIndex.changedAt(slot) <= indexVersion) continue;
+            int[] resolved = resolve(slot, deviceIndex);
+            if (!Arrays.equals(resolved, bySlot[slot])) onChanged.accept(slot);
+            bySlot[slot] = resolved;
+        }
+        for (int slot = size; slot < slots; slot++) bySlot[slot] = resolve(slot, deviceIndex);
+        size = Math.max(size, slots);
+        indexVersion = version;
+    }
+
+    private int[] resolve(int slot, DeviceIndex deviceIndex) {
+        // Deleted devices are neither evaluated nor reported silent
+        if (!deviceIndex.isRegistered(slot)) return NONE;
+        String model = deviceIndex.modelAt(slot);
+        List<Integer> own = deviceRules.get(deviceIndex.deviceIdAt(slot));
+        int[] cached = own == null ? shared.get(model) : null;
+        if (cached != null) return cached;
+        applicable.clear();
+        applicable.addAll(globalRules);
+        for (int r : modelRules) {
+            if (model != null && model.startsWith(enabled.get(r).getTarget())) applicable.add(r);
+        }
+        if (own != null) applicable.addAll(own);
+        int[] compiled = toArray(applicable, deviceIndex.deviceIdAt(slot));
+        if (own == null) shared.put(model, compiled);
+        return compiled;
+    }
+
+    /**
+     * Returns the indexes of the rules that apply to a slot.
+     * @param slot the slot
+     * @return the rule indexes, empty if the slot was added after the last resolution
+     */
+    int[] rulesOf(int slot) {
+        return slot < size ? bySlot[slot] : NONE;
+    }
+
+    private static int[] toArray(List<Integer> indexes, long deviceId) {
+        if (indexes.isEmpty()) return NONE;
+        if (indexes.size() > MAX_RULES_PER_DEVICE) {
+            LoggerUtil.getCurrentLogger().warning(indexes.size() + " rules apply to device " + deviceId
+                    + ", only the first " + MAX_RULES_PER_DEVICE + " are evaluated");
+        }
+        int[] array = new int[Math.min(indexes.size(), MAX_RULES_PER_DEVICE)];
+        for (int i = 0; i < array.length; i++) array[i] = indexes.get(i);
+        Arrays.sort(array);
+        return array;
+    }
+}
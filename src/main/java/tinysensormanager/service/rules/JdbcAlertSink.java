@@ -0,0 +1,38 @@
+package tinysensormanager.service.rules;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.model.Alert;
+
+/**
+ * An {@link AlertSink} that stores every alert as an {@link Alert} row in the ALERTS table.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.alerts.sink", havingValue = "db")
+public class JdbcAlertSink implements AlertSink {
+    private static final String INSERT_SQL = "INSERT INTO ALERTS (RULE_ID, DEVICE_ID, RAISED, READING_VALUE, TS, MESSAGE) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor to inject the JDBC template via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used for the inserts
+     */
+    @Autowired
+    public JdbcAlertSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void publish(AlertDTO alert) {
+        jdbcTemplate.update(INSERT_SQL, alert.getRuleId(), alert.getDeviceId(), alert.isRaised(),
+                alert.getValue(), alert.getTimestamp(), alert.describe());
+    }
+}
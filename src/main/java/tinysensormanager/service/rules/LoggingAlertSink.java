@@ -0,0 +1,22 @@
+package tinysensormanager.service.rules;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.service.util.LoggerUtil;
+
+/**
+ * An {@link AlertSink} that writes alerts to the application log. This is the default sink.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.alerts.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingAlertSink implements AlertSink {
+
+    @Override
+    public void publish(AlertDTO alert) {
+        LoggerUtil.getCurrentLogger().warning(alert.describe());
+    }
+}
@@ -0,0 +1,185 @@
+package tinysensormanager.service.rules;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.ReadingIngestionPipeline;
+import tinysensormanager.service.ingest.ReadingListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Evaluates the {@link AlertRule}s against every reading as it passes through the
+ * {@link ReadingIngestionPipeline}.
+ *
+ * <p>The rules are compiled into {@link CompiledRules} on the pipeline thread whenever they change; when only
+ * devices change, just the new and changed devices are resolved against them. The state of each device (the
+ * last value, its timestamp, when it was last heard from and which of its rules are currently violated) is
+ * kept in primitive arrays indexed by slot, so evaluating a reading allocates nothing. Alerts are
+ * edge-triggered: one alert is raised when a rule starts being violated and one when it stops, and both are
+ * handed to the {@link AlertDispatcher}. Silence rules are checked once per second. After the rules change,
+ * the positions of the rules change as well, so every rule starts again from the not violated state, as does
+ * every rule of a device whose rules changed.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class RuleEngine implements ReadingListener {
+    private static final long SILENCE_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final DeviceIndex deviceIndex;
+    private final AlertDispatcher alertDispatcher;
+
+    private volatile List<AlertRule> rules = Collections.emptyList();
+    private volatile int rulesVersion;
+
+    // Only accessed by the pipeline thread
+    private CompiledRules compiled;
+    private int compiledRulesVersion = -1;
+    private int slots;
+    private long clock = System.currentTimeMillis();
+    private long lastSilenceCheck;
+    private long[] lastSeen = new long[0];
+    private long[] lastTimestamps = new long[0];
+    private double[] lastValues = new double[0];
+    private long[] active = new long[0];
+    private final IntConsumer resetSlot = slot -> active[slot] = 0;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param deviceIndex the index that assigns devices to slots
+     * @param alertDispatcher the dispatcher alerts are handed to
+     */
+    @Autowired
+    public RuleEngine(DeviceIndex deviceIndex, AlertDispatcher alertDispatcher) {
+        this.deviceIndex = deviceIndex;
+        this.alertDispatcher = alertDispatcher;
+    }
+
+    /**
+     * Replaces the rules. They take effect on the next tick of the pipeline.
+     * @param rules all rules, including the disabled ones
+     */
+    public synchronized void setRules(List<AlertRule> rules) {
+        this.rules = List.copyOf(rules);
+        rulesVersion++;
+    }
+
+    @Override
+    public void onReading(int slot, long deviceId, long timestamp, double value) {
+        if (slot >= slots) refresh();
+        int[] applicable = compiled.rulesOf(slot);
+        long previousTimestamp = lastTimestamps[slot];
+        double previousValue = lastValues[slot];
+        long bits = active[slot];
+        for (int j = 0; j < applicable.length; j++) {
+            int r = applicable[j];
+            double threshold = compiled.thresholds[r];
+            boolean violated;
+            switch (compiled.types[r]) {
+                case ABOVE:
+                    violated = value > threshold;
+                    break;
+                case BELOW:
+                    violated = value < threshold;
+                    break;
+                case RATE:
+                    violated = previousTimestamp != Long.MIN_VALUE && timestamp > previousTimestamp
+                            && Math.abs(value - previousValue) * 1000 / (timestamp - previousTimestamp) > threshold;
+                    break;
+                default:
+                    violated = false;
+            }
+            long bit = 1L << j;
+            if (violated != ((bits & bit) != 0)) {
+                bits ^= bit;
+                emit(r, deviceId, violated, value, timestamp);
+            }
+        }
+        active[slot] = bits;
+        lastSeen[slot] = clock;
+        if (timestamp >= previousTimestamp) {
+            lastTimestamps[slot] = timestamp;
+            lastValues[slot] = value;
+        }
+    }
+
+    @Override
+    public void onHeartbeat(int slot, long deviceId, long timestamp) {
+        if (slot >= slots) refresh();
+        lastSeen[slot] = clock;
+        int[] applicable = compiled.rulesOf(slot);
+        long bits = active[slot];
+        for (int j = 0; j < applicable.length; j++) {
+            long bit = 1L << j;
+            if ((bits & bit) != 0 && compiled.types[applicable[j]] == AlertRule.Type.SILENCE) {
+                bits ^= bit;
+                emit(applicable[j], deviceId, false, Double.NaN, clock);
+            }
+        }
+        active[slot] = bits;
+    }
+
+    @Override
+    public void onTick(long now) {
+        clock = now;
+        if (compiledRulesVersion != rulesVersion || compiled.indexVersion != deviceIndex.version()) refresh();
+        if (!compiled.hasSilenceRules || now - lastSilenceCheck < SILENCE_CHECK_INTERVAL_MILLIS) return;
+        lastSilenceCheck = now;
+        for (int slot = 0; slot < slots; slot++) {
+            int[] applicable = compiled.bySlot[slot];
+            long bits = active[slot];
+            for (int j = 0; j < applicable.length; j++) {
+                int r = applicable[j];
+                if (compiled.types[r] != AlertRule.Type.SILENCE) continue;
+                long bit = 1L << j;
+                boolean silent = now - lastSeen[slot] > compiled.thresholds[r];
+                if (silent != ((bits & bit) != 0)) {
+                    bits ^= bit;
+                    emit(r, deviceIndex.deviceIdAt(slot), silent, Double.NaN, now);
+                }
+            }
+            active[slot] = bits;
+        }
+    }
+
+    /**
+     * Compiles the current rules if they changed, or else resolves the devices added or changed since the last
+     * call, and grows the state arrays to the current number of devices. Devices seen for the first time count
+     * as heard from now, so silence is measured from startup or from their creation.
+     */
+    private void refresh() {
+        int version = rulesVersion;
+        if (compiled == null || version != compiledRulesVersion) {
+            compiled = CompiledRules.compile(rules, deviceIndex);
+            Arrays.fill(active, 0);
+            compiledRulesVersion = version;
+        } else {
+            compiled.update(deviceIndex, resetSlot);
+        }
+        int size = compiled.size;
+        if (size > lastSeen.length) {
+            int capacity = Math.max(size, lastSeen.length * 2);
+            lastSeen = Arrays.copyOf(lastSeen, capacity);
+            lastTimestamps = Arrays.copyOf(lastTimestamps, capacity);
+            lastValues = Arrays.copyOf(lastValues, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+        Arrays.fill(lastSeen, slots, size, clock);
+        Arrays.fill(lastTimestamps, slots, size, Long.MIN_VALUE);
+        slots = size;
+    }
+
+    private void emit(int rule, long deviceId, boolean raised, double value, long timestamp) {
+        AlertRule.Type type = compiled.types[rule];
+        double threshold = type == AlertRule.Type.SILENCE ? compiled.thresholds[rule] / 1000 : compiled.thresholds[rule];
+        alertDispatcher.dispatch(new AlertDTO(compiled.ruleIds[rule], compiled.names[rule], type, deviceId, raised,
+                Double.isNaN(value) ? null : value, threshold, timestamp));
+    }
+}
@@ -0,0 +1,67 @@
+package tinysensormanager.service.rules;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.service.util.LoggerUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.logging.Level;
+
+/**
+ * An {@link AlertSink} that posts every alert as JSON to a webhook URL.
+ * Requests are sent asynchronously and failures are only logged, alerts are not retried.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.alerts.sink", havingValue = "webhook")
+public class WebhookAlertSink implements AlertSink {
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper;
+    private final URI webhookUri;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param objectMapper the Jackson mapper used to serialise alerts
+     * @param webhookUrl the URL alerts are posted to
+     */
+    @Autowired
+    public WebhookAlertSink(ObjectMapper objectMapper, @Value("${tinysensor.alerts.webhook-url}") String webhookUrl) {
+        this.objectMapper = objectMapper;
+        this.webhookUri = URI.create(webhookUrl);
+    }
+
+    @Override
+    public void publish(AlertDTO alert) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Alert could not be serialised", e);
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(webhookUri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        LoggerUtil.getCurrentLogger().warning("Alert webhook failed: " + error.getMessage());
+                    } else if (response.statusCode() >= 300) {
+                        LoggerUtil.getCurrentLogger().warning("Alert webhook answered " + response.statusCode());
+                    }
+                });
+    }
+}
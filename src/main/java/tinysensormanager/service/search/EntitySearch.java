@@ -0,0 +1,315 @@
+package tinysensormanager.service.search;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the searches of the search endpoints as JPA Criteria queries, with filters composed as
+ * {@link Specification}s and keyset pagination.
+ *
+ * <p>Before a search runs, it is checked against the indexes of its entity (see {@link SearchSchema}). A
+ * search is bounded when it has a sargable filter on an indexed field, which limits the rows the database
+ * reads to those in the index range, or when it has no filter at all, so the rows are read in the order of
+ * the sort index and the limit stops the scan. Filters on unindexed fields, and filters such as
+ * {@code present} that match most of an index, only discard rows already read, so on their own they may scan
+ * the whole table to fill a page; the same holds for sorting by an unindexed field. Such searches are refused,
+ * or run with a warning when {@code tinysensor.search.allow-unindexed} is true. Every search also runs with a
+ * statement timeout and a bounded page size.</p>
+ *
+ * <p>Rows are sorted by the sort field and then by id in the same direction, and a page continues after the
+ * sort value and id of the last row of the previous one (see {@link SearchCursor}). Null values sort first in
+ * ascending order, as in MySQL.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class EntitySearch implements MeterBinder {
+    private static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+    private static final char LIKE_ESCAPE = '!';
+
+    private final boolean allowUnindexed;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int maxValues;
+    private final int timeoutMillis;
+    private final Map<Class<?>, SearchSchema<?>> schemas = new ConcurrentHashMap<>();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder unindexed = new LongAdder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Creates the search with its limits configured via Spring's dependency injection.
+     * @param allowUnindexed whether searches that are not supported by an index run with a warning
+     * @param defaultLimit the number of rows of a page when the search does not give one
+     * @param maxLimit the maximum number of rows of a page
+     * @param maxValues the maximum number of values of an {@code in} filter
+     * @param timeoutMillis the statement timeout of a search
+     */
+    public EntitySearch(@Value("${tinysensor.search.allow-unindexed:false}") boolean allowUnindexed,
+                        @Value("${tinysensor.search.default-limit:50}") int defaultLimit,
+                        @Value("${tinysensor.search.max-limit:500}") int maxLimit,
+                        @Value("${tinysensor.search.max-values:100}") int maxValues,
+                        @Value("${tinysensor.search.timeout-ms:2000}") int timeoutMillis) {
+        this.allowUnindexed = allowUnindexed;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.maxValues = maxValues;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs a search.
+     * @param entityClass the class of the searched entity
+     * @param query the search
+     * @param <T> the type of the entity
+     * @return a page of at most the limit of the search, with the cursor of the next page
+     * @throws InvalidSearchException if the search is malformed, not supported by an index, or timed out
+     */
+    public <T> SearchResult<T> search(Class<T> entityClass, SearchQuery query) throws InvalidSearchException {
+        try {
+            return run(schema(entityClass), query);
+        } catch (InvalidSearchException e) {
+            refused.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tinysensor.search.refused", refused, LongAdder::sum)
+                .description("Searches refused as malformed, unsupported by an index or too slow")
+                .register(registry);
+        FunctionCounter.builder("tinysensor.search.unindexed", unindexed, LongAdder::sum)
+                .description("Searches run with a warning although no index supports them")
+                .register(registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> SearchSchema<T> schema(Class<T> entityClass) {
+        return (SearchSchema<T>) schemas.computeIfAbsent(entityClass, SearchSchema::of);
+    }
+
+    private <T> SearchResult<T> run(SearchSchema<T> schema, SearchQuery query) throws InvalidSearchException {
+        int limit = query.getLimit() != null ? query.getLimit() : defaultLimit;
+        if (limit < 1 || limit > maxLimit) {
+            throw new InvalidSearchException("The limit must be between 1 and " + maxLimit);
+        }
+        SearchSchema.SearchableField sortField = field(schema, query.getSortField());
+        List<String> warnings = new ArrayList<>();
+        if (!sortField.isIndexed()) {
+            unindexed(warnings, "No index supports sorting by " + sortField.getName());
+        }
+
+        Specification<T> specification = null;
+        boolean bounded = query.getFilters().isEmpty();
+        List<String> residual = new ArrayList<>();
+        for (SearchFilter filter : query.getFilters()) {
+            SearchSchema.SearchableField field = field(schema, filter.getField());
+            specification = and(specification, filter(field, filter));
+            if (field.isIndexed() && filter.getOperator().isSargable()) {
+                bounded = true;
+            } else {
+                residual.add(filter.toString());
+            }
+        }
+        if (!bounded) {
+            unindexed(warnings, "No index supports the filters " + residual
+                    + "; add a filter on one of the indexed fields " + indexedFields(schema));
+        }
+        if (query.getCursor() != null) {
+            SearchCursor cursor = SearchCursor.decode(query.getCursor());
+            if (!cursor.getSort().equals(query.getSort())) {
+                throw new InvalidSearchException("The cursor was returned for the sort " + cursor.getSort());
+            }
+            specification = and(specification, after(schema, sortField, query.isDescending(), cursor));
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteria = builder.createQuery(schema.getEntityClass());
+        Root<T> root = criteria.from(schema.getEntityClass());
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, criteria, builder);
+            if (predicate != null) criteria.where(predicate);
+        }
+        criteria.orderBy(order(builder, root.get(sortField.getName()), query.isDescending()),
+                order(builder, root.get(schema.id().getName()), query.isDescending()));
+
+        List<T> rows;
+        try {
+            rows = entityManager.createQuery(criteria)
+                    .setMaxResults(limit + 1)
+                    .setHint(TIMEOUT_HINT, timeoutMillis)
+                    .getResultList();
+        } catch (QueryTimeoutException e) {
+            LoggerUtil.getCurrentLogger().warning("Search timed out: " + query.getFilters() + " sort " + query.getSort());
+            throw new InvalidSearchException("The search took longer than " + timeoutMillis
+                    + " ms; narrow it with a more selective filter on an indexed field");
+        }
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            T last = rows.get(limit - 1);
+            Object value = sortField.get(last);
+            nextCursor = new SearchCursor(query.getSort(), ((Number) schema.id().get(last)).longValue(),
+                    value != null ? value.toString() : null).encode();
+        }
+        return new SearchResult<>(rows, nextCursor, warnings.isEmpty() ? Collections.emptyList() : warnings);
+    }
+
+    private void unindexed(List<String> warnings, String reason) throws InvalidSearchException {
+        if (!allowUnindexed) throw new InvalidSearchException(reason);
+        unindexed.increment();
+        LoggerUtil.getCurrentLogger().warning(reason);
+        warnings.add(reason);
+    }
+
+    private static SearchSchema.SearchableField field(SearchSchema<?> schema, String name)
+            throws InvalidSearchException {
+        SearchSchema.SearchableField field = schema.field(name);
+        if (field == null) {
+            throw new InvalidSearchException("Unknown field '" + name + "', expected one of "
+                    + schema.fields().keySet());
+        }
+        return field;
+    }
+
+    private static List<String> indexedFields(SearchSchema<?> schema) {
+        List<String> indexed = new ArrayList<>();
+        schema.fields().forEach((name, field) -> {
+            if (field.isIndexed()) indexed.add(name);
+        });
+        return indexed;
+    }
+
+    private static <T> Specification<T> and(Specification<T> specification, Specification<T> other) {
+        return specification == null ? other : specification.and(other);
+    }
+
+    /**
+     * Translates a filter into a specification, after checking its operator and values against the field.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Specification<T> filter(SearchSchema.SearchableField field, SearchFilter filter)
+            throws InvalidSearchException {
+        FilterOperator operator = filter.getOperator();
+        if (operator == FilterOperator.PREFIX && !field.isText()) {
+            throw new InvalidSearchException("Filter '" + filter + "': prefix applies to text fields only");
+        }
+        if ((operator == FilterOperator.PRESENT || operator == FilterOperator.ABSENT) && !field.isNullable()) {
+            throw new InvalidSearchException("Filter '" + filter + "': " + field.getName() + " always has a value");
+        }
+        if (filter.getValues().size() > maxValues) {
+            throw new InvalidSearchException("Filter '" + field.getName() + ":in' has more than " + maxValues
+                    + " values");
+        }
+        List<Comparable> values = new ArrayList<>(filter.getValues().size());
+        for (String text : filter.getValues()) {
+            Comparable value = field.parse(text);
+            if (value == null) throw new InvalidSearchException("Filter '" + filter + "': '" + text + "' is not a number");
+            values.add(value);
+        }
+
+        String name = field.getName();
+        switch (operator) {
+            case EQ:
+                return (root, query, builder) -> builder.equal(root.get(name), values.get(0));
+            case IN:
+                return (root, query, builder) -> root.get(name).in(values);
+            case PREFIX:
+                String pattern = escapeLike((String) values.get(0)) + "%";
+                return (root, query, builder) -> builder.like(root.get(name), pattern, LIKE_ESCAPE);
+            case GT:
+                return (root, query, builder) -> builder.greaterThan(root.<Comparable>get(name), values.get(0));
+            case GE:
+                return (root, query, builder) -> builder.greaterThanOrEqualTo(root.<Comparable>get(name), values.get(0));
+            case LT:
+                return (root, query, builder) -> builder.lessThan(root.<Comparable>get(name), values.get(0));
+            case LE:
+                return (root, query, builder) -> builder.lessThanOrEqualTo(root.<Comparable>get(name), values.get(0));
+            case PRESENT:
+                return (root, query, builder) -> builder.isNotNull(root.get(name));
+            case ABSENT:
+                return (root, query, builder) -> builder.isNull(root.get(name));
+            default:
+                throw new IllegalStateException("Unknown operator " + operator);
+        }
+    }
+
+    /**
+     * Returns the rows that sort after the position of a cursor: with a greater sort value, or an equal one
+     * and a greater id, where greater means smaller in descending order and null is the smallest value.
+     * Each alternative is a range of the index of the sort field.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Specification<T> after(SearchSchema<T> schema, SearchSchema.SearchableField sortField,
+                                              boolean descending, SearchCursor cursor)
+            throws InvalidSearchException {
+        String sortName = sortField.getName();
+        String idName = schema.id().getName();
+        long lastId = cursor.getId();
+        if (sortField == schema.id()) {
+            return (root, query, builder) -> descending ? builder.lessThan(root.get(idName), lastId)
+                    : builder.greaterThan(root.get(idName), lastId);
+        }
+        Comparable lastValue = null;
+        if (cursor.getValue() != null) {
+            lastValue = sortField.parse(cursor.getValue());
+            if (lastValue == null) throw new InvalidSearchException("Malformed cursor");
+        }
+        Comparable value = lastValue;
+        return (root, query, builder) -> {
+            Path<Comparable> sort = root.get(sortName);
+            Path<Long> id = root.get(idName);
+            Predicate sameValueAfter = builder.and(value == null ? builder.isNull(sort) : builder.equal(sort, value),
+                    descending ? builder.lessThan(id, lastId) : builder.greaterThan(id, lastId));
+            if (value == null) {
+                // Nulls come first: after a null, the remaining nulls and then every value
+                return descending ? sameValueAfter : builder.or(sameValueAfter, builder.isNotNull(sort));
+            }
+            Predicate beyond = descending ? builder.lessThan(sort, value) : builder.greaterThan(sort, value);
+            if (descending && sortField.isNullable()) return builder.or(beyond, sameValueAfter, builder.isNull(sort));
+            return builder.or(beyond, sameValueAfter);
+        };
+    }
+
+    private static Order order(CriteriaBuilder builder, Expression<?> expression, boolean descending) {
+        return descending ? builder.desc(expression) : builder.asc(expression);
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) escaped.append(LIKE_ESCAPE);
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package tinysensormanager.service.search;
+
+import java.util.Locale;
+
+/**
+ * The comparisons a search filter applies to a field.
+ *
+ * <p>An operator is sargable when the database can answer it with a range scan of an index on the field;
+ * only sargable filters on indexed fields bound the number of rows a search reads.</p>
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public enum FilterOperator {
+    /**
+     * The field equals the value.
+     */
+    EQ(true, true),
+    /**
+     * The field equals one of the comma separated values.
+     */
+    IN(true, true),
+    /**
+     * The text field starts with the value.
+     */
+    PREFIX(true, true),
+    /**
+     * The field is greater than the value.
+     */
+    GT(true, true),
+    /**
+     * The field is greater than or equal to the value.
+     */
+    GE(true, true),
+    /**
+     * The field is less than the value.
+     */
+    LT(true, true),
+    /**
+     * The field is less than or equal to the value.
+     */
+    LE(true, true),
+    /**
+     * The field has a value. Matches most rows of an index, so it does not bound a search.
+     */
+    PRESENT(false, false),
+    /**
+     * The field has no value.
+     */
+    ABSENT(false, false);
+
+    private final boolean sargable;
+    private final boolean takesValue;
+
+    FilterOperator(boolean sargable, boolean takesValue) {
+        this.sargable = sargable;
+        this.takesValue = takesValue;
+    }
+
+    /**
+     * Returns whether an index on the field can answer the filter with a range scan.
+     * @return true if the operator is sargable
+     */
+    public boolean isSargable() {
+        return sargable;
+    }
+
+    /**
+     * Returns whether the operator compares the field with a value.
+     * @return true if a value must be given
+     */
+    public boolean takesValue() {
+        return takesValue;
+    }
+
+    /**
+     * Returns the operator with a name, ignoring case.
+     * @param name the name, such as "eq" or "prefix"
+     * @return the operator, or null if there is none with the name
+     */
+    public static FilterOperator of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
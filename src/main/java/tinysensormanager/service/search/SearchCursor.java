@@ -0,0 +1,80 @@
+package tinysensormanager.service.search;
+
+import tinysensormanager.service.exceptions.InvalidSearchException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position after the last row of a page: the sort it was taken with, and the sort value and id of the
+ * last row. The next page continues with the rows that sort after that position, so it is read with an index
+ * range scan however deep the client pages, and rows inserted or deleted meanwhile neither repeat nor skip
+ * rows. Cursors are opaque to clients, in URL safe base64.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+final class SearchCursor {
+    private final String sort;
+    private final long id;
+    private final String value;
+
+    SearchCursor(String sort, long id, String value) {
+        this.sort = sort;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Returns the sort the cursor was taken with.
+     * @return the sort, as in {@link SearchQuery#getSort()}
+     */
+    String getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns the id of the last row.
+     * @return the id
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the sort value of the last row.
+     * @return the value as text, or null if the row has none
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Encodes the cursor.
+     * @return the opaque cursor
+     */
+    String encode() {
+        // The value comes last, so it needs no escaping
+        String text = sort + '\n' + id + '\n' + (value == null ? "-" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor.
+     * @param cursor the opaque cursor returned with a page
+     * @return the cursor
+     * @throws InvalidSearchException if the cursor is malformed
+     */
+    static SearchCursor decode(String cursor) throws InvalidSearchException {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+            if (parts.length == 3 && ("-".equals(parts[2]) || parts[2].startsWith("="))) {
+                String value = "-".equals(parts[2]) ? null : parts[2].substring(1);
+                return new SearchCursor(parts[0], Long.parseLong(parts[1]), value);
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed base64 or id, reported below
+        }
+        throw new InvalidSearchException("Malformed cursor");
+    }
+}
@@ -0,0 +1,83 @@
+package tinysensormanager.service.search;
+
+import tinysensormanager.service.exceptions.InvalidSearchException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One condition of a search, written as {@code field:operator:value}, for example {@code model:in:TS-100,TS-200},
+ * {@code serialnumber:ge:SN-1000} or {@code imageUrl:present}. The values of {@code in} are separated by
+ * commas and cannot contain one themselves.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public final class SearchFilter {
+    private final String field;
+    private final FilterOperator operator;
+    private final List<String> values;
+
+    private SearchFilter(String field, FilterOperator operator, List<String> values) {
+        this.field = field;
+        this.operator = operator;
+        this.values = values;
+    }
+
+    /**
+     * Parses a filter.
+     * @param text the filter, {@code field:operator:value} or {@code field:operator}
+     * @return the filter
+     * @throws InvalidSearchException if the filter is malformed or its operator unknown
+     */
+    public static SearchFilter parse(String text) throws InvalidSearchException {
+        String[] parts = text.split(":", 3);
+        if (parts.length < 2 || parts[0].isBlank()) {
+            throw new InvalidSearchException("Malformed filter '" + text + "', expected field:operator:value");
+        }
+        FilterOperator operator = FilterOperator.of(parts[1].trim());
+        if (operator == null) throw new InvalidSearchException("Unknown operator in filter '" + text + "'");
+        List<String> values;
+        if (!operator.takesValue()) {
+            if (parts.length == 3) throw new InvalidSearchException("Filter '" + text + "' takes no value");
+            values = Collections.emptyList();
+        } else {
+            if (parts.length < 3 || parts[2].isEmpty()) {
+                throw new InvalidSearchException("Filter '" + text + "' needs a value");
+            }
+            values = operator == FilterOperator.IN ? Arrays.asList(parts[2].split(",", -1)) : List.of(parts[2]);
+        }
+        return new SearchFilter(parts[0].trim(), operator, values);
+    }
+
+    /**
+     * Returns the name of the filtered field.
+     * @return the field name
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the comparison of the filter.
+     * @return the operator
+     */
+    public FilterOperator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Returns the values the field is compared with.
+     * @return the values, empty for operators that take none
+     */
+    public List<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + operator.name().toLowerCase(Locale.ROOT) + (values.isEmpty() ? "" : ":" + String.join(",", values));
+    }
+}
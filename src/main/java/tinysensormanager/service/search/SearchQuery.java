@@ -0,0 +1,102 @@
+package tinysensormanager.service.search;
+
+import tinysensormanager.service.exceptions.InvalidSearchException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A search over the rows of one entity: the filters all rows must match, the field the rows are sorted by,
+ * the maximum number of rows returned and the cursor of the page to continue after.
+ *
+ * @author manokel01
+ * @version 1.0
+ */
+public final class SearchQuery {
+    private final List<SearchFilter> filters;
+    private final String sortField;
+    private final boolean descending;
+    private final Integer limit;
+    private final String cursor;
+
+    private SearchQuery(List<SearchFilter> filters, String sortField, boolean descending, Integer limit,
+                        String cursor) {
+        this.filters = filters;
+        this.sortField = sortField;
+        this.descending = descending;
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Parses a search from the parameters of a request.
+     * @param filters the filters, each {@code field:operator:value}, or null for none
+     * @param sort the field to sort by, prefixed with '-' for descending order, or null to sort by id
+     * @param limit the maximum number of rows, or null for the default
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @return the search
+     * @throws InvalidSearchException if a filter or the sort is malformed
+     */
+    public static SearchQuery parse(List<String> filters, String sort, Integer limit, String cursor)
+            throws InvalidSearchException {
+        List<SearchFilter> parsed = new ArrayList<>();
+        if (filters != null) {
+            for (String filter : filters) parsed.add(SearchFilter.parse(filter));
+        }
+        String sortField = sort == null || sort.isBlank() ? "id" : sort.trim();
+        boolean descending = sortField.startsWith("-");
+        if (descending) sortField = sortField.substring(1);
+        if (sortField.isEmpty()) throw new InvalidSearchException("Malformed sort '" + sort + "'");
+        return new SearchQuery(Collections.unmodifiableList(parsed), sortField, descending, limit,
+                cursor == null || cursor.isBlank() ? null : cursor.trim());
+    }
+
+    /**
+     * Returns the filters all rows must match.
+     * @return the filters
+     */
+    public List<SearchFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Returns the field the rows are sorted by; rows with equal values are sorted by id in the same direction.
+     * @return the field name
+     */
+    public String getSortField() {
+        return sortField;
+    }
+
+    /**
+     * Returns whether the rows are sorted in descending order.
+     * @return true for descending order
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Returns the sort as written in a request.
+     * @return the sort field, prefixed with '-' for descending order
+     */
+    public String getSort() {
+        return descending ? "-" + sortField : sortField;
+    }
+
+    /**
+     * Returns the maximum number of rows requested.
+     * @return the limit, or null for the default
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the cursor of the page to continue after.
+     * @return the cursor, or null for the first page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,46 @@
+package tinysensormanager.service.search;
+
+import java.util.List;
+
+/**
+ * A page of search results.
+ *
+ * @param <T> the type of the entities found
+ * @author manokel01
+ * @version 1.0
+ */
+public final class SearchResult<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final List<String> warnings;
+
+    SearchResult(List<T> items, String nextCursor, List<String> warnings) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.warnings = warnings;
+    }
+
+    /**
+     * Returns the entities of the page, in the order of the search.
+     * @return the entities
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the cursor the next page is requested with.
+     * @return the cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Returns the reasons the search may have read more rows than it returned.
+     * @return the warnings, empty if every filter and the sort were supported by an index
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+}
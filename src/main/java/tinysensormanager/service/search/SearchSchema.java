@@ -0,0 +1,171 @@
+package tinysensormanager.service.search;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The searchable fields of an entity and whether an index supports each of them, read from the JPA mapping.
+ *
+ * <p>A field is indexed when it is the id, when its column is unique, or when its column leads one of the
+ * indexes declared in the {@link Table} annotation of the entity. Only the leading column counts, because only
+ * it can be range scanned on its own. InnoDB appends the primary key to every secondary index, so an index
+ * on a column also serves the keyset order of that column followed by the id. The declared indexes must match
+ * the migrations, which create them.</p>
+ *
+ * @param <T> the type of the entity
+ * @author manokel01
+ * @version 1.0
+ */
+final class SearchSchema<T> {
+    private final Class<T> entityClass;
+    private final Map<String, SearchableField> fields;
+    private final SearchableField id;
+
+    private SearchSchema(Class<T> entityClass, Map<String, SearchableField> fields, SearchableField id) {
+        this.entityClass = entityClass;
+        this.fields = fields;
+        this.id = id;
+    }
+
+    /**
+     * Reads the searchable fields of an entity: its id and the text and number fields mapped to a column.
+     * @param entityClass the class of the entity
+     * @param <T> the type of the entity
+     * @return the schema
+     * @throws IllegalArgumentException if the entity has no numeric id
+     */
+    static <T> SearchSchema<T> of(Class<T> entityClass) {
+        Set<String> indexedColumns = new HashSet<>();
+        Table table = entityClass.getAnnotation(Table.class);
+        if (table != null) {
+            for (Index index : table.indexes()) {
+                String leading = index.columnList().split(",")[0].trim().split("\\s+")[0];
+                indexedColumns.add(leading.toUpperCase(Locale.ROOT));
+            }
+        }
+        Map<String, SearchableField> fields = new LinkedHashMap<>();
+        SearchableField id = null;
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || field.isAnnotationPresent(Transient.class)) continue;
+            Class<?> type = field.getType();
+            if (type != String.class && type != Long.class && type != long.class
+                    && type != Integer.class && type != int.class) continue;
+            Column column = field.getAnnotation(Column.class);
+            String columnName = column != null && !column.name().isEmpty() ? column.name() : field.getName();
+            boolean isId = field.isAnnotationPresent(Id.class);
+            boolean indexed = isId || (column != null && column.unique())
+                    || indexedColumns.contains(columnName.toUpperCase(Locale.ROOT));
+            boolean nullable = !isId && !type.isPrimitive() && (column == null || column.nullable());
+            field.setAccessible(true);
+            SearchableField searchable = new SearchableField(field, indexed, nullable);
+            fields.put(field.getName(), searchable);
+            if (isId) id = searchable;
+        }
+        if (id == null || id.isText()) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " has no numeric id");
+        }
+        return new SearchSchema<>(entityClass, Collections.unmodifiableMap(fields), id);
+    }
+
+    /**
+     * Returns the class of the entity.
+     * @return the entity class
+     */
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Returns a searchable field.
+     * @param name the name of the field
+     * @return the field, or null if the entity has no searchable field with the name
+     */
+    SearchableField field(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * Returns the searchable fields.
+     * @return the fields by name, in declaration order
+     */
+    Map<String, SearchableField> fields() {
+        return fields;
+    }
+
+    /**
+     * Returns the id field.
+     * @return the id
+     */
+    SearchableField id() {
+        return id;
+    }
+
+    /**
+     * A field of the entity that can be filtered and sorted on.
+     */
+    static final class SearchableField {
+        private final Field field;
+        private final boolean indexed;
+        private final boolean nullable;
+
+        SearchableField(Field field, boolean indexed, boolean nullable) {
+            this.field = field;
+            this.indexed = indexed;
+            this.nullable = nullable;
+        }
+
+        String getName() {
+            return field.getName();
+        }
+
+        boolean isIndexed() {
+            return indexed;
+        }
+
+        boolean isNullable() {
+            return nullable;
+        }
+
+        boolean isText() {
+            return field.getType() == String.class;
+        }
+
+        /**
+         * Converts a value of a request to the type of the field.
+         * @return the value, or null if it is not a number while the field is numeric
+         */
+        Comparable<?> parse(String value) {
+            if (isText()) return value;
+            try {
+                Class<?> type = field.getType();
+                return type == Long.class || type == long.class ? (Comparable<?>) Long.valueOf(value.trim())
+                        : Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the value of the field of an entity.
+         */
+        Object get(Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + field, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package tinysensormanager.service.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every statement executed through the proxied data source, records it in the {@link SqlStatistics},
+ * counts it for the current request and logs statements slower than the slow query threshold. Statements
+ * are logged in their normalized form with the number of their bind parameters, never with values, which may
+ * be passwords or personal data.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class SqlExecutionListener implements QueryExecutionListener {
+    private static final String START = "tinysensor.start";
+
+    private final SqlStatistics statistics;
+    private final long slowThresholdNanos;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param statistics the statistics statements are recorded in
+     * @param slowThresholdMillis the latency above which a statement is logged
+     */
+    public SqlExecutionListener(SqlStatistics statistics,
+                                @Value("${tinysensor.sql.slow-threshold-ms:200}") long slowThresholdMillis) {
+        this.statistics = statistics;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        long elapsed = start != null ? System.nanoTime() - start : TimeUnit.MILLISECONDS.toNanos(execInfo.getElapsedTime());
+        boolean isSlow = elapsed > slowThresholdNanos;
+        SqlRequestContext context = SqlRequestContext.current();
+        // A statement batch is timed as a whole, so its time is split evenly
+        long share = elapsed / Math.max(1, queryInfoList.size());
+        for (QueryInfo query : queryInfoList) {
+            String sql = statistics.normalize(query.getQuery());
+            statistics.record(sql, share, isSlow);
+            if (context != null) context.count(sql);
+        }
+        if (isSlow) logSlow(execInfo, queryInfoList, elapsed);
+    }
+
+    private void logSlow(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, long elapsed) {
+        StringBuilder message = new StringBuilder("Slow SQL (")
+                .append(TimeUnit.NANOSECONDS.toMillis(elapsed)).append(" ms");
+        if (execInfo.isBatch()) message.append(", batch of ").append(execInfo.getBatchSize());
+        message.append("): ");
+        QueryInfo first = queryInfoList.get(0);
+        // Literals are replaced by the normalization, bind values are not logged at all
+        message.append(statistics.normalize(first.getQuery()));
+        if (!first.getParametersList().isEmpty()) {
+            message.append(" [").append(first.getParametersList().get(0).size()).append(" parameters]");
+        }
+        if (queryInfoList.size() > 1) message.append(" and ").append(queryInfoList.size() - 1).append(" more");
+        LoggerUtil.getCurrentLogger().warning(message.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package tinysensormanager.service.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the statements executed by the current HTTP request, per normalized statement.
+ * A context is bound to the request thread by the request filter; statements executed on other threads,
+ * such as the ingestion pipeline, are not attributed to any request.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class SqlRequestContext {
+    private static final ThreadLocal<SqlRequestContext> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, int[]> counts = new HashMap<>();
+    private int statements;
+
+    private SqlRequestContext() {
+    }
+
+    /**
+     * Binds a new context to the current thread.
+     * @return the context
+     */
+    public static SqlRequestContext begin() {
+        SqlRequestContext context = new SqlRequestContext();
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Unbinds the context of the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the context of the current thread.
+     * @return the context, or null outside of a request
+     */
+    static SqlRequestContext current() {
+        return CURRENT.get();
+    }
+
+    void count(String sql) {
+        statements++;
+        counts.computeIfAbsent(sql, key -> new int[1])[0]++;
+    }
+
+    /**
+     * Returns the number of statements executed by the request.
+     * @return the number of statements
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * Returns how often each normalized statement was executed by the request.
+     * @return the execution counts, keyed by normalized statement
+     */
+    public Map<String, int[]> getCounts() {
+        return counts;
+    }
+}
@@ -0,0 +1,140 @@
+package tinysensormanager.service.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.dto.RepeatedStatementDTO;
+import tinysensormanager.dto.SqlReportDTO;
+import tinysensormanager.dto.SqlStatementStatsDTO;
+import tinysensormanager.service.util.LatencyHistogram;
+import tinysensormanager.service.util.LoggerUtil;
+import tinysensormanager.service.util.SqlNormalizer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collects latency histograms per normalized SQL statement and the request handlers that repeat
+ * statements within a single request.
+ *
+ * <p>At most {@code maxStatements} distinct statements are tracked; further statements are counted under
+ * a single "other" entry, so generated SQL cannot grow the statistics without bound.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class SqlStatistics {
+    private static final String OTHER = "(other statements)";
+    private static final int MAX_NORMALIZED_CACHE = 10_000;
+
+    private final int maxStatements;
+    private final int repeatThreshold;
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, RepeatedStatementDTO> repeated = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+
+    /**
+     * Constructor to inject the configuration via Spring's dependency injection.
+     * @param maxStatements the maximum number of distinct statements tracked
+     * @param repeatThreshold the number of executions of one statement within a request that flags the handler
+     */
+    public SqlStatistics(@Value("${tinysensor.sql.max-statements:1000}") int maxStatements,
+                         @Value("${tinysensor.sql.repeat-threshold:10}") int repeatThreshold) {
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * Returns the normalized form of a statement, cached since the same statements run over and over.
+     * @param sql the statement
+     * @return the normalized statement
+     */
+    public String normalize(String sql) {
+        String result = normalized.get(sql);
+        if (result == null) {
+            if (normalized.size() >= MAX_NORMALIZED_CACHE) normalized.clear();
+            result = SqlNormalizer.normalize(sql);
+            normalized.put(sql, result);
+        }
+        return result;
+    }
+
+    /**
+     * Records the execution of a statement.
+     * @param sql the normalized statement
+     * @param nanos the latency in nanoseconds
+     * @param isSlow whether the statement exceeded the slow query threshold
+     */
+    public void record(String sql, long nanos, boolean isSlow) {
+        total.increment();
+        if (isSlow) slow.increment();
+        LatencyHistogram histogram = histograms.get(sql);
+        if (histogram == null) {
+            String key = histograms.size() < maxStatements ? sql : OTHER;
+            histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Flags the statements a request executed at least the repeat threshold number of times.
+     * @param handler the HTTP method and path pattern of the request handler
+     * @param context the statements of the request
+     */
+    public void checkRepeats(String handler, SqlRequestContext context) {
+        if (context.getStatements() < repeatThreshold) return;
+        for (Map.Entry<String, int[]> entry : context.getCounts().entrySet()) {
+            int repeats = entry.getValue()[0];
+            if (repeats < repeatThreshold) continue;
+            String key = handler + '\n' + entry.getKey();
+            RepeatedStatementDTO suspect = repeated.computeIfAbsent(key, k -> {
+                LoggerUtil.getCurrentLogger().warning("Possible N+1 query in " + handler + ": " + repeats
+                        + " executions of " + entry.getKey());
+                return new RepeatedStatementDTO(handler, entry.getKey(), 0, 0);
+            });
+            synchronized (suspect) {
+                suspect.setMaxRepeats(Math.max(suspect.getMaxRepeats(), repeats));
+                suspect.setRequests(suspect.getRequests() + 1);
+            }
+        }
+    }
+
+    /**
+     * Builds a report of the collected statistics.
+     * @param limit the maximum number of statements in the report
+     * @return the report, statements ordered by descending total time
+     */
+    public SqlReportDTO report(int limit) {
+        List<SqlStatementStatsDTO> statements = histograms.entrySet().stream()
+                .map(entry -> {
+                    LatencyHistogram h = entry.getValue();
+                    return new SqlStatementStatsDTO(entry.getKey(), h.getCount(), h.getMeanMillis(),
+                            h.getPercentileMillis(50), h.getPercentileMillis(95), h.getPercentileMillis(99),
+                            h.getMaxMillis());
+                })
+                .sorted(Comparator.comparingDouble((SqlStatementStatsDTO s) -> s.getCount() * s.getMeanMillis())
+                        .reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        List<RepeatedStatementDTO> suspects = repeated.values().stream()
+                .sorted(Comparator.comparingLong(RepeatedStatementDTO::getMaxRepeats).reversed())
+                .collect(Collectors.toList());
+        return new SqlReportDTO(total.sum(), slow.sum(), statements, suspects);
+    }
+
+    /**
+     * Discards all collected statistics.
+     */
+    public void reset() {
+        histograms.clear();
+        repeated.clear();
+        total.reset();
+        slow.reset();
+    }
+}
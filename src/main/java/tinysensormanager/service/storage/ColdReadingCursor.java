@@ -0,0 +1,229 @@
+package tinysensormanager.service.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Inflater;
+
+/**
+ * Iterates over the archived readings of a device in a time range, in ascending timestamp order.
+ *
+ * <p>The cursor collects the matching blocks of all segments and sorts them by their first timestamp.
+ * Blocks are decompressed on the reader executor a window ahead of the block being consumed, so the cold
+ * tier is read in parallel while the caller consumes points one at a time. Blocks of segments that cover
+ * the same time range overlap and are merged on the fly. Not thread safe.</p>
+ *
+ * <p>The archiver deletes exported rows from the database only after other nodes had time to see the new
+ * segment, so for a while a reading can be in both tiers. {@link #isArchived(long, long)} tells a caller
+ * merging the database rows which of them to skip.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class ColdReadingCursor implements AutoCloseable {
+    private static final ThreadLocal<Decoder> DECODERS = ThreadLocal.withInitial(Decoder::new);
+
+    private final long from;
+    private final long to;
+    private final Executor executor;
+    private final int window;
+    private final ReadingSegment[] segments;
+    private final int[] blocks;
+    private final CompletableFuture<Block>[] decoded;
+    private final long[] archivedFrom;
+    private final long[] archivedTo;
+    private final long[] archivedMaxIds;
+    private final long archivedUntil;
+    private final PriorityQueue<Block> open = new PriorityQueue<>(Comparator.comparingLong(Block::current));
+    private int next;
+    private int submitted;
+    private long timestamp;
+    private double value;
+
+    /**
+     * Creates a cursor over the readings of a device in the time range [from, to).
+     * @param segments the segments to read, in any order
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds
+     * @param to the exclusive end of the range in milliseconds
+     * @param executor the executor that decompresses blocks
+     * @param window the number of blocks decompressed ahead
+     */
+    @SuppressWarnings("unchecked")
+    public ColdReadingCursor(List<ReadingSegment> segments, long deviceId, long from, long to,
+                             Executor executor, int window) {
+        this.from = from;
+        this.to = to;
+        this.executor = executor;
+        this.window = Math.max(window, 1);
+        List<long[]> refs = new ArrayList<>();
+        List<ReadingSegment> overlapping = new ArrayList<>();
+        for (int s = 0; s < segments.size(); s++) {
+            ReadingSegment segment = segments.get(s);
+            if (segment.getFrom() >= to || segment.getTo() <= from) continue;
+            overlapping.add(segment);
+            for (int b = segment.firstBlock(deviceId, from);
+                 b < segment.getBlocks() && segment.blockDevice(b) == deviceId && segment.blockFirst(b) < to; b++) {
+                refs.add(new long[] {segment.blockFirst(b), s, b});
+            }
+        }
+        refs.sort(Comparator.comparingLong(ref -> ref[0]));
+        this.segments = new ReadingSegment[refs.size()];
+        this.blocks = new int[refs.size()];
+        for (int i = 0; i < refs.size(); i++) {
+            this.segments[i] = segments.get((int) refs.get(i)[1]);
+            this.blocks[i] = (int) refs.get(i)[2];
+        }
+        this.decoded = new CompletableFuture[refs.size()];
+
+        overlapping.sort(Comparator.comparingLong(ReadingSegment::getFrom));
+        this.archivedFrom = new long[overlapping.size()];
+        this.archivedTo = new long[overlapping.size()];
+        this.archivedMaxIds = new long[overlapping.size()];
+        long until = Long.MIN_VALUE;
+        for (int i = 0; i < overlapping.size(); i++) {
+            ReadingSegment segment = overlapping.get(i);
+            archivedFrom[i] = segment.getFrom();
+            archivedTo[i] = segment.getTo();
+            archivedMaxIds[i] = segment.getMaxId();
+            until = Math.max(until, segment.getTo());
+        }
+        this.archivedUntil = until;
+    }
+
+    /**
+     * Returns whether a database row was already exported to one of the segments of the cursor.
+     * @param timestamp the timestamp of the row in milliseconds
+     * @param id the READINGS id of the row
+     * @return true if the row is read from the cold tier and must be skipped
+     */
+    public boolean isArchived(long timestamp, long id) {
+        if (timestamp >= archivedUntil) return false;
+        for (int i = 0; i < archivedFrom.length && archivedFrom[i] <= timestamp; i++) {
+            if (timestamp < archivedTo[i] && id <= archivedMaxIds[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the next reading.
+     * @return false if there are no more readings
+     * @throws UncheckedIOException if a block cannot be decompressed
+     */
+    public boolean advance() {
+        while (next < blocks.length
+                && (open.isEmpty() || segments[next].blockFirst(blocks[next]) <= open.peek().current())) {
+            Block block = take(next++);
+            if (block.position < block.end) open.add(block);
+        }
+        Block block = open.poll();
+        if (block == null) return false;
+        timestamp = block.timestamps[block.position];
+        value = block.values[block.position];
+        if (++block.position < block.end) open.add(block);
+        return true;
+    }
+
+    /**
+     * Returns the timestamp of the current reading.
+     * @return the timestamp in milliseconds since the epoch
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the value of the current reading.
+     * @return the value
+     */
+    public double value() {
+        return value;
+    }
+
+    /**
+     * Returns the number of blocks the cursor reads.
+     * @return the number of blocks
+     */
+    public int blocks() {
+        return blocks.length;
+    }
+
+    /**
+     * Cancels the decompression of blocks that were not consumed.
+     */
+    @Override
+    public void close() {
+        for (int i = next; i < submitted; i++) decoded[i].cancel(false);
+        next = submitted = blocks.length;
+        open.clear();
+    }
+
+    private Block take(int i) {
+        for (int limit = Math.min(i + window, blocks.length); submitted < limit; submitted++) {
+            ReadingSegment segment = segments[submitted];
+            int block = blocks[submitted];
+            decoded[submitted] = CompletableFuture.supplyAsync(() -> decode(segment, block), executor);
+        }
+        CompletableFuture<Block> future = decoded[i];
+        decoded[i] = null;
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw (UncheckedIOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private Block decode(ReadingSegment segment, int block) {
+        int count = segment.blockCount(block);
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        Decoder decoder = DECODERS.get();
+        try {
+            segment.decode(block, decoder.inflater, decoder.scratch, timestamps, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int start = lowerBound(timestamps, count, from);
+        int end = lowerBound(timestamps, count, to);
+        return new Block(timestamps, values, start, end);
+    }
+
+    private static int lowerBound(long[] timestamps, int count, long key) {
+        int i = Arrays.binarySearch(timestamps, 0, count, key);
+        if (i < 0) return -i - 1;
+        while (i > 0 && timestamps[i - 1] == key) i--;
+        return i;
+    }
+
+    private static final class Block {
+        final long[] timestamps;
+        final double[] values;
+        final int end;
+        int position;
+
+        Block(long[] timestamps, double[] values, int position, int end) {
+            this.timestamps = timestamps;
+            this.values = values;
+            this.position = position;
+            this.end = end;
+        }
+
+        long current() {
+            return timestamps[position];
+        }
+    }
+
+    private static final class Decoder {
+        final Inflater inflater = new Inflater();
+        final ByteBuffer scratch = ByteBuffer.allocate(ReadingSegment.maxBlockBytes());
+    }
+}
@@ -0,0 +1,149 @@
+package tinysensormanager.service.storage;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the time ranges of the READINGS partitions. Partitions cover whole UTC days or ISO weeks,
+ * are named {@code p_yyyyMMdd} after the day they start on and are bounded by their exclusive end in
+ * milliseconds since the epoch, the unit of the TS column.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class PartitionLayout {
+
+    /**
+     * The name of the catch-all partition above the last time range.
+     */
+    public static final String FUTURE = "p_future";
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p_'yyyyMMdd");
+
+    /**
+     * The length of a partition.
+     */
+    public enum Interval {
+        DAY, WEEK
+    }
+
+    /**
+     * A partition of the time range [from, to).
+     */
+    public static final class Range {
+        private final String name;
+        private final long from;
+        private final long to;
+
+        Range(String name, long from, long to) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the name of the partition.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the inclusive start of the partition.
+         * @return the start in milliseconds since the epoch
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the exclusive end of the partition, its VALUES LESS THAN bound.
+         * @return the end in milliseconds since the epoch
+         */
+        public long getTo() {
+            return to;
+        }
+    }
+
+    private PartitionLayout() {
+    }
+
+    /**
+     * Returns the start of the interval that contains a point in time.
+     * @param interval the length of a partition
+     * @param timestamp the point in time in milliseconds since the epoch
+     * @return the start of its interval in milliseconds since the epoch
+     */
+    public static long startOf(Interval interval, long timestamp) {
+        LocalDate day = toDate(timestamp);
+        if (interval == Interval.WEEK) day = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return toMillis(day);
+    }
+
+    /**
+     * Returns the partitions to add after the highest existing bound, so that partitions exist up to
+     * {@code ahead} intervals after the current one.
+     * @param interval the length of a partition
+     * @param highestBound the highest existing VALUES LESS THAN bound, or a negative value if there is none
+     * @param now the current time in milliseconds since the epoch
+     * @param ahead the number of future intervals to keep partitions for
+     * @return the partitions to add, in ascending order
+     */
+    public static List<Range> missing(Interval interval, long highestBound, long now, int ahead) {
+        LocalDate current = toDate(startOf(interval, now));
+        long currentStart = toMillis(current);
+        List<Range> ranges = new ArrayList<>();
+        long lower = highestBound < 0 ? currentStart : highestBound;
+        if (lower < currentStart) {
+            // Partitions were not maintained for a while: one partition covers the gap up to the current interval
+            ranges.add(new Range(name(lower), lower, currentStart));
+            lower = currentStart;
+        }
+        for (int i = 0; i <= ahead; i++) {
+            long to = toMillis(plus(interval, current, i + 1));
+            // Bounds created with another interval need not be on an interval start
+            if (to <= lower) continue;
+            ranges.add(new Range(name(lower), lower, to));
+            lower = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the partitions whose whole time range is older than a cutoff.
+     * @param bounds the VALUES LESS THAN bounds of the existing partitions
+     * @param names the names of the existing partitions, parallel to the bounds
+     * @param cutoff the oldest point in time to keep in milliseconds since the epoch
+     * @return the names of the partitions that may be dropped
+     */
+    public static List<String> expired(long[] bounds, String[] names, long cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] <= cutoff && !FUTURE.equals(names[i])) expired.add(names[i]);
+        }
+        return expired;
+    }
+
+    private static LocalDate plus(Interval interval, LocalDate day, int intervals) {
+        return interval == Interval.WEEK ? day.plusWeeks(intervals) : day.plusDays(intervals);
+    }
+
+    private static String name(long from) {
+        return toDate(from).format(NAME_FORMAT);
+    }
+
+    private static LocalDate toDate(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static long toMillis(LocalDate day) {
+        return day.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,180 @@
+package tinysensormanager.service.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the RANGE partitions of the READINGS table on MySQL and enforces the {@link RetentionPolicy}.
+ *
+ * <p>Once an hour, the manager splits the empty {@code p_future} partition so that daily or weekly
+ * partitions exist some intervals ahead; the first partition it creates also holds all older readings.
+ * It drops the partitions whose whole range is older than the longest retention, a metadata operation
+ * unlike a DELETE of the same rows. Models whose retention is shorter than the longest one lose their
+ * expired readings through small DELETE batches per device instead, which the (DEVICE_ID, TS) index and
+ * partition pruning keep cheap.
+ * Range queries on TS only read the partitions of their range.</p>
+ *
+ * <p>When several nodes run, a MySQL named lock lets only one of them maintain the partitions at a time.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.partitions.enabled", havingValue = "true")
+public class PartitionManager {
+    private static final String LOCK_NAME = "tinysensor.readings.partitions";
+    private static final String PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION "
+            + "FROM INFORMATION_SCHEMA.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'READINGS' "
+            + "ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final int DELETE_BATCH = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RetentionPolicy retentionPolicy;
+    private final PartitionLayout.Interval interval;
+    private final int ahead;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "readings-partitions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used for the DDL statements
+     * @param retentionPolicy the retention of readings
+     * @param interval the length of a partition, day or week
+     * @param ahead the number of future intervals partitions are created for
+     */
+    @Autowired
+    public PartitionManager(JdbcTemplate jdbcTemplate, RetentionPolicy retentionPolicy,
+                            @Value("${tinysensor.partitions.interval:day}") String interval,
+                            @Value("${tinysensor.partitions.ahead:7}") int ahead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionPolicy = retentionPolicy;
+        this.interval = PartitionLayout.Interval.valueOf(interval.trim().toUpperCase(Locale.ROOT));
+        this.ahead = ahead;
+    }
+
+    /**
+     * Maintains the partitions now and every hour.
+     */
+    @PostConstruct
+    private void start() {
+        executor.scheduleWithFixedDelay(this::maintain, 0, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Stops the maintenance.
+     */
+    @PreDestroy
+    private void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the missing partitions and removes expired readings, unless another node is already doing so.
+     */
+    public void maintain() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                // Named locks belong to the connection, so every statement runs on this one
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                Integer locked = session.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+                if (locked == null || locked != 1) return null;
+                try {
+                    maintain(session, System.currentTimeMillis());
+                } finally {
+                    session.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+                }
+                return null;
+            });
+        } catch (DataAccessException | IllegalStateException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Readings partitions could not be maintained", e);
+        }
+    }
+
+    private void maintain(JdbcTemplate session, long now) {
+        List<String> names = new ArrayList<>();
+        List<Long> bounds = new ArrayList<>();
+        boolean[] hasFuture = new boolean[1];
+        session.query(PARTITIONS_SQL, rs -> {
+            String name = rs.getString(1);
+            if (name == null) throw new IllegalStateException("READINGS is not partitioned");
+            if (PartitionLayout.FUTURE.equals(name)) {
+                hasFuture[0] = true;
+                return;
+            }
+            names.add(name);
+            bounds.add(Long.parseLong(rs.getString(2)));
+        });
+        if (!hasFuture[0]) throw new IllegalStateException("READINGS has no " + PartitionLayout.FUTURE + " partition");
+        createPartitions(session, bounds.isEmpty() ? -1 : bounds.get(bounds.size() - 1), now);
+
+        int longest = retentionPolicy.getLongestDays();
+        if (longest > 0) {
+            dropPartitions(session, names, bounds, RetentionPolicy.cutoff(longest, now));
+        }
+        deleteExpiredReadings(session, longest, now);
+    }
+
+    private void createPartitions(JdbcTemplate session, long highestBound, long now) {
+        List<PartitionLayout.Range> missing = PartitionLayout.missing(interval, highestBound, now, ahead);
+        if (missing.isEmpty()) return;
+        String partitions = missing.stream()
+                .map(range -> "PARTITION " + range.getName() + " VALUES LESS THAN (" + range.getTo() + ")")
+                .collect(Collectors.joining(", "));
+        session.execute("ALTER TABLE READINGS REORGANIZE PARTITION " + PartitionLayout.FUTURE + " INTO ("
+                + partitions + ", PARTITION " + PartitionLayout.FUTURE + " VALUES LESS THAN MAXVALUE)");
+        LoggerUtil.getCurrentLogger().info("Created readings partitions " + missing.stream()
+                .map(PartitionLayout.Range::getName).collect(Collectors.joining(", ")));
+    }
+
+    private void dropPartitions(JdbcTemplate session, List<String> names, List<Long> bounds, long cutoff) {
+        long[] boundArray = bounds.stream().mapToLong(Long::longValue).toArray();
+        List<String> expired = PartitionLayout.expired(boundArray, names.toArray(new String[0]), cutoff);
+        if (expired.isEmpty()) return;
+        session.execute("ALTER TABLE READINGS DROP PARTITION " + String.join(", ", expired));
+        LoggerUtil.getCurrentLogger().info("Dropped expired readings partitions " + String.join(", ", expired));
+    }
+
+    /**
+     * Deletes the expired readings of devices whose retention is shorter than the longest one,
+     * whose readings dropping partitions does not reach.
+     */
+    private void deleteExpiredReadings(JdbcTemplate session, int longest, long now) {
+        List<long[]> devices = new ArrayList<>();
+        session.query("SELECT ID, DEVICE_NAME FROM DEVICES", rs -> {
+            int days = retentionPolicy.getModelDays().getOrDefault(rs.getString(2), retentionPolicy.getDefaultDays());
+            if (days > 0 && (longest == 0 || days < longest)) devices.add(new long[] {rs.getLong(1), days});
+        });
+        long deleted = 0;
+        for (long[] device : devices) {
+            long cutoff = RetentionPolicy.cutoff((int) device[1], now);
+            int n;
+            do {
+                n = session.update("DELETE FROM READINGS WHERE DEVICE_ID = ? AND TS < ? LIMIT " + DELETE_BATCH,
+                        device[0], cutoff);
+                deleted += n;
+            } while (n == DELETE_BATCH && !Thread.currentThread().isInterrupted());
+        }
+        if (deleted > 0) LoggerUtil.getCurrentLogger().info("Deleted " + deleted + " expired readings");
+    }
+}
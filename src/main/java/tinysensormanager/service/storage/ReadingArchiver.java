@@ -0,0 +1,210 @@
+package tinysensormanager.service.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Moves readings older than a number of days from the READINGS table to {@link ReadingSegment} files of
+ * the {@link SegmentStore}.
+ *
+ * <p>Once an hour, the archiver exports every day that ended before the hot period into one new segment,
+ * device by device through the (DEVICE_ID, TS) index, so the export needs neither a table scan nor a sort.
+ * The segment records the highest READINGS id at the start of the export. Exported rows are deleted from
+ * the table in small batches one run later, once every node has rescanned the archive directory; until
+ * then queries skip them by their id. Readings that arrive late for an archived day are exported to
+ * another segment of the same day. A run interrupted at any point is completed by the next one.</p>
+ *
+ * <p>Segments whose whole range is older than the longest retention of the {@link RetentionPolicy} are
+ * deleted; shorter per-model retentions are not applied to archived readings. When several nodes run,
+ * the archive directory must be shared, and a MySQL named lock lets only one of them archive at a time.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "tinysensor.archive.enabled", havingValue = "true")
+public class ReadingArchiver {
+    private static final String LOCK_NAME = "tinysensor.readings.archive";
+    private static final String EXPORT_SQL = "SELECT TS, READING_VALUE FROM READINGS "
+            + "WHERE DEVICE_ID = ? AND TS >= ? AND TS < ? AND ID > ? AND ID <= ? ORDER BY TS";
+    private static final int DELETE_BATCH = 5000;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long DELETE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final SegmentStore segmentStore;
+    private final RetentionPolicy retentionPolicy;
+    private final int afterDays;
+    private final int maxDaysPerRun;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "readings-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param jdbcTemplate the JDBC template used for the lock and the deletes
+     * @param streamingJdbcTemplate the JDBC template used to export readings
+     * @param segmentStore the store the segments are written to
+     * @param retentionPolicy the retention of readings
+     * @param afterDays the age in days after which readings are archived
+     * @param maxDaysPerRun the maximum number of days exported by one run
+     */
+    @Autowired
+    public ReadingArchiver(JdbcTemplate jdbcTemplate,
+                           @Qualifier("streamingJdbcTemplate") JdbcTemplate streamingJdbcTemplate,
+                           SegmentStore segmentStore, RetentionPolicy retentionPolicy,
+                           @Value("${tinysensor.archive.after-days:30}") int afterDays,
+                           @Value("${tinysensor.archive.max-days-per-run:7}") int maxDaysPerRun) {
+        if (afterDays < 1) throw new IllegalArgumentException("tinysensor.archive.after-days must be at least 1");
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = streamingJdbcTemplate;
+        this.segmentStore = segmentStore;
+        this.retentionPolicy = retentionPolicy;
+        this.afterDays = afterDays;
+        this.maxDaysPerRun = maxDaysPerRun;
+    }
+
+    /**
+     * Archives readings now and every hour.
+     */
+    @PostConstruct
+    private void start() {
+        executor.scheduleWithFixedDelay(this::archive, 0, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Stops archiving. An export in progress is abandoned and its temporary file deleted by the next run.
+     */
+    @PreDestroy
+    private void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Archives the readings older than the hot period, unless another node is already doing so.
+     */
+    public void archive() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                // Named locks belong to the connection, so the lock is taken and released on this one
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                Integer locked = session.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+                if (locked == null || locked != 1) return null;
+                try {
+                    archive(session, System.currentTimeMillis());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    session.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+                }
+                return null;
+            });
+        } catch (DataAccessException | UncheckedIOException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Readings could not be archived", e);
+        }
+    }
+
+    private void archive(JdbcTemplate session, long now) throws IOException {
+        segmentStore.deleteTemporaryFiles();
+        segmentStore.refresh();
+        deleteExpiredSegments(now);
+
+        List<Long> devices = session.queryForList("SELECT ID FROM DEVICES ORDER BY ID", Long.class);
+        long oldest = Long.MAX_VALUE;
+        for (Long device : devices) {
+            Long first = session.queryForObject("SELECT MIN(TS) FROM READINGS WHERE DEVICE_ID = ?",
+                    Long.class, device);
+            if (first != null) oldest = Math.min(oldest, first);
+        }
+        long cutoff = PartitionLayout.startOf(PartitionLayout.Interval.DAY, RetentionPolicy.cutoff(afterDays, now));
+        if (oldest >= cutoff) return;
+
+        int archived = 0;
+        for (long day = PartitionLayout.startOf(PartitionLayout.Interval.DAY, oldest);
+             day < cutoff && archived < maxDaysPerRun && !Thread.currentThread().isInterrupted(); day += DAY_MILLIS) {
+            if (archiveDay(session, devices, day, day + DAY_MILLIS, now)) archived++;
+        }
+    }
+
+    /**
+     * Deletes the rows of a day exported by settled segments and exports the remaining ones.
+     * @return whether a segment was written
+     */
+    private boolean archiveDay(JdbcTemplate session, List<Long> devices, long from, long to, long now)
+            throws IOException {
+        long exported = 0;
+        boolean settled = true;
+        for (ReadingSegment segment : segmentStore.getSegments()) {
+            if (segment.getFrom() != from || segment.getTo() != to) continue;
+            exported = Math.max(exported, segment.getMaxId());
+            settled &= now - Files.getLastModifiedTime(segment.getPath()).toMillis() >= DELETE_DELAY_MILLIS;
+        }
+        if (exported > 0 && settled) deleteExported(session, devices, from, to, exported);
+
+        Long maxId = session.queryForObject("SELECT MAX(ID) FROM READINGS", Long.class);
+        if (maxId == null || maxId <= exported) return false;
+        try (SegmentWriter writer = new SegmentWriter(segmentStore.newSegmentPath(from), from, to)) {
+            for (Long device : devices) {
+                streamingJdbcTemplate.query(EXPORT_SQL, (RowCallbackHandler) rs -> {
+                    try {
+                        writer.add(device, rs.getLong(1), rs.getDouble(2));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, device, from, to, exported, maxId);
+            }
+            if (writer.getReadings() == 0) return false;
+            writer.commit(maxId);
+            LoggerUtil.getCurrentLogger().info("Archived " + writer.getReadings() + " readings of "
+                    + Instant.ofEpochMilli(from).atZone(ZoneOffset.UTC).toLocalDate());
+        }
+        segmentStore.refresh();
+        return true;
+    }
+
+    private void deleteExported(JdbcTemplate session, List<Long> devices, long from, long to, long maxId) {
+        for (Long device : devices) {
+            int n;
+            do {
+                n = session.update("DELETE FROM READINGS WHERE DEVICE_ID = ? AND TS >= ? AND TS < ? AND ID <= ? "
+                        + "LIMIT " + DELETE_BATCH, device, from, to, maxId);
+            } while (n == DELETE_BATCH && !Thread.currentThread().isInterrupted());
+        }
+    }
+
+    private void deleteExpiredSegments(long now) throws IOException {
+        int longest = retentionPolicy.getLongestDays();
+        if (longest == 0) return;
+        long cutoff = RetentionPolicy.cutoff(longest, now);
+        for (ReadingSegment segment : segmentStore.getSegments()) {
+            if (segment.getTo() > cutoff) continue;
+            segmentStore.delete(segment);
+            LoggerUtil.getCurrentLogger().info("Deleted expired readings segment " + segment);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package tinysensormanager.service.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable, memory-mapped file of archived readings written by a {@link SegmentWriter}.
+ *
+ * <p>A segment holds the readings of a time range, ordered by device and timestamp and grouped into
+ * compressed blocks. Its sparse index, one entry per block with the device and the first and last
+ * timestamp, is loaded into arrays when the segment is opened, so finding the blocks of a query is a binary
+ * search that touches no file data. Blocks are decompressed straight from the mapping, which the operating
+ * system pages in and out as needed. A segment can be read by any number of threads at once.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class ReadingSegment {
+    static final int MAGIC = 0x54535347;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 40;
+    static final int FOOTER_SIZE = 48;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final long from;
+    private final long to;
+    private final long maxId;
+    private final long readings;
+    private final long[] blockDevices;
+    private final long[] blockFirst;
+    private final long[] blockLast;
+    private final int[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockCounts;
+
+    private ReadingSegment(Path path, MappedByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        int size = data.capacity();
+        if (size < HEADER_SIZE + FOOTER_SIZE || data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException(path + " is not a readings segment");
+        }
+        if (data.getInt(4) != VERSION) throw new IOException(path + " has unsupported version " + data.getInt(4));
+        int footer = size - FOOTER_SIZE;
+        from = data.getLong(footer);
+        to = data.getLong(footer + 8);
+        maxId = data.getLong(footer + 16);
+        readings = data.getLong(footer + 24);
+        int indexOffset = (int) data.getLong(footer + 32);
+        int blocks = data.getInt(footer + 40);
+        if (indexOffset + (long) blocks * INDEX_ENTRY_SIZE != footer) throw new IOException(path + " is corrupt");
+
+        blockDevices = new long[blocks];
+        blockFirst = new long[blocks];
+        blockLast = new long[blocks];
+        blockOffsets = new int[blocks];
+        blockLengths = new int[blocks];
+        blockCounts = new int[blocks];
+        for (int b = 0, p = indexOffset; b < blocks; b++, p += INDEX_ENTRY_SIZE) {
+            blockDevices[b] = data.getLong(p);
+            blockFirst[b] = data.getLong(p + 8);
+            blockLast[b] = data.getLong(p + 16);
+            blockOffsets[b] = (int) data.getLong(p + 24);
+            blockLengths[b] = data.getInt(p + 32);
+            blockCounts[b] = data.getInt(p + 36);
+        }
+    }
+
+    /**
+     * Maps a segment file into memory.
+     * @param path the path of the segment
+     * @return the opened segment
+     * @throws IOException if the file cannot be read or is not a complete segment
+     */
+    public static ReadingSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(path + " is too large to be mapped");
+            // The mapping stays valid after the channel is closed
+            return new ReadingSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Returns the path of the segment file.
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the inclusive start of the time range of the segment.
+     * @return the start in milliseconds since the epoch
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the exclusive end of the time range of the segment.
+     * @return the end in milliseconds since the epoch
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the highest READINGS id the segment was exported up to. Every row of the time range with
+     * a lower or equal id is in this segment or in an older one of the same range.
+     * @return the highest exported id
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * Returns the number of readings in the segment.
+     * @return the number of readings
+     */
+    public long getReadings() {
+        return readings;
+    }
+
+    /**
+     * Returns the number of blocks in the segment.
+     * @return the number of blocks
+     */
+    public int getBlocks() {
+        return blockDevices.length;
+    }
+
+    /**
+     * Returns the first block of a device that may hold readings at or after a timestamp.
+     * Blocks of the device follow it until {@link #blockDevice(int)} changes.
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds
+     * @return the index of the block, {@link #getBlocks()} if there is none
+     */
+    public int firstBlock(long deviceId, long from) {
+        int low = 0;
+        int high = blockDevices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockDevices[mid] < deviceId || blockDevices[mid] == deviceId && blockLast[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the device of a block.
+     * @param block the index of the block
+     * @return the id of the device
+     */
+    public long blockDevice(int block) {
+        return blockDevices[block];
+    }
+
+    /**
+     * Returns the timestamp of the first reading of a block.
+     * @param block the index of the block
+     * @return the first timestamp in milliseconds
+     */
+    public long blockFirst(int block) {
+        return blockFirst[block];
+    }
+
+    /**
+     * Returns the number of readings of a block.
+     * @param block the index of the block
+     * @return the number of readings
+     */
+    public int blockCount(int block) {
+        return blockCounts[block];
+    }
+
+    /**
+     * Decompresses a block into the given arrays.
+     * @param block the index of the block
+     * @param inflater the inflater to use, reset before use
+     * @param scratch a heap buffer of at least {@link #maxBlockBytes()} bytes
+     * @param timestamps receives the timestamps, at least {@link #blockCount(int)} long
+     * @param values receives the values, at least {@link #blockCount(int)} long
+     * @throws IOException if the block is corrupt
+     */
+    public void decode(int block, Inflater inflater, ByteBuffer scratch, long[] timestamps, double[] values)
+            throws IOException {
+        ByteBuffer input = data.duplicate();
+        input.limit(blockOffsets[block] + blockLengths[block]).position(blockOffsets[block]);
+        scratch.clear();
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(scratch) == 0 && (inflater.needsInput() || !scratch.hasRemaining())) {
+                    throw new IOException("Block " + block + " of " + path + " is truncated");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " of " + path + " is corrupt", e);
+        }
+        scratch.flip();
+        int count = blockCounts[block];
+        long timestamp = scratch.getLong();
+        timestamps[0] = timestamp;
+        for (int i = 1; i < count; i++) {
+            timestamp += getVarLong(scratch);
+            timestamps[i] = timestamp;
+        }
+        for (int i = 0; i < count; i++) values[i] = Double.longBitsToDouble(scratch.getLong());
+    }
+
+    /**
+     * Returns the size of the largest decompressed block.
+     * @return the size in bytes
+     */
+    public static int maxBlockBytes() {
+        return SegmentWriter.BLOCK_SIZE * 18 + 16;
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName().toString();
+    }
+}
@@ -0,0 +1,80 @@
+package tinysensormanager.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long readings are kept: a global number of days, optionally overridden per device model with
+ * {@code tinysensor.retention.per-model=model:days,...}. A retention of 0 days keeps readings forever.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class RetentionPolicy {
+    private final int defaultDays;
+    private final Map<String, Integer> modelDays;
+
+    /**
+     * Creates the policy from the configuration injected via Spring's dependency injection.
+     * @param defaultDays the number of days readings of every model are kept by default
+     * @param perModel the overrides as comma separated model:days pairs
+     */
+    public RetentionPolicy(@Value("${tinysensor.retention.default-days:0}") int defaultDays,
+                           @Value("${tinysensor.retention.per-model:}") String perModel) {
+        this.defaultDays = defaultDays;
+        Map<String, Integer> days = new HashMap<>();
+        for (String entry : perModel.split(",")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) throw new IllegalStateException("Retention overrides must be configured as model:days");
+            days.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+        }
+        this.modelDays = Collections.unmodifiableMap(days);
+    }
+
+    /**
+     * Returns the number of days readings are kept unless their model overrides it.
+     * @return the default retention in days, 0 for forever
+     */
+    public int getDefaultDays() {
+        return defaultDays;
+    }
+
+    /**
+     * Returns the retention overrides per device model.
+     * @return the retention in days by model
+     */
+    public Map<String, Integer> getModelDays() {
+        return modelDays;
+    }
+
+    /**
+     * Returns the longest retention of any model, the age after which whole partitions may be dropped.
+     * @return the longest retention in days, or 0 if some readings are kept forever
+     */
+    public int getLongestDays() {
+        if (defaultDays == 0) return 0;
+        int longest = defaultDays;
+        for (int days : modelDays.values()) {
+            if (days == 0) return 0;
+            longest = Math.max(longest, days);
+        }
+        return longest;
+    }
+
+    /**
+     * Converts a retention to the oldest point in time to keep.
+     * @param days the retention in days, greater than 0
+     * @param now the current time in milliseconds since the epoch
+     * @return the cutoff in milliseconds since the epoch
+     */
+    public static long cutoff(int days, long now) {
+        return now - TimeUnit.DAYS.toMillis(days);
+    }
+}
@@ -0,0 +1,185 @@
+package tinysensormanager.service.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tinysensormanager.service.util.LoggerUtil;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * The cold tier of the readings: the {@link ReadingSegment} files in the archive directory.
+ *
+ * <p>The store maps every segment of the directory at startup and rescans the directory at most once a
+ * minute when it is queried, so segments archived by another node sharing the directory are picked up.
+ * Blocks are decompressed on a small pool of reader threads; when the pool is busy, the querying thread
+ * decompresses the block itself.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class SegmentStore {
+    private static final String SUFFIX = ".seg";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final long REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path directory;
+    private final int window;
+    private final ThreadPoolExecutor readers;
+    private volatile List<ReadingSegment> segments = List.of();
+    private volatile long lastRefresh;
+
+    /**
+     * Constructor to inject the dependencies via Spring's dependency injection.
+     * @param directory the directory of the segment files
+     * @param readerThreads the number of threads that decompress blocks
+     */
+    @Autowired
+    public SegmentStore(@Value("${tinysensor.archive.dir:archive}") String directory,
+                        @Value("${tinysensor.archive.reader-threads:4}") int readerThreads) {
+        this.directory = Paths.get(directory);
+        this.window = readerThreads * 2;
+        AtomicInteger threads = new AtomicInteger();
+        this.readers = new ThreadPoolExecutor(readerThreads, readerThreads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(readerThreads * 4), task -> {
+                    Thread thread = new Thread(task, "segment-reader-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> task.run());
+        this.readers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Maps the segments of the archive directory, if it exists.
+     */
+    @PostConstruct
+    private void start() {
+        refresh();
+    }
+
+    /**
+     * Stops the reader threads.
+     */
+    @PreDestroy
+    private void stop() {
+        readers.shutdownNow();
+    }
+
+    /**
+     * Opens a cursor over the archived readings of a device.
+     * @param deviceId the id of the device
+     * @param from the inclusive start of the range in milliseconds since the epoch
+     * @param to the exclusive end of the range in milliseconds since the epoch
+     * @return the cursor, to be closed by the caller
+     */
+    public ColdReadingCursor open(long deviceId, long from, long to) {
+        if (System.currentTimeMillis() - lastRefresh > REFRESH_INTERVAL_MILLIS) refreshIfStale();
+        return new ColdReadingCursor(segments, deviceId, from, to, readers, window);
+    }
+
+    /**
+     * Returns the mapped segments ordered by the start of their range.
+     * @return the segments
+     */
+    public List<ReadingSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the path for a new segment of a time range.
+     * @param from the inclusive start of the range in milliseconds since the epoch
+     * @return the path, not yet existing
+     * @throws IOException if the archive directory cannot be created
+     */
+    public Path newSegmentPath(long from) throws IOException {
+        Files.createDirectories(directory);
+        return directory.resolve("readings-" + DAY.format(Instant.ofEpochMilli(from)) + "-"
+                + System.currentTimeMillis() + SUFFIX);
+    }
+
+    /**
+     * Deletes a segment file. Queries that already opened it can still read it, as the mapping
+     * outlives the file.
+     * @param segment the segment to delete
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete(ReadingSegment segment) throws IOException {
+        Files.deleteIfExists(segment.getPath());
+        refresh();
+    }
+
+    /**
+     * Rescans the archive directory: maps new segments and forgets removed ones.
+     */
+    public synchronized void refresh() {
+        lastRefresh = System.currentTimeMillis();
+        if (!Files.isDirectory(directory)) {
+            segments = List.of();
+            return;
+        }
+        Map<Path, ReadingSegment> known = segments.stream()
+                .collect(Collectors.toMap(ReadingSegment::getPath, segment -> segment));
+        Map<Path, ReadingSegment> current = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().endsWith(SUFFIX)) continue;
+                ReadingSegment segment = known.get(file);
+                if (segment == null) segment = openOrSkip(file);
+                if (segment != null) current.put(file, segment);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "The archive directory could not be read", e);
+            return;
+        }
+        List<ReadingSegment> sorted = new ArrayList<>(current.values());
+        sorted.sort(Comparator.comparingLong(ReadingSegment::getFrom).thenComparing(ReadingSegment::toString));
+        segments = List.copyOf(sorted);
+    }
+
+    /**
+     * Deletes the temporary files left by interrupted archive runs. Must only be called by the archiver
+     * holding the archive lock, as it would also delete the file of a running archive run.
+     * @throws IOException if the directory cannot be read
+     */
+    public void deleteTemporaryFiles() throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX + ".tmp")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    private synchronized void refreshIfStale() {
+        if (System.currentTimeMillis() - lastRefresh > REFRESH_INTERVAL_MILLIS) refresh();
+    }
+
+    private static ReadingSegment openOrSkip(Path file) {
+        try {
+            return ReadingSegment.open(file);
+        } catch (IOException e) {
+            LoggerUtil.getCurrentLogger().log(Level.WARNING, "Skipping unreadable segment " + file, e);
+            return null;
+        }
+    }
+}
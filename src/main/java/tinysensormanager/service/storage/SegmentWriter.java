@@ -0,0 +1,177 @@
+package tinysensormanager.service.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a {@link ReadingSegment} file.
+ *
+ * <p>Readings must be added ordered by device and then by timestamp. They are collected into blocks of at
+ * most {@link #BLOCK_SIZE} readings of a single device, which are compressed with deflate: timestamps as
+ * varint deltas and values as raw doubles. Every block gets an entry in the sparse index written after the
+ * blocks, followed by a fixed size footer. The file is written under a temporary name, forced to disk and
+ * only then renamed, so a segment that exists is always complete.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class SegmentWriter implements Closeable {
+    /**
+     * The maximum number of readings in a block.
+     */
+    public static final int BLOCK_SIZE = 4096;
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final long from;
+    private final long to;
+
+    private final long[] timestamps = new long[BLOCK_SIZE];
+    private final double[] values = new double[BLOCK_SIZE];
+    private final ByteBuffer raw = ByteBuffer.allocate(BLOCK_SIZE * 18 + 16);
+    private final byte[] compressed = new byte[BLOCK_SIZE * 20 + 64];
+    private final Deflater deflater = new Deflater();
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    private final DataOutputStream index = new DataOutputStream(indexBytes);
+
+    private long deviceId = Long.MIN_VALUE;
+    private int pending;
+    private int blocks;
+    private long readings;
+    private long position;
+    private boolean committed;
+
+    /**
+     * Starts a segment for readings in the time range [from, to).
+     * @param target the path of the finished segment
+     * @param from the inclusive start of the range in milliseconds
+     * @param to the exclusive end of the range in milliseconds
+     * @throws IOException if the temporary file cannot be created
+     */
+    public SegmentWriter(Path target, long from, long to) throws IOException {
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        this.from = from;
+        this.to = to;
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ReadingSegment.HEADER_SIZE);
+        header.putInt(ReadingSegment.MAGIC).putInt(ReadingSegment.VERSION).flip();
+        write(header);
+    }
+
+    /**
+     * Adds the next reading.
+     * @param deviceId the id of the device, not less than the one of the previous reading
+     * @param timestamp the timestamp in milliseconds, within the range of the segment and not less than the one
+     *                  of the previous reading of the same device
+     * @param value the value of the reading
+     * @throws IOException if a block cannot be written
+     */
+    public void add(long deviceId, long timestamp, double value) throws IOException {
+        if (timestamp < from || timestamp >= to) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is outside of the segment");
+        }
+        if (deviceId != this.deviceId) {
+            if (deviceId < this.deviceId) throw new IllegalArgumentException("Readings must be ordered by device");
+            flushBlock();
+            this.deviceId = deviceId;
+        } else if (pending > 0 && timestamp < timestamps[pending - 1]) {
+            throw new IllegalArgumentException("Readings of a device must be ordered by timestamp");
+        } else if (pending == BLOCK_SIZE) {
+            flushBlock();
+        }
+        timestamps[pending] = timestamp;
+        values[pending] = value;
+        pending++;
+        readings++;
+    }
+
+    /**
+     * Returns the number of readings added so far.
+     * @return the number of readings
+     */
+    public long getReadings() {
+        return readings;
+    }
+
+    /**
+     * Completes the segment: writes the index and the footer, forces the file to disk and renames it.
+     * @param maxId the highest READINGS id the segment was exported up to
+     * @throws IOException if the segment cannot be written
+     */
+    public void commit(long maxId) throws IOException {
+        flushBlock();
+        index.flush();
+        long indexOffset = position;
+        write(ByteBuffer.wrap(indexBytes.toByteArray()));
+        ByteBuffer footer = ByteBuffer.allocate(ReadingSegment.FOOTER_SIZE);
+        footer.putLong(from).putLong(to).putLong(maxId).putLong(readings).putLong(indexOffset)
+                .putInt(blocks).putInt(ReadingSegment.MAGIC).flip();
+        write(footer);
+        channel.force(true);
+        channel.close();
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Releases the file and removes it unless the segment was committed.
+     * @throws IOException if the temporary file cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (committed) return;
+        channel.close();
+        Files.deleteIfExists(temporary);
+    }
+
+    private void flushBlock() throws IOException {
+        if (pending == 0) return;
+        raw.clear();
+        raw.putLong(timestamps[0]);
+        for (int i = 1; i < pending; i++) putVarLong(raw, timestamps[i] - timestamps[i - 1]);
+        for (int i = 0; i < pending; i++) raw.putLong(Double.doubleToRawLongBits(values[i]));
+        raw.flip();
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        index.writeLong(deviceId);
+        index.writeLong(timestamps[0]);
+        index.writeLong(timestamps[pending - 1]);
+        index.writeLong(position);
+        index.writeInt(length);
+        index.writeInt(pending);
+        write(ByteBuffer.wrap(compressed, 0, length));
+        blocks++;
+        pending = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,64 @@
+package tinysensormanager.service.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A minimal RFC 4180 CSV writer that writes rows straight to the underlying {@link Writer}
+ * without buffering whole documents in memory.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class CsvWriter {
+    private final Writer writer;
+
+    /**
+     * Creates a CSV writer on top of the given writer.
+     * @param writer the destination of the CSV rows
+     */
+    public CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes a single row. Null values are written as empty fields.
+     * @param values the fields of the row
+     * @throws IOException if the underlying writer fails
+     */
+    public void writeRow(String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writeField(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Flushes the underlying writer.
+     * @throws IOException if the underlying writer fails
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,48 @@
+package tinysensormanager.service.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized direct {@link ByteBuffer}s.
+ *
+ * <p>Direct buffers are expensive to allocate and are only released by the garbage collector, so they are
+ * recycled instead. At most {@code maxPooled} idle buffers are kept; buffers released beyond that are left
+ * to the garbage collector. The pool is not thread safe and is meant to be owned by a single I/O thread.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class DirectBufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+
+    /**
+     * Creates an empty pool.
+     * @param bufferSize the capacity of every buffer in bytes
+     * @param maxPooled the maximum number of idle buffers kept
+     */
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns a cleared buffer, recycled if one is idle.
+     * @return a buffer of the pool's buffer size
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used afterwards.
+     * @param buffer a buffer obtained from {@link #acquire()}
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (idle.size() < maxPooled) idle.push(buffer);
+    }
+}
@@ -0,0 +1,227 @@
+package tinysensormanager.service.util;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a time ordered stream of (timestamp, value) points to at most a given number of points in a single pass.
+ *
+ * <p>Points are fed one at a time through {@link #accept(long, double)} and are never materialised as objects.
+ * The first {@code maxPoints} points are kept verbatim, so short ranges are returned unchanged. Every point is
+ * also folded into fixed time buckets that remember their minimum and maximum. Once the stream is complete the
+ * bucket extremes are either returned as they are ({@link Mode#MINMAX}) or reduced further with
+ * Largest-Triangle-Three-Buckets ({@link Mode#LTTB}), which keeps the visually significant points. Memory
+ * is bounded by {@code maxPoints} regardless of the length of the stream.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class Downsampler {
+
+    /**
+     * The downsampling algorithm.
+     */
+    public enum Mode {
+        /**
+         * The minimum and maximum of each time bucket.
+         */
+        MINMAX,
+        /**
+         * Largest-Triangle-Three-Buckets over the minima and maxima of finer time buckets.
+         */
+        LTTB
+    }
+
+    /**
+     * The number of min/max candidates per output point that LTTB chooses from.
+     */
+    private static final int LTTB_CANDIDATE_RATIO = 4;
+
+    private final int maxPoints;
+    private final Mode mode;
+    private final long from;
+    private final double bucketWidth;
+
+    private final long[] rawTimestamps;
+    private final double[] rawValues;
+    private long count;
+
+    private final long[] minTimestamps;
+    private final double[] minValues;
+    private final long[] maxTimestamps;
+    private final double[] maxValues;
+    private final boolean[] filled;
+
+    private long[] resultTimestamps;
+    private double[] resultValues;
+
+    /**
+     * Creates a downsampler for points in the time range [from, to).
+     * @param from the inclusive start of the range in milliseconds
+     * @param to the exclusive end of the range in milliseconds
+     * @param maxPoints the maximum number of points to return, at least 3
+     * @param mode the downsampling algorithm
+     */
+    public Downsampler(long from, long to, int maxPoints, Mode mode) {
+        if (maxPoints < 3) throw new IllegalArgumentException("maxPoints must be at least 3");
+        if (to <= from) throw new IllegalArgumentException("The end of the range must be after its start");
+        this.maxPoints = maxPoints;
+        this.mode = mode;
+        this.from = from;
+        int buckets = mode == Mode.LTTB ? maxPoints * LTTB_CANDIDATE_RATIO / 2 : maxPoints / 2;
+        this.bucketWidth = (double) (to - from) / buckets;
+        this.rawTimestamps = new long[maxPoints];
+        this.rawValues = new double[maxPoints];
+        this.minTimestamps = new long[buckets];
+        this.minValues = new double[buckets];
+        this.maxTimestamps = new long[buckets];
+        this.maxValues = new double[buckets];
+        this.filled = new boolean[buckets];
+    }
+
+    /**
+     * Adds the next point. Points must be passed in ascending timestamp order.
+     * @param timestamp the timestamp of the point in milliseconds
+     * @param value the value of the point
+     */
+    public void accept(long timestamp, double value) {
+        if (count < maxPoints) {
+            rawTimestamps[(int) count] = timestamp;
+            rawValues[(int) count] = value;
+        }
+        count++;
+
+        int bucket = (int) ((timestamp - from) / bucketWidth);
+        if (bucket < 0) bucket = 0;
+        if (bucket >= filled.length) bucket = filled.length - 1;
+        if (!filled[bucket]) {
+            filled[bucket] = true;
+            minTimestamps[bucket] = maxTimestamps[bucket] = timestamp;
+            minValues[bucket] = maxValues[bucket] = value;
+        } else if (value < minValues[bucket]) {
+            minTimestamps[bucket] = timestamp;
+            minValues[bucket] = value;
+        } else if (value > maxValues[bucket]) {
+            maxTimestamps[bucket] = timestamp;
+            maxValues[bucket] = value;
+        }
+    }
+
+    /**
+     * Returns the number of points passed to {@link #accept(long, double)}.
+     * @return the number of points seen
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Completes the stream and computes the downsampled series.
+     * Must be called once, after the last point was passed to {@link #accept(long, double)}.
+     */
+    public void finish() {
+        if (count <= maxPoints) {
+            setResult(rawTimestamps, rawValues, (int) count);
+            return;
+        }
+
+        long[] candidateTimestamps = new long[filled.length * 2];
+        double[] candidateValues = new double[filled.length * 2];
+        int n = 0;
+        for (int b = 0; b < filled.length; b++) {
+            if (!filled[b]) continue;
+            boolean minFirst = minTimestamps[b] <= maxTimestamps[b];
+            n = add(candidateTimestamps, candidateValues, n,
+                    minFirst ? minTimestamps[b] : maxTimestamps[b], minFirst ? minValues[b] : maxValues[b]);
+            n = add(candidateTimestamps, candidateValues, n,
+                    minFirst ? maxTimestamps[b] : minTimestamps[b], minFirst ? maxValues[b] : minValues[b]);
+        }
+        if (mode == Mode.MINMAX || n <= maxPoints) {
+            setResult(candidateTimestamps, candidateValues, n);
+            return;
+        }
+
+        int[] selected = lttb(candidateTimestamps, candidateValues, n, maxPoints);
+        resultTimestamps = new long[selected.length];
+        resultValues = new double[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            resultTimestamps[i] = candidateTimestamps[selected[i]];
+            resultValues[i] = candidateValues[selected[i]];
+        }
+    }
+
+    /**
+     * Returns the timestamps of the downsampled series, available after {@link #finish()}.
+     * @return the timestamps in ascending order
+     */
+    public long[] getTimestamps() {
+        return resultTimestamps;
+    }
+
+    /**
+     * Returns the values of the downsampled series, available after {@link #finish()}.
+     * @return the values, parallel to {@link #getTimestamps()}
+     */
+    public double[] getValues() {
+        return resultValues;
+    }
+
+    private void setResult(long[] timestamps, double[] values, int n) {
+        resultTimestamps = Arrays.copyOf(timestamps, n);
+        resultValues = Arrays.copyOf(values, n);
+    }
+
+    private static int add(long[] timestamps, double[] values, int n, long timestamp, double value) {
+        if (n > 0 && timestamps[n - 1] == timestamp && values[n - 1] == value) return n;
+        timestamps[n] = timestamp;
+        values[n] = value;
+        return n + 1;
+    }
+
+    /**
+     * Selects {@code threshold} points out of the first {@code n} points with Largest-Triangle-Three-Buckets.
+     * The first and last points are always selected.
+     * @param x the x coordinates in ascending order
+     * @param y the y coordinates
+     * @param n the number of points to consider
+     * @param threshold the number of points to select, at least 3 and less than n
+     * @return the indexes of the selected points in ascending order
+     */
+    public static int[] lttb(long[] x, double[] y, int n, int threshold) {
+        int[] selected = new int[threshold];
+        int k = 0;
+        selected[k++] = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            avgX /= avgLength;
+            avgY /= avgLength;
+
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            selected[k++] = next;
+            a = next;
+        }
+        selected[k] = n - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,129 @@
+package tinysensormanager.service.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive long keys to primitive int values.
+ *
+ * <p>The map stores its entries in two flat arrays, so it costs no object per entry. It is safe for
+ * one writing thread and any number of concurrently reading threads: writers must be serialised by
+ * the caller, while {@link #get(long)} takes no lock. A reader that races with a {@code put} of a new
+ * key may miss that key, but never sees a key without its value.</p>
+ *
+ * <p>{@link Long#MIN_VALUE} cannot be used as a key.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private volatile Table table;
+    private int size;
+
+    /**
+     * Creates a map able to hold the given number of entries before it needs to grow.
+     * @param expectedSize the expected number of entries
+     */
+    public LongIntHashMap(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns the value of the given key.
+     * @param key the key
+     * @param missing the value returned when the key is absent
+     * @return the value of the key, or {@code missing}
+     */
+    public int get(long key, int missing) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = (long) LONGS.getAcquire(t.keys, i);
+            if (k == key) return (int) INTS.getAcquire(t.values, i);
+            if (k == EMPTY) return missing;
+        }
+    }
+
+    /**
+     * Returns the value of the given key, or -1 when the key is absent.
+     * @param key the key
+     * @return the value of the key, or -1
+     */
+    public int get(long key) {
+        return get(key, -1);
+    }
+
+    /**
+     * Associates a value with a key. Calls must not run concurrently with each other.
+     * @param key the key, not {@link Long#MIN_VALUE}
+     * @param value the value
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        Table t = table;
+        if ((size + 1) * 4L > t.keys.length * 3L) {
+            t = resize(t);
+        }
+        if (insert(t, key, value)) size++;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    private Table resize(Table old) {
+        Table grown = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY) insert(grown, old.keys[i], old.values[i]);
+        }
+        table = grown;
+        return grown;
+    }
+
+    private static boolean insert(Table t, long key, int value) {
+        int mask = t.keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = t.keys[i];
+            if (k == key) {
+                INTS.setRelease(t.values, i, value);
+                return false;
+            }
+            if (k == EMPTY) {
+                INTS.setRelease(t.values, i, value);
+                LONGS.setRelease(t.keys, i, key);
+                return true;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3L < expectedSize * 4L) capacity <<= 1;
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new int[capacity];
+        }
+    }
+}
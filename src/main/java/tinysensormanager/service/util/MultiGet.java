@@ -0,0 +1,59 @@
+package tinysensormanager.service.util;
+
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Resolves many entities by id with as few queries as possible: ids found in the cache are served from it,
+ * the remaining ids are loaded in chunks of {@code IN (...)} queries and the loaded entities are cached.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class MultiGet {
+
+    private MultiGet() {
+    }
+
+    /**
+     * Resolves entities by id.
+     * @param ids the requested ids, duplicates and nulls are ignored
+     * @param cache the cache to consult first and to fill, may be null
+     * @param type the type of the entities
+     * @param chunkSize the maximum number of ids per query
+     * @param loader the query that loads the entities of a chunk of ids, in any order
+     * @param idOf returns the id of an entity
+     * @param <E> the type of the entities
+     * @return the found entities by id, in the order the ids were requested
+     */
+    public static <E> Map<Long, E> load(Collection<Long> ids, Cache cache, Class<E> type, int chunkSize,
+                                        Function<List<Long>, List<E>> loader, Function<E, Long> idOf) {
+        LinkedHashSet<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        Map<Long, E> found = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : requested) {
+            E cached = cache == null ? null : cache.get(id, type);
+            // Reserve the position of every id, so the result keeps the requested order
+            found.put(id, cached);
+            if (cached == null) misses.add(id);
+        }
+        for (int from = 0; from < misses.size(); from += chunkSize) {
+            for (E entity : loader.apply(misses.subList(from, Math.min(from + chunkSize, misses.size())))) {
+                Long id = idOf.apply(entity);
+                found.put(id, entity);
+                if (cache != null) cache.put(id, entity);
+            }
+        }
+        found.values().removeIf(Objects::isNull);
+        return found;
+    }
+}
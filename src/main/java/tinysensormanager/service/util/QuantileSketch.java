@@ -0,0 +1,273 @@
+package tinysensormanager.service.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A mergeable sketch of a distribution of values that answers quantile queries with a bounded relative error.
+ *
+ * <p>Values are counted in logarithmically sized buckets, as in DDSketch: a bucket covers the values between
+ * two consecutive powers of {@code gamma = (1 + a) / (1 - a)}, so any quantile is returned within a relative
+ * error of {@link #RELATIVE_ACCURACY} {@code a} of the exact value. Positive and negative values are counted
+ * in separate bucket ranges, values closer to zero than {@code 1e-9} count as zero. Two sketches merge by
+ * adding their bucket counts, which makes merging exact and order independent: merging the sketches of
+ * hours, devices or nodes gives the same sketch as adding all their values to one sketch. The number of
+ * buckets is bounded; when a range would exceed it, its buckets closest to zero are collapsed, which only
+ * reduces the accuracy of quantiles near zero.</p>
+ *
+ * <p>Sketches are not thread safe.</p>
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public class QuantileSketch {
+    /**
+     * The relative error of the quantiles returned.
+     */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double MIN_INDEXABLE = 1e-9;
+    private static final int MAX_BUCKETS = 2048;
+    private static final byte FORMAT = 1;
+
+    private final Store positive = new Store();
+    private final Store negative = new Store();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Adds a value. Values that are not finite are ignored.
+     * @param value the value
+     */
+    public void add(double value) {
+        if (!Double.isFinite(value)) return;
+        if (value >= MIN_INDEXABLE) {
+            positive.add(index(value), 1);
+        } else if (value <= -MIN_INDEXABLE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Adds all values of another sketch to this one.
+     * @param other the sketch to merge, left unchanged
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) return;
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns a copy of this sketch.
+     * @return the copy
+     */
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Returns the number of values added.
+     * @return the count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest value added.
+     * @return the minimum, or NaN if the sketch is empty
+     */
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the largest value added.
+     * @return the maximum, or NaN if the sketch is empty
+     */
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Returns an approximation of a quantile.
+     * @param q the quantile, between 0 and 1
+     * @return the approximate value, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("The quantile must be between 0 and 1");
+        if (count == 0) return Double.NaN;
+        double rank = q * (count - 1);
+        long seen = 0;
+        if (negative.counts != null) {
+            for (int i = negative.counts.length - 1; i >= 0; i--) {
+                seen += negative.counts[i];
+                if (seen > rank) return clamp(-value(negative.offset + i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) return clamp(0);
+        if (positive.counts != null) {
+            for (int i = 0; i < positive.counts.length; i++) {
+                seen += positive.counts[i];
+                if (seen > rank) return clamp(value(positive.offset + i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Serializes the sketch.
+     * @return the serialized form, read by {@link #fromBytes(byte[])}
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeLong(count);
+            out.writeLong(zeroCount);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            positive.write(out);
+            negative.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a sketch.
+     * @param bytes the serialized form written by {@link #toBytes()}
+     * @return the sketch
+     * @throws IllegalArgumentException if the bytes are not a serialized sketch
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != FORMAT) throw new IllegalArgumentException("Unknown sketch format");
+            sketch.count = in.readLong();
+            sketch.zeroCount = in.readLong();
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            sketch.positive.read(in);
+            sketch.negative.read(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated sketch", e);
+        }
+        return sketch;
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    /**
+     * The counts of a contiguous range of bucket indexes.
+     */
+    private static final class Store {
+        long[] counts;
+        int offset;
+
+        void add(int index, long n) {
+            if (counts == null) {
+                counts = new long[16];
+                offset = index - 8;
+            }
+            if (index < offset || index >= offset + counts.length) extend(index);
+            // An index below the range was collapsed into the lowest bucket
+            counts[Math.max(index - offset, 0)] += n;
+        }
+
+        void merge(Store other) {
+            if (other.counts == null) return;
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) add(other.offset + i, other.counts[i]);
+            }
+        }
+
+        private void extend(int index) {
+            int high = Math.max(offset + counts.length - 1, index);
+            int low = Math.min(offset, index);
+            int size = Math.max(high - low + 1, Math.min(counts.length * 2, MAX_BUCKETS));
+            if (high - low + 1 > MAX_BUCKETS) size = MAX_BUCKETS;
+            // Leave the spare buckets on the side the range grows to
+            int grownOffset = index < offset ? high - size + 1 : Math.max(low, high - size + 1);
+            long[] grown = new long[size];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) grown[Math.max(offset + i - grownOffset, 0)] += counts[i];
+            }
+            counts = grown;
+            offset = grownOffset;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            int first = 0;
+            int last = counts == null ? -1 : counts.length - 1;
+            while (first <= last && counts[first] == 0) first++;
+            while (last >= first && counts[last] == 0) last--;
+            out.writeInt(first <= last ? offset + first : 0);
+            out.writeInt(last - first + 1);
+            for (int i = first; i <= last; i++) writeVarLong(out, counts[i]);
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int first = in.readInt();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_BUCKETS) throw new IOException("Invalid bucket count " + length);
+            if (length == 0) return;
+            counts = new long[length];
+            offset = first;
+            for (int i = 0; i < length; i++) counts[i] = readVarLong(in);
+        }
+
+        /**
+         * Writes a count in 7-bit groups, so the many small and empty buckets take a byte each.
+         */
+        private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private static long readVarLong(DataInputStream in) throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Invalid count");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package tinysensormanager.service.util;
+
+/**
+ * Reduces SQL statements to a canonical form, so statements that differ only in their literal values are
+ * counted together: string and numeric literals become {@code ?}, lists of placeholders such as
+ * {@code IN (?, ?, ?)} collapse to {@code (?)} and runs of whitespace become a single space.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+public final class SqlNormalizer {
+
+    private SqlNormalizer() {
+    }
+
+    /**
+     * Normalizes a statement.
+     * @param sql the statement
+     * @return the normalized statement
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = i + 1;
+                while (end < n) {
+                    if (sql.charAt(end) == c) {
+                        // A doubled quote is an escaped quote inside the literal
+                        if (end + 1 < n && sql.charAt(end + 1) == c) {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                out.append('?');
+                i = end + 1;
+            } else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                out.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) i++;
+                if (out.length() > 0) out.append(' ');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return collapseLists(out.toString().trim());
+    }
+
+    private static boolean isIdentifierPart(StringBuilder out) {
+        if (out.length() == 0) return false;
+        char last = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_';
+    }
+
+    /**
+     * Replaces every parenthesised list that only contains placeholders with {@code (?)}.
+     */
+    private static String collapseLists(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                int end = i + 1;
+                boolean placeholders = false;
+                while (end < sql.length() && "?, ".indexOf(sql.charAt(end)) >= 0) {
+                    placeholders |= sql.charAt(end) == '?';
+                    end++;
+                }
+                if (placeholders && end < sql.length() && sql.charAt(end) == ')') {
+                    out.append("(?)");
+                    i = end + 1;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+}
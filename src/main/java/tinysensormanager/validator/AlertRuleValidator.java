@@ -0,0 +1,74 @@
+package tinysensormanager.validator;
+
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.validation.ValidationUtils;
+import org.springframework.validation.Validator;
+import tinysensormanager.dto.AlertRuleDTO;
+import tinysensormanager.model.AlertRule;
+
+/**
+ * This class implements the Spring Validator interface for validating an {@link AlertRuleDTO} object.
+ * It validates the fields of the {@link AlertRuleDTO} object and generates validation errors
+ * using the Spring Errors object.
+ *
+ * @author manokel01
+ * @version 1.0.0
+ */
+@Component
+public class AlertRuleValidator implements Validator {
+
+    /**
+     * Returns true if the validator can validate instances of the given class.
+     * This Validator can only validate {@link AlertRuleDTO} objects.
+     *
+     * @param clazz the class to check
+     * @return true if this validator can validate the class, false otherwise
+     */
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return AlertRuleDTO.class == clazz;
+    }
+
+    /**
+     * Validates the given object and generates validation errors using the given Errors object.
+     * This method checks the name, scope, target, type and threshold fields of the {@link AlertRuleDTO} object.
+     *
+     * @param target the object to validate
+     * @param errors the Spring Errors object to store any validation errors
+     */
+    @Override
+    public void validate(Object target, Errors errors) {
+        AlertRuleDTO ruleDTO = (AlertRuleDTO) target;
+
+        // Validate the name field
+        ValidationUtils.rejectIfEmptyOrWhitespace(errors, "name", "empty");
+        if (ruleDTO.getName() != null && ruleDTO.getName().length() > 60) {
+            errors.rejectValue("name", "size");
+        }
+
+        // Validate the scope and target fields
+        if (ruleDTO.getScope() == null) {
+            errors.rejectValue("scope", "empty");
+        } else if (ruleDTO.getScope() == AlertRule.Scope.DEVICE) {
+            try {
+                Long.parseLong(ruleDTO.getTarget() == null ? "" : ruleDTO.getTarget().trim());
+            } catch (NumberFormatException e) {
+                errors.rejectValue("target", "invalid");
+            }
+        } else if (ruleDTO.getScope() == AlertRule.Scope.MODEL) {
+            ValidationUtils.rejectIfEmpty(errors, "target", "empty");
+        }
+
+        // Validate the type and threshold fields
+        if (ruleDTO.getType() == null) {
+            errors.rejectValue("type", "empty");
+        }
+        if (Double.isNaN(ruleDTO.getThreshold()) || Double.isInfinite(ruleDTO.getThreshold())) {
+            errors.rejectValue("threshold", "invalid");
+        } else if ((ruleDTO.getType() == AlertRule.Type.RATE || ruleDTO.getType() == AlertRule.Type.SILENCE)
+                && ruleDTO.getThreshold() <= 0) {
+            errors.rejectValue("threshold", "invalid");
+        }
+    }
+}
@@ -54,8 +54,8 @@ public class DbUserValidator implements Validator {
         if (userToRegister.getUsername().length() < 3 || userToRegister.getUsername().length() > 32) {
             errors.rejectValue("username", "size");
         }
-        if (userService.usernameExists(userToRegister.getUsername())) {
-            errors.rejectValue("email", "duplicate");
+        if (userService.usernameExists(userToRegister.getUsername(), userToRegister.getId())) {
+            errors.rejectValue("username", "duplicate");
         }
 
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "password", "empty");
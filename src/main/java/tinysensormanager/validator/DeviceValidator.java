@@ -1,10 +1,12 @@
 package tinysensormanager.validator;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ValidationUtils;
 import org.springframework.validation.Validator;
 import tinysensormanager.dto.DeviceDTO;
+import tinysensormanager.service.IDeviceService;
 
 /**
  * This class implements the Spring Validator interface for validating a {@link DeviceDTO} object.
@@ -17,6 +19,18 @@ import tinysensormanager.dto.DeviceDTO;
 @Component
 public class DeviceValidator implements Validator {
 
+    private final IDeviceService deviceService;
+
+    /**
+     * Constructs a new DeviceValidator object with the given {@link IDeviceService} instance.
+     *
+     * @param deviceService the service used to check whether a MAC address is taken
+     */
+    @Autowired
+    public DeviceValidator(IDeviceService deviceService) {
+        this.deviceService = deviceService;
+    }
+
     /**
      * Returns true if the validator can validate instances of the given class.
      * This Validator can only validate {@link DeviceDTO} objects.
@@ -50,6 +64,8 @@ public class DeviceValidator implements Validator {
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "mac", "empty");
         if (deviceDTO.getMac().length() < 12 || deviceDTO.getMac().length() > 17) {
             errors.rejectValue("mac", "size");
+        } else if (deviceService.macExists(deviceDTO.getMac(), deviceDTO.getId())) {
+            errors.rejectValue("mac", "duplicate");
         }
 
         // Validate the ip field
@@ -1,10 +1,12 @@
 package tinysensormanager.validator;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ValidationUtils;
 import org.springframework.validation.Validator;
 import tinysensormanager.dto.UserDTO;
+import tinysensormanager.service.IUserService;
 
 /**
  * This class implements the Validator interface to validate UserDTO objects.
@@ -16,6 +18,18 @@ import tinysensormanager.dto.UserDTO;
 @Component
 public class UserValidator implements Validator {
 
+    private final IUserService userService;
+
+    /**
+     * Constructs a new UserValidator object with the given {@link IUserService} instance.
+     *
+     * @param userService the service used to check whether an email address is taken
+     */
+    @Autowired
+    public UserValidator(IUserService userService) {
+        this.userService = userService;
+    }
+
     /**
      * Returns whether the Validator can validate instances of the given class.
      * @param clazz the Class that this Validator is being asked if it can validate
@@ -50,7 +64,9 @@ public class UserValidator implements Validator {
         // Check if email is empty or too long/short
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "email", "empty");
         if (userDTO.getEmail().length() < 6 || userDTO.getEmail().length() > 256 ) {
-            errors.rejectValue("lastname", "size");
+            errors.rejectValue("email", "size");
+        } else if (userService.emailExists(userDTO.getEmail(), userDTO.getId())) {
+            errors.rejectValue("email", "duplicate");
         }
     }
 }
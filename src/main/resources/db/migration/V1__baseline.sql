@@ -0,0 +1,39 @@
+-- Baseline schema of devices, users and database users, equivalent to what Hibernate created with
+-- ddl-auto=update before the schema was managed by migrations. Existing databases are baselined at this
+-- version and only receive later migrations, so tables added since belong in later migrations.
+
+CREATE TABLE hibernate_sequence (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO hibernate_sequence VALUES (1);
+
+CREATE TABLE DEVICES (
+    ID            BIGINT       NOT NULL,
+    DEVICE_NAME   VARCHAR(255) NOT NULL,
+    SERIAL_NUMBER VARCHAR(255),
+    MAC_ADDRESS   VARCHAR(255),
+    IP_ADDRESS    VARCHAR(255),
+    MAC           VARCHAR(255),
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_DEVICES_MAC_ADDRESS UNIQUE (MAC_ADDRESS)
+) ENGINE = InnoDB;
+
+CREATE TABLE USERS (
+    ID        BIGINT       NOT NULL,
+    FIRSTNAME VARCHAR(255),
+    LASTNAME  VARCHAR(255),
+    EMAIL     VARCHAR(255) NOT NULL,
+    ADDRESS   VARCHAR(255),
+    IMAGE     VARCHAR(255),
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_USERS_EMAIL UNIQUE (EMAIL)
+) ENGINE = InnoDB;
+
+CREATE TABLE DBUSERS (
+    ID       BIGINT       NOT NULL,
+    USERNAME VARCHAR(255) NOT NULL,
+    PASSWORD VARCHAR(255) NOT NULL,
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_DBUSERS_USERNAME UNIQUE (USERNAME)
+) ENGINE = InnoDB;
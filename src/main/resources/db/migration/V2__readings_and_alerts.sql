@@ -0,0 +1,34 @@
+-- Readings and alerts. Databases created by ddl-auto=update before migrations were introduced may hold
+-- these tables already, so they are only created when missing.
+
+CREATE TABLE IF NOT EXISTS READINGS (
+    ID            BIGINT NOT NULL AUTO_INCREMENT,
+    DEVICE_ID     BIGINT NOT NULL,
+    TS            BIGINT NOT NULL,
+    READING_VALUE DOUBLE NOT NULL,
+    PRIMARY KEY (ID),
+    INDEX IDX_READINGS_DEVICE_TS (DEVICE_ID, TS)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS ALERT_RULES (
+    ID        BIGINT       NOT NULL,
+    NAME      VARCHAR(255) NOT NULL,
+    SCOPE     VARCHAR(255) NOT NULL,
+    TARGET    VARCHAR(255),
+    RULE_TYPE VARCHAR(255) NOT NULL,
+    THRESHOLD DOUBLE       NOT NULL,
+    ENABLED   BIT          NOT NULL,
+    PRIMARY KEY (ID)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS ALERTS (
+    ID            BIGINT NOT NULL AUTO_INCREMENT,
+    RULE_ID       BIGINT NOT NULL,
+    DEVICE_ID     BIGINT NOT NULL,
+    RAISED        BIT    NOT NULL,
+    READING_VALUE DOUBLE,
+    TS            BIGINT NOT NULL,
+    MESSAGE       VARCHAR(255),
+    PRIMARY KEY (ID),
+    INDEX IDX_ALERTS_DEVICE_TS (DEVICE_ID, TS)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Indexes for the lookups of the repositories, which Hibernate never created.
+
+-- DeviceRepo.findByModelStartingWith: DEVICE_NAME LIKE 'prefix%'
+CREATE INDEX IDX_DEVICES_DEVICE_NAME ON DEVICES (DEVICE_NAME);
+
+-- UserRepo.findByLastnameStartingWith: LASTNAME LIKE 'prefix%'
+CREATE INDEX IDX_USERS_LASTNAME ON USERS (LASTNAME);
+
+-- Alert descriptions include the rule name and may exceed 255 characters
+ALTER TABLE ALERTS MODIFY MESSAGE VARCHAR(1000);
@@ -0,0 +1,13 @@
+-- Change events of devices, users and database users, appended in the transaction of the change.
+-- Every node tails the table by SEQ to keep its caches coherent; old rows are purged by the relay.
+CREATE TABLE OUTBOX (
+    SEQ         BIGINT       NOT NULL AUTO_INCREMENT,
+    ENTITY      VARCHAR(16)  NOT NULL,
+    ENTITY_ID   BIGINT       NOT NULL,
+    CHANGE_TYPE VARCHAR(16)  NOT NULL,
+    UNIQUE_KEY  VARCHAR(255),
+    ORIGIN_NODE VARCHAR(64)  NOT NULL,
+    CREATED_AT  BIGINT       NOT NULL,
+    PRIMARY KEY (SEQ),
+    INDEX IDX_OUTBOX_CREATED_AT (CREATED_AT)
+) ENGINE = InnoDB;
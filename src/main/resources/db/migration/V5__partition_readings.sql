@@ -0,0 +1,12 @@
+-- Partitions READINGS by the time of the reading, so expired readings are removed by dropping whole
+-- partitions and range queries on TS only read the partitions of their range.
+-- MySQL requires the partitioning column in every unique key, so TS joins the primary key; ID stays
+-- first, as InnoDB requires for the AUTO_INCREMENT column.
+-- Both statements rebuild the table: on a large existing table, run them in a maintenance window.
+-- PartitionManager (tinysensor.partitions.enabled) splits p_future into daily or weekly partitions ahead of time.
+
+ALTER TABLE READINGS DROP PRIMARY KEY, ADD PRIMARY KEY (ID, TS);
+
+ALTER TABLE READINGS PARTITION BY RANGE (TS) (
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,12 @@
+-- Hourly quantile sketches of the readings per device ('D', keyed by device id) and per model ('M', keyed
+-- by model). Every node writes the sketches of the readings it ingested itself; queries merge the nodes.
+CREATE TABLE READING_SKETCHES (
+    SCOPE        CHAR(1)      NOT NULL,
+    SCOPE_KEY    VARCHAR(255) NOT NULL,
+    BUCKET_START BIGINT       NOT NULL,
+    NODE_ID      VARCHAR(64)  NOT NULL,
+    READINGS     BIGINT       NOT NULL,
+    SKETCH       MEDIUMBLOB   NOT NULL,
+    PRIMARY KEY (SCOPE, SCOPE_KEY, BUCKET_START, NODE_ID),
+    INDEX IDX_READING_SKETCHES_BUCKET_START (BUCKET_START)
+) ENGINE = InnoDB;
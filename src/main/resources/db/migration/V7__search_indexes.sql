@@ -0,0 +1,8 @@
+-- Indexes for the search endpoints, which refuse filters and sorts no index supports
+-- (see tinysensormanager.service.search.SearchSchema). Keep the @Table indexes of the entities in sync.
+
+-- GET /api/devices/search?filter=serialnumber:...: ranges and prefixes of serial numbers
+CREATE INDEX IDX_DEVICES_SERIAL_NUMBER ON DEVICES (SERIAL_NUMBER);
+
+-- GET /api/devices/search?filter=ip:...: lookups and prefixes of IP addresses
+CREATE INDEX IDX_DEVICES_IP_ADDRESS ON DEVICES (IP_ADDRESS);
@@ -0,0 +1,49 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.filter.AdaptiveConcurrencyLimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTests {
+
+    @Test
+    void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 200);
+        runAtLimit(limit, 10_000_000, 50);
+        int grown = limit.getLimit();
+        assertTrue(grown > 20);
+
+        runAtLimit(limit, 60_000_000, 20);
+        assertTrue(limit.getLimit() < grown / 2);
+    }
+
+    @Test
+    void rejectsBeyondLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(1, limit.getRejected());
+
+        limit.release(1_000_000, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    /**
+     * Fills the limit, then completes every request with the given latency, for a number of windows.
+     */
+    private static void runAtLimit(AdaptiveConcurrencyLimit limit, long rttNanos, int windows) {
+        for (int w = 0; w < windows; w++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) acquired++;
+            int samples = Math.max(10, limit.getLimit());
+            for (int i = 0; i < samples; i++) {
+                limit.release(rttNanos, false);
+                if (i < samples - acquired) limit.tryAcquire();
+            }
+        }
+    }
+}
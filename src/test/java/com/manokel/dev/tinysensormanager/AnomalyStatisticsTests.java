@@ -0,0 +1,48 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.anomaly.AnomalyStatistics;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyStatisticsTests {
+
+    @Test
+    void flagsASpikeOnlyOnTheDeviceThatSpiked() {
+        AnomalyStatistics statistics = new AnomalyStatistics(4, 0.02, 0.1, 24, 4, 30);
+        Random random = new Random(7);
+        long timestamp = 0;
+        for (int i = 0; i < 2000; i++) {
+            timestamp += 60_000;
+            for (int slot = 0; slot < 4; slot++) statistics.observe(slot, timestamp, 20 + random.nextGaussian());
+        }
+        assertEquals(-1, statistics.nextAnomalous(0));
+
+        timestamp += 60_000;
+        assertTrue(statistics.observe(2, timestamp, 40) >= 4);
+        assertTrue(statistics.isAnomalous(2));
+        assertEquals(2, statistics.nextAnomalous(0));
+        assertEquals(-1, statistics.nextAnomalous(3));
+        assertEquals(timestamp, statistics.anomalousSince(2));
+        assertEquals(1, statistics.anomalousCount());
+
+        for (int i = 0; i < 5; i++) {
+            timestamp += 60_000;
+            statistics.observe(2, timestamp, 20);
+        }
+        assertFalse(statistics.isAnomalous(2));
+        assertEquals(0, statistics.anomalousCount());
+    }
+
+    @Test
+    void doesNotScoreDuringTheWarmUp() {
+        AnomalyStatistics statistics = new AnomalyStatistics(1, 0.02, 0.1, 1, 4, 30);
+        for (int i = 0; i < 29; i++) assertEquals(0, statistics.observe(0, i * 1000L, i % 2 == 0 ? 0 : 1000));
+        statistics.ensureCapacity(100);
+        assertEquals(100, statistics.capacity());
+    }
+}
@@ -0,0 +1,53 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.resilience.CircuitBreaker;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+    private long now;
+
+    @Test
+    void opensOnFailuresAndClosesAfterGradualProbing() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 10, 0.5, 1000, 0.8, 5000, 4, () -> now);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(i % 2 == 0, 0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // One call in four is let through until the first probe succeeds
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onResult(false, 0);
+        for (int i = 0; i < 3; i++) breaker.onResult(false, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void opensOnSlowCallsAndReopensOnAFailedProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, 1000, 0.8, 5000, 4, () -> now);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(false, TimeUnit.SECONDS.toNanos(2));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(5000, breaker.getRemainingOpenMillis());
+    }
+}
@@ -0,0 +1,33 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.ingest.DeviceIndex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceIndexTests {
+
+    @Test
+    void unregisteredDevicesAreNotFoundButKeepTheirSlot() {
+        DeviceIndex index = new DeviceIndex(null, null);
+        int first = index.register(7, "TS-100", "02:00:00:00:00:07");
+        int second = index.register(8, "TS-100", "02:00:00:00:00:08");
+        int version = index.version();
+
+        index.unregister(7);
+        assertEquals(-1, index.slotOf(7));
+        assertEquals(-1, index.slotOfMac(0x020000000007L));
+        assertFalse(index.isRegistered(first));
+        assertEquals(second, index.slotOf(8));
+        assertEquals(2, index.size());
+        assertNotEquals(version, index.version());
+
+        // Registering the device again, as after a delete that was rolled back on another node
+        assertEquals(first, index.register(7, "TS-100", "02:00:00:00:00:07"));
+        assertTrue(index.isRegistered(first));
+        assertEquals(first, index.slotOfMac(0x020000000007L));
+    }
+}
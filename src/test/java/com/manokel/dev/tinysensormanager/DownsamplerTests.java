@@ -0,0 +1,53 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.util.Downsampler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownsamplerTests {
+
+    @Test
+    void shortSeriesIsReturnedUnchanged() {
+        Downsampler downsampler = new Downsampler(0, 100, 10, Downsampler.Mode.LTTB);
+        for (int i = 0; i < 5; i++) downsampler.accept(i * 10, i);
+        downsampler.finish();
+
+        assertArrayEquals(new long[] {0, 10, 20, 30, 40}, downsampler.getTimestamps());
+        assertArrayEquals(new double[] {0, 1, 2, 3, 4}, downsampler.getValues());
+    }
+
+    @Test
+    void lttbIsBoundedAndKeepsSpike() {
+        int points = 600_000;
+        Downsampler downsampler = new Downsampler(0, points, 1500, Downsampler.Mode.LTTB);
+        for (int i = 0; i < points; i++) downsampler.accept(i, i == 300_001 ? 1000 : Math.sin(i / 1000.0));
+        downsampler.finish();
+
+        long[] timestamps = downsampler.getTimestamps();
+        assertEquals(points, downsampler.getCount());
+        assertEquals(1500, timestamps.length);
+        assertEquals(0, timestamps[0]);
+        assertEquals(points - 1, timestamps[timestamps.length - 1]);
+        for (int i = 1; i < timestamps.length; i++) assertTrue(timestamps[i] > timestamps[i - 1]);
+        assertTrue(contains(downsampler.getValues(), 1000));
+    }
+
+    @Test
+    void minMaxKeepsBucketExtremes() {
+        Downsampler downsampler = new Downsampler(0, 1000, 4, Downsampler.Mode.MINMAX);
+        for (int i = 0; i < 1000; i++) downsampler.accept(i, i % 7 == 0 ? -i : i);
+        downsampler.finish();
+
+        assertTrue(downsampler.getTimestamps().length <= 4);
+        assertTrue(contains(downsampler.getValues(), -994));
+        assertTrue(contains(downsampler.getValues(), 999));
+    }
+
+    private static boolean contains(double[] values, double value) {
+        for (double v : values) if (v == value) return true;
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.model.Device;
+import tinysensormanager.model.User;
+import tinysensormanager.service.exceptions.InvalidSearchException;
+import tinysensormanager.service.search.EntitySearch;
+import tinysensormanager.service.search.FilterOperator;
+import tinysensormanager.service.search.SearchFilter;
+import tinysensormanager.service.search.SearchQuery;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntitySearchTests {
+    // Searches are checked against the indexes before the entity manager is used, so refusals need no database
+    private final EntitySearch search = new EntitySearch(false, 50, 500, 3, 2000);
+
+    @Test
+    void parsesFiltersAndSort() throws InvalidSearchException {
+        SearchQuery query = SearchQuery.parse(List.of("model:in:TS-100,TS-200", "imageUrl:present",
+                "serialnumber:ge:SN:1000"), "-serialnumber", 20, null);
+        SearchFilter models = query.getFilters().get(0);
+        assertEquals("model", models.getField());
+        assertEquals(FilterOperator.IN, models.getOperator());
+        assertEquals(List.of("TS-100", "TS-200"), models.getValues());
+        assertTrue(query.getFilters().get(1).getValues().isEmpty());
+        // Only the first two colons separate the parts
+        assertEquals(List.of("SN:1000"), query.getFilters().get(2).getValues());
+        assertEquals("serialnumber", query.getSortField());
+        assertTrue(query.isDescending());
+        assertEquals("-serialnumber", query.getSort());
+        assertNull(query.getCursor());
+
+        SearchQuery defaults = SearchQuery.parse(null, null, null, " ");
+        assertEquals("id", defaults.getSortField());
+        assertFalse(defaults.isDescending());
+        assertNull(defaults.getCursor());
+    }
+
+    @Test
+    void rejectsMalformedFilters() {
+        assertThrows(InvalidSearchException.class, () -> SearchFilter.parse("model"));
+        assertThrows(InvalidSearchException.class, () -> SearchFilter.parse("model:like:TS"));
+        assertThrows(InvalidSearchException.class, () -> SearchFilter.parse("model:eq:"));
+        assertThrows(InvalidSearchException.class, () -> SearchFilter.parse("imageUrl:present:yes"));
+        assertThrows(InvalidSearchException.class, () -> SearchQuery.parse(null, "-", null, null));
+    }
+
+    @Test
+    void refusesSearchesNoIndexSupports() {
+        // The image of a device is not indexed, and "present" matches most of any index
+        assertRefused(Device.class, List.of("imageUrl:present"), "id");
+        assertRefused(Device.class, List.of("imageUrl:eq:http://x"), "id");
+        assertRefused(User.class, List.of("lastname:present"), "id");
+        assertRefused(User.class, List.of("firstname:prefix:Jo"), "lastname");
+        assertRefused(User.class, List.of(), "firstname");
+        assertRefused(User.class, List.of("email:eq:jo@example.com"), "-address");
+    }
+
+    @Test
+    void refusesInvalidSearches() {
+        assertRefused(Device.class, List.of("color:eq:red"), "id");
+        assertRefused(Device.class, List.of("id:prefix:12"), "id");
+        assertRefused(Device.class, List.of("id:eq:twelve"), "id");
+        assertRefused(Device.class, List.of("id:absent"), "id");
+        assertRefused(Device.class, List.of("model:in:A,B,C,D"), "id");
+        assertThrows(InvalidSearchException.class,
+                () -> search.search(Device.class, SearchQuery.parse(List.of("model:eq:TS-100"), "id", 501, null)));
+        assertThrows(InvalidSearchException.class,
+                () -> search.search(Device.class, SearchQuery.parse(List.of("model:eq:TS-100"), "id", null, "%%%")));
+    }
+
+    private void assertRefused(Class<?> entityClass, List<String> filters, String sort) {
+        assertThrows(InvalidSearchException.class,
+                () -> search.search(entityClass, SearchQuery.parse(filters, sort, null, null)));
+    }
+}
@@ -0,0 +1,36 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.IngestQuota;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestQuotaTests {
+
+    private final DeviceIndex deviceIndex = new DeviceIndex(null, null);
+
+    @Test
+    void everyReadingOfABatchIsCharged() {
+        IngestQuota quota = new IngestQuota(deviceIndex, 1, 10);
+        int slot = deviceIndex.register(1, "TS-100", null);
+
+        assertEquals(0, quota.tryAcquire(slot, 6));
+        assertEquals(0, quota.tryAcquire(slot, 4));
+        assertTrue(quota.tryAcquire(slot, 1) > 0);
+        assertEquals(1, quota.throttled());
+    }
+
+    @Test
+    void batchesLargerThanTheBurstAreNeverAdmitted() {
+        IngestQuota quota = new IngestQuota(deviceIndex, 1, 10);
+        int slot = deviceIndex.register(2, "TS-100", null);
+
+        assertEquals(Long.MAX_VALUE, quota.tryAcquire(slot, 11));
+        assertEquals(11, quota.throttled());
+        // The refused batch took nothing from the bucket
+        assertEquals(0, quota.tryAcquire(slot, 10));
+        assertEquals(10, quota.burst());
+    }
+}
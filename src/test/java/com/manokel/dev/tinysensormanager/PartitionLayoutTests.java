@@ -0,0 +1,46 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.storage.PartitionLayout;
+import tinysensormanager.service.storage.PartitionLayout.Interval;
+import tinysensormanager.service.storage.PartitionLayout.Range;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionLayoutTests {
+    private static final long NOW = Instant.parse("2026-10-14T15:30:00Z").toEpochMilli();
+
+    @Test
+    void createsPartitionsAheadOfTheCurrentInterval() {
+        List<Range> ranges = PartitionLayout.missing(Interval.DAY, -1, NOW, 2);
+        assertEquals(List.of("p_20261014", "p_20261015", "p_20261016"), names(ranges));
+        assertEquals(Instant.parse("2026-10-15T00:00:00Z").toEpochMilli(), ranges.get(0).getTo());
+
+        long highest = ranges.get(2).getTo();
+        assertEquals(List.of(), PartitionLayout.missing(Interval.DAY, highest, NOW, 2));
+        assertEquals(List.of("p_20261017"), names(PartitionLayout.missing(Interval.DAY, highest, NOW, 3)));
+    }
+
+    @Test
+    void coversGapsAndStartsWeeksOnMonday() {
+        long old = Instant.parse("2026-09-01T00:00:00Z").toEpochMilli();
+        List<Range> ranges = PartitionLayout.missing(Interval.WEEK, old, NOW, 1);
+        assertEquals(List.of("p_20260901", "p_20261012", "p_20261019"), names(ranges));
+        assertEquals(Instant.parse("2026-10-12T00:00:00Z").toEpochMilli(), ranges.get(0).getTo());
+    }
+
+    @Test
+    void expiresOnlyPartitionsEntirelyBeforeTheCutoff() {
+        long[] bounds = {100, 200, 300};
+        String[] names = {"p_a", "p_b", "p_c"};
+        assertEquals(List.of("p_a", "p_b"), PartitionLayout.expired(bounds, names, 250));
+    }
+
+    private static List<String> names(List<Range> ranges) {
+        return ranges.stream().map(Range::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,50 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.util.QuantileSketch;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTests {
+
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        Random random = new Random(3);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2) - 1;
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] {0, 0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1}) {
+            double exact = values[(int) (q * (values.length - 1))];
+            double error = Math.abs(sketch.quantile(q) - exact) / Math.abs(exact);
+            assertTrue(error <= QuantileSketch.RELATIVE_ACCURACY + 1e-9, "q=" + q + " error=" + error);
+        }
+        assertEquals(values[0], sketch.min());
+        assertEquals(values[values.length - 1], sketch.max());
+    }
+
+    @Test
+    void mergingEqualsAddingAllValuesToOneSketch() {
+        Random random = new Random(5);
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch merged = new QuantileSketch();
+        for (int hour = 0; hour < 24; hour++) {
+            QuantileSketch part = new QuantileSketch();
+            for (int i = 0; i < 1000; i++) {
+                double value = random.nextGaussian() * 10 + hour;
+                all.add(value);
+                part.add(value);
+            }
+            merged.merge(QuantileSketch.fromBytes(part.toBytes()));
+        }
+        assertEquals(all.count(), merged.count());
+        for (double q = 0; q <= 1; q += 0.05) assertEquals(all.quantile(q), merged.quantile(q));
+    }
+}
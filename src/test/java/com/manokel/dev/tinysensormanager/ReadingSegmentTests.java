@@ -0,0 +1,106 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tinysensormanager.service.storage.ColdReadingCursor;
+import tinysensormanager.service.storage.ReadingSegment;
+import tinysensormanager.service.storage.SegmentWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingSegmentTests {
+    private static final long DAY = 86_400_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackReadingsOfADeviceAcrossBlocks() throws IOException {
+        ReadingSegment segment = write("a.seg", 0, DAY, 100, () -> {
+            List<long[]> readings = new ArrayList<>();
+            for (long d = 1; d <= 3; d++) {
+                for (long t = 0; t < 10_000; t++) readings.add(new long[] {d, t * 7, d * 100_000 + t});
+            }
+            return readings;
+        });
+        assertEquals(30_000, segment.getReadings());
+        assertEquals(9, segment.getBlocks());
+        assertEquals(100, segment.getMaxId());
+
+        List<long[]> points = read(List.of(segment), 2, 700, 70_000);
+        assertEquals(9_900, points.size());
+        assertEquals(700, points.get(0)[0]);
+        assertEquals(200_100, points.get(0)[1]);
+        assertEquals(69_993, points.get(points.size() - 1)[0]);
+        for (int i = 1; i < points.size(); i++) assertTrue(points.get(i)[0] > points.get(i - 1)[0]);
+        assertEquals(0, read(List.of(segment), 4, 0, DAY).size());
+    }
+
+    @Test
+    void mergesSegmentsOfTheSameRangeInTimestampOrder() throws IOException {
+        ReadingSegment first = write("a.seg", 0, DAY, 10, () -> List.of(
+                new long[] {1, 10, 1}, new long[] {1, 30, 3}));
+        ReadingSegment late = write("b.seg", 0, DAY, 20, () -> List.of(
+                new long[] {1, 20, 2}, new long[] {1, 40, 4}));
+        List<long[]> points = read(List.of(late, first), 1, 0, DAY);
+        assertEquals(4, points.size());
+        for (int i = 0; i < 4; i++) assertEquals(i + 1, points.get(i)[1]);
+    }
+
+    @Test
+    void reportsRowsThatWereArchived() throws IOException {
+        ReadingSegment segment = write("a.seg", 0, DAY, 50, () -> List.of(new long[] {1, 10, 1}));
+        try (ColdReadingCursor cursor = new ColdReadingCursor(List.of(segment), 1, 0, 2 * DAY, Runnable::run, 1)) {
+            assertTrue(cursor.isArchived(10, 50));
+            assertFalse(cursor.isArchived(10, 51));
+            assertFalse(cursor.isArchived(DAY, 1));
+        }
+    }
+
+    @Test
+    void refusesUnorderedReadingsAndLeavesNoFileBehind() throws IOException {
+        Path path = directory.resolve("c.seg");
+        try (SegmentWriter writer = new SegmentWriter(path, 0, DAY)) {
+            writer.add(2, 10, 1);
+            assertThrows(IllegalArgumentException.class, () -> writer.add(1, 10, 1));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(2, 5, 1));
+            assertThrows(IllegalArgumentException.class, () -> writer.add(2, DAY, 1));
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private ReadingSegment write(String name, long from, long to, long maxId,
+                                 Supplier<List<long[]>> readings) throws IOException {
+        Path path = directory.resolve(name);
+        try (SegmentWriter writer = new SegmentWriter(path, from, to)) {
+            for (long[] reading : readings.get()) writer.add(reading[0], reading[1], reading[2]);
+            writer.commit(maxId);
+        }
+        return ReadingSegment.open(path);
+    }
+
+    private static List<long[]> read(List<ReadingSegment> segments, long deviceId, long from, long to) {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<long[]> points = new ArrayList<>();
+        try (ColdReadingCursor cursor = new ColdReadingCursor(segments, deviceId, from, to, executor, 4)) {
+            while (cursor.advance()) points.add(new long[] {cursor.timestamp(), (long) cursor.value()});
+        } finally {
+            executor.shutdown();
+        }
+        return points;
+    }
+}
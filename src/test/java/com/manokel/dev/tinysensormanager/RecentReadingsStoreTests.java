@@ -0,0 +1,33 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.ingest.RecentReadingsStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RecentReadingsStoreTests {
+
+    @Test
+    void keepsTheLatestReadingsOfEachDeviceInTimestampOrder() {
+        DeviceIndex deviceIndex = new DeviceIndex(null, null);
+        int first = deviceIndex.register(7, "thermo", null);
+        int second = deviceIndex.register(9, "thermo", null);
+        RecentReadingsStore store = new RecentReadingsStore(deviceIndex, 4, "");
+        for (int i = 0; i < 10; i++) store.onReading(first, 7, 100 + i, i);
+        store.onReading(first, 7, 105, -1);
+        store.onReading(second, 9, 50, 1);
+
+        long[] timestamps = new long[4];
+        double[] values = new double[4];
+        assertEquals(4, store.latest(first, 7, 4, timestamps, values));
+        assertArrayEquals(new long[] {105, 107, 108, 109}, timestamps);
+        assertArrayEquals(new double[] {-1, 7, 8, 9}, values);
+
+        assertEquals(1, store.latest(second, 9, 4, timestamps, values));
+        assertEquals(50, timestamps[0]);
+        assertEquals(0, store.latest(second, 7, 4, timestamps, values));
+        assertEquals(0, store.latest(5, 11, 4, timestamps, values));
+    }
+}
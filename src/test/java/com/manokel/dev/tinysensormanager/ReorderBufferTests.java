@@ -0,0 +1,65 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.ingest.ReadingDeduplicator;
+import tinysensormanager.service.ingest.ReorderBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReorderBufferTests {
+
+    @Test
+    void releasesReadingsInTimestampOrderOnceTheWindowHasPassed() {
+        ReorderBuffer buffer = new ReorderBuffer(16, 100);
+        List<Long> released = new ArrayList<>();
+        ReorderBuffer.Sink sink = (slot, deviceId, timestamp, value, late) -> released.add(late ? -timestamp : timestamp);
+
+        buffer.add(0, 7, 30, 0, 0, sink);
+        buffer.add(0, 7, 10, 0, 10, sink);
+        buffer.add(1, 9, 20, 0, 20, sink);
+        buffer.release(99, sink);
+        assertEquals(List.of(), released);
+
+        buffer.add(0, 7, 40, 0, 150, sink);
+        buffer.release(100, sink);
+        assertEquals(List.of(10L, 20L, 30L), released);
+
+        // Arrives after 30 was released: still released, but flagged as late
+        buffer.add(0, 7, 25, 0, 160, sink);
+        buffer.release(260, sink);
+        assertEquals(List.of(10L, 20L, 30L, -25L, 40L), released);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void releasesTheOldestArrivalEarlyWhenFull() {
+        ReorderBuffer buffer = new ReorderBuffer(2, 1000);
+        List<Long> released = new ArrayList<>();
+        ReorderBuffer.Sink sink = (slot, deviceId, timestamp, value, late) -> released.add(late ? -timestamp : timestamp);
+
+        buffer.add(0, 7, 5, 0, 0, sink);
+        buffer.add(0, 7, 3, 0, 0, sink);
+        buffer.add(0, 7, 4, 0, 0, sink);
+        assertEquals(List.of(3L, 5L), released);
+        buffer.releaseAll(sink);
+        assertEquals(List.of(3L, 5L, -4L), released);
+    }
+
+    @Test
+    void recognisesRetransmittedReadings() {
+        ReadingDeduplicator deduplicator = new ReadingDeduplicator(1, 2);
+        assertFalse(deduplicator.isDuplicate(0, 100));
+        assertTrue(deduplicator.isDuplicate(0, 100));
+        assertFalse(deduplicator.isDuplicate(0, 90));
+        assertTrue(deduplicator.isDuplicate(0, 90));
+        assertFalse(deduplicator.isDuplicate(3, 90));
+        assertFalse(deduplicator.isDuplicate(0, 110));
+        assertTrue(deduplicator.isDuplicate(0, 110));
+        assertTrue(deduplicator.isDuplicate(0, 90));
+    }
+}
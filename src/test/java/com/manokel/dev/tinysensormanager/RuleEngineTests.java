@@ -0,0 +1,130 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.dto.AlertDTO;
+import tinysensormanager.model.AlertRule;
+import tinysensormanager.service.ingest.DeviceIndex;
+import tinysensormanager.service.rules.AlertDispatcher;
+import tinysensormanager.service.rules.RuleEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleEngineTests {
+    private final List<AlertDTO> alerts = new ArrayList<>();
+    private final DeviceIndex deviceIndex = new DeviceIndex(null, null);
+    private final RuleEngine ruleEngine = new RuleEngine(deviceIndex, new AlertDispatcher(null, 1) {
+        @Override
+        public void dispatch(AlertDTO alert) {
+            alerts.add(alert);
+        }
+    });
+
+    @Test
+    void rulesApplyToTheirDeviceModelOrEveryDevice() {
+        int own = deviceIndex.register(1, "TS-100", null);
+        int sameModel = deviceIndex.register(2, "TS-100", null);
+        int other = deviceIndex.register(3, "XY-1", null);
+        ruleEngine.setRules(List.of(
+                rule(10, AlertRule.Scope.DEVICE, "1", AlertRule.Type.ABOVE, 50),
+                rule(11, AlertRule.Scope.MODEL, "TS-", AlertRule.Type.BELOW, 0),
+                rule(12, AlertRule.Scope.GLOBAL, null, AlertRule.Type.ABOVE, 100),
+                new AlertRule(13L, "disabled", AlertRule.Scope.GLOBAL, null, AlertRule.Type.ABOVE, 0, false)));
+        ruleEngine.onTick(1000);
+
+        ruleEngine.onReading(own, 1, 1, 60);
+        ruleEngine.onReading(sameModel, 2, 1, 60);
+        ruleEngine.onReading(other, 3, 1, -5);
+        assertEquals(1, alerts.size());
+        assertAlert(alerts.get(0), 10, 1, true);
+
+        ruleEngine.onReading(sameModel, 2, 2, -5);
+        ruleEngine.onReading(other, 3, 2, 150);
+        assertEquals(3, alerts.size());
+        assertAlert(alerts.get(1), 11, 2, true);
+        assertAlert(alerts.get(2), 12, 3, true);
+    }
+
+    @Test
+    void alertsAreRaisedAndClearedOnlyOnEdges() {
+        int slot = deviceIndex.register(1, "TS-100", null);
+        ruleEngine.setRules(List.of(rule(10, AlertRule.Scope.GLOBAL, null, AlertRule.Type.ABOVE, 50)));
+        ruleEngine.onTick(1000);
+
+        ruleEngine.onReading(slot, 1, 1, 60);
+        ruleEngine.onReading(slot, 1, 2, 70);
+        ruleEngine.onReading(slot, 1, 3, 40);
+        ruleEngine.onReading(slot, 1, 4, 30);
+        ruleEngine.onReading(slot, 1, 5, 55);
+
+        assertEquals(3, alerts.size());
+        assertAlert(alerts.get(0), 10, 1, true);
+        assertEquals(60.0, alerts.get(0).getValue());
+        assertAlert(alerts.get(1), 10, 1, false);
+        assertEquals(3, alerts.get(1).getTimestamp());
+        assertAlert(alerts.get(2), 10, 1, true);
+    }
+
+    @Test
+    void devicesChangedAfterCompilationAreResolvedWithoutLosingState() {
+        int first = deviceIndex.register(1, "TS-100", null);
+        int second = deviceIndex.register(2, "XY-1", null);
+        ruleEngine.setRules(List.of(rule(10, AlertRule.Scope.MODEL, "TS-", AlertRule.Type.ABOVE, 50)));
+        ruleEngine.onTick(1000);
+        ruleEngine.onReading(first, 1, 1, 60);
+        assertEquals(1, alerts.size());
+
+        // A new device is resolved when its first reading arrives, the first device keeps its violation
+        int added = deviceIndex.register(3, "TS-200", null);
+        ruleEngine.onReading(added, 3, 2, 60);
+        ruleEngine.onReading(first, 1, 2, 70);
+        assertEquals(2, alerts.size());
+        assertAlert(alerts.get(1), 10, 3, true);
+
+        // A device whose model changed gets the rules of its new model on the next tick
+        deviceIndex.register(2, "TS-300", null);
+        ruleEngine.onTick(2000);
+        ruleEngine.onReading(second, 2, 3, 60);
+        assertEquals(3, alerts.size());
+        assertAlert(alerts.get(2), 10, 2, true);
+
+        // A deleted device is no longer evaluated
+        deviceIndex.unregister(3);
+        ruleEngine.onTick(3000);
+        ruleEngine.onReading(added, 3, 4, 10);
+        assertEquals(3, alerts.size());
+    }
+
+    @Test
+    void silentDevicesAreReportedUntilTheyAreHeardFromAgain() {
+        int slot = deviceIndex.register(1, "TS-100", null);
+        ruleEngine.setRules(List.of(rule(10, AlertRule.Scope.DEVICE, "1", AlertRule.Type.SILENCE, 5)));
+        ruleEngine.onTick(1000);
+        ruleEngine.onTick(3000);
+        assertTrue(alerts.isEmpty());
+
+        ruleEngine.onTick(7000);
+        ruleEngine.onTick(9000);
+        assertEquals(1, alerts.size());
+        assertAlert(alerts.get(0), 10, 1, true);
+
+        ruleEngine.onHeartbeat(slot, 1, 9500);
+        assertEquals(2, alerts.size());
+        assertAlert(alerts.get(1), 10, 1, false);
+    }
+
+    private static AlertRule rule(long id, AlertRule.Scope scope, String target, AlertRule.Type type, double threshold) {
+        return new AlertRule(id, "rule " + id, scope, target, type, threshold, true);
+    }
+
+    private static void assertAlert(AlertDTO alert, long ruleId, long deviceId, boolean raised) {
+        assertEquals(ruleId, (long) alert.getRuleId());
+        assertEquals(deviceId, (long) alert.getDeviceId());
+        if (raised) assertTrue(alert.isRaised());
+        else assertFalse(alert.isRaised());
+    }
+}
@@ -0,0 +1,62 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.service.ingest.TelemetryFrames;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TelemetryFramesTests {
+
+    @Test
+    void decodesFramesSplitAcrossReads() {
+        ByteBuffer wire = ByteBuffer.allocate(1024);
+        TelemetryFrames.encode(wire, 7, false, new long[] {1000, 2000}, new double[] {1.5, -2.5}, 2);
+        TelemetryFrames.encode(wire, 0xA1B2C3D4E5F6L, true, new long[] {3000}, new double[] {42}, 1);
+        wire.flip();
+
+        Recorder recorder = new Recorder();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        buffer.put(wire.slice().limit(40));
+        buffer.flip();
+        assertEquals(0, TelemetryFrames.decode(buffer, recorder));
+        assertEquals(0, buffer.position());
+
+        buffer.compact();
+        wire.position(40);
+        buffer.put(wire);
+        buffer.flip();
+        assertEquals(2, TelemetryFrames.decode(buffer, recorder));
+        assertEquals(0, buffer.remaining());
+        assertEquals(List.of("7@1000=1.5", "7@2000=-2.5", "mac:a1b2c3d4e5f6", "99@3000=42.0"), recorder.events);
+    }
+
+    @Test
+    void rejectsInvalidHeader() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        TelemetryFrames.encode(buffer, 7, false, new long[] {1000}, new double[] {1}, 1);
+        buffer.put(0, (byte) 0);
+        buffer.flip();
+
+        assertEquals(TelemetryFrames.MALFORMED, TelemetryFrames.decode(buffer, new Recorder()));
+    }
+
+    private static class Recorder implements TelemetryFrames.Handler {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public long resolve(long device, boolean mac, int count) {
+            if (!mac) return device;
+            events.add("mac:" + Long.toHexString(device));
+            return 99;
+        }
+
+        @Override
+        public void onReading(long deviceId, long timestamp, double value) {
+            events.add(deviceId + "@" + timestamp + "=" + value);
+        }
+    }
+}
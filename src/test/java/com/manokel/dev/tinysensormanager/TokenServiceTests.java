@@ -0,0 +1,78 @@
+package com.manokel.dev.tinysensormanager;
+
+import org.junit.jupiter.api.Test;
+import tinysensormanager.authentication.TokenKeyRing;
+import tinysensormanager.authentication.TokenRevocationList;
+import tinysensormanager.authentication.TokenService;
+import tinysensormanager.service.outbox.EntityChangedEvent;
+import tinysensormanager.service.outbox.EntityChangedEvent.ChangeType;
+import tinysensormanager.service.outbox.EntityChangedEvent.Entity;
+import tinysensormanager.service.outbox.OutboxWriter;
+import tinysensormanager.service.outbox.TableVersions;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenServiceTests {
+    private static final String KEY_1 = "k1:MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String KEY_2 = "k2:ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    @Test
+    void verifiesIssuedTokensAcrossKeyRotation() {
+        TokenService oldNode = new TokenService(new TokenKeyRing(KEY_1, "k1"), revocationList(), 60);
+        TokenService newNode = new TokenService(new TokenKeyRing(KEY_1 + "," + KEY_2, "k2"), revocationList(), 60);
+
+        String token = oldNode.issue("bob");
+        assertEquals("bob", newNode.verify(token).getSubject());
+        assertTrue(newNode.issue("bob").startsWith("k2."));
+        assertNull(oldNode.verify(newNode.issue("bob")));
+    }
+
+    @Test
+    void rejectsTamperedExpiredAndRevokedTokens() {
+        TokenService service = new TokenService(new TokenKeyRing(KEY_1, "k1"), revocationList(), 60);
+        String token = service.issue("bob");
+        String[] parts = token.split("\\.");
+
+        assertNull(service.verify(parts[0] + ".YWxpY2U." + parts[2] + "." + parts[3] + "." + parts[4]));
+        assertNull(service.verify(token.substring(0, token.length() - 2)));
+        assertNull(new TokenService(new TokenKeyRing(KEY_1, "k1"), revocationList(), -1).verify(
+                new TokenService(new TokenKeyRing(KEY_1, "k1"), revocationList(), -1).issue("bob")));
+
+        assertTrue(service.revoke(token));
+        assertNull(service.verify(token));
+    }
+
+    @Test
+    void revocationsReachTheOtherNodes() {
+        TokenRevocationList otherList = revocationList();
+        // The outbox relay of the other node, reduced to handing over the appended event
+        TokenRevocationList list = revocationList(event -> otherList.onEntityChanged(event));
+        TokenService node = new TokenService(new TokenKeyRing(KEY_1, "k1"), list, 60);
+        TokenService otherNode = new TokenService(new TokenKeyRing(KEY_1, "k1"), otherList, 60);
+
+        String token = node.issue("bob");
+        assertNotNull(otherNode.verify(token));
+        assertTrue(node.revoke(token));
+        assertNull(otherNode.verify(token));
+        assertEquals(1, otherList.size());
+    }
+
+    private static TokenRevocationList revocationList() {
+        return revocationList(event -> { });
+    }
+
+    private static TokenRevocationList revocationList(Consumer<EntityChangedEvent> relay) {
+        OutboxWriter outboxWriter = new OutboxWriter(null, new TableVersions(), "test") {
+            @Override
+            public void append(Entity entity, long entityId, ChangeType changeType, String uniqueKey) {
+                relay.accept(new EntityChangedEvent(0, entity, entityId, changeType, uniqueKey, false));
+            }
+        };
+        return new TokenRevocationList(outboxWriter, null, 60);
+    }
+}